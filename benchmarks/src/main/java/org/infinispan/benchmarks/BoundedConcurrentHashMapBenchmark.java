@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.benchmarks;
+
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link BoundedConcurrentHashMap} under both eviction policies.  Keys are drawn from a key space twice the
+ * size of the map's capacity, so that reads are a mix of hits and misses and every miss is followed by a put that
+ * triggers eviction, which is how the map is exercised by the bounded data containers.
+ *
+ * @since 5.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class BoundedConcurrentHashMapBenchmark {
+
+   @Param({"LRU", "LIRS"})
+   Eviction eviction;
+
+   @Param({"10000"})
+   int capacity;
+
+   private BoundedConcurrentHashMap<Integer, Integer> map;
+   private Integer[] keys;
+
+   @Setup(Level.Iteration)
+   public void setUp() {
+      map = new BoundedConcurrentHashMap<Integer, Integer>(capacity, 32, eviction);
+      keys = new Integer[capacity * 2];
+      for (int i = 0; i < keys.length; i++) keys[i] = i;
+      for (int i = 0; i < capacity; i++) map.put(keys[i], keys[i]);
+   }
+
+   /**
+    * Per-thread source of random keys, so that benchmark threads don't contend on a shared {@link Random}.
+    */
+   @State(Scope.Thread)
+   public static class KeySelector {
+      final Random random = new Random();
+
+      Integer next(BoundedConcurrentHashMapBenchmark benchmark) {
+         return benchmark.keys[random.nextInt(benchmark.keys.length)];
+      }
+   }
+
+   @Benchmark
+   public Object get(KeySelector selector) {
+      return map.get(selector.next(this));
+   }
+
+   @Benchmark
+   public Object getOrPut(KeySelector selector) {
+      Integer key = selector.next(this);
+      Integer value = map.get(key);
+      if (value == null) value = map.put(key, key);
+      return value;
+   }
+}
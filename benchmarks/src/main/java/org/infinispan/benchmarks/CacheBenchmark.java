@@ -0,0 +1,104 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.benchmarks;
+
+import org.infinispan.Cache;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link org.infinispan.CacheDelegate#get(Object)} and {@link org.infinispan.CacheDelegate#put(Object,
+ * Object)} on a local cache, i.e. the full public API path including flag handling, invocation context creation and
+ * the default interceptor chain.
+ *
+ * @since 5.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+
+   @Param({"1000", "100000"})
+   int keySpace;
+
+   private EmbeddedCacheManager cacheManager;
+   private Cache<String, String> cache;
+   private String[] keys;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      cacheManager = new DefaultCacheManager();
+      cache = cacheManager.getCache();
+      keys = new String[keySpace];
+      for (int i = 0; i < keySpace; i++) {
+         keys[i] = "key" + i;
+         cache.put(keys[i], "value" + i);
+      }
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      cacheManager.stop();
+   }
+
+   /**
+    * Per-thread source of random keys, so that benchmark threads don't contend on a shared {@link Random}.
+    */
+   @State(Scope.Thread)
+   public static class KeySelector {
+      final Random random = new Random();
+
+      String next(CacheBenchmark benchmark) {
+         return benchmark.keys[random.nextInt(benchmark.keySpace)];
+      }
+   }
+
+   @Benchmark
+   public Object get(KeySelector selector) {
+      return cache.get(selector.next(this));
+   }
+
+   @Benchmark
+   public Object put(KeySelector selector) {
+      return cache.put(selector.next(this), "value");
+   }
+}
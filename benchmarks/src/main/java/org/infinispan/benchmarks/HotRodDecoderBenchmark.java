@@ -0,0 +1,194 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.benchmarks;
+
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.server.core.transport.Channel;
+import org.infinispan.server.core.transport.ChannelFuture;
+import org.infinispan.server.core.transport.ChannelHandlerContext;
+import org.infinispan.server.core.transport.netty.ChannelBufferAdapter;
+import org.infinispan.server.hotrod.HotRodDecoder;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Hot Rod server's request path, from decoding a Hot Rod 1.0 request out of a Netty buffer to executing
+ * it against the cache and producing the response object.  No sockets are involved: requests are pre-encoded once and
+ * replayed from the same buffer, and responses are handed to a {@link Blackhole} instead of being encoded and written.
+ *
+ * @since 5.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotRodDecoderBenchmark {
+
+   private static final int MAGIC = 0xA0;
+   private static final int VERSION_10 = 10;
+   private static final int PUT_REQUEST = 0x01;
+   private static final int GET_REQUEST = 0x03;
+
+   private EmbeddedCacheManager cacheManager;
+   private HotRodDecoder decoder;
+   private ResponseSink sink;
+   private ChannelBuffer getRequest;
+   private ChannelBuffer putRequest;
+
+   @Setup(Level.Trial)
+   public void setUp(Blackhole blackhole) {
+      cacheManager = new DefaultCacheManager();
+      cacheManager.getCache();
+      decoder = new HotRodDecoder(cacheManager);
+      sink = new ResponseSink(blackhole);
+      byte[] key = "key".getBytes();
+      byte[] value = new byte[256];
+      putRequest = ChannelBuffers.wrappedBuffer(encodePut(key, value));
+      getRequest = ChannelBuffers.wrappedBuffer(encodeGet(key));
+      // make sure gets hit
+      decode(putRequest);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      cacheManager.stop();
+   }
+
+   private Object decode(ChannelBuffer request) {
+      request.readerIndex(0);
+      return decoder.decode(sink, new ChannelBufferAdapter(request));
+   }
+
+   @Benchmark
+   public Object get() {
+      return decode(getRequest);
+   }
+
+   @Benchmark
+   public Object put() {
+      return decode(putRequest);
+   }
+
+   private static byte[] encodeGet(byte[] key) {
+      ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+      writeHeader(buffer, GET_REQUEST);
+      writeRangedBytes(buffer, key);
+      return toArray(buffer);
+   }
+
+   private static byte[] encodePut(byte[] key, byte[] value) {
+      ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+      writeHeader(buffer, PUT_REQUEST);
+      writeRangedBytes(buffer, key);
+      writeUnsignedInt(buffer, 0); // lifespan
+      writeUnsignedInt(buffer, 0); // max idle
+      writeRangedBytes(buffer, value);
+      return toArray(buffer);
+   }
+
+   private static void writeHeader(ChannelBuffer buffer, int op) {
+      buffer.writeByte(MAGIC);
+      writeUnsignedInt(buffer, 1); // message id
+      buffer.writeByte(VERSION_10);
+      buffer.writeByte(op);
+      writeUnsignedInt(buffer, 0); // default cache
+      writeUnsignedInt(buffer, 0); // no flags
+      buffer.writeByte(1); // basic client intelligence
+      writeUnsignedInt(buffer, 0); // topology id
+      buffer.writeByte(0); // no transaction
+   }
+
+   private static void writeRangedBytes(ChannelBuffer buffer, byte[] bytes) {
+      writeUnsignedInt(buffer, bytes.length);
+      buffer.writeBytes(bytes);
+   }
+
+   private static void writeUnsignedInt(ChannelBuffer buffer, int i) {
+      while ((i & ~0x7F) != 0) {
+         buffer.writeByte((byte) ((i & 0x7f) | 0x80));
+         i >>>= 7;
+      }
+      buffer.writeByte((byte) i);
+   }
+
+   private static byte[] toArray(ChannelBuffer buffer) {
+      byte[] bytes = new byte[buffer.readableBytes()];
+      buffer.readBytes(bytes);
+      return bytes;
+   }
+
+   /**
+    * Stands in for the Netty channel and its handler context, consuming the responses written by the decoder.
+    */
+   private static class ResponseSink extends ChannelHandlerContext {
+      private final Channel channel;
+
+      ResponseSink(final Blackhole blackhole) {
+         channel = new Channel() {
+            @Override
+            public ChannelFuture write(Object message) {
+               blackhole.consume(message);
+               return null;
+            }
+
+            @Override
+            public ChannelFuture disconnect() {
+               return null;
+            }
+
+            @Override
+            public Object getUnderlyingChannel() {
+               return null;
+            }
+
+            @Override
+            public ChannelFuture close() {
+               return null;
+            }
+         };
+      }
+
+      @Override
+      public Channel getChannel() {
+         return channel;
+      }
+   }
+}
@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.benchmarks;
+
+import org.infinispan.AdvancedCache;
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.read.GetKeyValueCommand;
+import org.infinispan.commands.write.PutKeyValueCommand;
+import org.infinispan.context.Flag;
+import org.infinispan.context.InvocationContextContainer;
+import org.infinispan.factories.ComponentRegistry;
+import org.infinispan.interceptors.InterceptorChain;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of passing pre-built commands through the {@link InterceptorChain}, leaving out the command
+ * construction done by {@link org.infinispan.CacheDelegate}.  Comparing these numbers with {@link CacheBenchmark}
+ * shows how much of a cache operation is spent in the interceptors themselves.
+ *
+ * @since 5.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterceptorChainBenchmark {
+
+   private EmbeddedCacheManager cacheManager;
+   private InterceptorChain chain;
+   private InvocationContextContainer icc;
+   private GetKeyValueCommand getCommand;
+   private PutKeyValueCommand putCommand;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      cacheManager = new DefaultCacheManager();
+      AdvancedCache<Object, Object> cache = cacheManager.getCache().getAdvancedCache();
+      cache.put("key", "value");
+
+      ComponentRegistry registry = cache.getComponentRegistry();
+      chain = registry.getComponent(InterceptorChain.class);
+      icc = cache.getInvocationContextContainer();
+      CommandsFactory commandsFactory = registry.getComponent(CommandsFactory.class);
+      Set<Flag> flags = Collections.emptySet();
+      getCommand = commandsFactory.buildGetKeyValueCommand("key", flags);
+      putCommand = commandsFactory.buildPutKeyValueCommand("key", "value", -1, -1, flags);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      cacheManager.stop();
+   }
+
+   @Benchmark
+   public Object get() {
+      return chain.invoke(icc.createInvocationContext(), getCommand);
+   }
+
+   @Benchmark
+   public Object put() {
+      return chain.invoke(icc.createInvocationContext(), putCommand);
+   }
+}
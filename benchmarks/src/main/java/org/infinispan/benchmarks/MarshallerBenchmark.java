@@ -0,0 +1,109 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.benchmarks;
+
+import org.infinispan.commands.RemoteCommandsFactory;
+import org.infinispan.commands.write.PutKeyValueCommand;
+import org.infinispan.config.GlobalConfiguration;
+import org.infinispan.container.entries.InternalEntryFactory;
+import org.infinispan.context.Flag;
+import org.infinispan.marshall.VersionAwareMarshaller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link VersionAwareMarshaller} round trips for the kinds of objects it most often sees on the wire and in
+ * cache stores: plain strings and byte arrays, internal cache entries and replicated write commands.
+ *
+ * @since 5.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarshallerBenchmark {
+
+   @Param({"string", "bytes", "entry", "command"})
+   String payload;
+
+   private VersionAwareMarshaller marshaller;
+   private Object object;
+   private byte[] bytes;
+
+   @Setup(Level.Trial)
+   public void setUp() throws Exception {
+      marshaller = new VersionAwareMarshaller();
+      marshaller.inject(Thread.currentThread().getContextClassLoader(), new RemoteCommandsFactory(), new GlobalConfiguration());
+      marshaller.start();
+      object = createPayload();
+      bytes = marshaller.objectToByteBuffer(object);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      marshaller.stop();
+   }
+
+   private Object createPayload() {
+      if (payload.equals("string")) return "a moderately sized string value of about sixty characters";
+      if (payload.equals("bytes")) return new byte[1024];
+      Map<String, String> value = new HashMap<String, String>();
+      for (int i = 0; i < 10; i++) value.put("field" + i, "value" + i);
+      if (payload.equals("entry")) return InternalEntryFactory.create("key", value, 60000, 30000);
+      if (payload.equals("command")) return new PutKeyValueCommand("key", value, false, null, 60000, 30000, Collections.<Flag>emptySet());
+      throw new IllegalArgumentException("Unknown payload " + payload);
+   }
+
+   @Benchmark
+   public byte[] marshall() throws Exception {
+      return marshaller.objectToByteBuffer(object);
+   }
+
+   @Benchmark
+   public Object unmarshall() throws Exception {
+      return marshaller.objectFromByteBuffer(bytes);
+   }
+
+   @Benchmark
+   public Object roundTrip() throws Exception {
+      return marshaller.objectFromByteBuffer(marshaller.objectToByteBuffer(object));
+   }
+}
@@ -29,7 +29,10 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.infinispan.container.entries.InternalCacheEntry;
@@ -255,6 +258,116 @@ public abstract class DataManipulationHelper {
       }
    }
 
+   /**
+    * Loads the page of rows following the row with the given id, in id order, so that the table can be read a page at
+    * a time without keeping a result set open in between.  A page holds {@link TableManipulation#getFetchSize()} rows,
+    * i.e. it is read in a single round trip.
+    *
+    * @param lastId id of the last row of the previous page, or null to read the first page
+    * @param result where to add the entries of the page
+    * @return id of the last row of the page, or null if there are no rows after lastId
+    */
+   public final String loadPage(String lastId, Set<InternalCacheEntry> result) throws CacheLoaderException {
+      return loadPage(lastId, null, result);
+   }
+
+   /**
+    * Same as {@link #loadPage(String, java.util.Set)}, only reading the rows with an id up to upperId, for reading a
+    * partition of the table as returned by {@link #loadPartitionBoundaries(int)}.
+    *
+    * @param lastId  id of the last row of the previous page, or null to read the first page
+    * @param upperId id of the last row of the partition, or null to read up to the end of the table
+    * @param result  where to add the entries of the page
+    * @return id of the last row of the page, or null if there are no rows of the partition after lastId
+    */
+   public final String loadPage(String lastId, String upperId, Set<InternalCacheEntry> result) throws CacheLoaderException {
+      Connection conn = null;
+      PreparedStatement ps = null;
+      ResultSet rs = null;
+      try {
+         String sql;
+         if (upperId == null) {
+            sql = lastId == null ? tableManipulation.getLoadFirstPageSql() : tableManipulation.getLoadNextPageSql();
+         } else {
+            sql = lastId == null ? tableManipulation.getLoadFirstPageUpToSql() : tableManipulation.getLoadNextPageUpToSql();
+         }
+         if (log.isTraceEnabled()) {
+            log.trace("Running sql '" + sql + "' after id '" + lastId + "' up to id '" + upperId + "'");
+         }
+         int pageSize = Math.max(1, tableManipulation.getFetchSize());
+         conn = connectionFactory.getConnection();
+         ps = conn.prepareStatement(sql);
+         int index = 1;
+         if (lastId != null) ps.setString(index++, lastId);
+         if (upperId != null) ps.setString(index, upperId);
+         ps.setMaxRows(pageSize);
+         ps.setFetchSize(pageSize);
+         rs = ps.executeQuery();
+         String id = null;
+         while (rs.next()) {
+            loadAllProcess(rs, result);
+            id = rs.getString(2);
+         }
+         return id;
+      } catch (SQLException e) {
+         String message = "SQL error while fetching a page of StoredEntries";
+         log.error(message, e);
+         throw new CacheLoaderException(message, e);
+      } finally {
+         JdbcUtil.safeClose(rs);
+         JdbcUtil.safeClose(ps);
+         connectionFactory.releaseConnection(conn);
+      }
+   }
+
+   /**
+    * Splits the table into id ranges holding about the same number of rows, so that the ranges can be read
+    * concurrently with {@link #loadPage(String, String, java.util.Set)}.  This walks through the ids alone, which is
+    * far cheaper than reading the data itself.
+    *
+    * @param partitions number of ranges wanted
+    * @return the ids of the last row of each range but the last one, in id order, so at most partitions - 1 ids; the
+    *         ranges then are (,id1], (id1,id2], ..., (idN,)
+    */
+   public final List<String> loadPartitionBoundaries(int partitions) throws CacheLoaderException {
+      List<String> boundaries = new ArrayList<String>();
+      if (partitions <= 1) return boundaries;
+      Connection conn = null;
+      Statement st = null;
+      ResultSet rs = null;
+      try {
+         conn = connectionFactory.getConnection();
+         st = conn.createStatement();
+         rs = st.executeQuery(tableManipulation.getCountRowsSql());
+         long rows = rs.next() ? rs.getLong(1) : 0;
+         JdbcUtil.safeClose(rs);
+         if (rows < partitions) return boundaries;
+
+         st.setFetchSize(tableManipulation.getFetchSize());
+         rs = st.executeQuery(tableManipulation.getSelectIdsSql());
+         long row = 0;
+         long nextBoundary = rows / partitions;
+         while (boundaries.size() < partitions - 1 && rs.next()) {
+            if (++row == nextBoundary) {
+               boundaries.add(rs.getString(1));
+               nextBoundary = rows * (boundaries.size() + 1) / partitions;
+            }
+         }
+         if (log.isTraceEnabled()) {
+            log.trace("Split " + rows + " rows into ranges up to ids " + boundaries);
+         }
+         return boundaries;
+      } catch (SQLException e) {
+         String message = "SQL error while splitting the table into id ranges";
+         log.error(message, e);
+         throw new CacheLoaderException(message, e);
+      } finally {
+         JdbcUtil.safeClose(rs);
+         JdbcUtil.safeClose(st);
+         connectionFactory.releaseConnection(conn);
+      }
+   }
+
    protected boolean includeKey(Object key, Set<Object> keysToExclude) {
       return keysToExclude == null || !keysToExclude.contains(key);
    }
@@ -82,6 +82,14 @@ public class TableManipulation implements Cloneable {
    public DatabaseType databaseType;
    private String loadAllKeysBinarySql;
    private String loadAllKeysStringSql;
+   private String upsertRowSql;
+   private String loadFirstPageSql;
+   private String loadNextPageSql;
+   private String loadFirstPageUpToSql;
+   private String loadNextPageUpToSql;
+   private String countRowsSql;
+   private String selectIdsSql;
+   private boolean upsertRowSqlResolved;
 
    public TableManipulation(String idColumnName, String idColumnType, String tableNamePrefix, String dataColumnName,
                             String dataColumnType, String timestampColumnName, String timestampColumnType) {
@@ -465,6 +473,97 @@ public class TableManipulation implements Cloneable {
       return loadSomeRowsSql;
    }
 
+   /**
+    * Statement that inserts a row, or updates the row with the same id if there is one, in a single round trip. It
+    * takes the same parameters as {@link #getInsertRowSql()}.
+    *
+    * @return the statement in the database's dialect, or null if the database has no such statement, in which case
+    *         callers need to fall back to an update followed by an insert
+    */
+   public String getUpsertRowSql() {
+      if (!upsertRowSqlResolved) {
+         DatabaseType type;
+         try {
+            type = getDatabaseType();
+         } catch (ConfigurationException e) {
+            log.debug("Unable to detect the database type, not using a dialect specific upsert statement", e);
+            type = null;
+         }
+         if (type == DatabaseType.MYSQL) {
+            upsertRowSql = String.format("INSERT INTO %s (%s, %s, %s) VALUES(?,?,?) ON DUPLICATE KEY UPDATE %s = VALUES(%s), %s = VALUES(%s)",
+                                         getTableName(), dataColumnName, timestampColumnName, idColumnName,
+                                         dataColumnName, dataColumnName, timestampColumnName, timestampColumnName);
+         } else if (type == DatabaseType.H2) {
+            upsertRowSql = String.format("MERGE INTO %s (%s, %s, %s) KEY(%s) VALUES(?,?,?)",
+                                         getTableName(), dataColumnName, timestampColumnName, idColumnName, idColumnName);
+         }
+         upsertRowSqlResolved = true;
+      }
+      return upsertRowSql;
+   }
+
+   /**
+    * Selects the rows in id order, for reading the table a page at a time: the size of a page is capped through
+    * {@link java.sql.Statement#setMaxRows(int)}, and {@link #getLoadNextPageSql()} reads the following pages.
+    */
+   public String getLoadFirstPageSql() {
+      if (loadFirstPageSql == null) {
+         loadFirstPageSql = String.format("SELECT %s, %s FROM %s ORDER BY %s", dataColumnName, idColumnName, getTableName(), idColumnName);
+      }
+      return loadFirstPageSql;
+   }
+
+   /**
+    * Selects the rows following the row with the given id, in id order.
+    *
+    * @see #getLoadFirstPageSql()
+    */
+   public String getLoadNextPageSql() {
+      if (loadNextPageSql == null) {
+         loadNextPageSql = String.format("SELECT %s, %s FROM %s WHERE %s > ? ORDER BY %s", dataColumnName, idColumnName, getTableName(), idColumnName, idColumnName);
+      }
+      return loadNextPageSql;
+   }
+
+   /**
+    * Same as {@link #getLoadFirstPageSql()}, only selecting the rows with an id up to the given one, for reading a
+    * partition of the table.
+    */
+   public String getLoadFirstPageUpToSql() {
+      if (loadFirstPageUpToSql == null) {
+         loadFirstPageUpToSql = String.format("SELECT %s, %s FROM %s WHERE %s <= ? ORDER BY %s", dataColumnName, idColumnName, getTableName(), idColumnName, idColumnName);
+      }
+      return loadFirstPageUpToSql;
+   }
+
+   /**
+    * Same as {@link #getLoadNextPageSql()}, only selecting the rows with an id up to the one given as second parameter,
+    * for reading a partition of the table.
+    */
+   public String getLoadNextPageUpToSql() {
+      if (loadNextPageUpToSql == null) {
+         loadNextPageUpToSql = String.format("SELECT %s, %s FROM %s WHERE %s > ? AND %s <= ? ORDER BY %s", dataColumnName, idColumnName, getTableName(), idColumnName, idColumnName, idColumnName);
+      }
+      return loadNextPageUpToSql;
+   }
+
+   public String getCountRowsSql() {
+      if (countRowsSql == null) {
+         countRowsSql = String.format("SELECT COUNT(*) FROM %s", getTableName());
+      }
+      return countRowsSql;
+   }
+
+   /**
+    * Selects the ids alone, in id order, e.g. for splitting the table into id ranges.
+    */
+   public String getSelectIdsSql() {
+      if (selectIdsSql == null) {
+         selectIdsSql = String.format("SELECT %s FROM %s ORDER BY %s", idColumnName, getTableName(), idColumnName);
+      }
+      return selectIdsSql;
+   }
+
    public String getLoadAllKeysBinarySql() {
       if (loadAllKeysBinarySql == null) {
          loadAllKeysBinarySql = String.format("SELECT %s FROM %s", dataColumnName, getTableName());
@@ -482,20 +581,30 @@ public class TableManipulation implements Cloneable {
    private DatabaseType getDatabaseType() {
       if (databaseType == null) {
          // need to guess from the database type!
+         Connection connection = null;
          try {
-            String dbProduct = connectionFactory.getConnection().getMetaData().getDatabaseProductName();
+            connection = connectionFactory.getConnection();
+            String dbProduct = connection.getMetaData().getDatabaseProductName();
             databaseType = guessDatabaseType(dbProduct);
          } catch (Exception e) {
             log.debug("Unable to guess database type from JDBC metadata.", e);
+         } finally {
+            if (connection != null) connectionFactory.releaseConnection(connection);
          }
          if (databaseType == null) {
             log.info("Unable to detect database type using connection metadata.  Attempting to guess on driver name.");
          }
-         try {
-            String dbProduct = connectionFactory.getConnection().getMetaData().getDriverName();
-            databaseType = guessDatabaseType(dbProduct);
-         } catch (Exception e) {
-            log.debug("Unable to guess database type from JDBC driver name.", e);
+         if (databaseType == null) {
+            connection = null;
+            try {
+               connection = connectionFactory.getConnection();
+               String dbProduct = connection.getMetaData().getDriverName();
+               databaseType = guessDatabaseType(dbProduct);
+            } catch (Exception e) {
+               log.debug("Unable to guess database type from JDBC driver name.", e);
+            } finally {
+               if (connection != null) connectionFactory.releaseConnection(connection);
+            }
          }
 
          if (databaseType == null) {
@@ -27,6 +27,8 @@ import org.infinispan.io.ByteBuffer;
 import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderMetadata;
+import org.infinispan.loaders.CacheStoreCursor;
+import org.infinispan.loaders.PagedCacheStoreCursor;
 import org.infinispan.loaders.bucket.Bucket;
 import org.infinispan.loaders.bucket.BucketBasedCacheStore;
 import org.infinispan.loaders.jdbc.DataManipulationHelper;
@@ -45,9 +47,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import static org.infinispan.loaders.jdbc.DataManipulationHelper.logAndThrow;
@@ -243,6 +248,52 @@ public class JdbcBinaryCacheStore extends BucketBasedCacheStore {
       return dmHelper.loadAllSupport(false);
    }
 
+   /**
+    * Reads the table a page of {@link TableManipulation#getFetchSize()} buckets at a time, in id order. No connection or
+    * lock is held in between pages, so the cursor may be used from different threads, one at a time.
+    */
+   @Override
+   public CacheStoreCursor openCursor() throws CacheLoaderException {
+      return openCursor(null, null);
+   }
+
+   /**
+    * Splits the table into id ranges holding about the same number of buckets, each read as {@link #openCursor()} does.
+    */
+   @Override
+   public List<CacheStoreCursor> openCursors(int maxCursors) throws CacheLoaderException {
+      List<CacheStoreCursor> cursors = new ArrayList<CacheStoreCursor>();
+      String lowerId = null;
+      for (String upperId : dmHelper.loadPartitionBoundaries(maxCursors)) {
+         cursors.add(openCursor(lowerId, upperId));
+         lowerId = upperId;
+      }
+      cursors.add(openCursor(lowerId, null));
+      return cursors;
+   }
+
+   private CacheStoreCursor openCursor(final String lowerId, final String upperId) {
+      return new PagedCacheStoreCursor() {
+         private String lastId = lowerId;
+         private boolean done;
+
+         @Override
+         protected Collection<InternalCacheEntry> nextPage() throws CacheLoaderException {
+            if (done) return null;
+            Set<InternalCacheEntry> page = new HashSet<InternalCacheEntry>();
+            if (!acquireGlobalLock(false))
+               throw new CacheLoaderException("Unable to acquire the global lock to read a page of entries");
+            try {
+               lastId = dmHelper.loadPage(lastId, upperId, page);
+            } finally {
+               releaseGlobalLock(false);
+            }
+            done = lastId == null;
+            return page;
+         }
+      };
+   }
+
    @Override
    public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderException {
       return dmHelper.loadAllKeysSupport(keysToExclude);
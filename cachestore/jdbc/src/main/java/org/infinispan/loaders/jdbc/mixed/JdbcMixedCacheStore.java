@@ -28,6 +28,8 @@ import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderMetadata;
 import org.infinispan.loaders.CacheStore;
+import org.infinispan.loaders.CacheStoreCursor;
+import org.infinispan.loaders.SequentialCacheStoreCursor;
 import org.infinispan.loaders.jdbc.binary.JdbcBinaryCacheStore;
 import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactory;
 import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactoryConfig;
@@ -38,6 +40,10 @@ import org.infinispan.util.logging.LogFactory;
 
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -137,6 +143,24 @@ public class JdbcMixedCacheStore extends AbstractCacheStore {
       return set;
    }
 
+   @Override
+   public CacheStoreCursor openCursor() throws CacheLoaderException {
+      // each key is held by either store, depending on whether the key mapper supports it
+      return new SequentialCacheStoreCursor(Arrays.asList(binaryCacheStore, stringBasedCacheStore), false);
+   }
+
+   /**
+    * Shares the cursors out between the binary and the string based store, each splitting its own table.
+    */
+   @Override
+   public List<CacheStoreCursor> openCursors(int maxCursors) throws CacheLoaderException {
+      if (maxCursors < 2) return Collections.singletonList(openCursor());
+      List<CacheStoreCursor> cursors = new ArrayList<CacheStoreCursor>();
+      cursors.addAll(binaryCacheStore.openCursors(maxCursors / 2));
+      cursors.addAll(stringBasedCacheStore.openCursors(maxCursors - maxCursors / 2));
+      return cursors;
+   }
+
    @Override
    public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderException {
       Set<Object> fromBuckets = binaryCacheStore.loadAllKeys(keysToExclude);
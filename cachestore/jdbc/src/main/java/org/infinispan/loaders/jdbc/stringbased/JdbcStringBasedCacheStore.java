@@ -28,7 +28,9 @@ import org.infinispan.io.ByteBuffer;
 import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderMetadata;
+import org.infinispan.loaders.CacheStoreCursor;
 import org.infinispan.loaders.LockSupportCacheStore;
+import org.infinispan.loaders.PagedCacheStoreCursor;
 import org.infinispan.loaders.jdbc.DataManipulationHelper;
 import org.infinispan.loaders.jdbc.JdbcUtil;
 import org.infinispan.loaders.jdbc.TableManipulation;
@@ -36,6 +38,9 @@ import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactory;
 import org.infinispan.loaders.keymappers.Key2StringMapper;
 import org.infinispan.loaders.keymappers.TwoWayKey2StringMapper;
 import org.infinispan.loaders.keymappers.UnsupportedKeyTypeException;
+import org.infinispan.loaders.modifications.Modification;
+import org.infinispan.loaders.modifications.Remove;
+import org.infinispan.loaders.modifications.Store;
 import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -48,6 +53,13 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -190,37 +202,43 @@ public class JdbcStringBasedCacheStore extends LockSupportCacheStore {
 
    @Override
    public void storeLockSafe(InternalCacheEntry ed, String lockingKey) throws CacheLoaderException {
-      InternalCacheEntry existingOne = readStoredEntry(ed, lockingKey);
-      String sql;
-      if (existingOne == null) {
-         sql = tableManipulation.getInsertRowSql();
-      } else {
-         sql = tableManipulation.getUpdateRowSql();
-      }
-      if (log.isTraceEnabled())
-         log.trace("Running sql '" + sql + "' on " + ed + ". Key string is '" + lockingKey + "'");
       Connection connection = null;
-      PreparedStatement ps = null;
       ByteBuffer byteBuffer = null;
       try {
          byteBuffer = JdbcUtil.marshall(getMarshaller(), ed.toInternalCacheValue());
          connection = connectionFactory.getConnection();
-         ps = connection.prepareStatement(sql);
-         ps.setBinaryStream(1, byteBuffer.getStream(), byteBuffer.getLength());
-         ps.setLong(2, ed.getExpiryTime());
-         ps.setString(3, lockingKey);
-         ps.executeUpdate();
+         String upsertSql = tableManipulation.getUpsertRowSql();
+         if (upsertSql != null) {
+            storeRow(connection, upsertSql, byteBuffer, ed, lockingKey);
+         } else if (storeRow(connection, tableManipulation.getUpdateRowSql(), byteBuffer, ed, lockingKey) == 0) {
+            // no row to update, and the write lock on the key keeps others from inserting one meanwhile
+            storeRow(connection, tableManipulation.getInsertRowSql(), byteBuffer, ed, lockingKey);
+         }
       } catch (SQLException ex) {
          logAndThrow(ex, "Error while storing string key to database; key: '" + lockingKey + "', buffer size of value: " + byteBuffer.getLength() + " bytes");
       } catch (InterruptedException e) {
          if (log.isTraceEnabled()) log.trace("Interrupted while marshalling to store");
          Thread.currentThread().interrupt();
       } finally {
-         JdbcUtil.safeClose(ps);
          connectionFactory.releaseConnection(connection);
       }
    }
 
+   private int storeRow(Connection connection, String sql, ByteBuffer byteBuffer, InternalCacheEntry ed, String lockingKey) throws SQLException {
+      if (log.isTraceEnabled())
+         log.trace("Running sql '" + sql + "' on " + ed + ". Key string is '" + lockingKey + "'");
+      PreparedStatement ps = null;
+      try {
+         ps = connection.prepareStatement(sql);
+         ps.setBinaryStream(1, byteBuffer.getStream(), byteBuffer.getLength());
+         ps.setLong(2, ed.getExpiryTime());
+         ps.setString(3, lockingKey);
+         return ps.executeUpdate();
+      } finally {
+         JdbcUtil.safeClose(ps);
+      }
+   }
+
    @Override
    public boolean removeLockSafe(Object key, String keyStr) throws CacheLoaderException {
       Connection connection = null;
@@ -242,6 +260,167 @@ public class JdbcStringBasedCacheStore extends LockSupportCacheStore {
       }
    }
 
+   /**
+    * Writes all the entries using JDBC batches of {@link TableManipulation#getBatchSize()} statements, rather than
+    * one round trip (or two, when the database has no upsert statement) per entry.
+    */
+   @Override
+   public void storeAll(Collection<InternalCacheEntry> entries) throws CacheLoaderException {
+      if (entries == null || entries.isEmpty()) return;
+      Map<String, InternalCacheEntry> writes = new LinkedHashMap<String, InternalCacheEntry>();
+      for (InternalCacheEntry entry : entries) addWrite(writes, entry.getKey(), entry);
+      applyWrites(writes);
+   }
+
+   @Override
+   public void removeAll(Set<Object> keys) throws CacheLoaderException {
+      if (keys == null || keys.isEmpty()) return;
+      Map<String, InternalCacheEntry> writes = new LinkedHashMap<String, InternalCacheEntry>();
+      for (Object key : keys) addWrite(writes, key, null);
+      applyWrites(writes);
+   }
+
+   /**
+    * Applies the modifications of a transaction in JDBC batches. Only the last modification of each key is written,
+    * and a clear splits the list in the writes before and after it.
+    */
+   @Override
+   protected void applyModifications(List<? extends Modification> mods) throws CacheLoaderException {
+      Map<String, InternalCacheEntry> writes = new LinkedHashMap<String, InternalCacheEntry>();
+      for (Modification m : mods) {
+         switch (m.getType()) {
+            case STORE:
+               InternalCacheEntry entry = ((Store) m).getStoredEntry();
+               addWrite(writes, entry.getKey(), entry);
+               break;
+            case REMOVE:
+               addWrite(writes, ((Remove) m).getKey(), null);
+               break;
+            case CLEAR:
+               applyWrites(writes);
+               writes.clear();
+               clear();
+               break;
+            default:
+               throw new IllegalArgumentException("Unknown modification type " + m.getType());
+         }
+      }
+      applyWrites(writes);
+   }
+
+   /**
+    * Records the write of a key, a null entry standing for its removal. Like {@link #store(InternalCacheEntry)},
+    * storing an expired entry removes the key.
+    */
+   private void addWrite(Map<String, InternalCacheEntry> writes, Object key, InternalCacheEntry entry) throws CacheLoaderException {
+      String keyStr = getLockFromKey(key);
+      writes.remove(keyStr);
+      writes.put(keyStr, entry == null || entry.isExpired() ? null : entry);
+   }
+
+   private void applyWrites(Map<String, InternalCacheEntry> writes) throws CacheLoaderException {
+      if (writes.isEmpty()) return;
+      List<Map.Entry<String, InternalCacheEntry>> stores = new ArrayList<Map.Entry<String, InternalCacheEntry>>(writes.size());
+      List<Map.Entry<String, InternalCacheEntry>> removals = new ArrayList<Map.Entry<String, InternalCacheEntry>>();
+      for (Map.Entry<String, InternalCacheEntry> write : writes.entrySet()) {
+         if (write.getValue() == null) removals.add(write); else stores.add(write);
+      }
+
+      String upsertSql = tableManipulation.getUpsertRowSql();
+      // without an upsert statement the rows are updated and then the missing ones inserted, so concurrent writers
+      // of the same keys need keeping out; with one, holding off a clear is enough
+      boolean exclusive = upsertSql == null;
+      if (!acquireGlobalLock(exclusive))
+         throw new CacheLoaderException("Unable to acquire the global lock to write " + writes.size() + " entries");
+      Connection connection = null;
+      try {
+         connection = connectionFactory.getConnection();
+         executeBatched(connection, tableManipulation.getDeleteRowSql(), removals);
+         if (upsertSql != null) {
+            executeBatched(connection, upsertSql, stores);
+         } else {
+            int[] updated = executeBatched(connection, tableManipulation.getUpdateRowSql(), stores);
+            List<Map.Entry<String, InternalCacheEntry>> inserts = new ArrayList<Map.Entry<String, InternalCacheEntry>>();
+            for (int i = 0; i < updated.length; i++) {
+               String keyStr = stores.get(i).getKey();
+               // some drivers do not report the rows each statement of a batch changed
+               if (updated[i] == 0 || (updated[i] == Statement.SUCCESS_NO_INFO && !rowExists(connection, keyStr)))
+                  inserts.add(stores.get(i));
+            }
+            executeBatched(connection, tableManipulation.getInsertRowSql(), inserts);
+         }
+         if (log.isTraceEnabled())
+            log.trace("Stored " + stores.size() + " and removed " + removals.size() + " entries in batches");
+      } catch (SQLException ex) {
+         logAndThrow(ex, "Error while writing a batch of " + writes.size() + " string keys to database");
+      } catch (InterruptedException e) {
+         if (log.isTraceEnabled()) log.trace("Interrupted while marshalling to store");
+         Thread.currentThread().interrupt();
+      } finally {
+         connectionFactory.releaseConnection(connection);
+         releaseGlobalLock(exclusive);
+      }
+   }
+
+   /**
+    * Runs the statement for each row, binding the marshalled entry, its expiry time and the key for stores, or only the
+    * key for removals.
+    *
+    * @return the update count of each row
+    */
+   private int[] executeBatched(Connection connection, String sql, List<Map.Entry<String, InternalCacheEntry>> rows) throws SQLException, CacheLoaderException, InterruptedException {
+      int[] updateCounts = new int[rows.size()];
+      if (rows.isEmpty()) return updateCounts;
+      if (log.isTraceEnabled()) log.trace("Running sql '" + sql + "' on " + rows.size() + " rows");
+      int batchSize = Math.max(1, tableManipulation.getBatchSize());
+      PreparedStatement ps = null;
+      try {
+         ps = connection.prepareStatement(sql);
+         int batched = 0;
+         int executed = 0;
+         for (Map.Entry<String, InternalCacheEntry> row : rows) {
+            InternalCacheEntry entry = row.getValue();
+            if (entry == null) {
+               ps.setString(1, row.getKey());
+            } else {
+               ByteBuffer byteBuffer = JdbcUtil.marshall(getMarshaller(), entry.toInternalCacheValue());
+               ps.setBinaryStream(1, byteBuffer.getStream(), byteBuffer.getLength());
+               ps.setLong(2, entry.getExpiryTime());
+               ps.setString(3, row.getKey());
+            }
+            ps.addBatch();
+            if (++batched == batchSize) {
+               executed = executeBatch(ps, updateCounts, executed);
+               batched = 0;
+            }
+         }
+         if (batched > 0) executeBatch(ps, updateCounts, executed);
+      } finally {
+         JdbcUtil.safeClose(ps);
+      }
+      return updateCounts;
+   }
+
+   private int executeBatch(PreparedStatement ps, int[] updateCounts, int offset) throws SQLException {
+      int[] batchCounts = ps.executeBatch();
+      System.arraycopy(batchCounts, 0, updateCounts, offset, batchCounts.length);
+      return offset + batchCounts.length;
+   }
+
+   private boolean rowExists(Connection connection, String keyStr) throws SQLException {
+      PreparedStatement ps = null;
+      ResultSet rs = null;
+      try {
+         ps = connection.prepareStatement(tableManipulation.getSelectRowSql());
+         ps.setString(1, keyStr);
+         rs = ps.executeQuery();
+         return rs.next();
+      } finally {
+         JdbcUtil.safeClose(rs);
+         JdbcUtil.safeClose(ps);
+      }
+   }
+
    @Override
    public void fromStreamLockSafe(ObjectInput objectInput) throws CacheLoaderException {
       dmHelper.fromStreamSupport(objectInput);
@@ -267,6 +446,52 @@ public class JdbcStringBasedCacheStore extends LockSupportCacheStore {
       return dmHelper.loadSome(maxEntries);
    }
 
+   /**
+    * Reads the table a page of {@link TableManipulation#getFetchSize()} rows at a time, in id order. No connection or
+    * lock is held in between pages, so the cursor may be used from different threads, one at a time.
+    */
+   @Override
+   public CacheStoreCursor openCursor() throws CacheLoaderException {
+      return openCursor(null, null);
+   }
+
+   /**
+    * Splits the table into id ranges holding about the same number of rows, each read as {@link #openCursor()} does.
+    */
+   @Override
+   public List<CacheStoreCursor> openCursors(int maxCursors) throws CacheLoaderException {
+      List<CacheStoreCursor> cursors = new ArrayList<CacheStoreCursor>();
+      String lowerId = null;
+      for (String upperId : dmHelper.loadPartitionBoundaries(maxCursors)) {
+         cursors.add(openCursor(lowerId, upperId));
+         lowerId = upperId;
+      }
+      cursors.add(openCursor(lowerId, null));
+      return cursors;
+   }
+
+   private CacheStoreCursor openCursor(final String lowerId, final String upperId) {
+      return new PagedCacheStoreCursor() {
+         private String lastId = lowerId;
+         private boolean done;
+
+         @Override
+         protected Collection<InternalCacheEntry> nextPage() throws CacheLoaderException {
+            if (done) return null;
+            Set<InternalCacheEntry> page = new HashSet<InternalCacheEntry>();
+            if (!acquireGlobalLock(false))
+               throw new CacheLoaderException("Unable to acquire the global lock to read a page of entries");
+            try {
+               lastId = dmHelper.loadPage(lastId, upperId, page);
+            } finally {
+               releaseGlobalLock(false);
+            }
+            done = lastId == null;
+            return page;
+         }
+      };
+   }
+
    @Override
    protected Set<Object> loadAllKeysLockSafe(Set<Object> keysToExclude) throws CacheLoaderException {
       return dmHelper.loadAllKeysSupport(keysToExclude);
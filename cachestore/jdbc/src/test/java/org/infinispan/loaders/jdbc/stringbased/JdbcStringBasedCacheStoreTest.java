@@ -29,8 +29,20 @@ import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactory;
 import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactoryConfig;
 import org.infinispan.test.fwk.UnitTestDatabaseManager;
 import org.infinispan.CacheDelegate;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalEntryFactory;
+import org.infinispan.loaders.modifications.Clear;
+import org.infinispan.loaders.modifications.Modification;
+import org.infinispan.loaders.modifications.Remove;
+import org.infinispan.loaders.modifications.Store;
+import org.infinispan.transaction.xa.GlobalTransaction;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Tester class  for {@link org.infinispan.loaders.jdbc.stringbased.JdbcStringBasedCacheStore}.
  *
@@ -76,4 +88,42 @@ public class JdbcStringBasedCacheStoreTest extends BaseCacheStoreTest {
       stringBasedCacheStore.stop();
       verify(tableManipulation, connectionFactory);
    }
+
+   public void testBatchedWrites() throws Exception {
+      // more entries than fit in a single JDBC batch, half of them overwriting existing rows
+      int numEntries = TableManipulation.DEFAULT_BATCH_SIZE * 2 + 1;
+      for (int i = 0; i < numEntries; i += 2) cs.store(InternalEntryFactory.create("k" + i, "old"));
+      List<InternalCacheEntry> entries = new ArrayList<InternalCacheEntry>();
+      for (int i = 0; i < numEntries; i++) entries.add(InternalEntryFactory.create("k" + i, "v" + i));
+      long created = System.currentTimeMillis() - 10000;
+      entries.add(InternalEntryFactory.create("expired", "v", created, 1000, created, -1));
+      cs.storeAll(entries);
+
+      for (int i = 0; i < numEntries; i++) assert ("v" + i).equals(cs.load("k" + i).getValue());
+      assert !cs.containsKey("expired");
+      assert cs.loadAllKeys(null).size() == numEntries;
+
+      Set<Object> toRemove = new HashSet<Object>();
+      for (int i = 1; i < numEntries; i++) toRemove.add("k" + i);
+      cs.removeAll(toRemove);
+      assert cs.loadAllKeys(null).size() == 1;
+      assert cs.containsKey("k0");
+
+      // only the last modification of a key counts, and a clear drops what was written before it
+      List<Modification> mods = new ArrayList<Modification>();
+      mods.add(new Store(InternalEntryFactory.create("k1", "v1")));
+      mods.add(new Clear());
+      mods.add(new Store(InternalEntryFactory.create("k2", "v2")));
+      mods.add(new Store(InternalEntryFactory.create("k3", "v3")));
+      mods.add(new Remove("k2"));
+      mods.add(new Store(InternalEntryFactory.create("k3", "v3b")));
+      GlobalTransaction tx = gtf.newGlobalTransaction(null, false);
+      cs.prepare(mods, tx, false);
+      cs.commit(tx);
+
+      assert !cs.containsKey("k0");
+      assert !cs.containsKey("k1");
+      assert !cs.containsKey("k2");
+      assert "v3b".equals(cs.load("k3").getValue());
+   }
 }
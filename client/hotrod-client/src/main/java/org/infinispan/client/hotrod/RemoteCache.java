@@ -26,9 +26,9 @@ import java.util.concurrent.TimeUnit;
  * supplied key. In case of RemoteCache, this returns null.
  * <p/>
  * <b>Synthetic operations</b>: aggregate operations are being implemented based on other Hot Rod operations. E.g. all
- * the {@link java.util.Map#putAll(java.util.Map)} is implemented through multiple individual puts. This means that the
- * these operations are not atomic and that they are costly, e.g. as the number of network round-trips is not one, but
- * the size of the added map. All these synthetic operations are documented as such.
+ * the {@link java.util.Map#putAll(java.util.Map)} is implemented by splitting the map per owning server and sending one
+ * bulk put to each server. This means that these operations are not atomic. All these synthetic operations are
+ * documented as such.
  * <p/>
  * <b>changing default behavior through {@link org.infinispan.client.hotrod.Flag}s</b>: it is possible to change the
  * default cache behaviour by using flags on an per invocation basis. E.g.
@@ -289,9 +289,9 @@ public interface RemoteCache<K, V> extends Cache<K, V> {
    void putForExternalRead(K key, V value);
 
    /**
-    * Synthetic operation. The client iterates over the set of keys and calls put for each one of them. This results in
-    * operation not being atomic (if a failure happens after few puts it is not rolled back) and costly (for each key in
-    * the parameter map a remote call is performed).
+    * Synthetic operation. The client groups the entries by the server owning them and sends a single bulk put to each
+    * server. This results in operation not being atomic (if a failure happens on one server, the entries sent to the
+    * other servers are not rolled back), but only one remote call per server is performed.
     */
    @Override
    void putAll(Map<? extends K, ? extends V> map, long lifespan, TimeUnit unit);
@@ -336,6 +336,21 @@ public interface RemoteCache<K, V> extends Cache<K, V> {
    @Override
    void putAll(Map<? extends K, ? extends V> m);
 
+   /**
+    * Synthetic operation. Retrieves the values of the given keys, sending a single request to each server that owns
+    * some of the keys.
+    *
+    * @return a map of the keys that were found to their values; keys not present in the remote cache are absent
+    */
+   @Override
+   Map<K, V> getAll(Set<? extends K> keys);
+
+   /**
+    * Synthetic operation. Removes the given keys, sending a single request to each server that owns some of the keys.
+    * Previous values are not returned, and the operation is not atomic.
+    */
+   void removeAll(Set<? extends K> keys);
+
    ServerStatistics stats();
 
    /**
@@ -3,9 +3,11 @@ package org.infinispan.client.hotrod;
 import org.infinispan.client.hotrod.exceptions.HotRodClientException;
 import org.infinispan.client.hotrod.impl.ConfigurationProperties;
 import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
+import org.infinispan.client.hotrod.impl.NearCache;
 import org.infinispan.client.hotrod.impl.RemoteCacheImpl;
 import org.infinispan.client.hotrod.impl.operations.PingOperation.PingResult;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.nio.MultiplexedTransport;
 import org.infinispan.executors.ExecutorFactory;
 import org.infinispan.manager.CacheContainer;
 import org.infinispan.marshall.Marshaller;
@@ -63,6 +65,11 @@ import static org.infinispan.util.Util.getInstance;
  * <li><tt>infinispan.client.hotrod.key_size_estimate</tt>, default = 64.  This hint allows sizing of byte buffers when serializing and deserializing keys, to minimize array resizing.</li>
  * <li><tt>infinispan.client.hotrod.value_size_estimate</tt>, default = 512.  This hint allows sizing of byte buffers when serializing and deserializing values, to minimize array resizing.</li>
  * <li><tt>infinispan.client.hotrod.socket_timeout</tt>, default = 60000 (60 seconds).  This property defines the maximum socket read timeout before giving up waiting for bytes from the server.</li>
+ * <li><tt>infinispan.client.hotrod.multiplexed_async_transport</tt>, default = false.  If true, the single-key async operations (e.g. {@link org.infinispan.client.hotrod.RemoteCache#putAsync(Object, Object)}) and clearAsync are sent through a non-blocking transport that pipelines the requests over a few connections per server, instead of occupying a thread of the async executor and a pooled connection each.  Listeners attached to the returned futures are then notified from the transport's I/O thread, so they must not block.</li>
+ * <li><tt>infinispan.client.hotrod.near_cache.max_entries</tt>, default = 0.  If positive, each remote cache keeps up to this many recently read entries in a client side near cache and serves reads of those keys locally.  Writes done through the remote cache invalidate its near cache; writes done by other clients are seen once the near cache entry is older than <tt>near_cache.max_staleness</tt>.  Async gets sent through the multiplexed transport bypass the near cache.</li>
+ * <li><tt>infinispan.client.hotrod.near_cache.eviction</tt>, default = LIRS.  The algorithm (LRU or LIRS) used to pick the entries to evict once the near cache is full.</li>
+ * <li><tt>infinispan.client.hotrod.near_cache.max_staleness</tt>, default = 1000.  The number of milliseconds a value read from the servers is served by the near cache before being read again.</li>
+ * <li><tt>infinispan.client.hotrod.multiplexed_connections_per_server</tt>, default = 2.  If the multiplexed async transport is enabled, the number of connections it opens to each server.</li>
  * </ul>
  * <br/>
  * <i>The following properties are related to connection pooling</i>:
@@ -127,6 +134,7 @@ public class RemoteCacheManager implements CacheContainer {
 
    ConfigurationProperties config;
    private TransportFactory transportFactory;
+   private MultiplexedTransport multiplexedTransport;
    private Marshaller marshaller;
    private boolean started = false;
    private boolean forceReturnValueDefault = false;
@@ -325,6 +333,10 @@ public class RemoteCacheManager implements CacheContainer {
 
       forceReturnValueDefault = config.getForceReturnValues();
 
+      if (config.getMultiplexedAsyncTransport()) {
+         multiplexedTransport = new MultiplexedTransport(transportFactory, config.getMultiplexedConnectionsPerServer());
+      }
+
       synchronized (cacheName2RemoteCache) {
          for (RemoteCacheImpl remoteCache : cacheName2RemoteCache.values()) {
             startRemoteCache(remoteCache);
@@ -336,6 +348,10 @@ public class RemoteCacheManager implements CacheContainer {
    @Override
    public void stop() {
       if (isStarted()) {
+         if (multiplexedTransport != null) {
+            multiplexedTransport.close();
+            multiplexedTransport = null;
+         }
          transportFactory.destroy();
       }
       started = false;
@@ -378,7 +394,11 @@ public class RemoteCacheManager implements CacheContainer {
 
    private <K, V> void startRemoteCache(RemoteCacheImpl<K, V> result) {
       OperationsFactory operationsFactory = new OperationsFactory(transportFactory, result.getName(), topologyId, forceReturnValueDefault);
-      result.init(marshaller, asyncExecutorService, operationsFactory, config.getKeySizeEstimate(), config.getValueSizeEstimate());
+      NearCache nearCache = null;
+      if (config.getNearCacheMaxEntries() > 0) {
+         nearCache = new NearCache(config.getNearCacheMaxEntries(), config.getNearCacheEviction(), config.getNearCacheMaxStaleness());
+      }
+      result.init(marshaller, asyncExecutorService, multiplexedTransport, nearCache, operationsFactory, config.getKeySizeEstimate(), config.getValueSizeEstimate());
    }
 
    private void setMarshaller(Marshaller marshaller) {
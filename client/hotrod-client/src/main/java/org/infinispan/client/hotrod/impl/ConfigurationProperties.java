@@ -5,6 +5,7 @@ import org.infinispan.client.hotrod.impl.transport.tcp.RoundRobinBalancingStrate
 import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory;
 import org.infinispan.marshall.jboss.GenericJBossMarshaller;
 import org.infinispan.util.TypedProperties;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
 
 import java.net.InetSocketAddress;
 import java.util.Collection;
@@ -33,6 +34,11 @@ public class ConfigurationProperties {
    public static final String HASH_FUNCTION_PREFIX = "infinispan.client.hotrod.hash_function_impl";
    public static final String DEFAULT_EXECUTOR_FACTORY_QUEUE_SIZE ="infinispan.client.hotrod.default_executor_factory.queue_size";
    public static final String SO_TIMEOUT = "infinispan.client.hotrod.socket_timeout";
+   public static final String MULTIPLEXED_ASYNC_TRANSPORT = "infinispan.client.hotrod.multiplexed_async_transport";
+   public static final String MULTIPLEXED_CONNECTIONS_PER_SERVER = "infinispan.client.hotrod.multiplexed_connections_per_server";
+   public static final String NEAR_CACHE_MAX_ENTRIES = "infinispan.client.hotrod.near_cache.max_entries";
+   public static final String NEAR_CACHE_EVICTION = "infinispan.client.hotrod.near_cache.eviction";
+   public static final String NEAR_CACHE_MAX_STALENESS = "infinispan.client.hotrod.near_cache.max_staleness";
 
    // defaults
 
@@ -40,6 +46,8 @@ public class ConfigurationProperties {
    private static final int DEFAULT_VALUE_SIZE = 512;
    private static final int DEFAULT_HOTROD_PORT = 11222;
    private static final int DEFAULT_SO_TIMEOUT = 60000;
+   private static final int DEFAULT_MULTIPLEXED_CONNECTIONS_PER_SERVER = 2;
+   private static final long DEFAULT_NEAR_CACHE_MAX_STALENESS = 1000;
 
    private final TypedProperties props;
 
@@ -120,4 +128,24 @@ public class ConfigurationProperties {
    public int getSoTimeout() {
       return props.getIntProperty(SO_TIMEOUT, DEFAULT_SO_TIMEOUT);
    }
+
+   public boolean getMultiplexedAsyncTransport() {
+      return props.getBooleanProperty(MULTIPLEXED_ASYNC_TRANSPORT, false);
+   }
+
+   public int getMultiplexedConnectionsPerServer() {
+      return props.getIntProperty(MULTIPLEXED_CONNECTIONS_PER_SERVER, DEFAULT_MULTIPLEXED_CONNECTIONS_PER_SERVER);
+   }
+
+   public int getNearCacheMaxEntries() {
+      return props.getIntProperty(NEAR_CACHE_MAX_ENTRIES, 0);
+   }
+
+   public Eviction getNearCacheEviction() {
+      return Eviction.valueOf(props.getProperty(NEAR_CACHE_EVICTION, Eviction.LIRS.name()).trim().toUpperCase());
+   }
+
+   public long getNearCacheMaxStaleness() {
+      return props.getLongProperty(NEAR_CACHE_MAX_STALENESS, DEFAULT_NEAR_CACHE_MAX_STALENESS);
+   }
 }
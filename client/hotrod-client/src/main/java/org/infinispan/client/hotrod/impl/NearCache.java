@@ -0,0 +1,100 @@
+package org.infinispan.client.hotrod.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.util.ByteArrayKey;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded client side cache of the values read from the servers, keyed by the marshalled keys.
+ * <p/>
+ * The servers do not push invalidations to the clients, and entries are not revalidated against the servers: an entry
+ * is simply served locally for <tt>maxStaleness</tt> milliseconds after it was read, and dropped after that, so the
+ * next read fetches the whole value again.  Writes done through the owning {@link RemoteCacheImpl} invalidate the
+ * affected entries straight away, so a client always reads its own writes; writes done by other clients become
+ * visible after at most <tt>maxStaleness</tt> milliseconds.
+ * <p/>
+ * Only the synchronous reads go through the near cache.  When the multiplexed async transport is enabled,
+ * {@link RemoteCacheImpl#getAsync(Object)} reads straight from the servers and neither uses nor fills the near cache.
+ *
+ * @since 5.0
+ */
+@ThreadSafe
+public class NearCache {
+
+   private final ConcurrentMap<ByteArrayKey, Entry> entries;
+   private final long maxStaleness;
+
+   /**
+    * Incremented on every invalidation, so that a value read from the server before an invalidation is not stored once
+    * it completes.
+    */
+   private final AtomicLong invalidations = new AtomicLong();
+
+   public NearCache(int maxEntries, Eviction eviction, long maxStaleness) {
+      this.entries = new BoundedConcurrentHashMap<ByteArrayKey, Entry>(maxEntries, 16, eviction);
+      this.maxStaleness = maxStaleness;
+   }
+
+   /**
+    * Returns the value of the given key if it was read from the server less than <tt>maxStaleness</tt> milliseconds
+    * ago and has not been invalidated since, or null otherwise.
+    */
+   public BinaryVersionedValue get(byte[] key) {
+      ByteArrayKey k = new ByteArrayKey(key);
+      Entry entry = entries.get(k);
+      if (entry == null) return null;
+      if (entry.validUntil < System.currentTimeMillis()) {
+         entries.remove(k, entry);
+         return null;
+      }
+      return entry.value;
+   }
+
+   /**
+    * Returns the token to pass to {@link #put(byte[], BinaryVersionedValue, long)} for a value about to be read from
+    * the server.
+    */
+   public long startRead() {
+      return invalidations.get();
+   }
+
+   /**
+    * Stores a value read from the server, unless an invalidation happened since the read started.
+    */
+   public void put(byte[] key, BinaryVersionedValue value, long readToken) {
+      if (invalidations.get() != readToken) return;
+      ByteArrayKey k = new ByteArrayKey(key);
+      Entry entry = new Entry(value, System.currentTimeMillis() + maxStaleness);
+      entries.put(k, entry);
+      // an invalidation may have slipped in between the check and the put
+      if (invalidations.get() != readToken) entries.remove(k, entry);
+   }
+
+   public void invalidate(byte[] key) {
+      invalidations.incrementAndGet();
+      entries.remove(new ByteArrayKey(key));
+   }
+
+   public void clear() {
+      invalidations.incrementAndGet();
+      entries.clear();
+   }
+
+   public int size() {
+      return entries.size();
+   }
+
+   private static class Entry {
+      final BinaryVersionedValue value;
+      final long validUntil;
+
+      Entry(BinaryVersionedValue value, long validUntil) {
+         this.value = value;
+         this.validUntil = validUntil;
+      }
+   }
+}
@@ -10,19 +10,27 @@ import org.infinispan.client.hotrod.exceptions.RemoteCacheManagerNotStartedExcep
 import org.infinispan.client.hotrod.exceptions.TransportException;
 import org.infinispan.client.hotrod.impl.async.NotifyingFutureImpl;
 import org.infinispan.client.hotrod.impl.operations.*;
+import org.infinispan.client.hotrod.impl.transport.nio.MultiplexedTransport;
+import org.infinispan.client.hotrod.impl.transport.nio.PendingRequest;
 import org.infinispan.marshall.Marshaller;
+import org.infinispan.util.Util;
 import org.infinispan.util.concurrent.NotifyingFuture;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @author Mircea.Markus@jboss.com
@@ -36,6 +44,8 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    private final String name;
    private final RemoteCacheManager remoteCacheManager;
    private volatile ExecutorService executorService;
+   private volatile MultiplexedTransport multiplexedTransport;
+   private volatile NearCache nearCache;
    private OperationsFactory operationsFactory;
    private int estimateKeySize;
    private int estimateValueSize;
@@ -49,9 +59,12 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
       this.remoteCacheManager = rcm;
    }
 
-   public void init(Marshaller marshaller, ExecutorService executorService, OperationsFactory operationsFactory, int estimateKeySize, int estimateValueSize) {
+   public void init(Marshaller marshaller, ExecutorService executorService, MultiplexedTransport multiplexedTransport,
+                    NearCache nearCache, OperationsFactory operationsFactory, int estimateKeySize, int estimateValueSize) {
       this.marshaller = marshaller;
       this.executorService = executorService;
+      this.multiplexedTransport = multiplexedTransport;
+      this.nearCache = nearCache;
       this.operationsFactory = operationsFactory;
       this.estimateKeySize = estimateKeySize;
       this.estimateValueSize = estimateValueSize;
@@ -64,14 +77,23 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    @Override
    public boolean removeWithVersion(K key, long version) {
       assertRemoteCacheManagerIsStarted();
-      RemoveIfUnmodifiedOperation op = operationsFactory.newRemoveIfUnmodifiedOperation(obj2bytes(key, true), version);
-      VersionedOperationResponse response = (VersionedOperationResponse) op.execute();
-      return response.getCode().isUpdated();
+      byte[] keyBytes = obj2bytes(key, true);
+      RemoveIfUnmodifiedOperation op = operationsFactory.newRemoveIfUnmodifiedOperation(keyBytes, version);
+      try {
+         VersionedOperationResponse response = (VersionedOperationResponse) op.execute();
+         return response.getCode().isUpdated();
+      } finally {
+         invalidate(keyBytes);
+      }
    }
 
    @Override
    public NotifyingFuture<Boolean> removeWithVersionAsync(final K key, final long version) {
       assertRemoteCacheManagerIsStarted();
+      if (multiplexedTransport != null) {
+         byte[] keyBytes = obj2bytes(key, true);
+         return executeMultiplexed(operationsFactory.newRemoveIfUnmodifiedOperation(keyBytes, version), true, keyBytes);
+      }
       final NotifyingFutureImpl<Boolean> result = new NotifyingFutureImpl<Boolean>();
       Future future = executorService.submit(new Callable() {
          @Override
@@ -88,14 +110,23 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    @Override
    public boolean replaceWithVersion(K key, V newValue, long version, int lifespanSeconds, int maxIdleTimeSeconds) {
       assertRemoteCacheManagerIsStarted();
-      ReplaceIfUnmodifiedOperation op = operationsFactory.newReplaceIfUnmodifiedOperation(obj2bytes(key, true), obj2bytes(newValue, false), lifespanSeconds, maxIdleTimeSeconds, version);
-      VersionedOperationResponse response = (VersionedOperationResponse) op.execute();
-      return response.getCode().isUpdated();
+      byte[] keyBytes = obj2bytes(key, true);
+      ReplaceIfUnmodifiedOperation op = operationsFactory.newReplaceIfUnmodifiedOperation(keyBytes, obj2bytes(newValue, false), lifespanSeconds, maxIdleTimeSeconds, version);
+      try {
+         VersionedOperationResponse response = (VersionedOperationResponse) op.execute();
+         return response.getCode().isUpdated();
+      } finally {
+         invalidate(keyBytes);
+      }
    }
 
    @Override
    public NotifyingFuture<Boolean> replaceWithVersionAsync(final K key, final V newValue, final long version, final int lifespanSeconds, final int maxIdleSeconds) {
       assertRemoteCacheManagerIsStarted();
+      if (multiplexedTransport != null) {
+         byte[] keyBytes = obj2bytes(key, true);
+         return executeMultiplexed(operationsFactory.newReplaceIfUnmodifiedOperation(keyBytes, obj2bytes(newValue, false), lifespanSeconds, maxIdleSeconds, version), true, keyBytes);
+      }
       final NotifyingFutureImpl<Boolean> result = new NotifyingFutureImpl<Boolean>();
       Future future = executorService.submit(new Callable() {
          @Override
@@ -112,16 +143,29 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    @Override
    public VersionedValue<V> getVersioned(K key) {
       assertRemoteCacheManagerIsStarted();
-      GetWithVersionOperation op = operationsFactory.newGetWithVersionOperation(obj2bytes(key, true));
+      byte[] keyBytes = obj2bytes(key, true);
+      long readToken = nearCache == null ? 0 : nearCache.startRead();
+      GetWithVersionOperation op = operationsFactory.newGetWithVersionOperation(keyBytes);
       BinaryVersionedValue value = (BinaryVersionedValue) op.execute();
+      if (nearCache != null && value != null) nearCache.put(keyBytes, value, readToken);
       return binary2VersionedValue(value);
    }
 
    @Override
    public void putAll(Map<? extends K, ? extends V> map, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       assertRemoteCacheManagerIsStarted();
+      int lifespanSecs = toSeconds(lifespan, lifespanUnit);
+      int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
+      Map<byte[], byte[]> entries = new HashMap<byte[], byte[]>(map.size() * 2);
       for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
-         put(entry.getKey(), entry.getValue(), lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit);
+         entries.put(obj2bytes(entry.getKey(), true), obj2bytes(entry.getValue(), false));
+      }
+      try {
+         for (PutAllOperation op : operationsFactory.newPutAllOperations(entries, lifespanSecs, maxIdleSecs)) {
+            op.execute();
+         }
+      } finally {
+         for (byte[] keyBytes : entries.keySet()) invalidate(keyBytes);
       }
    }
 
@@ -174,9 +218,14 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
       if (log.isTraceEnabled()) {
          log.trace("About to add (K,V): (" + key + ", " + value + ") lifespanSecs:" + lifespanSecs + ", maxIdleSecs:" + maxIdleSecs);
       }
-      PutOperation op = operationsFactory.newPutKeyValueOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
-      byte[] result = (byte[]) op.execute();
-      return (V) bytes2obj(result);
+      byte[] keyBytes = obj2bytes(key, true);
+      PutOperation op = operationsFactory.newPutKeyValueOperation(keyBytes, obj2bytes(value, false), lifespanSecs, maxIdleSecs);
+      try {
+         byte[] result = (byte[]) op.execute();
+         return (V) bytes2obj(result);
+      } finally {
+         invalidate(keyBytes);
+      }
    }
 
 
@@ -185,9 +234,14 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
       assertRemoteCacheManagerIsStarted();
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
-      PutIfAbsentOperation op = operationsFactory.newPutIfAbsentOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
-      byte[] bytes = (byte[]) op.execute();
-      return (V) bytes2obj(bytes);
+      byte[] keyBytes = obj2bytes(key, true);
+      PutIfAbsentOperation op = operationsFactory.newPutIfAbsentOperation(keyBytes, obj2bytes(value, false), lifespanSecs, maxIdleSecs);
+      try {
+         byte[] bytes = (byte[]) op.execute();
+         return (V) bytes2obj(bytes);
+      } finally {
+         invalidate(keyBytes);
+      }
    }
 
    @Override
@@ -195,14 +249,23 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
       assertRemoteCacheManagerIsStarted();
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
-      ReplaceOperation op = operationsFactory.newReplaceOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
-      byte[] bytes = (byte[]) op.execute();
-      return (V) bytes2obj(bytes);
+      byte[] keyBytes = obj2bytes(key, true);
+      ReplaceOperation op = operationsFactory.newReplaceOperation(keyBytes, obj2bytes(value, false), lifespanSecs, maxIdleSecs);
+      try {
+         byte[] bytes = (byte[]) op.execute();
+         return (V) bytes2obj(bytes);
+      } finally {
+         invalidate(keyBytes);
+      }
    }
 
    @Override
    public NotifyingFuture<V> putAsync(final K key, final V value, final long lifespan, final TimeUnit lifespanUnit, final long maxIdle, final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (multiplexedTransport != null) {
+         byte[] keyBytes = obj2bytes(key, true);
+         return executeMultiplexed(operationsFactory.newPutKeyValueOperation(keyBytes, obj2bytes(value, false), toSeconds(lifespan, lifespanUnit), toSeconds(maxIdle, maxIdleUnit)), true, keyBytes);
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future future = executorService.submit(new Callable() {
          @Override
@@ -219,6 +282,9 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    @Override
    public NotifyingFuture<Void> clearAsync() {
       assertRemoteCacheManagerIsStarted();
+      if (multiplexedTransport != null) {
+         return executeMultiplexed(operationsFactory.newClearOperation(), true, null);
+      }
       final NotifyingFutureImpl<Void> result = new NotifyingFutureImpl<Void>();
       Future future = executorService.submit(new Callable() {
          @Override
@@ -235,6 +301,10 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    @Override
    public NotifyingFuture<V> putIfAbsentAsync(final K key,final V value,final long lifespan,final TimeUnit lifespanUnit,final long maxIdle,final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (multiplexedTransport != null) {
+         byte[] keyBytes = obj2bytes(key, true);
+         return executeMultiplexed(operationsFactory.newPutIfAbsentOperation(keyBytes, obj2bytes(value, false), toSeconds(lifespan, lifespanUnit), toSeconds(maxIdle, maxIdleUnit)), true, keyBytes);
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future future = executorService.submit(new Callable() {
          @Override
@@ -251,6 +321,10 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    @Override
    public NotifyingFuture<V> removeAsync(final Object key) {
       assertRemoteCacheManagerIsStarted();
+      if (multiplexedTransport != null) {
+         byte[] keyBytes = obj2bytes(key, true);
+         return executeMultiplexed(operationsFactory.newRemoveOperation(keyBytes), true, keyBytes);
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future future = executorService.submit(new Callable() {
          @Override
@@ -267,6 +341,10 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    @Override
    public NotifyingFuture<V> replaceAsync(final K key,final V value,final long lifespan,final TimeUnit lifespanUnit,final long maxIdle,final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (multiplexedTransport != null) {
+         byte[] keyBytes = obj2bytes(key, true);
+         return executeMultiplexed(operationsFactory.newReplaceOperation(keyBytes, obj2bytes(value, false), toSeconds(lifespan, lifespanUnit), toSeconds(maxIdle, maxIdleUnit)), true, keyBytes);
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future future = executorService.submit(new Callable() {
          @Override
@@ -283,7 +361,9 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    @Override
    public boolean containsKey(Object key) {
       assertRemoteCacheManagerIsStarted();
-      ContainsKeyOperation op = operationsFactory.newContainsKeyOperation(obj2bytes(key, true));
+      byte[] keyBytes = obj2bytes(key, true);
+      if (nearCache != null && nearCache.get(keyBytes) != null) return true;
+      ContainsKeyOperation op = operationsFactory.newContainsKeyOperation(keyBytes);
       return (Boolean)op.execute();
    }
 
@@ -291,8 +371,13 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    public V get(Object key) {
       assertRemoteCacheManagerIsStarted();
       byte[] keyBytes = obj2bytes(key, true);
-      GetOperation gco = operationsFactory.newGetKeyOperation(keyBytes);
-      byte[] bytes = (byte[]) gco.execute();
+      byte[] bytes;
+      if (nearCache == null) {
+         GetOperation gco = operationsFactory.newGetKeyOperation(keyBytes);
+         bytes = (byte[]) gco.execute();
+      } else {
+         bytes = getThroughNearCache(keyBytes);
+      }
       V result = (V) bytes2obj(bytes);
       if (log.isTraceEnabled()) {
          log.trace("For key(" + key + ") returning " + result);
@@ -319,19 +404,71 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
       return Collections.unmodifiableMap(toReturn);
    }
 
+   @Override
+   public Map<K, V> getAll(Set<? extends K> keys) {
+      assertRemoteCacheManagerIsStarted();
+      Map<K, V> toReturn = new HashMap<K, V>();
+      List<byte[]> keyBytes = keys2bytes(keys);
+      if (nearCache != null) {
+         // only the keys missing from the near cache are read from the servers
+         List<byte[]> missing = new ArrayList<byte[]>(keyBytes.size());
+         for (byte[] k : keyBytes) {
+            BinaryVersionedValue value = nearCache.get(k);
+            if (value == null) {
+               missing.add(k);
+            } else {
+               toReturn.put((K) bytes2obj(k), (V) bytes2obj(value.getValue()));
+            }
+         }
+         keyBytes = missing;
+      }
+      for (GetAllOperation op : operationsFactory.newGetAllOperations(keyBytes)) {
+         Map<byte[], byte[]> result = (Map<byte[], byte[]>) op.execute();
+         for (Map.Entry<byte[], byte[]> entry : result.entrySet()) {
+            toReturn.put((K) bytes2obj(entry.getKey()), (V) bytes2obj(entry.getValue()));
+         }
+      }
+      if (log.isTraceEnabled()) {
+         log.trace("Found " + toReturn.size() + " out of " + keys.size() + " requested keys");
+      }
+      return toReturn;
+   }
+
+   @Override
+   public void removeAll(Set<? extends K> keys) {
+      assertRemoteCacheManagerIsStarted();
+      List<byte[]> keyBytes = keys2bytes(keys);
+      try {
+         for (RemoveAllOperation op : operationsFactory.newRemoveAllOperations(keyBytes)) {
+            op.execute();
+         }
+      } finally {
+         for (byte[] k : keyBytes) invalidate(k);
+      }
+   }
+
    @Override
    public V remove(Object key) {
       assertRemoteCacheManagerIsStarted();
-      RemoveOperation removeOperation = operationsFactory.newRemoveOperation(obj2bytes(key, true));
-      byte[] existingValue = (byte[]) removeOperation.execute();
-      return (V) bytes2obj(existingValue);
+      byte[] keyBytes = obj2bytes(key, true);
+      RemoveOperation removeOperation = operationsFactory.newRemoveOperation(keyBytes);
+      try {
+         byte[] existingValue = (byte[]) removeOperation.execute();
+         return (V) bytes2obj(existingValue);
+      } finally {
+         invalidate(keyBytes);
+      }
    }
 
    @Override
    public void clear() {
       assertRemoteCacheManagerIsStarted();
       ClearOperation op = operationsFactory.newClearOperation() ;
-      op.execute();
+      try {
+         op.execute();
+      } finally {
+         if (nearCache != null) nearCache.clear();
+      }
    }
 
    @Override
@@ -367,6 +504,10 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
    @Override
    public NotifyingFuture<V> getAsync(final K key) {
       assertRemoteCacheManagerIsStarted();
+      if (multiplexedTransport != null) {
+         // bypasses the near cache, if any
+         return executeMultiplexed(operationsFactory.newGetKeyOperation(obj2bytes(key, true)), false, null);
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future future = executorService.submit(new Callable() {
          @Override
@@ -384,6 +525,43 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
       return operationsFactory.newPingOperation().execute();
    }
 
+   /**
+    * Sends the operation through the multiplexed transport.  Once a write completes, the near cache entry of the
+    * written key is invalidated, or the whole near cache if the write has no key.
+    */
+   private <T> NotifyingFuture<T> executeMultiplexed(RetryOnFailureOperation op, final boolean write, final byte[] keyBytes) {
+      final NotifyingFutureImpl<T> result = new NotifyingFutureImpl<T>();
+      PendingRequest request = multiplexedTransport.execute(op);
+      result.setExecuting(new MultiplexedResponse<T>(request));
+      request.setCompletionListener(new Runnable() {
+         @Override
+         public void run() {
+            if (write && nearCache != null) {
+               if (keyBytes == null) nearCache.clear(); else nearCache.invalidate(keyBytes);
+            }
+            result.notifyFutureCompletion();
+         }
+      });
+      return result;
+   }
+
+   private byte[] getThroughNearCache(byte[] keyBytes) {
+      BinaryVersionedValue value = nearCache.get(keyBytes);
+      if (value == null) {
+         long readToken = nearCache.startRead();
+         value = (BinaryVersionedValue) operationsFactory.newGetWithVersionOperation(keyBytes).execute();
+         if (value == null) return null;
+         nearCache.put(keyBytes, value, readToken);
+      } else if (log.isTraceEnabled()) {
+         log.trace("Near cache hit for key " + Util.printArray(keyBytes, false));
+      }
+      return value.getValue();
+   }
+
+   private void invalidate(byte[] keyBytes) {
+      if (nearCache != null) nearCache.invalidate(keyBytes);
+   }
+
    private byte[] obj2bytes(Object o, boolean isKey) {
       try {
          return marshaller.objectToByteBuffer(o, isKey ? estimateKeySize : estimateValueSize);
@@ -395,6 +573,14 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
       }
    }
 
+   private List<byte[]> keys2bytes(Set<?> keys) {
+      List<byte[]> keyBytes = new ArrayList<byte[]>(keys.size());
+      for (Object key : keys) {
+         keyBytes.add(obj2bytes(key, true));
+      }
+      return keyBytes;
+   }
+
    private Object bytes2obj(byte[] bytes) {
       if (bytes == null) return null;
       try {
@@ -424,4 +610,53 @@ public class RemoteCacheImpl<K, V> extends RemoteCacheSupport<K, V> {
          throw new RemoteCacheManagerNotStartedException(message);
       }
    }
+
+   /**
+    * Converts the response of a request sent through the {@link MultiplexedTransport} into the value the equivalent
+    * synchronous call returns.
+    */
+   private class MultiplexedResponse<T> implements Future<T> {
+
+      private final PendingRequest request;
+
+      MultiplexedResponse(PendingRequest request) {
+         this.request = request;
+      }
+
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning) {
+         return request.cancel(mayInterruptIfRunning);
+      }
+
+      @Override
+      public boolean isCancelled() {
+         return request.isCancelled();
+      }
+
+      @Override
+      public boolean isDone() {
+         return request.isDone();
+      }
+
+      @Override
+      public T get() throws InterruptedException, ExecutionException {
+         return convert(request.get());
+      }
+
+      @Override
+      public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+         return convert(request.get(timeout, unit));
+      }
+
+      private T convert(Object response) throws ExecutionException {
+         try {
+            if (response instanceof VersionedOperationResponse) {
+               return (T) Boolean.valueOf(((VersionedOperationResponse) response).getCode().isUpdated());
+            }
+            return (T) bytes2obj((byte[]) response);
+         } catch (TransportException e) {
+            throw new ExecutionException(e);
+         }
+      }
+   }
 }
@@ -9,6 +9,7 @@ import org.infinispan.util.Util;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.net.InetSocketAddress;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -38,14 +39,16 @@ public abstract class AbstractKeyOperation extends RetryOnFailureOperation {
       }
    }
 
-   protected short sendKeyOperation(byte[] key, Transport transport, byte opCode, byte opRespCode) {
-      // 1) write [header][key length][key]
+   @Override
+   public InetSocketAddress getTargetServer() {
+      return transportFactory.getServer(key);
+   }
+
+   protected long writeKeyRequest(Transport transport, byte opCode) {
+      // [header][key length][key]
       long messageId = writeHeader(transport, opCode);
       transport.writeArray(key);
-      transport.flush();
-
-      // 2) now read the header
-      return readHeaderAndValidate(transport, messageId, opRespCode);
+      return messageId;
    }
 
    protected byte[] returnPossiblePrevValue(Transport transport) {
@@ -0,0 +1,58 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.exceptions.InvalidResponseException;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Basic class for the hot rod operations that manipulate several keys at once.  The keys of such an operation are
+ * expected to be owned by the same server, which the first attempt is sent to; retries go to any available server.
+ *
+ * @since 5.0
+ */
+@Immutable
+public abstract class AbstractMultiKeyOperation extends RetryOnFailureOperation {
+
+   protected final InetSocketAddress server;
+
+   protected AbstractMultiKeyOperation(TransportFactory transportFactory, byte[] cacheName, AtomicInteger topologyId,
+                                       Flag[] flags, InetSocketAddress server) {
+      super(transportFactory, cacheName, topologyId, flags);
+      this.server = server;
+   }
+
+   @Override
+   protected Transport getTransport(int retryCount) {
+      if (retryCount == 0 && server != null) {
+         return transportFactory.getTransport(server);
+      } else {
+         return transportFactory.getTransport();
+      }
+   }
+
+   @Override
+   public InetSocketAddress getTargetServer() {
+      return server;
+   }
+
+   //[key count][key length][key]...
+   protected void writeKeys(Transport transport, Collection<byte[]> keys) {
+      transport.writeVInt(keys.size());
+      for (byte[] key : keys) {
+         transport.writeArray(key);
+      }
+   }
+
+   protected void readStatus(Transport transport, long messageId, byte opRespCode) {
+      short status = readHeaderAndValidate(transport, messageId, opRespCode);
+      if (status != NO_ERROR_STATUS) {
+         throw new InvalidResponseException("Unexpected response status: " + Integer.toHexString(status));
+      }
+   }
+}
@@ -0,0 +1,48 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the values of a set of keys in a single request.  Only the keys that exist on the server are returned.
+ *
+ * @since 5.0
+ */
+@Immutable
+public class GetAllOperation extends AbstractMultiKeyOperation {
+
+   private final Collection<byte[]> keys;
+
+   public GetAllOperation(TransportFactory transportFactory, byte[] cacheName, AtomicInteger topologyId, Flag[] flags,
+                          InetSocketAddress server, Collection<byte[]> keys) {
+      super(transportFactory, cacheName, topologyId, flags, server);
+      this.keys = keys;
+   }
+
+   //[header][key count][key length][key]...
+   @Override
+   public long writeRequest(Transport transport) {
+      long messageId = writeHeader(transport, GET_ALL_REQUEST);
+      writeKeys(transport, keys);
+      return messageId;
+   }
+
+   @Override
+   public Object readResponse(Transport transport, long messageId) {
+      readStatus(transport, messageId, GET_ALL_RESPONSE);
+      int count = transport.readVInt();
+      Map<byte[], byte[]> result = new HashMap<byte[], byte[]>(count * 2);
+      for (int i = 0; i < count; i++) {
+         result.put(transport.readArray(), transport.readArray());
+      }
+      return result;
+   }
+}
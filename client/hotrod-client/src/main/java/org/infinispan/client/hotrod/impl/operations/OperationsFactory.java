@@ -6,6 +6,12 @@ import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
 import org.infinispan.manager.CacheContainer;
 
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -84,10 +90,67 @@ public class OperationsFactory implements HotRodConstants {
       return new BulkGetOperation(transportFactory, cacheNameBytes, topologyId, flags(), size);
    }
 
+   /**
+    * Creates one {@link GetAllOperation} per server owning some of the given keys.
+    */
+   public List<GetAllOperation> newGetAllOperations(Collection<byte[]> keys) {
+      Flag[] flags = flags();
+      List<GetAllOperation> ops = new ArrayList<GetAllOperation>();
+      for (Map.Entry<InetSocketAddress, List<byte[]>> e : groupByServer(keys).entrySet()) {
+         ops.add(new GetAllOperation(transportFactory, cacheNameBytes, topologyId, flags, e.getKey(), e.getValue()));
+      }
+      return ops;
+   }
+
+   /**
+    * Creates one {@link PutAllOperation} per server owning some of the given entries.
+    */
+   public List<PutAllOperation> newPutAllOperations(Map<byte[], byte[]> entries, int lifespanSecs, int maxIdleSecs) {
+      Flag[] flags = flags();
+      List<PutAllOperation> ops = new ArrayList<PutAllOperation>();
+      for (Map.Entry<InetSocketAddress, List<byte[]>> e : groupByServer(entries.keySet()).entrySet()) {
+         Map<byte[], byte[]> serverEntries = new HashMap<byte[], byte[]>(e.getValue().size() * 2);
+         for (byte[] key : e.getValue()) serverEntries.put(key, entries.get(key));
+         ops.add(new PutAllOperation(transportFactory, cacheNameBytes, topologyId, flags, e.getKey(), serverEntries,
+                                     lifespanSecs, maxIdleSecs));
+      }
+      return ops;
+   }
+
+   /**
+    * Creates one {@link RemoveAllOperation} per server owning some of the given keys.
+    */
+   public List<RemoveAllOperation> newRemoveAllOperations(Collection<byte[]> keys) {
+      Flag[] flags = flags();
+      List<RemoveAllOperation> ops = new ArrayList<RemoveAllOperation>();
+      for (Map.Entry<InetSocketAddress, List<byte[]>> e : groupByServer(keys).entrySet()) {
+         ops.add(new RemoveAllOperation(transportFactory, cacheNameBytes, topologyId, flags, e.getKey(), e.getValue()));
+      }
+      return ops;
+   }
+
    public PingOperation newPingOperation() {
       return new PingOperation(topologyId, transportFactory.getTransport(), cacheNameBytes);
    }
 
+   /**
+    * Groups keys by the server owning them.  Keys are grouped under a null server if no consistent hash is known,
+    * in which case they are sent to whichever server the balancer picks.
+    */
+   private Map<InetSocketAddress, List<byte[]>> groupByServer(Collection<byte[]> keys) {
+      Map<InetSocketAddress, List<byte[]>> byServer = new HashMap<InetSocketAddress, List<byte[]>>();
+      for (byte[] key : keys) {
+         InetSocketAddress server = transportFactory.getServer(key);
+         List<byte[]> serverKeys = byServer.get(server);
+         if (serverKeys == null) {
+            serverKeys = new ArrayList<byte[]>();
+            byServer.put(server, serverKeys);
+         }
+         serverKeys.add(key);
+      }
+      return byServer;
+   }
+
    private Flag[] flags() {
       Flag[] flags = this.flagsMap.get();
       this.flagsMap.remove();
@@ -0,0 +1,53 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores a set of entries, all with the same lifespan and max idle time, in a single request.
+ *
+ * @since 5.0
+ */
+@Immutable
+public class PutAllOperation extends AbstractMultiKeyOperation {
+
+   private final Map<byte[], byte[]> entries;
+
+   private final int lifespan;
+
+   private final int maxIdle;
+
+   public PutAllOperation(TransportFactory transportFactory, byte[] cacheName, AtomicInteger topologyId, Flag[] flags,
+                          InetSocketAddress server, Map<byte[], byte[]> entries, int lifespan, int maxIdle) {
+      super(transportFactory, cacheName, topologyId, flags, server);
+      this.entries = entries;
+      this.lifespan = lifespan;
+      this.maxIdle = maxIdle;
+   }
+
+   //[header][lifespan][max idle][entry count][key length][key][value length][value]...
+   @Override
+   public long writeRequest(Transport transport) {
+      long messageId = writeHeader(transport, PUT_ALL_REQUEST);
+      transport.writeVInt(lifespan);
+      transport.writeVInt(maxIdle);
+      transport.writeVInt(entries.size());
+      for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+         transport.writeArray(entry.getKey());
+         transport.writeArray(entry.getValue());
+      }
+      return messageId;
+   }
+
+   @Override
+   public Object readResponse(Transport transport, long messageId) {
+      readStatus(transport, messageId, PUT_ALL_RESPONSE);
+      return null;
+   }
+}
@@ -0,0 +1,41 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import net.jcip.annotations.Immutable;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Removes a set of keys in a single request.  Previous values are never returned.
+ *
+ * @since 5.0
+ */
+@Immutable
+public class RemoveAllOperation extends AbstractMultiKeyOperation {
+
+   private final Collection<byte[]> keys;
+
+   public RemoveAllOperation(TransportFactory transportFactory, byte[] cacheName, AtomicInteger topologyId, Flag[] flags,
+                             InetSocketAddress server, Collection<byte[]> keys) {
+      super(transportFactory, cacheName, topologyId, flags, server);
+      this.keys = keys;
+   }
+
+   //[header][key count][key length][key]...
+   @Override
+   public long writeRequest(Transport transport) {
+      long messageId = writeHeader(transport, REMOVE_ALL_REQUEST);
+      writeKeys(transport, keys);
+      return messageId;
+   }
+
+   @Override
+   public Object readResponse(Transport transport, long messageId) {
+      readStatus(transport, messageId, REMOVE_ALL_RESPONSE);
+      return null;
+   }
+}
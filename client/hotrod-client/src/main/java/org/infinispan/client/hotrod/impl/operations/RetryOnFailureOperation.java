@@ -8,6 +8,7 @@ import org.infinispan.client.hotrod.impl.transport.TransportFactory;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.net.InetSocketAddress;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -70,5 +71,27 @@ public abstract class RetryOnFailureOperation extends HotRodOperation {
 
    protected abstract Transport getTransport(int retryCount);
 
-   protected abstract Object executeOperation(Transport transport);
+   protected Object executeOperation(Transport transport) {
+      long messageId = writeRequest(transport);
+      transport.flush();
+      return readResponse(transport, messageId);
+   }
+
+   /**
+    * Writes the request of this operation, header included, and returns its message id.  The transport is not
+    * flushed.
+    */
+   public abstract long writeRequest(Transport transport);
+
+   /**
+    * Reads the response to the request previously written by {@link #writeRequest(Transport)}, header included.
+    */
+   public abstract Object readResponse(Transport transport, long messageId);
+
+   /**
+    * The server the request should be sent to on the first attempt, or null if any server will do.
+    */
+   public InetSocketAddress getTargetServer() {
+      return null;
+   }
 }
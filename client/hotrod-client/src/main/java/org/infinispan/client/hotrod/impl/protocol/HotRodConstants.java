@@ -29,6 +29,9 @@ public interface HotRodConstants {
    static final byte STATS_REQUEST = 0x15;
    static final byte PING_REQUEST = 0x17;
    static final byte BULK_GET_REQUEST = 0x19;
+   static final byte GET_ALL_REQUEST = 0x1B;
+   static final byte PUT_ALL_REQUEST = 0x1D;
+   static final byte REMOVE_ALL_REQUEST = 0x1F;
 
 
    //responses
@@ -45,6 +48,9 @@ public interface HotRodConstants {
    static final byte STATS_RESPONSE = 0x16;
    static final byte PING_RESPONSE = 0x18;
    static final byte BULK_GET_RESPONSE = 0x1A;
+   static final byte GET_ALL_RESPONSE = 0x1C;
+   static final byte PUT_ALL_RESPONSE = 0x1E;
+   static final byte REMOVE_ALL_RESPONSE = 0x20;
    static final byte ERROR_RESPONSE = 0x50;
 
    //response status
@@ -29,6 +29,20 @@ public interface TransportFactory {
 
    Transport getTransport(byte[] key);
 
+   /**
+    * Returns the server owning the given key according to the consistent hash received from the servers, or null if
+    * no consistent hash is known yet.
+    */
+   InetSocketAddress getServer(byte[] key);
+
+   Transport getTransport(InetSocketAddress server);
+
+   /**
+    * Returns the server a request that is not bound to a key should be sent to, as chosen by the request balancing
+    * strategy.
+    */
+   InetSocketAddress nextServer();
+
    boolean isTcpNoDelay();
 
    int getTransportCount();
@@ -0,0 +1,131 @@
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.transport.AbstractTransport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import static org.infinispan.io.UnsignedNumeric.*;
+
+/**
+ * In-memory {@link org.infinispan.client.hotrod.impl.transport.Transport} used by the {@link MultiplexedTransport}.
+ * When writing, a request is accumulated in a growing buffer, so that it can be sent as a whole once complete. When
+ * reading, a response is parsed out of the bytes received so far; reading past them throws a
+ * {@link BufferUnderflowException}, meaning that the response is not complete yet.
+ *
+ * @since 5.0
+ */
+public class ByteBufferTransport extends AbstractTransport {
+
+   private ByteBuffer buffer;
+
+   /**
+    * Creates a transport to write a request to.
+    */
+   public ByteBufferTransport(TransportFactory transportFactory, int initialCapacity) {
+      super(transportFactory);
+      this.buffer = ByteBuffer.allocate(initialCapacity);
+   }
+
+   /**
+    * Creates a transport reading from the given bytes.  The buffer's position is advanced as bytes are read.
+    */
+   public ByteBufferTransport(TransportFactory transportFactory, ByteBuffer received) {
+      super(transportFactory);
+      this.buffer = received;
+   }
+
+   /**
+    * Returns the request written so far, ready to be sent.
+    */
+   public ByteBuffer getWrittenBytes() {
+      ByteBuffer written = buffer.duplicate();
+      written.flip();
+      return written;
+   }
+
+   @Override
+   public void writeByte(short toWrite) {
+      ensureCapacity(1);
+      buffer.put((byte) toWrite);
+   }
+
+   @Override
+   public void writeVInt(int vInt) {
+      ensureCapacity(5);
+      try {
+         writeUnsignedInt(buffer, vInt);
+      } catch (IOException e) {
+         throw new TransportException(e);
+      }
+   }
+
+   @Override
+   public void writeVLong(long l) {
+      ensureCapacity(10);
+      try {
+         writeUnsignedLong(buffer, l);
+      } catch (IOException e) {
+         throw new TransportException(e);
+      }
+   }
+
+   @Override
+   protected void writeBytes(byte[] toAppend) {
+      ensureCapacity(toAppend.length);
+      buffer.put(toAppend);
+   }
+
+   @Override
+   public short readByte() {
+      return (short) (buffer.get() & 0xFF);
+   }
+
+   @Override
+   public int readVInt() {
+      try {
+         return readUnsignedInt(buffer);
+      } catch (IOException e) {
+         throw new TransportException(e);
+      }
+   }
+
+   @Override
+   public long readVLong() {
+      try {
+         return readUnsignedLong(buffer);
+      } catch (IOException e) {
+         throw new TransportException(e);
+      }
+   }
+
+   @Override
+   public byte[] readByteArray(int size) {
+      if (buffer.remaining() < size) throw new BufferUnderflowException();
+      byte[] result = new byte[size];
+      buffer.get(result);
+      return result;
+   }
+
+   @Override
+   public void flush() {
+      // requests are sent by the MultiplexedTransport once fully written
+   }
+
+   @Override
+   public void release() {
+      // nothing to release
+   }
+
+   private void ensureCapacity(int toWrite) {
+      if (buffer.remaining() < toWrite) {
+         ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + toWrite));
+         buffer.flip();
+         bigger.put(buffer);
+         buffer = bigger;
+      }
+   }
+}
@@ -0,0 +1,168 @@
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.exceptions.InvalidResponseException;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * A non-blocking connection to a Hot Rod server, shared by all the requests the {@link MultiplexedTransport} sends to
+ * that server.  Requests are written back to back without waiting for the previous responses, and the responses are
+ * matched to their requests by message id.  Instances are only ever accessed by the transport's I/O thread.
+ *
+ * @since 5.0
+ */
+class MultiplexedConnection {
+
+   private static final Log log = LogFactory.getLog(MultiplexedConnection.class);
+
+   private static final int INITIAL_READ_BUFFER_SIZE = 8192;
+
+   private final InetSocketAddress server;
+   private final TransportFactory transportFactory;
+   private final SocketChannel channel;
+   private final SelectionKey key;
+   private final Map<Long, PendingRequest> inFlight = new HashMap<Long, PendingRequest>();
+   private final Queue<ByteBuffer> writeQueue = new LinkedList<ByteBuffer>();
+   private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+
+   MultiplexedConnection(InetSocketAddress server, TransportFactory transportFactory, Selector selector) throws IOException {
+      this.server = server;
+      this.transportFactory = transportFactory;
+      channel = SocketChannel.open();
+      try {
+         channel.configureBlocking(false);
+         channel.socket().setTcpNoDelay(transportFactory.isTcpNoDelay());
+         boolean connected = channel.connect(server);
+         key = channel.register(selector, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+      } catch (IOException e) {
+         channel.close();
+         throw e;
+      }
+   }
+
+   InetSocketAddress getServer() {
+      return server;
+   }
+
+   void send(PendingRequest request, long now) {
+      inFlight.put(request.getMessageId(), request);
+      writeQueue.add(request.newAttempt(now));
+      if (channel.isConnected()) key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+   }
+
+   void finishConnect() throws IOException {
+      channel.finishConnect();
+      if (log.isTraceEnabled()) log.trace("Connected to %s", server);
+      key.interestOps(writeQueue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+   }
+
+   /**
+    * Writes as many of the queued requests as the socket accepts, in a single gathering write.
+    */
+   void write() throws IOException {
+      channel.write(writeQueue.toArray(new ByteBuffer[writeQueue.size()]));
+      while (!writeQueue.isEmpty() && !writeQueue.peek().hasRemaining()) writeQueue.poll();
+      if (writeQueue.isEmpty()) key.interestOps(SelectionKey.OP_READ);
+   }
+
+   /**
+    * Reads the available bytes and completes the requests whose responses are fully received.
+    */
+   void read() throws IOException {
+      if (channel.read(readBuffer) < 0) throw new TransportException("Connection closed by server " + server);
+      readBuffer.flip();
+      try {
+         while (readBuffer.hasRemaining() && readResponse()) {
+            // keep going while complete responses are available
+         }
+      } finally {
+         readBuffer.compact();
+      }
+      if (!readBuffer.hasRemaining()) {
+         // a single response does not fit in the buffer
+         ByteBuffer bigger = ByteBuffer.allocate(readBuffer.capacity() * 2);
+         readBuffer.flip();
+         bigger.put(readBuffer);
+         readBuffer = bigger;
+      }
+   }
+
+   private boolean readResponse() {
+      int start = readBuffer.position();
+      ByteBufferTransport transport = new ByteBufferTransport(transportFactory, readBuffer);
+      try {
+         transport.readByte(); // the magic number is validated by the operation
+         long messageId = transport.readVLong();
+         PendingRequest request = inFlight.get(messageId);
+         if (request == null) {
+            throw new InvalidResponseException("Received response for unknown message id " + messageId + " from " + server);
+         }
+         readBuffer.position(start);
+         Object response;
+         try {
+            response = request.getOperation().readResponse(transport, messageId);
+         } catch (TransportException e) {
+            throw e;
+         } catch (InvalidResponseException e) {
+            throw e;
+         } catch (HotRodClientException e) {
+            // an error reported by the server for this request only, the connection is still usable
+            inFlight.remove(messageId);
+            request.fail(e);
+            return true;
+         }
+         inFlight.remove(messageId);
+         request.complete(response);
+         return true;
+      } catch (BufferUnderflowException e) {
+         // response not fully received yet
+         readBuffer.position(start);
+         return false;
+      }
+   }
+
+   boolean hasRequestsOlderThan(long time) {
+      for (PendingRequest request : inFlight.values()) {
+         if (request.getSentTime() < time) return true;
+      }
+      return false;
+   }
+
+   /**
+    * Closes the connection and returns the requests that have not been answered.
+    */
+   Collection<PendingRequest> close() {
+      key.cancel();
+      try {
+         channel.close();
+      } catch (IOException e) {
+         log.warn("Exception while closing connection to " + server, e);
+      }
+      Collection<PendingRequest> unanswered = new ArrayList<PendingRequest>(inFlight.values());
+      inFlight.clear();
+      writeQueue.clear();
+      return unanswered;
+   }
+
+   @Override
+   public String toString() {
+      return "MultiplexedConnection{server=" + server + ", inFlight=" + inFlight.size() + "}";
+   }
+}
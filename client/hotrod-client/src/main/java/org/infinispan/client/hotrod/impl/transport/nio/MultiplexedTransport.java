@@ -0,0 +1,216 @@
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.operations.RetryOnFailureOperation;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking transport for asynchronous operations.  Requests are multiplexed over a few connections per server and
+ * pipelined, i.e. written without waiting for the responses of the previous ones; responses are matched to their
+ * requests by message id.  A single I/O thread serves all the connections, so the number of in-flight requests is
+ * not bound by the number of threads or pooled sockets.
+ * <p/>
+ * The servers to send requests to are chosen by the {@link TransportFactory}: key based operations go to the owner of
+ * the key when a consistent hash is known, other operations to the server picked by the request balancing strategy.
+ * Requests on a connection that fails or stays silent for longer than the socket timeout are retried on other servers,
+ * as many times as the synchronous operations would be.
+ *
+ * @since 5.0
+ */
+@ThreadSafe
+public class MultiplexedTransport {
+
+   private static final Log log = LogFactory.getLog(MultiplexedTransport.class);
+
+   private static final int INITIAL_REQUEST_SIZE = 128;
+   private static final long SELECT_TIMEOUT = 1000;
+
+   private final TransportFactory transportFactory;
+   private final int connectionsPerServer;
+   private final Selector selector;
+   private final Thread ioThread;
+   private final Queue<PendingRequest> toSend = new ConcurrentLinkedQueue<PendingRequest>();
+   private final AtomicBoolean wakeupPending = new AtomicBoolean();
+   private volatile boolean running = true;
+
+   // only accessed by the I/O thread
+   private final Map<InetSocketAddress, MultiplexedConnection[]> connections = new HashMap<InetSocketAddress, MultiplexedConnection[]>();
+   private int nextConnection;
+
+   public MultiplexedTransport(TransportFactory transportFactory, int connectionsPerServer) {
+      this.transportFactory = transportFactory;
+      this.connectionsPerServer = Math.max(1, connectionsPerServer);
+      try {
+         selector = Selector.open();
+      } catch (IOException e) {
+         throw new TransportException("Could not open selector", e);
+      }
+      ioThread = new Thread(new Runnable() {
+         @Override
+         public void run() {
+            ioLoop();
+         }
+      }, "HotRodClient-MultiplexedTransport");
+      ioThread.setDaemon(true);
+      ioThread.start();
+   }
+
+   /**
+    * Sends the request of the given operation and returns straight away.  The returned future completes with the value
+    * that {@link org.infinispan.client.hotrod.impl.operations.HotRodOperation#execute()} would have returned.
+    */
+   public PendingRequest execute(RetryOnFailureOperation operation) {
+      if (!running) throw new TransportException("Transport has been closed");
+      ByteBufferTransport transport = new ByteBufferTransport(transportFactory, INITIAL_REQUEST_SIZE);
+      long messageId = operation.writeRequest(transport);
+      InetSocketAddress server = operation.getTargetServer();
+      if (server == null) server = transportFactory.nextServer();
+      PendingRequest request = new PendingRequest(operation, messageId, transport.getWrittenBytes(), server);
+      toSend.add(request);
+      // one wakeup is enough for all the requests queued until the I/O thread drains the queue
+      if (wakeupPending.compareAndSet(false, true)) selector.wakeup();
+      return request;
+   }
+
+   /**
+    * Stops the I/O thread and closes all the connections.  Requests still waiting for a response are failed.
+    */
+   public void close() {
+      running = false;
+      selector.wakeup();
+      try {
+         ioThread.join(transportFactory.getSoTimeout());
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   private void ioLoop() {
+      while (running) {
+         try {
+            selector.select(SELECT_TIMEOUT);
+            wakeupPending.set(false);
+            sendQueuedRequests();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+               SelectionKey key = keys.next();
+               keys.remove();
+               handle(key);
+            }
+            expireRequests();
+         } catch (Throwable t) {
+            log.error("Unexpected error in the I/O loop", t);
+         }
+      }
+      closeAll();
+   }
+
+   private void handle(SelectionKey key) {
+      MultiplexedConnection connection = (MultiplexedConnection) key.attachment();
+      try {
+         if (key.isConnectable()) connection.finishConnect();
+         if (key.isValid() && key.isWritable()) connection.write();
+         if (key.isValid() && key.isReadable()) connection.read();
+      } catch (Exception e) {
+         connectionFailed(connection, e);
+      }
+   }
+
+   private void sendQueuedRequests() {
+      PendingRequest request;
+      while ((request = toSend.poll()) != null) {
+         send(request, System.currentTimeMillis());
+      }
+   }
+
+   private void send(PendingRequest request, long now) {
+      InetSocketAddress server = request.getServer();
+      MultiplexedConnection[] serverConnections = connections.get(server);
+      if (serverConnections == null) {
+         serverConnections = new MultiplexedConnection[connectionsPerServer];
+         connections.put(server, serverConnections);
+      }
+      int index = (nextConnection++ & Integer.MAX_VALUE) % serverConnections.length;
+      if (serverConnections[index] == null) {
+         try {
+            serverConnections[index] = new MultiplexedConnection(server, transportFactory, selector);
+         } catch (IOException e) {
+            retryOrFail(request, new TransportException("Could not connect to server: " + server, e), now);
+            return;
+         }
+      }
+      serverConnections[index].send(request, now);
+   }
+
+   private void connectionFailed(MultiplexedConnection connection, Exception cause) {
+      MultiplexedConnection[] serverConnections = connections.get(connection.getServer());
+      for (int i = 0; i < serverConnections.length; i++) {
+         if (serverConnections[i] == connection) serverConnections[i] = null;
+      }
+      List<PendingRequest> unanswered = new ArrayList<PendingRequest>(connection.close());
+      log.warn("Connection to %s failed with %d requests in flight: %s", connection.getServer(), unanswered.size(), cause);
+      long now = System.currentTimeMillis();
+      for (PendingRequest request : unanswered) {
+         retryOrFail(request, cause, now);
+      }
+   }
+
+   private void retryOrFail(PendingRequest request, Exception cause, long now) {
+      int attempts = request.attemptFailed(transportFactory.nextServer());
+      if (running && attempts < transportFactory.getTransportCount()) {
+         if (log.isTraceEnabled()) log.trace("Retrying %s, attempt %d failed with %s", request, attempts, cause);
+         send(request, now);
+      } else {
+         request.fail(cause instanceof TransportException ? cause : new TransportException(cause));
+      }
+   }
+
+   private void expireRequests() {
+      long now = System.currentTimeMillis();
+      long sentBefore = now - transportFactory.getSoTimeout();
+      List<MultiplexedConnection> expired = new ArrayList<MultiplexedConnection>();
+      for (MultiplexedConnection[] serverConnections : connections.values()) {
+         for (MultiplexedConnection connection : serverConnections) {
+            if (connection != null && connection.hasRequestsOlderThan(sentBefore)) expired.add(connection);
+         }
+      }
+      for (MultiplexedConnection connection : expired) {
+         connectionFailed(connection, new TransportException("No response received from " + connection.getServer() +
+               " within " + transportFactory.getSoTimeout() + " milliseconds"));
+      }
+   }
+
+   private void closeAll() {
+      TransportException closed = new TransportException("Transport has been closed");
+      for (MultiplexedConnection[] serverConnections : connections.values()) {
+         for (MultiplexedConnection connection : serverConnections) {
+            if (connection == null) continue;
+            for (PendingRequest request : connection.close()) request.fail(closed);
+         }
+      }
+      connections.clear();
+      PendingRequest request;
+      while ((request = toSend.poll()) != null) request.fail(closed);
+      try {
+         selector.close();
+      } catch (IOException e) {
+         log.warn("Exception while closing selector", e);
+      }
+   }
+}
@@ -0,0 +1,156 @@
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import org.infinispan.client.hotrod.impl.operations.RetryOnFailureOperation;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A request sent through the {@link MultiplexedTransport}, together with the future of its response.  The request is
+ * completed by the transport's I/O thread, either when its response has been read or when it has failed on all the
+ * attempts it was allowed.  In-flight requests cannot be cancelled.
+ *
+ * @since 5.0
+ */
+public class PendingRequest implements Future<Object> {
+
+   private static final Log log = LogFactory.getLog(PendingRequest.class);
+
+   private final RetryOnFailureOperation operation;
+   private final long messageId;
+   private final ByteBuffer request;
+   private final CountDownLatch done = new CountDownLatch(1);
+   private volatile Object response;
+   private volatile Throwable failure;
+   private Runnable completionListener;
+
+   // only accessed by the I/O thread
+   private InetSocketAddress server;
+   private int attempts;
+   private long sentTime;
+
+   PendingRequest(RetryOnFailureOperation operation, long messageId, ByteBuffer request, InetSocketAddress server) {
+      this.operation = operation;
+      this.messageId = messageId;
+      this.request = request;
+      this.server = server;
+   }
+
+   RetryOnFailureOperation getOperation() {
+      return operation;
+   }
+
+   long getMessageId() {
+      return messageId;
+   }
+
+   InetSocketAddress getServer() {
+      return server;
+   }
+
+   /**
+    * Returns the bytes to send for a new attempt of this request.  A retried request is sent again as a whole, with the
+    * same message id.
+    */
+   ByteBuffer newAttempt(long now) {
+      sentTime = now;
+      return request.duplicate();
+   }
+
+   long getSentTime() {
+      return sentTime;
+   }
+
+   /**
+    * Records a failed attempt and returns the number of attempts made so far.
+    */
+   int attemptFailed(InetSocketAddress nextServer) {
+      server = nextServer;
+      return ++attempts;
+   }
+
+   void complete(Object response) {
+      this.response = response;
+      finish();
+   }
+
+   void fail(Throwable failure) {
+      this.failure = failure;
+      finish();
+   }
+
+   /**
+    * Registers a callback to be run once this request completes, or straight away if it has completed already.  The
+    * callback usually runs in the I/O thread of the transport, so it must not block.
+    */
+   public void setCompletionListener(Runnable listener) {
+      boolean completed;
+      synchronized (this) {
+         completionListener = listener;
+         completed = isDone();
+      }
+      if (completed) listener.run();
+   }
+
+   private void finish() {
+      Runnable listener;
+      synchronized (this) {
+         done.countDown();
+         listener = completionListener;
+      }
+      if (listener != null) {
+         try {
+            listener.run();
+         } catch (Throwable t) {
+            log.warn("Completion listener of request " + messageId + " failed", t);
+         }
+      }
+   }
+
+   @Override
+   public boolean cancel(boolean mayInterruptIfRunning) {
+      return false;
+   }
+
+   @Override
+   public boolean isCancelled() {
+      return false;
+   }
+
+   @Override
+   public boolean isDone() {
+      return done.getCount() == 0;
+   }
+
+   @Override
+   public Object get() throws InterruptedException, ExecutionException {
+      done.await();
+      return report();
+   }
+
+   @Override
+   public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+      if (!done.await(timeout, unit)) {
+         throw new TimeoutException("No response received for request " + messageId + " after " + timeout + " " + unit);
+      }
+      return report();
+   }
+
+   private Object report() throws ExecutionException {
+      if (failure != null) throw new ExecutionException(failure);
+      return response;
+   }
+
+   @Override
+   public String toString() {
+      return "PendingRequest{messageId=" + messageId + ", operation=" + operation.getClass().getSimpleName() +
+            ", server=" + server + ", done=" + isDone() + "}";
+   }
+}
@@ -109,6 +109,22 @@ public class TcpTransportFactory implements TransportFactory {
       return borrowTransportFromPool(server);
    }
 
+   @Override
+   public InetSocketAddress getServer(byte[] key) {
+      ConsistentHash hash = consistentHash;
+      return hash == null ? null : hash.getServer(key);
+   }
+
+   @Override
+   public Transport getTransport(InetSocketAddress server) {
+      return borrowTransportFromPool(server);
+   }
+
+   @Override
+   public InetSocketAddress nextServer() {
+      return balancer.nextServer();
+   }
+
    @Override
    public void releaseTransport(Transport transport) {
       TcpTransport tcpTransport = (TcpTransport) transport;
@@ -0,0 +1,82 @@
+package org.infinispan.client.hotrod;
+
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+
+@Test(testName = "client.hotrod.MultiKeyOperationsTest", groups = "functional")
+public class MultiKeyOperationsTest extends SingleCacheManagerTest {
+   private HotRodServer hotRodServer;
+   private RemoteCacheManager remoteCacheManager;
+   private RemoteCache<Object, Object> remoteCache;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      cacheManager = TestCacheManagerFactory.createLocalCacheManager();
+      cache = cacheManager.getCache();
+
+      hotRodServer = TestHelper.startHotRodServer(cacheManager);
+
+      Properties hotrodClientConf = new Properties();
+      hotrodClientConf.put("infinispan.client.hotrod.server_list", "localhost:" + hotRodServer.getPort());
+      remoteCacheManager = new RemoteCacheManager(hotrodClientConf);
+      remoteCache = remoteCacheManager.getCache();
+      return cacheManager;
+   }
+
+   @AfterClass
+   public void release() {
+      if (remoteCacheManager != null) remoteCacheManager.stop();
+      if (hotRodServer != null) hotRodServer.stop();
+   }
+
+   public void testGetAll() {
+      for (int i = 0; i < 100; i++) remoteCache.put(i, "v" + i);
+      Set<Object> keys = new HashSet<Object>();
+      for (int i = 0; i < 100; i += 2) keys.add(i);
+      keys.add("missing");
+
+      Map<Object, Object> values = remoteCache.getAll(keys);
+      assertEquals(50, values.size());
+      for (int i = 0; i < 100; i += 2) assertEquals("v" + i, values.get(i));
+      assertFalse(values.containsKey("missing"));
+   }
+
+   public void testPutAll() {
+      Map<Object, Object> data = new HashMap<Object, Object>();
+      for (int i = 0; i < 100; i++) data.put("k" + i, i);
+      remoteCache.putAll(data);
+
+      assertEquals(100, cache.size());
+      for (int i = 0; i < 100; i++) assertEquals(i, remoteCache.get("k" + i));
+   }
+
+   public void testRemoveAll() {
+      Set<Object> keys = new HashSet<Object>();
+      for (int i = 0; i < 10; i++) {
+         remoteCache.put(i, i);
+         if (i % 2 == 0) keys.add(i);
+      }
+      remoteCache.removeAll(keys);
+
+      for (int i = 0; i < 10; i++) {
+         if (i % 2 == 0)
+            assertNull(remoteCache.get(i));
+         else
+            assertEquals(i, remoteCache.get(i));
+      }
+   }
+}
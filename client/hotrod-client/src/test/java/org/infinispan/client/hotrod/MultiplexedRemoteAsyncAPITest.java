@@ -0,0 +1,20 @@
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+
+/**
+ * Runs the async API tests through the multiplexed async transport.
+ *
+ * @since 5.0
+ */
+@Test(groups = "functional", testName = "client.hotrod.MultiplexedRemoteAsyncAPITest")
+public class MultiplexedRemoteAsyncAPITest extends RemoteAsyncAPITest {
+
+   @Override
+   protected void configureClient(Properties props) {
+      props.put(ConfigurationProperties.MULTIPLEXED_ASYNC_TRANSPORT, "true");
+   }
+}
@@ -0,0 +1,253 @@
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
+import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.nio.MultiplexedTransport;
+import org.infinispan.client.hotrod.impl.transport.nio.PendingRequest;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.infinispan.io.UnsignedNumeric.*;
+
+/**
+ * Tests the {@link MultiplexedTransport} against a fake server that answers pipelined requests out of order and in
+ * fragments.
+ *
+ * @since 5.0
+ */
+@Test(groups = "unit", testName = "client.hotrod.MultiplexedTransportTest")
+public class MultiplexedTransportTest {
+
+   private ServerSocket serverSocket;
+   private FakeTransportFactory transportFactory;
+   private MultiplexedTransport transport;
+   private OperationsFactory operationsFactory;
+
+   @BeforeMethod
+   public void setUp() throws IOException {
+      serverSocket = new ServerSocket(0);
+      transportFactory = new FakeTransportFactory(new InetSocketAddress("127.0.0.1", serverSocket.getLocalPort()));
+      transport = new MultiplexedTransport(transportFactory, 1);
+      operationsFactory = new OperationsFactory(transportFactory, "", new AtomicInteger(), false);
+   }
+
+   @AfterMethod
+   public void tearDown() throws IOException {
+      transport.close();
+      serverSocket.close();
+   }
+
+   public void testPipelinedRequestsAnsweredOutOfOrder() throws Exception {
+      int count = 10;
+      List<PendingRequest> requests = new ArrayList<PendingRequest>();
+      for (int i = 0; i < count; i++) {
+         requests.add(transport.execute(operationsFactory.newGetKeyOperation(("k" + i).getBytes())));
+      }
+
+      Socket socket = serverSocket.accept();
+      try {
+         DataInputStream in = new DataInputStream(socket.getInputStream());
+         List<byte[]> responses = new ArrayList<byte[]>();
+         for (int i = 0; i < count; i++) {
+            long messageId = readRequestHeader(in);
+            byte[] key = readArray(in);
+            responses.add(getResponse(messageId, ("v" + new String(key)).getBytes()));
+         }
+         Collections.reverse(responses);
+         writeInFragments(socket.getOutputStream(), responses, 3);
+
+         for (int i = 0; i < count; i++) {
+            byte[] value = (byte[]) requests.get(i).get(10, TimeUnit.SECONDS);
+            assert ("vk" + i).equals(new String(value)) : "Unexpected value for k" + i + ": " + new String(value);
+         }
+      } finally {
+         socket.close();
+      }
+   }
+
+   public void testServerErrorOnlyFailsItsRequest() throws Exception {
+      PendingRequest failing = transport.execute(operationsFactory.newGetKeyOperation("k1".getBytes()));
+      PendingRequest succeeding = transport.execute(operationsFactory.newGetKeyOperation("k2".getBytes()));
+
+      Socket socket = serverSocket.accept();
+      try {
+         DataInputStream in = new DataInputStream(socket.getInputStream());
+         long failingId = readRequestHeader(in);
+         readArray(in);
+         long succeedingId = readRequestHeader(in);
+         readArray(in);
+         List<byte[]> responses = new ArrayList<byte[]>();
+         responses.add(errorResponse(failingId, "Boom"));
+         responses.add(getResponse(succeedingId, "v2".getBytes()));
+         writeInFragments(socket.getOutputStream(), responses, 1024);
+
+         try {
+            failing.get(10, TimeUnit.SECONDS);
+            assert false : "Should have failed";
+         } catch (ExecutionException e) {
+            assert e.getCause() instanceof HotRodClientException : "Unexpected cause " + e.getCause();
+         }
+         assert "v2".equals(new String((byte[]) succeeding.get(10, TimeUnit.SECONDS)));
+      } finally {
+         socket.close();
+      }
+   }
+
+   public void testRequestsFailWhenConnectionIsLost() throws Exception {
+      PendingRequest request = transport.execute(operationsFactory.newGetKeyOperation("k".getBytes()));
+      serverSocket.accept().close();
+      try {
+         request.get(10, TimeUnit.SECONDS);
+         assert false : "Should have failed";
+      } catch (ExecutionException e) {
+         assert e.getCause() instanceof HotRodClientException : "Unexpected cause " + e.getCause();
+      }
+   }
+
+   private long readRequestHeader(DataInputStream in) throws IOException {
+      int magic = in.readUnsignedByte();
+      assert magic == HotRodConstants.REQUEST_MAGIC : "Unexpected magic " + magic;
+      long messageId = readUnsignedLong(in);
+      in.readUnsignedByte(); // version
+      int opCode = in.readUnsignedByte();
+      assert opCode == HotRodConstants.GET_REQUEST : "Unexpected operation " + opCode;
+      readArray(in); // cache name
+      readUnsignedInt(in); // flags
+      in.readUnsignedByte(); // client intelligence
+      readUnsignedInt(in); // topology id
+      in.readUnsignedByte(); // transaction type
+      return messageId;
+   }
+
+   private byte[] readArray(DataInputStream in) throws IOException {
+      byte[] array = new byte[readUnsignedInt(in)];
+      in.readFully(array);
+      return array;
+   }
+
+   private byte[] getResponse(long messageId, byte[] value) throws IOException {
+      ByteArrayOutputStream out = responseHeader(messageId, HotRodConstants.GET_RESPONSE, HotRodConstants.NO_ERROR_STATUS);
+      writeUnsignedInt(out, value.length);
+      out.write(value);
+      return out.toByteArray();
+   }
+
+   private byte[] errorResponse(long messageId, String message) throws IOException {
+      ByteArrayOutputStream out = responseHeader(messageId, HotRodConstants.ERROR_RESPONSE, HotRodConstants.SERVER_ERROR_STATUS);
+      byte[] bytes = message.getBytes(HotRodConstants.HOTROD_STRING_CHARSET);
+      writeUnsignedInt(out, bytes.length);
+      out.write(bytes);
+      return out.toByteArray();
+   }
+
+   private ByteArrayOutputStream responseHeader(long messageId, int opCode, int status) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      out.write(HotRodConstants.RESPONSE_MAGIC);
+      writeUnsignedLong(out, messageId);
+      out.write(opCode);
+      out.write(status);
+      out.write(0); // no topology change
+      return out;
+   }
+
+   private void writeInFragments(OutputStream out, List<byte[]> responses, int fragmentSize) throws Exception {
+      ByteArrayOutputStream all = new ByteArrayOutputStream();
+      for (byte[] response : responses) all.write(response);
+      byte[] bytes = all.toByteArray();
+      for (int offset = 0; offset < bytes.length; offset += fragmentSize) {
+         out.write(bytes, offset, Math.min(fragmentSize, bytes.length - offset));
+         out.flush();
+         Thread.sleep(1);
+      }
+   }
+
+   private static class FakeTransportFactory implements TransportFactory {
+
+      private final InetSocketAddress server;
+
+      FakeTransportFactory(InetSocketAddress server) {
+         this.server = server;
+      }
+
+      @Override
+      public InetSocketAddress getServer(byte[] key) {
+         return null;
+      }
+
+      @Override
+      public InetSocketAddress nextServer() {
+         return server;
+      }
+
+      @Override
+      public int getTransportCount() {
+         return 1;
+      }
+
+      @Override
+      public boolean isTcpNoDelay() {
+         return true;
+      }
+
+      @Override
+      public int getSoTimeout() {
+         return 60000;
+      }
+
+      @Override
+      public void updateServers(Collection<InetSocketAddress> newServers) {
+      }
+
+      @Override
+      public void updateHashFunction(LinkedHashMap<InetSocketAddress, Integer> servers2HashCode, int numKeyOwners, short hashFunctionVersion, int hashSpace) {
+      }
+
+      @Override
+      public Transport getTransport() {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Transport getTransport(byte[] key) {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Transport getTransport(InetSocketAddress server) {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void releaseTransport(Transport transport) {
+      }
+
+      @Override
+      public void start(ConfigurationProperties props, Collection<InetSocketAddress> staticConfiguredServers, AtomicInteger topologyId) {
+      }
+
+      @Override
+      public void destroy() {
+      }
+   }
+}
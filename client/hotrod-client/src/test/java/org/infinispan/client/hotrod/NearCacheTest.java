@@ -0,0 +1,106 @@
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+/**
+ * Tests the client side near cache.  A second client, without a near cache, is used to change the entries behind the
+ * back of the first one.
+ *
+ * @since 5.0
+ */
+@Test(testName = "client.hotrod.NearCacheTest", groups = "functional")
+public class NearCacheTest extends SingleCacheManagerTest {
+
+   private static final long MAX_STALENESS = 3000;
+
+   private HotRodServer hotRodServer;
+   private RemoteCacheManager nearRemoteCacheManager;
+   private RemoteCacheManager remoteCacheManager;
+   private RemoteCache<Object, Object> nearCache;
+   private RemoteCache<Object, Object> remoteCache;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      cacheManager = TestCacheManagerFactory.createLocalCacheManager();
+      cache = cacheManager.getCache();
+
+      hotRodServer = TestHelper.startHotRodServer(cacheManager);
+
+      Properties hotrodClientConf = new Properties();
+      hotrodClientConf.put(ConfigurationProperties.SERVER_LIST, "localhost:" + hotRodServer.getPort());
+      remoteCacheManager = new RemoteCacheManager(hotrodClientConf);
+      remoteCache = remoteCacheManager.getCache();
+
+      hotrodClientConf.put(ConfigurationProperties.NEAR_CACHE_MAX_ENTRIES, "100");
+      hotrodClientConf.put(ConfigurationProperties.NEAR_CACHE_MAX_STALENESS, String.valueOf(MAX_STALENESS));
+      nearRemoteCacheManager = new RemoteCacheManager(hotrodClientConf);
+      nearCache = nearRemoteCacheManager.getCache();
+      return cacheManager;
+   }
+
+   @AfterClass
+   public void release() {
+      if (nearRemoteCacheManager != null) nearRemoteCacheManager.stop();
+      if (remoteCacheManager != null) remoteCacheManager.stop();
+      if (hotRodServer != null) hotRodServer.stop();
+   }
+
+   public void testReadsServedLocallyUntilStale() throws Exception {
+      remoteCache.put("k", "v1");
+      assertEquals("v1", nearCache.get("k"));
+
+      remoteCache.put("k", "v2");
+      assertEquals("v1", nearCache.get("k"));
+      assertEquals("v1", nearCache.getAll(Collections.singleton("k")).get("k"));
+
+      Thread.sleep(MAX_STALENESS + 100);
+      assertEquals("v2", nearCache.get("k"));
+   }
+
+   public void testOwnWritesInvalidate() {
+      nearCache.put("a", "v1");
+      assertEquals("v1", nearCache.get("a"));
+      nearCache.put("a", "v2");
+      assertEquals("v2", nearCache.get("a"));
+      nearCache.replace("a", "v3");
+      assertEquals("v3", nearCache.get("a"));
+      nearCache.remove("a");
+      assertNull(nearCache.get("a"));
+
+      nearCache.put("b", "v1");
+      assertEquals("v1", nearCache.get("b"));
+      nearCache.putAll(Collections.singletonMap("b", "v2"));
+      assertEquals("v2", nearCache.get("b"));
+      Set<Object> keys = new HashSet<Object>();
+      keys.add("b");
+      nearCache.removeAll(keys);
+      assertNull(nearCache.get("b"));
+
+      nearCache.put("c", "v1");
+      assertEquals("v1", nearCache.get("c"));
+      nearCache.clear();
+      assertNull(nearCache.get("c"));
+   }
+
+   public void testVersionedWritesInvalidate() {
+      nearCache.put("d", "v1");
+      VersionedValue<Object> versioned = nearCache.getVersioned("d");
+      assertEquals("v1", nearCache.get("d"));
+      assert nearCache.replaceWithVersion("d", "v2", versioned.getVersion());
+      assertEquals("v2", nearCache.get("d"));
+   }
+}
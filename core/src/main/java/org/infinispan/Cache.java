@@ -144,6 +144,18 @@ public interface Cache<K, V> extends ConcurrentMap<K, V>, Lifecycle, Listenable
     */
    void evict(K key);
 
+   /**
+    * Retrieves the values mapped to a set of keys.  This is equivalent to calling {@link #get(Object)} for each key,
+    * except that all lookups share a single invocation.  In distributed mode, keys not held locally are fetched with a
+    * single remote call per owning node, rather than one remote call per key.
+    *
+    * @param keys keys to retrieve
+    * @return a map containing the keys that were found, mapped to their values.  Keys not mapped in the cache are
+    *         absent from the returned map.
+    * @since 5.0
+    */
+   Map<K, V> getAll(Set<? extends K> keys);
+
    Configuration getConfiguration();
 
    /**
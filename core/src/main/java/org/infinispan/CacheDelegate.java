@@ -25,6 +25,7 @@ import org.infinispan.batch.BatchContainer;
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
 import org.infinispan.commands.read.SizeCommand;
@@ -80,6 +81,7 @@ import org.rhq.helpers.pluginAnnotations.agent.Operation;
 import javax.transaction.SystemException;
 import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
@@ -218,6 +220,16 @@ public class CacheDelegate<K, V> extends CacheSupport<K,V> implements AdvancedCa
       return (V) invoker.invoke(ctx, command);
    }
 
+   @SuppressWarnings("unchecked")
+   @Override
+   public final Map<K, V> getAll(Set<? extends K> keys) {
+      if (keys == null) throw new NullPointerException("Expected set of keys cannot be null");
+      for (Object key : keys) assertKeyNotNull(key);
+      InvocationContext ctx = getInvocationContext(false);
+      GetAllCommand command = commandsFactory.buildGetAllCommand(new ArrayList<Object>(keys));
+      return (Map<K, V>) invoker.invoke(ctx, command);
+   }
+
    @SuppressWarnings("unchecked")
    public final V remove(Object key) {
       assertKeyNotNull(key);
@@ -610,9 +622,9 @@ public class CacheDelegate<K, V> extends CacheSupport<K,V> implements AdvancedCa
 
       // Optimisations to not start a new thread:
       // 1. If distribution and no cache loader, and either SKIP_REMOTE_LOOKUP or key is local,
-      // 2. If no cache loader config, or config is present and, SKIP_CACHE_STORE or SKIP_CACHE_LOAD flags are passed
+      // 2. If not distributed and no cache loader config, or config is present and, SKIP_CACHE_STORE or SKIP_CACHE_LOAD flags are passed
       boolean isSkipLoader = isSkipLoader(flags);
-      if (isDistributedAndLocal(flags, key, isSkipLoader) || isSkipLoader) {
+      if (isDistributedAndLocal(flags, key, isSkipLoader) || (!config.getCacheMode().isDistributed() && isSkipLoader)) {
          return wrapInFuture(get(key));
       } else {
          Callable<V> c = new Callable<V>() {
@@ -24,7 +24,9 @@ package org.infinispan;
 
 import org.infinispan.util.concurrent.NotifyingFuture;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -54,6 +56,15 @@ public abstract class CacheSupport<K,V> implements Cache<K,V> {
       putAll(map, defaultLifespan, MILLISECONDS, defaultMaxIdleTime, MILLISECONDS);
    }
 
+   public Map<K, V> getAll(Set<? extends K> keys) {
+      Map<K, V> result = new HashMap<K, V>();
+      for (K key : keys) {
+         V value = get(key);
+         if (value != null) result.put(key, value);
+      }
+      return result;
+   }
+
    public final NotifyingFuture<V> putAsync(K key, V value) {
       return putAsync(key, value, MILLISECONDS.toMillis(defaultLifespan), MILLISECONDS, MILLISECONDS.toMillis(defaultMaxIdleTime), MILLISECONDS);
    }
@@ -303,11 +303,11 @@ public class KeyAffinityServiceImpl implements KeyAffinityService {
    private Address getAddressForKey(Object key) {
       DistributionManager distributionManager = getDistributionManager();
       ConsistentHash hash = distributionManager.getConsistentHash();
-      List<Address> addressList = hash.locate(key, 1);
-      if (addressList.size() == 0) {
-         throw new IllegalStateException("Empty address list returned by consistent hash " + hash + " for key " + key);
+      Address primary = hash.primaryLocation(key);
+      if (primary == null) {
+         throw new IllegalStateException("No primary owner returned by consistent hash " + hash + " for key " + key);
       }
-      return addressList.get(0);
+      return primary;
    }
 
    private DistributionManager getDistributionManager() {
@@ -25,12 +25,15 @@ import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.control.RehashControlCommand;
 import org.infinispan.commands.control.StateTransferControlCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
 import org.infinispan.commands.read.SizeCommand;
 import org.infinispan.commands.read.ValuesCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.GetInDoubtTransactionsCommand;
+import org.infinispan.commands.remote.MapReduceCommand;
 import org.infinispan.commands.remote.RemoveRecoveryInfoCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
@@ -47,6 +50,9 @@ import org.infinispan.commands.write.ReplaceCommand;
 import org.infinispan.commands.write.WriteCommand;
 import org.infinispan.container.entries.InternalCacheValue;
 import org.infinispan.context.Flag;
+import org.infinispan.distexec.mapreduce.Combiner;
+import org.infinispan.distexec.mapreduce.Mapper;
+import org.infinispan.distexec.mapreduce.Reducer;
 import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.factories.scopes.Scope;
 import org.infinispan.factories.scopes.Scopes;
@@ -137,6 +143,13 @@ public interface CommandsFactory {
     */
    GetKeyValueCommand buildGetKeyValueCommand(Object key, Set<Flag> flags);
 
+   /**
+    * Builds a GetAllCommand
+    * @param keys keys to get
+    * @return a GetAllCommand
+    */
+   GetAllCommand buildGetAllCommand(Collection<Object> keys);
+
    /**
     * Builds a KeySetCommand
     * @return a KeySetCommand
@@ -241,6 +254,23 @@ public interface CommandsFactory {
     */
    ClusteredGetCommand buildClusteredGetCommand(Object key, Set<Flag> flags);
 
+   /**
+    * Builds a ClusteredGetAllCommand, which is a remote lookup command for several keys owned by the same node
+    * @param keys keys to look up
+    * @return a ClusteredGetAllCommand
+    */
+   ClusteredGetAllCommand buildClusteredGetAllCommand(Collection<Object> keys, Set<Flag> flags);
+
+   /**
+    * Builds a MapReduceCommand, which runs the map and reduce phases of a map/reduce task on a node
+    * @param mapper mapper to apply to every input entry
+    * @param reducer reducer folding the map results
+    * @param combiner optional combiner merging partially reduced results, may be null
+    * @param keys input keys, or null if all entries of the cache are to be used as input
+    * @return a MapReduceCommand
+    */
+   MapReduceCommand buildMapReduceCommand(Mapper mapper, Reducer reducer, Combiner combiner, Collection<Object> keys);
+
    /**
     * Builds a LockControlCommand to control explicit remote locking
     * @param keys keys to lock
@@ -27,11 +27,14 @@ import org.infinispan.commands.control.RehashControlCommand;
 import org.infinispan.commands.control.StateTransferControlCommand;
 import org.infinispan.commands.module.ModuleCommandInitializer;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
 import org.infinispan.commands.read.SizeCommand;
 import org.infinispan.commands.read.ValuesCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
+import org.infinispan.commands.remote.MapReduceCommand;
 import org.infinispan.commands.remote.GetInDoubtTransactionsCommand;
 import org.infinispan.commands.remote.RemoveRecoveryInfoCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
@@ -53,6 +56,10 @@ import org.infinispan.container.DataContainer;
 import org.infinispan.container.entries.InternalCacheValue;
 import org.infinispan.context.Flag;
 import org.infinispan.context.InvocationContextContainer;
+import org.infinispan.distexec.mapreduce.Combiner;
+import org.infinispan.distexec.mapreduce.Mapper;
+import org.infinispan.distexec.mapreduce.MapReduceManager;
+import org.infinispan.distexec.mapreduce.Reducer;
 import org.infinispan.distribution.DistributionManager;
 import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.factories.KnownComponentNames;
@@ -108,6 +115,7 @@ public class CommandsFactoryImpl implements CommandsFactory {
    private TransactionTable txTable;
    private Configuration configuration;
    private RecoveryManager recoveryManager;
+   private MapReduceManager mapReduceManager;
 
    private Map<Byte, ModuleCommandInitializer> moduleCommandInitializers;
 
@@ -116,7 +124,7 @@ public class CommandsFactoryImpl implements CommandsFactory {
                                  InterceptorChain interceptorChain, DistributionManager distributionManager,
                                  InvocationContextContainer icc, TransactionTable txTable, Configuration configuration,
                                  @ComponentName(KnownComponentNames.MODULE_COMMAND_INITIALIZERS) Map<Byte, ModuleCommandInitializer> moduleCommandInitializers,
-                                 RecoveryManager recoveryManager) {
+                                 RecoveryManager recoveryManager, MapReduceManager mapReduceManager) {
       this.dataContainer = container;
       this.notifier = notifier;
       this.cache = cache;
@@ -127,6 +135,7 @@ public class CommandsFactoryImpl implements CommandsFactory {
       this.configuration = configuration;
       this.moduleCommandInitializers = moduleCommandInitializers;
       this.recoveryManager = recoveryManager;
+      this.mapReduceManager = mapReduceManager;
    }
 
    @Start(priority = 1)
@@ -191,6 +200,10 @@ public class CommandsFactoryImpl implements CommandsFactory {
       return new GetKeyValueCommand(key, notifier, flags);
    }
 
+   public GetAllCommand buildGetAllCommand(Collection<Object> keys) {
+      return new GetAllCommand(keys, notifier);
+   }
+
    public PutMapCommand buildPutMapCommand(Map map, long lifespan, long maxIdleTimeMillis, Set<Flag> flags) {
       return new PutMapCommand(map, notifier, lifespan, maxIdleTimeMillis, flags);
    }
@@ -237,6 +250,14 @@ public class CommandsFactoryImpl implements CommandsFactory {
       return new ClusteredGetCommand(key, cacheName, flags);
    }
 
+   public ClusteredGetAllCommand buildClusteredGetAllCommand(Collection<Object> keys, Set<Flag> flags) {
+      return new ClusteredGetAllCommand(keys, cacheName, flags);
+   }
+
+   public MapReduceCommand buildMapReduceCommand(Mapper mapper, Reducer reducer, Combiner combiner, Collection<Object> keys) {
+      return new MapReduceCommand(cacheName, mapper, reducer, combiner, keys);
+   }
+
    /**
     * @param isRemote true if the command is deserialized and is executed remote.
     */
@@ -307,6 +328,14 @@ public class CommandsFactoryImpl implements CommandsFactory {
             ClusteredGetCommand clusteredGetCommand = (ClusteredGetCommand) c;
             clusteredGetCommand.initialize(icc, this, interceptorChain, distributionManager);
             break;
+         case ClusteredGetAllCommand.COMMAND_ID:
+            ClusteredGetAllCommand clusteredGetAllCommand = (ClusteredGetAllCommand) c;
+            clusteredGetAllCommand.initialize(icc, this, interceptorChain, distributionManager);
+            break;
+         case MapReduceCommand.COMMAND_ID:
+            MapReduceCommand mapReduceCommand = (MapReduceCommand) c;
+            mapReduceCommand.init(cache, dataContainer, distributionManager, mapReduceManager);
+            break;
          case LockControlCommand.COMMAND_ID:
             LockControlCommand lcc = (LockControlCommand) c;
             lcc.init(interceptorChain, icc, txTable);
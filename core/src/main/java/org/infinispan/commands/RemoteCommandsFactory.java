@@ -6,7 +6,9 @@ import org.infinispan.commands.control.RehashControlCommand;
 import org.infinispan.commands.control.StateTransferControlCommand;
 import org.infinispan.commands.module.ModuleCommandFactory;
 import org.infinispan.commands.read.GetKeyValueCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
+import org.infinispan.commands.remote.MapReduceCommand;
 import org.infinispan.commands.remote.RemoveRecoveryInfoCommand;
 import org.infinispan.commands.remote.GetInDoubtTransactionsCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
@@ -124,6 +126,12 @@ public class RemoteCommandsFactory {
          case ClusteredGetCommand.COMMAND_ID:
             command = new ClusteredGetCommand();
             break;
+         case ClusteredGetAllCommand.COMMAND_ID:
+            command = new ClusteredGetAllCommand();
+            break;
+         case MapReduceCommand.COMMAND_ID:
+            command = new MapReduceCommand();
+            break;
          case RehashControlCommand.COMMAND_ID:
             command = new RehashControlCommand(transport);
             break;
@@ -8,24 +8,21 @@ import org.infinispan.commands.tx.PrepareCommand;
 import org.infinispan.commands.write.WriteCommand;
 import org.infinispan.config.Configuration;
 import org.infinispan.container.DataContainer;
-import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.container.entries.InternalCacheValue;
 import org.infinispan.context.InvocationContext;
 import org.infinispan.distribution.DistributionManager;
 import org.infinispan.distribution.RemoteTransactionLogDetails;
+import org.infinispan.distribution.StateCursor;
 import org.infinispan.distribution.TransactionLogger;
 import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.distribution.ch.NodeTopologyInfo;
 import org.infinispan.loaders.CacheLoaderException;
-import org.infinispan.loaders.CacheStore;
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.remoting.transport.Transport;
-import org.infinispan.util.ReadOnlyDataContainerBackedKeySet;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -69,6 +66,14 @@ public class RehashControlCommand extends BaseRpcCommand {
    ConsistentHash oldCH;
    List<Address> nodesLeft;
    ConsistentHash newCH;
+   /**
+    * Maximum number of entries a state pull returns, 0 or less to pull the whole state at once
+    */
+   int stateBatchSize;
+   /**
+    * If true, the state pull carries on with a transfer started by a previous pull
+    */
+   boolean stateContinuation;
 
    // cache components
    DistributionManager distributionManager;
@@ -181,51 +186,25 @@ public class RehashControlCommand extends BaseRpcCommand {
       tl.unlockAndDisable(sender);
    }
 
-   public Map<Object, InternalCacheValue> pullStateForJoin() throws CacheLoaderException {           
-      distributionManager.getTransactionLogger().enable();
-      Map<Object, InternalCacheValue> state = new HashMap<Object, InternalCacheValue>();
-      for (InternalCacheEntry ice : dataContainer) {
-         Object k = ice.getKey();
-         if (shouldTransferOwnershipToJoinNode(k)) {            
-             state.put(k, ice.toInternalCacheValue());
+   public Map<Object, InternalCacheValue> pullStateForJoin() throws CacheLoaderException {
+      if (!stateContinuation) distributionManager.getTransactionLogger().enable();
+      StateCursor.KeyFilter filter = new StateCursor.KeyFilter() {
+         public boolean shouldTransfer(Object key) {
+            return shouldTransferOwnershipToJoinNode(key);
          }
-      }
-
-      CacheStore cacheStore = distributionManager.getCacheStoreForRehashing();
-      if (cacheStore != null) {
-         for (Object k: cacheStore.loadAllKeys(new ReadOnlyDataContainerBackedKeySet(dataContainer))) {
-            if (!state.containsKey(k) && shouldTransferOwnershipToJoinNode(k)) {                
-               InternalCacheValue v = loadValue(cacheStore, k);               
-               if (v != null) state.put(k, v);
-            }
-         }
-      }
-      return state;
+      };
+      return distributionManager.pullStateBatch(sender, filter, !stateContinuation, stateBatchSize);
    }
-   
-   public Map<Object, InternalCacheValue> pullStateForLeave() throws CacheLoaderException {
-     
-      Map<Object, InternalCacheValue> state = new HashMap<Object, InternalCacheValue>();
-      for (InternalCacheEntry ice : dataContainer) {
-         Object k = ice.getKey();
-         if (shouldTransferOwnershipFromLeftNodes(k)) {
-            state.put(k, ice.toInternalCacheValue());
-         }
-      }
 
-      CacheStore cacheStore = distributionManager.getCacheStoreForRehashing();
-      if (cacheStore != null) {
-         for (Object k : cacheStore.loadAllKeys(new ReadOnlyDataContainerBackedKeySet(dataContainer))) {
-            if (!state.containsKey(k) && shouldTransferOwnershipFromLeftNodes(k)) {
-               InternalCacheValue v = loadValue(cacheStore, k);               
-               if (v != null)
-                  state.put(k, v);
-            }
+   public Map<Object, InternalCacheValue> pullStateForLeave() throws CacheLoaderException {
+      StateCursor.KeyFilter filter = new StateCursor.KeyFilter() {
+         public boolean shouldTransfer(Object key) {
+            return shouldTransferOwnershipFromLeftNodes(key);
          }
-      }
-      return state;
+      };
+      return distributionManager.pullStateBatch(sender, filter, !stateContinuation, stateBatchSize);
    }
-   
+
    private boolean shouldTransferOwnershipFromLeftNodes(Object k) {      
       Address self = transport.getAddress();      
       int numCopies = configuration.getNumOwners();
@@ -243,16 +222,6 @@ public class RehashControlCommand extends BaseRpcCommand {
    }
       
 
-   private InternalCacheValue loadValue(CacheStore cs, Object k) {
-      try {
-         InternalCacheEntry ice = cs.load(k);
-         return ice == null ? null : ice.toInternalCacheValue();
-      } catch (CacheLoaderException cle) {
-         log.warn("Unable to load " + k + " from cache loader", cle);
-      }
-      return null;
-   }
-
    final boolean shouldTransferOwnershipToJoinNode(Object k) {     
       Address self = transport.getAddress();      
       int numCopies = configuration.getNumOwners(); 
@@ -268,12 +237,27 @@ public class RehashControlCommand extends BaseRpcCommand {
       return type;
    }
 
+   /**
+    * Creates a copy of this state pull command which pulls a single batch of state.
+    *
+    * @param batchSize maximum number of entries to pull, 0 or less to pull the whole state
+    * @param continuation if true, carries on with the transfer started by a previous batch
+    * @return a new command
+    */
+   public RehashControlCommand forStateBatch(int batchSize, boolean continuation) {
+      RehashControlCommand copy = new RehashControlCommand(cacheName, type, sender, state, oldCH, newCH, nodesLeft, commandsFactory);
+      copy.nodeTopologyInfo = nodeTopologyInfo;
+      copy.stateBatchSize = batchSize;
+      copy.stateContinuation = continuation;
+      return copy;
+   }
+
    public byte getCommandId() {
       return COMMAND_ID;
    }
 
    public Object[] getParameters() {
-      return new Object[]{cacheName, (byte) type.ordinal(), sender, state, oldCH, nodesLeft, newCH, txLogCommands, pendingPrepares, nodeTopologyInfo};
+      return new Object[]{cacheName, (byte) type.ordinal(), sender, state, oldCH, nodesLeft, newCH, txLogCommands, pendingPrepares, nodeTopologyInfo, stateBatchSize, stateContinuation};
    }
 
    public void setNodeTopologyInfo(NodeTopologyInfo nodeTopologyInfo) {
@@ -293,6 +277,8 @@ public class RehashControlCommand extends BaseRpcCommand {
       txLogCommands = (List<WriteCommand>) parameters[i++];
       pendingPrepares = (List<PrepareCommand>) parameters[i++];
       nodeTopologyInfo = (NodeTopologyInfo) parameters[i++];
+      stateBatchSize = (Integer) parameters[i++];
+      stateContinuation = (Boolean) parameters[i++];
    }
 
    @Override
@@ -307,6 +293,8 @@ public class RehashControlCommand extends BaseRpcCommand {
             ", txLogCommands=" + (txLogCommands == null ? "N/A" : txLogCommands.size()) +
             ", pendingPrepares=" + (pendingPrepares == null ? "N/A" : pendingPrepares.size()) +
             ", nodeTopologyInfo=" + nodeTopologyInfo +
+            ", stateBatchSize=" + stateBatchSize +
+            ", stateContinuation=" + stateContinuation +
             '}';
    }
 }
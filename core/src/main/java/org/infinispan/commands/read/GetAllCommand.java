@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.commands.read;
+
+import org.infinispan.commands.VisitableCommand;
+import org.infinispan.commands.Visitor;
+import org.infinispan.container.entries.CacheEntry;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.notifications.cachelistener.CacheNotifier;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Implements functionality defined by {@link org.infinispan.Cache#getAll(java.util.Set)}.  Interceptors that handle
+ * {@link GetKeyValueCommand} do the same for every key of this command, so that a multi-key lookup behaves like a
+ * series of gets, but costs a single pass through the interceptor chain and, in distributed mode, a single remote call
+ * per owner.
+ *
+ * @since 5.0
+ */
+public class GetAllCommand extends AbstractLocalCommand implements VisitableCommand {
+   private static final Log log = LogFactory.getLog(GetAllCommand.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private Collection<Object> keys;
+   private final CacheNotifier notifier;
+
+   public GetAllCommand(Collection<Object> keys, CacheNotifier notifier) {
+      this.keys = keys;
+      this.notifier = notifier;
+   }
+
+   @Override
+   public Object acceptVisitor(InvocationContext ctx, Visitor visitor) throws Throwable {
+      return visitor.visitGetAllCommand(ctx, this);
+   }
+
+   public Collection<Object> getKeys() {
+      return keys;
+   }
+
+   public void setKeys(Collection<Object> keys) {
+      this.keys = keys;
+   }
+
+   /**
+    * @return a mutable map of the keys that were found to their values
+    */
+   @Override
+   public Map<Object, Object> perform(InvocationContext ctx) throws Throwable {
+      Map<Object, Object> result = new HashMap<Object, Object>();
+      for (Object key : keys) {
+         CacheEntry entry = ctx.lookupEntry(key);
+         if (entry == null || entry.isNull() || entry.isRemoved()) continue;
+         Object value = entry.getValue();
+         notifier.notifyCacheEntryVisited(key, value, true, ctx);
+         result.put(key, value);
+         notifier.notifyCacheEntryVisited(key, value, false, ctx);
+      }
+      if (trace) log.trace("Found %s of %s keys", result.size(), keys.size());
+      return result;
+   }
+
+   @Override
+   public String toString() {
+      return "GetAllCommand{" +
+            "keys=" + keys +
+            '}';
+   }
+}
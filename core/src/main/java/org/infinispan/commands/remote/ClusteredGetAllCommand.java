@@ -0,0 +1,137 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.commands.remote;
+
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.FlagAffectedCommand;
+import org.infinispan.commands.read.GetKeyValueCommand;
+import org.infinispan.container.entries.CacheEntry;
+import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.context.Flag;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.context.InvocationContextContainer;
+import org.infinispan.distribution.DistributionManager;
+import org.infinispan.interceptors.InterceptorChain;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Issues a remote get call for several keys at once.  Each key is looked up the same way a {@link
+ * ClusteredGetCommand} looks up its key.  This is not a {@link org.infinispan.commands.VisitableCommand} and hence not
+ * passed up the {@link org.infinispan.interceptors.base.CommandInterceptor} chain.
+ *
+ * @since 5.0
+ */
+public class ClusteredGetAllCommand extends BaseRpcCommand implements FlagAffectedCommand {
+
+   public static final byte COMMAND_ID = 20;
+   private static final Log log = LogFactory.getLog(ClusteredGetAllCommand.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private Collection<Object> keys;
+
+   private InvocationContextContainer icc;
+   private CommandsFactory commandsFactory;
+   private InterceptorChain invoker;
+
+   private Set<Flag> flags;
+
+   private DistributionManager distributionManager;
+
+   public ClusteredGetAllCommand() {
+   }
+
+   public ClusteredGetAllCommand(Collection<Object> keys, String cacheName, Set<Flag> flags) {
+      this.keys = keys;
+      this.cacheName = cacheName;
+      this.flags = flags;
+   }
+
+   public void initialize(InvocationContextContainer icc, CommandsFactory commandsFactory,
+                          InterceptorChain interceptorChain, DistributionManager distributionManager) {
+      this.distributionManager = distributionManager;
+      this.icc = icc;
+      this.commandsFactory = commandsFactory;
+      this.invoker = interceptorChain;
+   }
+
+   /**
+    * Invokes a logical "get(key)" on a remote cache for each key.
+    *
+    * @param context invocation context, ignored.
+    * @return a map of each key to its <code>InternalCacheValue</code>, or to null if no entry is found.  Keys affected
+    *         by an ongoing rehash are left out, since this node may not have all of their state yet.
+    */
+   public Map<Object, InternalCacheValue> perform(InvocationContext context) throws Throwable {
+      Map<Object, InternalCacheValue> result = new HashMap<Object, InternalCacheValue>();
+      for (Object key : keys) {
+         if (distributionManager != null && distributionManager.isAffectedByRehash(key)) continue;
+         GetKeyValueCommand command = commandsFactory.buildGetKeyValueCommand(key, flags);
+         command.setReturnCacheEntry(true);
+         InvocationContext invocationContext = icc.createRemoteInvocationContextForCommand(command, getOrigin());
+         CacheEntry cacheEntry = (CacheEntry) invoker.invoke(invocationContext, command);
+         result.put(key, ClusteredGetCommand.toInternalCacheValue(cacheEntry));
+      }
+      if (trace) log.trace("Looked up %s of %s keys", result.size(), keys.size());
+      return result;
+   }
+
+   public byte getCommandId() {
+      return COMMAND_ID;
+   }
+
+   public Object[] getParameters() {
+      return new Object[]{keys, cacheName, flags};
+   }
+
+   @SuppressWarnings("unchecked")
+   public void setParameters(int commandId, Object[] args) {
+      keys = (Collection<Object>) args[0];
+      cacheName = (String) args[1];
+      flags = (Set<Flag>) args[2];
+   }
+
+   public Collection<Object> getKeys() {
+      return keys;
+   }
+
+   @Override
+   public Set<Flag> getFlags() {
+      return flags;
+   }
+
+   @Override
+   public void setFlags(Set<Flag> flags) {
+      this.flags = flags;
+   }
+
+   @Override
+   public String toString() {
+      return "ClusteredGetAllCommand{keys=" + keys + ", flags=" + flags + "}";
+   }
+}
@@ -97,6 +97,10 @@ public class ClusteredGetCommand extends BaseRpcCommand implements FlagAffectedC
       command.setReturnCacheEntry(true);
       InvocationContext invocationContext = icc.createRemoteInvocationContextForCommand(command, getOrigin());
       CacheEntry cacheEntry = (CacheEntry) invoker.invoke(invocationContext, command);
+      return toInternalCacheValue(cacheEntry);
+   }
+
+   static InternalCacheValue toInternalCacheValue(CacheEntry cacheEntry) {
       if (cacheEntry == null) {
          if (trace) log.trace("Did not find anything, returning null");
          return null;
@@ -0,0 +1,254 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.commands.remote;
+
+import org.infinispan.Cache;
+import org.infinispan.CacheException;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.context.Flag;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.distexec.mapreduce.Combiner;
+import org.infinispan.distexec.mapreduce.MapReduceManager;
+import org.infinispan.distexec.mapreduce.Mapper;
+import org.infinispan.distexec.mapreduce.Reducer;
+import org.infinispan.distribution.DistributionManager;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Executes the map and reduce phases of a {@link org.infinispan.distexec.mapreduce.MapReduceTask} on the node it is
+ * invoked on and returns the node's reduced result.
+ * <p/>
+ * Input entries are split into batches which are mapped in parallel.  If a {@link Combiner} is present each batch is
+ * reduced on its own and the partial results are combined, otherwise the map results are fed to the reducer in
+ * input order.  Only a bounded number of batches are in flight at any time, so the map results of a large cache are
+ * never held in memory all at once.
+ * <p/>
+ * In distributed mode, only entries for which this node is the primary owner are used as input, so that every entry
+ * is mapped exactly once across the cluster.  This is not a {@link org.infinispan.commands.VisitableCommand} and
+ * hence not passed up the {@link org.infinispan.interceptors.base.CommandInterceptor} chain.
+ *
+ * @since 5.0
+ */
+public class MapReduceCommand extends BaseRpcCommand {
+
+   public static final byte COMMAND_ID = 19;
+   private static final Log log = LogFactory.getLog(MapReduceCommand.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   static final int BATCH_SIZE = 1024;
+
+   private Mapper mapper;
+   private Reducer reducer;
+   private Combiner combiner;
+   private Collection<Object> keys;
+
+   private Cache cache;
+   private DataContainer dataContainer;
+   private DistributionManager distributionManager;
+   private MapReduceManager mapReduceManager;
+
+   public MapReduceCommand() {
+   }
+
+   public MapReduceCommand(String cacheName, Mapper mapper, Reducer reducer, Combiner combiner, Collection<Object> keys) {
+      super(cacheName);
+      this.mapper = mapper;
+      this.reducer = reducer;
+      this.combiner = combiner;
+      this.keys = keys;
+   }
+
+   public void init(Cache cache, DataContainer dataContainer, DistributionManager distributionManager,
+                    MapReduceManager mapReduceManager) {
+      this.cache = cache;
+      this.dataContainer = dataContainer;
+      this.distributionManager = distributionManager;
+      this.mapReduceManager = mapReduceManager;
+   }
+
+   /**
+    * Maps all local input entries and reduces the map results.
+    *
+    * @param context invocation context, ignored.
+    * @return the reduced result of this node, possibly null
+    */
+   public Object perform(InvocationContext context) throws Throwable {
+      // the shared executor does not bound the number of threads, so this bounds the batches mapped at once
+      BatchFolder folder = new BatchFolder(mapReduceManager.getExecutorService(), Runtime.getRuntime().availableProcessors());
+      try {
+         List<Object[]> batch = new ArrayList<Object[]>(BATCH_SIZE);
+         if (keys != null) {
+            // specific keys go through the interceptor chain, so that passivated or stored entries are found too
+            Cache localCache = cache.getAdvancedCache().withFlags(Flag.SKIP_REMOTE_LOOKUP, Flag.CACHE_MODE_LOCAL);
+            for (Object key : keys) {
+               Object value = localCache.get(key);
+               if (value != null) batch = folder.add(batch, key, value);
+            }
+         } else {
+            Address self = cache.getAdvancedCache().getRpcManager() == null ? null : cache.getAdvancedCache().getRpcManager().getAddress();
+            for (InternalCacheEntry e : dataContainer) {
+               if (e.isExpired() || !isPrimaryOwner(e.getKey(), self)) continue;
+               batch = folder.add(batch, e.getKey(), e.getValue());
+            }
+         }
+         if (!batch.isEmpty()) folder.submit(batch);
+         Object result = folder.drain();
+         if (trace) log.trace("Map/reduce on cache %s produced %s", cacheName, result);
+         return result;
+      } finally {
+         folder.cancel();
+      }
+   }
+
+   private boolean isPrimaryOwner(Object key, Address self) {
+      if (distributionManager == null || self == null) return true;
+      Address primary = distributionManager.getPrimaryLocation(key);
+      return primary == null || self.equals(primary);
+   }
+
+   /**
+    * Submits batches of input entries for mapping and folds their results, in submission order, into the node's
+    * result as soon as more than <tt>maxInFlight</tt> batches are pending.
+    */
+   private class BatchFolder {
+      final ExecutorService executor;
+      final int maxInFlight;
+      final LinkedList<Future<Object>> pending = new LinkedList<Future<Object>>();
+      Object result;
+
+      BatchFolder(ExecutorService executor, int maxInFlight) {
+         this.executor = executor;
+         this.maxInFlight = maxInFlight;
+      }
+
+      List<Object[]> add(List<Object[]> batch, Object key, Object value) throws Exception {
+         batch.add(new Object[]{key, value});
+         if (batch.size() < BATCH_SIZE) return batch;
+         submit(batch);
+         return new ArrayList<Object[]>(BATCH_SIZE);
+      }
+
+      void submit(final List<Object[]> batch) throws Exception {
+         pending.add(executor.submit(new Callable<Object>() {
+            @SuppressWarnings("unchecked")
+            public Object call() throws Exception {
+               if (combiner == null) {
+                  List<Object> mapped = new ArrayList<Object>(batch.size());
+                  for (Object[] entry : batch) mapped.add(mapper.map(entry[0], entry[1]));
+                  return mapped;
+               }
+               Object reduced = null;
+               for (Object[] entry : batch) reduced = reducer.reduce(mapper.map(entry[0], entry[1]), reduced);
+               return reduced;
+            }
+         }));
+         while (pending.size() > maxInFlight) fold(pending.removeFirst());
+      }
+
+      /**
+       * Cancels the batches still pending, e.g. when a batch failed.
+       */
+      void cancel() {
+         for (Future<Object> f : pending) f.cancel(true);
+         pending.clear();
+      }
+
+      Object drain() throws Exception {
+         while (!pending.isEmpty()) fold(pending.removeFirst());
+         return result;
+      }
+
+      @SuppressWarnings("unchecked")
+      private void fold(Future<Object> f) throws Exception {
+         Object batchResult;
+         try {
+            batchResult = f.get();
+         } catch (ExecutionException e) {
+            throw new CacheException("Map/reduce failed on cache " + cacheName, e.getCause());
+         }
+         if (combiner == null) {
+            for (Object mapped : (List<Object>) batchResult) result = reducer.reduce(mapped, result);
+         } else {
+            result = combiner.combine(result, batchResult);
+         }
+      }
+   }
+
+   public byte getCommandId() {
+      return COMMAND_ID;
+   }
+
+   public Object[] getParameters() {
+      return new Object[]{cacheName, mapper, reducer, combiner, keys};
+   }
+
+   @SuppressWarnings("unchecked")
+   public void setParameters(int commandId, Object[] args) {
+      if (commandId != COMMAND_ID)
+         throw new IllegalStateException("Expected " + COMMAND_ID + " and received " + commandId);
+      cacheName = (String) args[0];
+      mapper = (Mapper) args[1];
+      reducer = (Reducer) args[2];
+      combiner = (Combiner) args[3];
+      keys = (Collection<Object>) args[4];
+   }
+
+   public Mapper getMapper() {
+      return mapper;
+   }
+
+   public Reducer getReducer() {
+      return reducer;
+   }
+
+   public Combiner getCombiner() {
+      return combiner;
+   }
+
+   public Collection<Object> getKeys() {
+      return keys;
+   }
+
+   @Override
+   public String toString() {
+      return "MapReduceCommand{" +
+            "cacheName='" + cacheName + '\'' +
+            ", mapper=" + mapper +
+            ", reducer=" + reducer +
+            ", combiner=" + combiner +
+            ", keys=" + keys +
+            '}';
+   }
+}
@@ -60,8 +60,17 @@ public class CacheLoaderManagerConfig extends AbstractFluentConfigurationBean im
    @ConfigurationDocRef(bean=CacheLoaderManagerConfig.class,targetElement="setPreload")   
    protected Boolean preload = false;
 
+   @ConfigurationDocRef(bean=CacheLoaderManagerConfig.class,targetElement="setPreloadThreads")
+   protected Integer preloadThreads = 1;
+
    @ConfigurationDocRef(bean=CacheLoaderManagerConfig.class,targetElement="setShared")   
    protected Boolean shared = false;
+
+   @ConfigurationDocRef(bean=CacheLoaderManagerConfig.class,targetElement="setNegativeLookupCacheSize")
+   protected Integer negativeLookupCacheSize = 0;
+
+   @ConfigurationDocRef(bean=CacheLoaderManagerConfig.class,targetElement="setNegativeLookupLifespan")
+   protected Long negativeLookupLifespan = 60000L;
   
    protected List<CacheLoaderConfig> cacheLoaderConfigs = new LinkedList<CacheLoaderConfig>();
 
@@ -101,6 +110,34 @@ public class CacheLoaderManagerConfig extends AbstractFluentConfigurationBean im
       this.preload = preload;
    }
 
+   /**
+    * Number of threads preloading data from the cache store on startup, each reading its own partition of the store,
+    * e.g. a share of the buckets or a range of ids. Stores unable to split their contents are read by a single thread.
+    * Only used if preload is enabled. Defaults to 1.
+    *
+    * @param preloadThreads
+    */
+   @Override
+   public LoadersConfig preloadThreads(Integer preloadThreads) {
+      testImmutability("preloadThreads");
+      this.preloadThreads = preloadThreads;
+      return this;
+   }
+
+   /**
+    * @deprecated The visibility of this method will be reduced. Use {@link #preloadThreads(Integer)} instead.
+    */
+   @XmlAttribute
+   @Deprecated
+   public void setPreloadThreads(Integer preloadThreads) {
+      testImmutability("preloadThreads");
+      this.preloadThreads = preloadThreads;
+   }
+
+   public Integer getPreloadThreads() {
+      return preloadThreads;
+   }
+
    /**
     * If true, data is only written to the cache store when it is evicted from memory, a phenomenon
     * known as 'passivation'. Next time the data is requested, it will be 'activated' which means
@@ -174,6 +211,62 @@ public class CacheLoaderManagerConfig extends AbstractFluentConfigurationBean im
       return shared;
    }
 
+   /**
+    * Maximum number of keys known to be absent from the cache loaders that are remembered, so that repeated lookups of
+    * missing keys do not hit the cache loaders every time. Keys are forgotten as soon as they are written to through
+    * this cache. If 0, the default, absent keys are not remembered.
+    *
+    * @param negativeLookupCacheSize
+    */
+   @Override
+   public LoadersConfig negativeLookupCacheSize(Integer negativeLookupCacheSize) {
+      testImmutability("negativeLookupCacheSize");
+      this.negativeLookupCacheSize = negativeLookupCacheSize;
+      return this;
+   }
+
+   /**
+    * @deprecated The visibility of this method will be reduced. Use {@link #negativeLookupCacheSize(Integer)} instead.
+    */
+   @XmlAttribute
+   @Deprecated
+   public void setNegativeLookupCacheSize(Integer negativeLookupCacheSize) {
+      testImmutability("negativeLookupCacheSize");
+      this.negativeLookupCacheSize = negativeLookupCacheSize;
+   }
+
+   public Integer getNegativeLookupCacheSize() {
+      return negativeLookupCacheSize;
+   }
+
+   /**
+    * Number of milliseconds a key is remembered as absent from the cache loaders, when negativeLookupCacheSize is
+    * greater than 0. This bounds how long a key written to a shared cache store by another cache instance may stay
+    * invisible to this one.
+    *
+    * @param negativeLookupLifespan
+    */
+   @Override
+   public LoadersConfig negativeLookupLifespan(Long negativeLookupLifespan) {
+      testImmutability("negativeLookupLifespan");
+      this.negativeLookupLifespan = negativeLookupLifespan;
+      return this;
+   }
+
+   /**
+    * @deprecated The visibility of this method will be reduced. Use {@link #negativeLookupLifespan(Long)} instead.
+    */
+   @XmlAttribute
+   @Deprecated
+   public void setNegativeLookupLifespan(Long negativeLookupLifespan) {
+      testImmutability("negativeLookupLifespan");
+      this.negativeLookupLifespan = negativeLookupLifespan;
+   }
+
+   public Long getNegativeLookupLifespan() {
+      return negativeLookupLifespan;
+   }
+
    /**
     *
     * @param clc
@@ -237,7 +330,10 @@ public class CacheLoaderManagerConfig extends AbstractFluentConfigurationBean im
    public String toString() {
       return new StringBuilder().append("CacheLoaderManagerConfig{").append("shared=").append(
                shared).append(", passivation=").append(passivation).append(", preload='").append(
-               preload).append('\'').append(", cacheLoaderConfigs.size()=").append(
+               preload).append('\'').append(", preloadThreads=").append(
+               preloadThreads).append(", negativeLookupCacheSize=").append(
+               negativeLookupCacheSize).append(", negativeLookupLifespan=").append(
+               negativeLookupLifespan).append(", cacheLoaderConfigs.size()=").append(
                cacheLoaderConfigs.size()).append('}').toString();
    }
 
@@ -250,6 +346,9 @@ public class CacheLoaderManagerConfig extends AbstractFluentConfigurationBean im
          CacheLoaderManagerConfig other = (CacheLoaderManagerConfig) obj;
          return (this.passivation.equals(other.passivation)) && (this.shared.equals(other.shared))
                   && Util.safeEquals(this.preload, other.preload)
+                  && Util.safeEquals(this.preloadThreads, other.preloadThreads)
+                  && Util.safeEquals(this.negativeLookupCacheSize, other.negativeLookupCacheSize)
+                  && Util.safeEquals(this.negativeLookupLifespan, other.negativeLookupLifespan)
                   && Util.safeEquals(this.cacheLoaderConfigs, other.cacheLoaderConfigs);
       }
       return false;
@@ -268,6 +367,9 @@ public class CacheLoaderManagerConfig extends AbstractFluentConfigurationBean im
       result = 51 * result + (passivation ? 0 : 1);
       result = 51 * result + (shared ? 0 : 1);
       result = 51 * result + (preload ? 0 : 1);
+      result = 51 * result + (preloadThreads == null ? 0 : preloadThreads.hashCode());
+      result = 51 * result + (negativeLookupCacheSize == null ? 0 : negativeLookupCacheSize.hashCode());
+      result = 51 * result + (negativeLookupLifespan == null ? 0 : negativeLookupLifespan.hashCode());
       result = 51 * result + (cacheLoaderConfigs == null ? 0 : cacheLoaderConfigs.hashCode());
       return result;
    }
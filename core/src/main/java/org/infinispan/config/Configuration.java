@@ -27,6 +27,7 @@ import org.infinispan.container.DefaultDataContainer;
 import org.infinispan.distribution.ch.ConsistentHash;
 import org.infinispan.distribution.ch.DefaultConsistentHash;
 import org.infinispan.distribution.ch.TopologyAwareConsistentHash;
+import org.infinispan.distribution.ch.VirtualNodesConsistentHash;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
 import org.infinispan.factories.ComponentRegistry;
@@ -282,6 +283,39 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       return clustering.hash.rehashRpcTimeout;
    }
 
+   /**
+    * Maximum number of entries sent in a single state transfer response during a rehash. State is streamed to the new
+    * owners in batches of this size, so neither the sender nor the receiver ever holds the whole state in memory. A
+    * value of 0 or less transfers the whole state in a single response.
+    *
+    * @param rehashBatchSize
+    * @deprecated Use {@link FluentConfiguration.HashConfig#rehashBatchSize(Integer)} instead
+    */
+   @Deprecated
+   public void setRehashBatchSize(int rehashBatchSize) {
+      this.clustering.hash.setRehashBatchSize(rehashBatchSize);
+   }
+
+   public int getRehashBatchSize() {
+      return clustering.hash.rehashBatchSize;
+   }
+
+   /**
+    * Maximum number of nodes a rehashing node pulls state from in parallel. Limiting this throttles the network and
+    * CPU load a rehash puts on the cluster.
+    *
+    * @param rehashMaxConcurrentTransfers
+    * @deprecated Use {@link FluentConfiguration.HashConfig#rehashMaxConcurrentTransfers(Integer)} instead
+    */
+   @Deprecated
+   public void setRehashMaxConcurrentTransfers(int rehashMaxConcurrentTransfers) {
+      this.clustering.hash.setRehashMaxConcurrentTransfers(rehashMaxConcurrentTransfers);
+   }
+
+   public int getRehashMaxConcurrentTransfers() {
+      return clustering.hash.rehashMaxConcurrentTransfers;
+   }
+
    public boolean isWriteSkewCheck() {
       return locking.writeSkewCheck;
    }
@@ -348,6 +382,32 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       setReplQueueInterval(timeUnit.toMillis(replQueueInterval));
    }
 
+   /**
+    * If useReplQueue is set to true, this attribute can be used to trigger flushing of the queue when the estimated
+    * serialized size of the queued commands reaches this many bytes. 0 (the default) disables this trigger.
+    *
+    * @param replQueueMaxBytes
+    * @deprecated Use {@link FluentConfiguration.AsyncConfig#replQueueMaxBytes(Long)} instead
+    */
+   @Deprecated
+   public void setReplQueueMaxBytes(long replQueueMaxBytes) {
+      this.clustering.async.setReplQueueMaxBytes(replQueueMaxBytes);
+   }
+
+   /**
+    * If useReplQueue is set to true, this attribute makes the queue adapt its batches to the observed arrival rate of
+    * commands: a batch is sent as soon as as many commands as are expected to arrive within replQueueInterval have
+    * been queued, so replQueueInterval becomes the target for how long a command waits in the queue rather than a
+    * fixed flush period. replQueueMaxElements and replQueueMaxBytes still cap the batches.
+    *
+    * @param replQueueAdaptive
+    * @deprecated Use {@link FluentConfiguration.AsyncConfig#replQueueAdaptive(Boolean)} instead
+    */
+   @Deprecated
+   public void setReplQueueAdaptive(boolean replQueueAdaptive) {
+      this.clustering.async.setReplQueueAdaptive(replQueueAdaptive);
+   }
+
    /**
     * This overrides the replication queue implementation class. Overriding the default allows you to add behavior to
     * the queue, typically by subclassing the default implementation.
@@ -829,6 +889,18 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       this.clustering.stateRetrieval.setMaxNonProgressingLogWrites(maxNonProgressingLogWrites);
    }
 
+   /**
+    * Maximum number of in-memory cache entries written to the state transfer stream as a single chunk.  The receiving
+    * cache applies chunks as they arrive, in parallel, instead of reading the whole in-memory state first.
+    *
+    * @param chunkSize
+    * @deprecated Use {@link FluentConfiguration.StateRetrievalConfig#chunkSize(Integer)} instead
+    */
+   @Deprecated
+   public void setStateRetrievalChunkSize(int chunkSize) {
+      this.clustering.stateRetrieval.setChunkSize(chunkSize);
+   }
+
    /**
     * Initial wait time when backing off before retrying state transfer retrieval
     *
@@ -951,6 +1023,40 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
    	return this.clustering.l1.invalidationThreshold;
    }
 
+   /**
+    * Time in milliseconds during which L1 invalidations are collected before being sent, so that the keys to invalidate
+    * on a node within that window travel in a single command.  Synchronous writes wait for the window to elapse, so
+    * this trades write latency for fewer invalidation RPCs.  0 (the default) sends invalidations straight away.
+    *
+    * @param coalescingWindow
+    * @deprecated Use {@link FluentConfiguration.L1Config#invalidationCoalescingWindow(Long)} instead
+    */
+   @Deprecated
+   public void setL1InvalidationCoalescingWindow(long coalescingWindow) {
+      this.clustering.l1.setInvalidationCoalescingWindow(coalescingWindow);
+   }
+
+   public long getL1InvalidationCoalescingWindow() {
+      return this.clustering.l1.invalidationCoalescingWindow;
+   }
+
+   /**
+    * Maximum number of keys for which the nodes holding them in L1 are tracked.  When the limit is exceeded the least
+    * recently requested keys are forgotten, and invalidations of keys that may have been forgotten are multicast until
+    * the L1 copies they may have left behind have expired.  Defaults to -1, i.e. no limit.
+    *
+    * @param maxRequestorKeys
+    * @deprecated Use {@link FluentConfiguration.L1Config#maxRequestorKeys(Integer)} instead
+    */
+   @Deprecated
+   public void setL1MaxRequestorKeys(int maxRequestorKeys) {
+      this.clustering.l1.setMaxRequestorKeys(maxRequestorKeys);
+   }
+
+   public int getL1MaxRequestorKeys() {
+      return this.clustering.l1.maxRequestorKeys;
+   }
+
    /**
     * Fully qualified name of class providing consistent hash algorithm
     *
@@ -986,6 +1092,19 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       this.clustering.hash.setNumOwners(numOwners);
    }
 
+   /**
+    * Number of virtual nodes each member is placed on the hash wheel with, when using
+    * {@link org.infinispan.distribution.ch.VirtualNodesConsistentHash}. More virtual nodes balance entries more
+    * evenly across the cluster, at the cost of a larger lookup table.
+    *
+    * @param numVirtualNodes
+    * @deprecated Use {@link FluentConfiguration.HashConfig#numVirtualNodes(Integer)} instead
+    */
+   @Deprecated
+   public void setNumVirtualNodes(int numVirtualNodes) {
+      this.clustering.hash.setNumVirtualNodes(numVirtualNodes);
+   }
+
    /**
     * If false, no rebalancing or rehashing will take place when a new node joins the cluster or a node leaves
     *
@@ -1061,6 +1180,14 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       return clustering.async.replQueueInterval;
    }
 
+   public long getReplQueueMaxBytes() {
+      return clustering.async.replQueueMaxBytes;
+   }
+
+   public boolean isReplQueueAdaptive() {
+      return clustering.async.replQueueAdaptive;
+   }
+
    public String getReplQueueClass() {
       return this.clustering.async.replQueueClass;
    }
@@ -1196,6 +1323,10 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       return clustering.stateRetrieval.logFlushTimeout;
    }
 
+   public int getStateRetrievalChunkSize() {
+      return clustering.stateRetrieval.chunkSize;
+   }
+
    public boolean isUseLazyDeserialization() {
       return lazyDeserialization.enabled;
    }
@@ -1227,6 +1358,10 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       return clustering.hash.numOwners;
    }
 
+   public int getNumVirtualNodes() {
+      return clustering.hash.numVirtualNodes;
+   }
+
    public boolean isRehashEnabled() {
       return clustering.hash.rehashEnabled;
    }
@@ -2189,6 +2324,12 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       @ConfigurationDocRef(bean = Configuration.class, targetElement = "setReplQueueInterval")
       protected Long replQueueInterval = 5000L;
 
+      @ConfigurationDocRef(bean = Configuration.class, targetElement = "setReplQueueMaxBytes")
+      protected Long replQueueMaxBytes = 0L;
+
+      @ConfigurationDocRef(bean = Configuration.class, targetElement = "setReplQueueAdaptive")
+      protected Boolean replQueueAdaptive = false;
+
       @ConfigurationDocRef(bean = Configuration.class, targetElement = "setUseAsyncMarshalling")
       protected Boolean asyncMarshalling = false;
 
@@ -2221,6 +2362,10 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
             return false;
          if (replQueueMaxElements != null ? !replQueueMaxElements.equals(asyncType.replQueueMaxElements) : asyncType.replQueueMaxElements != null)
             return false;
+         if (replQueueMaxBytes != null ? !replQueueMaxBytes.equals(asyncType.replQueueMaxBytes) : asyncType.replQueueMaxBytes != null)
+            return false;
+         if (replQueueAdaptive != null ? !replQueueAdaptive.equals(asyncType.replQueueAdaptive) : asyncType.replQueueAdaptive != null)
+            return false;
          if (useReplQueue != null ? !useReplQueue.equals(asyncType.useReplQueue) : asyncType.useReplQueue != null)
             return false;
          if (!Util.safeEquals(replQueueClass, asyncType.replQueueClass))
@@ -2235,6 +2380,8 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          result = 31 * result + (useReplQueue != null ? useReplQueue.hashCode() : 0);
          result = 31 * result + (replQueueMaxElements != null ? replQueueMaxElements.hashCode() : 0);
          result = 31 * result + (replQueueInterval != null ? replQueueInterval.hashCode() : 0);
+         result = 31 * result + (replQueueMaxBytes != null ? replQueueMaxBytes.hashCode() : 0);
+         result = 31 * result + (replQueueAdaptive != null ? replQueueAdaptive.hashCode() : 0);
          result = 31 * result + (asyncMarshalling != null ? asyncMarshalling.hashCode() : 0);
          result = 31 * result + (replQueueClass != null ? replQueueClass.hashCode() : 0);
          return result;
@@ -2307,6 +2454,48 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       }
 
 
+      @XmlAttribute
+      public Long getReplQueueMaxBytes() {
+         return replQueueMaxBytes;
+      }
+
+      /**
+       * @deprecated The visibility of this will be reduced, use {@link #replQueueMaxBytes(Long)}
+       */
+      @Deprecated
+      public void setReplQueueMaxBytes(Long replQueueMaxBytes) {
+         testImmutability("replQueueMaxBytes");
+         this.replQueueMaxBytes = replQueueMaxBytes;
+      }
+
+      @Override
+      public AsyncConfig replQueueMaxBytes(Long replQueueMaxBytes) {
+         setReplQueueMaxBytes(replQueueMaxBytes);
+         return this;
+      }
+
+
+      @XmlAttribute
+      public Boolean isReplQueueAdaptive() {
+         return replQueueAdaptive;
+      }
+
+      /**
+       * @deprecated The visibility of this will be reduced, use {@link #replQueueAdaptive(Boolean)}
+       */
+      @Deprecated
+      public void setReplQueueAdaptive(Boolean replQueueAdaptive) {
+         testImmutability("replQueueAdaptive");
+         this.replQueueAdaptive = replQueueAdaptive;
+      }
+
+      @Override
+      public AsyncConfig replQueueAdaptive(Boolean replQueueAdaptive) {
+         setReplQueueAdaptive(replQueueAdaptive);
+         return this;
+      }
+
+
       @XmlAttribute
       public Boolean isAsyncMarshalling() {
          return asyncMarshalling;
@@ -2729,6 +2918,9 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       @ConfigurationDocRef(bean = Configuration.class, targetElement = "setStateRetrievalMaxNonProgressingLogWrites")
       protected Integer maxNonProgressingLogWrites = 100;
 
+      @ConfigurationDocRef(bean = Configuration.class, targetElement = "setStateRetrievalChunkSize")
+      protected Integer chunkSize = 10000;
+
       public void accept(ConfigurationBeanVisitor v) {
          v.visitStateRetrievalType(this);
       }
@@ -2900,6 +3092,27 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          return this;
       }
 
+
+      @XmlAttribute
+      public Integer getChunkSize() {
+         return chunkSize;
+      }
+
+      /**
+       * @deprecated The visibility of this will be reduced, use {@link #chunkSize(Integer)} instead
+       */
+      @Deprecated
+      public void setChunkSize(Integer chunkSize) {
+         testImmutability("chunkSize");
+         this.chunkSize = chunkSize;
+      }
+
+      @Override
+      public StateRetrievalConfig chunkSize(Integer chunkSize) {
+         setChunkSize(chunkSize);
+         return this;
+      }
+
       @Override
       public boolean equals(Object o) {
          if (this == o) return true;
@@ -3026,12 +3239,21 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       @ConfigurationDocRef(bean = Configuration.class, targetElement = "setNumOwners")
       protected Integer numOwners = 2;
 
+      @ConfigurationDocRef(bean = Configuration.class, targetElement = "setNumVirtualNodes")
+      protected Integer numVirtualNodes = VirtualNodesConsistentHash.DEFAULT_NUM_VIRTUAL_NODES;
+
       @ConfigurationDoc(desc = "Future flag. Currenly unused.")
       protected Long rehashWait = MINUTES.toMillis(1);
 
       @ConfigurationDocRef(bean = Configuration.class, targetElement = "setRehashRpcTimeout")
       protected Long rehashRpcTimeout = MINUTES.toMillis(10);
 
+      @ConfigurationDocRef(bean = Configuration.class, targetElement = "setRehashBatchSize")
+      protected Integer rehashBatchSize = 1000;
+
+      @ConfigurationDocRef(bean = Configuration.class, targetElement = "setRehashMaxConcurrentTransfers")
+      protected Integer rehashMaxConcurrentTransfers = 4;
+
       @ConfigurationDocRef(bean = Configuration.class, targetElement = "setRehashEnabled")
       protected Boolean rehashEnabled = true;
 
@@ -3102,6 +3324,27 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       }
 
 
+      @XmlAttribute
+      public Integer getNumVirtualNodes() {
+         return numVirtualNodes;
+      }
+
+      /**
+       * @deprecated The visibility of this will be reduced, use {@link #numVirtualNodes(Integer)}
+       */
+      @Deprecated
+      public void setNumVirtualNodes(Integer numVirtualNodes) {
+         testImmutability("numVirtualNodes");
+         this.numVirtualNodes = numVirtualNodes;
+      }
+
+      @Override
+      public HashConfig numVirtualNodes(Integer numVirtualNodes) {
+         setNumVirtualNodes(numVirtualNodes);
+         return this;
+      }
+
+
       @XmlAttribute
       public Long getRehashWait() {
          return rehashWait;
@@ -3144,6 +3387,48 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       }
 
 
+      @XmlAttribute
+      public Integer getRehashBatchSize() {
+         return rehashBatchSize;
+      }
+
+      /**
+       * @deprecated The visibility of this will be reduced, use {@link #rehashBatchSize(Integer)}
+       */
+      @Deprecated
+      public void setRehashBatchSize(Integer rehashBatchSize) {
+         testImmutability("rehashBatchSize");
+         this.rehashBatchSize = rehashBatchSize;
+      }
+
+      @Override
+      public HashConfig rehashBatchSize(Integer rehashBatchSize) {
+         setRehashBatchSize(rehashBatchSize);
+         return this;
+      }
+
+
+      @XmlAttribute
+      public Integer getRehashMaxConcurrentTransfers() {
+         return rehashMaxConcurrentTransfers;
+      }
+
+      /**
+       * @deprecated The visibility of this will be reduced, use {@link #rehashMaxConcurrentTransfers(Integer)}
+       */
+      @Deprecated
+      public void setRehashMaxConcurrentTransfers(Integer rehashMaxConcurrentTransfers) {
+         testImmutability("rehashMaxConcurrentTransfers");
+         this.rehashMaxConcurrentTransfers = rehashMaxConcurrentTransfers;
+      }
+
+      @Override
+      public HashConfig rehashMaxConcurrentTransfers(Integer rehashMaxConcurrentTransfers) {
+         setRehashMaxConcurrentTransfers(rehashMaxConcurrentTransfers);
+         return this;
+      }
+
+
       @XmlAttribute
       public Boolean isRehashEnabled() {
          return rehashEnabled;
@@ -3176,8 +3461,14 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          if (hashFunctionClass != null ? !hashFunctionClass.equals(hashType.hashFunctionClass) : hashType.hashFunctionClass != null)
             return false;
          if (numOwners != null ? !numOwners.equals(hashType.numOwners) : hashType.numOwners != null) return false;
+         if (numVirtualNodes != null ? !numVirtualNodes.equals(hashType.numVirtualNodes) : hashType.numVirtualNodes != null)
+            return false;
          if (rehashRpcTimeout != null ? !rehashRpcTimeout.equals(hashType.rehashRpcTimeout) : hashType.rehashRpcTimeout != null)
             return false;
+         if (rehashBatchSize != null ? !rehashBatchSize.equals(hashType.rehashBatchSize) : hashType.rehashBatchSize != null)
+            return false;
+         if (rehashMaxConcurrentTransfers != null ? !rehashMaxConcurrentTransfers.equals(hashType.rehashMaxConcurrentTransfers) : hashType.rehashMaxConcurrentTransfers != null)
+            return false;
          if (rehashWait != null ? !rehashWait.equals(hashType.rehashWait) : hashType.rehashWait != null) return false;
          if (rehashEnabled != hashType.rehashEnabled) return false;
 
@@ -3189,8 +3480,11 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          int result = consistentHashClass != null ? consistentHashClass.hashCode() : 0;
          result = 31 * result + (hashFunctionClass != null ? hashFunctionClass.hashCode() : 0);
          result = 31 * result + (numOwners != null ? numOwners.hashCode() : 0);
+         result = 31 * result + (numVirtualNodes != null ? numVirtualNodes.hashCode() : 0);
          result = 31 * result + (rehashWait != null ? rehashWait.hashCode() : 0);
          result = 31 * result + (rehashRpcTimeout != null ? rehashRpcTimeout.hashCode() : 0);
+         result = 31 * result + (rehashBatchSize != null ? rehashBatchSize.hashCode() : 0);
+         result = 31 * result + (rehashMaxConcurrentTransfers != null ? rehashMaxConcurrentTransfers.hashCode() : 0);
          result = 31 * result + (rehashEnabled ? 0 : 1);
          return result;
       }
@@ -3222,6 +3516,12 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
       
       @ConfigurationDocRef(bean = Configuration.class, targetElement = "setL1InvalidationThreshold")
       protected Integer invalidationThreshold = 0;
+
+      @ConfigurationDocRef(bean = Configuration.class, targetElement = "setL1InvalidationCoalescingWindow")
+      protected Long invalidationCoalescingWindow = 0L;
+
+      @ConfigurationDocRef(bean = Configuration.class, targetElement = "setL1MaxRequestorKeys")
+      protected Integer maxRequestorKeys = -1;
       
       public void accept(ConfigurationBeanVisitor v) {
          v.visitL1Type(this);
@@ -3302,6 +3602,38 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
 	      return invalidationThreshold;
       }
 
+      @Override
+      public L1Config invalidationCoalescingWindow(Long coalescingWindow) {
+         setInvalidationCoalescingWindow(coalescingWindow);
+         return this;
+      }
+
+      public void setInvalidationCoalescingWindow(Long coalescingWindow) {
+         testImmutability("invalidationCoalescingWindow");
+         this.invalidationCoalescingWindow = coalescingWindow;
+      }
+
+      @XmlAttribute
+      public Long getInvalidationCoalescingWindow() {
+         return invalidationCoalescingWindow;
+      }
+
+      @Override
+      public L1Config maxRequestorKeys(Integer maxRequestorKeys) {
+         setMaxRequestorKeys(maxRequestorKeys);
+         return this;
+      }
+
+      public void setMaxRequestorKeys(Integer maxRequestorKeys) {
+         testImmutability("maxRequestorKeys");
+         this.maxRequestorKeys = maxRequestorKeys;
+      }
+
+      @XmlAttribute
+      public Integer getMaxRequestorKeys() {
+         return maxRequestorKeys;
+      }
+
       @Override
       public L1Config disable() {
          return setEnabled(false);
@@ -3318,6 +3650,8 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          if (lifespan != null ? !lifespan.equals(l1Type.lifespan) : l1Type.lifespan != null) return false;
          if (onRehash != null ? !onRehash.equals(l1Type.onRehash) : l1Type.onRehash != null) return false;
          if (invalidationThreshold != null ? !invalidationThreshold.equals(l1Type.invalidationThreshold) : l1Type.invalidationThreshold != null) return false;
+         if (invalidationCoalescingWindow != null ? !invalidationCoalescingWindow.equals(l1Type.invalidationCoalescingWindow) : l1Type.invalidationCoalescingWindow != null) return false;
+         if (maxRequestorKeys != null ? !maxRequestorKeys.equals(l1Type.maxRequestorKeys) : l1Type.maxRequestorKeys != null) return false;
          
          return true;
       }
@@ -3328,6 +3662,8 @@ public class Configuration extends AbstractNamedCacheConfigurationBean {
          result = 31 * result + (lifespan != null ? lifespan.hashCode() : 0);
          result = 31 * result + (onRehash != null ? onRehash.hashCode() : 0);
          result = 31 * result + (invalidationThreshold != null ? invalidationThreshold.hashCode() : 0);
+         result = 31 * result + (invalidationCoalescingWindow != null ? invalidationCoalescingWindow.hashCode() : 0);
+         result = 31 * result + (maxRequestorKeys != null ? maxRequestorKeys.hashCode() : 0);
          return result;
       }
    }
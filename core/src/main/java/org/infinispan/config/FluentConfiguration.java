@@ -114,6 +114,14 @@ public class FluentConfiguration extends AbstractFluentConfigurationBean {
        */
       LoadersConfig preload(Boolean preload);
 
+      /**
+       * Number of threads preloading data from the cache store on startup, each reading its own partition of the
+       * store. Stores unable to split their contents are read by a single thread.
+       *
+       * @param preloadThreads
+       */
+      LoadersConfig preloadThreads(Integer preloadThreads);
+
       /**
        * If true, data is only written to the cache store when it is evicted from memory, a phenomenon
        * known as 'passivation'. Next time the data is requested, it will be 'activated' which means
@@ -142,6 +150,21 @@ public class FluentConfiguration extends AbstractFluentConfigurationBean {
        */
       LoadersConfig shared(Boolean shared);
 
+      /**
+       * Maximum number of keys known to be absent from the cache loaders that are remembered, so that repeated
+       * lookups of missing keys do not hit the cache loaders every time. If 0, absent keys are not remembered.
+       *
+       * @param negativeLookupCacheSize
+       */
+      LoadersConfig negativeLookupCacheSize(Integer negativeLookupCacheSize);
+
+      /**
+       * Number of milliseconds a key is remembered as absent from the cache loaders.
+       *
+       * @param negativeLookupLifespan
+       */
+      LoadersConfig negativeLookupLifespan(Long negativeLookupLifespan);
+
       /**
        * TODO
        *
@@ -440,6 +463,24 @@ public class FluentConfiguration extends AbstractFluentConfigurationBean {
        */
       AsyncConfig replQueueInterval(Long replQueueInterval);
 
+      /**
+       * If useReplQueue is set to true, this attribute can be used to trigger flushing of the queue
+       * when the estimated serialized size of the queued commands reaches this many bytes. 0
+       * disables this trigger.
+       *
+       * @param replQueueMaxBytes
+       */
+      AsyncConfig replQueueMaxBytes(Long replQueueMaxBytes);
+
+      /**
+       * If true, the replication queue sizes its batches after the observed arrival rate of
+       * commands, so that replQueueInterval becomes the target time a command waits in the queue
+       * rather than a fixed flush period.
+       *
+       * @param replQueueAdaptive
+       */
+      AsyncConfig replQueueAdaptive(Boolean replQueueAdaptive);
+
       /**
        * If true, asynchronous marshalling is enabled which means that caller can return even
        * quicker, but it can suffer from reordering of operations. You can find more information <a
@@ -538,6 +579,15 @@ public class FluentConfiguration extends AbstractFluentConfigurationBean {
        * @param maxNonProgressingLogWrites
        */
       StateRetrievalConfig maxNonProgressingLogWrites(Integer maxNonProgressingLogWrites);
+
+      /**
+       * Maximum number of in-memory cache entries written to the state transfer stream as a single
+       * chunk. The receiving cache applies chunks as they arrive, in parallel, instead of reading the
+       * whole in-memory state first.
+       *
+       * @param chunkSize
+       */
+      StateRetrievalConfig chunkSize(Integer chunkSize);
    }
 
    /**
@@ -580,6 +630,24 @@ public class FluentConfiguration extends AbstractFluentConfigurationBean {
        * 
        */
       L1Config invalidationThreshold(Integer threshold);
+
+      /**
+       * Time in milliseconds during which L1 invalidations are collected before being sent, so
+       * that the keys to invalidate on a node within that window travel in a single command.
+       * Synchronous writes wait for the window to elapse. 0 sends invalidations straight away.
+       *
+       * @param coalescingWindow
+       */
+      L1Config invalidationCoalescingWindow(Long coalescingWindow);
+
+      /**
+       * Maximum number of keys for which the nodes holding them in L1 are tracked. Invalidations of
+       * keys that may have been forgotten because of this limit are multicast until their L1 copies
+       * have expired. Defaults to -1, i.e. no limit.
+       *
+       * @param maxRequestorKeys
+       */
+      L1Config maxRequestorKeys(Integer maxRequestorKeys);
    }
 
    /**
@@ -609,6 +677,14 @@ public class FluentConfiguration extends AbstractFluentConfigurationBean {
        */
       HashConfig numOwners(Integer numOwners);
 
+      /**
+       * Number of virtual nodes each member is placed on the hash wheel with, when using
+       * {@link org.infinispan.distribution.ch.VirtualNodesConsistentHash}.
+       *
+       * @param numVirtualNodes
+       */
+      HashConfig numVirtualNodes(Integer numVirtualNodes);
+
       HashConfig rehashWait(Long rehashWaitTime);
 
       /**
@@ -618,6 +694,21 @@ public class FluentConfiguration extends AbstractFluentConfigurationBean {
        */
       HashConfig rehashRpcTimeout(Long rehashRpcTimeout);
 
+      /**
+       * Maximum number of entries sent in a single state transfer response during a rehash. A value of 0 or less
+       * transfers the whole state in a single response.
+       *
+       * @param rehashBatchSize
+       */
+      HashConfig rehashBatchSize(Integer rehashBatchSize);
+
+      /**
+       * Maximum number of nodes a rehashing node pulls state from in parallel.
+       *
+       * @param rehashMaxConcurrentTransfers
+       */
+      HashConfig rehashMaxConcurrentTransfers(Integer rehashMaxConcurrentTransfers);
+
       /**
        * If false, no rebalancing or rehashing will take place when a new node joins the cluster or
        * a node leaves
@@ -0,0 +1,683 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.container;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.CacheException;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalEntryFactory;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.util.Immutables;
+
+/**
+ * A {@link DataContainer} which keeps keys, values and their expiry metadata outside of the Java heap.
+ * <p/>
+ * Every entry is marshalled with the cache's {@link StreamingMarshaller} and appended to large direct
+ * {@link ByteBuffer} pages, so the heap only holds one primitive index per segment regardless of how many
+ * entries are stored.  Entries are looked up through an open-addressed hash index whose slots point at the
+ * entry's position in the pages.  Space freed by updates and removals is reclaimed by compacting a segment
+ * once more than half of its pages are garbage.
+ * <p/>
+ * Since stored keys are compared in their marshalled form, keys that are equal must also marshall to the same
+ * bytes, which holds for all the usual key types (Strings, primitive wrappers, byte array keys, etc.).
+ * <p/>
+ * Entries returned by this container are snapshots: modifying them does not affect the stored data, which can
+ * only be changed through {@link #put(Object, Object, long, long)}.  This container does not support eviction.
+ * Iterators are weakly consistent, and only ever copy a single segment's worth of data onto the heap.
+ *
+ * @since 5.0
+ */
+@ThreadSafe
+public class OffHeapDataContainer implements DataContainer {
+
+   /**
+    * Name of the data container property defining the size, in bytes, of each off-heap page.
+    */
+   public static final String PAGE_SIZE = "pageSize";
+
+   public static final int DEFAULT_PAGE_SIZE = 1 << 20;
+
+   static final int MAX_SEGMENTS = 1 << 16;
+
+   // entry layout: keyLength, valueLength, created, lastUsed, lifespan, maxIdle, key bytes, value bytes
+   static final int KEY_LENGTH = 0;
+   static final int VALUE_LENGTH = 4;
+   static final int CREATED = 8;
+   static final int LAST_USED = 16;
+   static final int LIFESPAN = 24;
+   static final int MAX_IDLE = 32;
+   static final int HEADER_SIZE = 40;
+
+   final Segment[] segments;
+   final int segmentShift;
+   final int segmentMask;
+   private StreamingMarshaller marshaller;
+
+   public OffHeapDataContainer(int concurrencyLevel) {
+      this(concurrencyLevel, DEFAULT_PAGE_SIZE);
+   }
+
+   public OffHeapDataContainer(int concurrencyLevel, int pageSize) {
+      if (concurrencyLevel <= 0 || pageSize <= HEADER_SIZE)
+         throw new IllegalArgumentException("Illegal concurrency level " + concurrencyLevel + " or page size " + pageSize);
+
+      if (concurrencyLevel > MAX_SEGMENTS) concurrencyLevel = MAX_SEGMENTS;
+
+      // Find power-of-two sizes best matching arguments
+      int sshift = 0;
+      int ssize = 1;
+      while (ssize < concurrencyLevel) {
+         ++sshift;
+         ssize <<= 1;
+      }
+      segmentShift = 32 - sshift;
+      segmentMask = ssize - 1;
+      segments = new Segment[ssize];
+      for (int i = 0; i < segments.length; i++) segments[i] = new Segment(pageSize);
+   }
+
+   @Inject
+   public void initialize(StreamingMarshaller marshaller) {
+      this.marshaller = marshaller;
+   }
+
+   public InternalCacheEntry peek(Object k) {
+      return lookup(k, false);
+   }
+
+   public InternalCacheEntry get(Object k) {
+      return lookup(k, true);
+   }
+
+   private InternalCacheEntry lookup(Object k, boolean touch) {
+      byte[] key = marshall(k);
+      int hash = hash(k.hashCode());
+      Segment s = segmentFor(hash);
+      Record r;
+      s.lock();
+      try {
+         int slot = s.find(hash, key);
+         if (slot < 0) return null;
+         long address = s.addresses[slot];
+         if (touch) {
+            long now = System.currentTimeMillis();
+            if (s.isExpired(address, now)) {
+               s.removeSlot(slot);
+               return null;
+            }
+            s.setLong(address, LAST_USED, now);
+         }
+         r = s.read(address, false);
+      } finally {
+         s.unlock();
+      }
+      return r.toEntry(k, unmarshall(r.value));
+   }
+
+   public void put(Object k, Object v, long lifespan, long maxIdle) {
+      byte[] key = marshall(k);
+      byte[] value = marshall(v);
+      int hash = hash(k.hashCode());
+      long now = System.currentTimeMillis();
+      Segment s = segmentFor(hash);
+      s.lock();
+      try {
+         s.put(hash, key, value, now, lifespan, maxIdle);
+      } finally {
+         s.unlock();
+      }
+   }
+
+   public boolean containsKey(Object k) {
+      byte[] key = marshall(k);
+      int hash = hash(k.hashCode());
+      Segment s = segmentFor(hash);
+      s.lock();
+      try {
+         int slot = s.find(hash, key);
+         if (slot < 0) return false;
+         if (s.isExpired(s.addresses[slot], System.currentTimeMillis())) {
+            s.removeSlot(slot);
+            return false;
+         }
+         return true;
+      } finally {
+         s.unlock();
+      }
+   }
+
+   public InternalCacheEntry remove(Object k) {
+      byte[] key = marshall(k);
+      int hash = hash(k.hashCode());
+      Segment s = segmentFor(hash);
+      Record r;
+      s.lock();
+      try {
+         int slot = s.find(hash, key);
+         if (slot < 0) return null;
+         long address = s.addresses[slot];
+         boolean expired = s.isExpired(address, System.currentTimeMillis());
+         r = expired ? null : s.read(address, false);
+         s.removeSlot(slot);
+      } finally {
+         s.unlock();
+      }
+      return r == null ? null : r.toEntry(k, unmarshall(r.value));
+   }
+
+   public int size() {
+      int size = 0;
+      for (Segment s : segments) size += s.count;
+      return size;
+   }
+
+   public void clear() {
+      for (Segment s : segments) {
+         s.lock();
+         try {
+            s.clear();
+         } finally {
+            s.unlock();
+         }
+      }
+   }
+
+   public Set<Object> keySet() {
+      return new KeySet();
+   }
+
+   public Collection<Object> values() {
+      return new Values();
+   }
+
+   public Set<InternalCacheEntry> entrySet() {
+      return new EntrySet();
+   }
+
+   public void purgeExpired() {
+      long now = System.currentTimeMillis();
+      for (Segment s : segments) {
+         s.lock();
+         try {
+            s.purgeExpired(now);
+         } finally {
+            s.unlock();
+         }
+      }
+   }
+
+   public Iterator<InternalCacheEntry> iterator() {
+      return new EntryIterator();
+   }
+
+   /**
+    * @return number of bytes of direct memory currently allocated by this container
+    */
+   public long getAllocatedBytes() {
+      long allocated = 0;
+      for (Segment s : segments) allocated += s.allocatedBytes;
+      return allocated;
+   }
+
+   /**
+    * Applies a supplemental hash function to a given hashCode, which defends against poor quality hash functions.
+    * Same function as used by {@link org.infinispan.util.concurrent.BoundedConcurrentHashMap}.
+    */
+   private static int hash(int h) {
+      h += (h << 15) ^ 0xffffcd7d;
+      h ^= (h >>> 10);
+      h += (h << 3);
+      h ^= (h >>> 6);
+      h += (h << 2) + (h << 14);
+      return h ^ (h >>> 16);
+   }
+
+   private Segment segmentFor(int hash) {
+      return segments[(hash >>> segmentShift) & segmentMask];
+   }
+
+   private byte[] marshall(Object o) {
+      try {
+         return marshaller.objectToByteBuffer(o);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheException("Interrupted while marshalling " + o, e);
+      } catch (Exception e) {
+         throw new CacheException("Unable to marshall " + o, e);
+      }
+   }
+
+   private Object unmarshall(byte[] bytes) {
+      try {
+         return marshaller.objectFromByteBuffer(bytes);
+      } catch (Exception e) {
+         throw new CacheException("Unable to unmarshall off-heap data", e);
+      }
+   }
+
+   /**
+    * On-heap copy of a stored entry.
+    */
+   static final class Record {
+      byte[] key;
+      byte[] value;
+      long created;
+      long lastUsed;
+      long lifespan;
+      long maxIdle;
+
+      InternalCacheEntry toEntry(Object k, Object v) {
+         return InternalEntryFactory.create(k, v, created, lifespan, lastUsed, maxIdle);
+      }
+   }
+
+   /**
+    * A segment owns a set of direct memory pages plus an open-addressed, linear probing index into them.  Index
+    * slots hold the entry's address (page number in the high 32 bits, offset in the low ones) plus one, so that
+    * zero can mark an empty slot.  All methods must be called while holding the segment's lock.
+    */
+   static final class Segment extends ReentrantLock {
+
+      private static final long serialVersionUID = -1917415364165291488L;
+
+      static final int INITIAL_CAPACITY = 16;
+
+      final int pageSize;
+      final List<ByteBuffer> pages = new ArrayList<ByteBuffer>();
+      ByteBuffer current;
+      long allocatedBytes;
+      long deadBytes;
+      volatile int count;
+
+      int[] hashes;
+      long[] addresses;
+
+      Segment(int pageSize) {
+         this.pageSize = pageSize;
+         resetIndex(INITIAL_CAPACITY);
+      }
+
+      private void resetIndex(int capacity) {
+         hashes = new int[capacity];
+         addresses = new long[capacity];
+      }
+
+      int find(int hash, byte[] key) {
+         int mask = addresses.length - 1;
+         for (int i = hash & mask; ; i = (i + 1) & mask) {
+            long address = addresses[i];
+            if (address == 0) return -1;
+            if (hashes[i] == hash && keyEquals(address - 1, key)) return i;
+         }
+      }
+
+      void put(int hash, byte[] key, byte[] value, long now, long lifespan, long maxIdle) {
+         long address = write(key, value, now, lifespan, maxIdle) + 1;
+         int slot = find(hash, key);
+         if (slot >= 0) {
+            deadBytes += sizeOf(addresses[slot] - 1);
+            addresses[slot] = address;
+         } else {
+            if ((count + 1) * 4 > addresses.length * 3) rehash();
+            insert(hash, address);
+            count++;
+         }
+         if (deadBytes > pageSize && deadBytes * 2 > allocatedBytes) compact();
+      }
+
+      private void insert(int hash, long address) {
+         int mask = addresses.length - 1;
+         int i = hash & mask;
+         while (addresses[i] != 0) i = (i + 1) & mask;
+         hashes[i] = hash;
+         addresses[i] = address;
+      }
+
+      private void rehash() {
+         int[] oldHashes = hashes;
+         long[] oldAddresses = addresses;
+         resetIndex(oldAddresses.length << 1);
+         for (int i = 0; i < oldAddresses.length; i++) {
+            if (oldAddresses[i] != 0) insert(oldHashes[i], oldAddresses[i]);
+         }
+      }
+
+      void removeSlot(int slot) {
+         deadBytes += sizeOf(addresses[slot] - 1);
+         count--;
+         // backward shift deletion, so that no tombstones are needed
+         int mask = addresses.length - 1;
+         int hole = slot;
+         for (int i = (slot + 1) & mask; addresses[i] != 0; i = (i + 1) & mask) {
+            int ideal = hashes[i] & mask;
+            // move the entry into the hole unless its ideal slot lies cyclically within (hole, i]
+            boolean movable = hole <= i ? (ideal <= hole || ideal > i) : (ideal <= hole && ideal > i);
+            if (movable) {
+               hashes[hole] = hashes[i];
+               addresses[hole] = addresses[i];
+               hole = i;
+            }
+         }
+         hashes[hole] = 0;
+         addresses[hole] = 0;
+      }
+
+      void purgeExpired(long now) {
+         List<Integer> expiredHashes = new ArrayList<Integer>();
+         List<byte[]> expiredKeys = new ArrayList<byte[]>();
+         for (int i = 0; i < addresses.length; i++) {
+            long address = addresses[i];
+            if (address != 0 && isExpired(address, now)) {
+               expiredHashes.add(hashes[i]);
+               expiredKeys.add(read(address, true).key);
+            }
+         }
+         for (int i = 0; i < expiredKeys.size(); i++) {
+            int slot = find(expiredHashes.get(i), expiredKeys.get(i));
+            if (slot >= 0) removeSlot(slot);
+         }
+      }
+
+      void clear() {
+         pages.clear();
+         current = null;
+         allocatedBytes = 0;
+         deadBytes = 0;
+         count = 0;
+         resetIndex(INITIAL_CAPACITY);
+      }
+
+      /**
+       * Copies all live entries into fresh pages, releasing the old ones to the garbage collector which in turn
+       * frees their direct memory.
+       */
+      private void compact() {
+         List<ByteBuffer> oldPages = new ArrayList<ByteBuffer>(pages);
+         pages.clear();
+         current = null;
+         allocatedBytes = 0;
+         deadBytes = 0;
+         for (int i = 0; i < addresses.length; i++) {
+            long address = addresses[i];
+            if (address != 0) {
+               ByteBuffer page = oldPages.get(page(address - 1));
+               int offset = offset(address - 1);
+               int size = HEADER_SIZE + page.getInt(offset + KEY_LENGTH) + page.getInt(offset + VALUE_LENGTH);
+               long newAddress = allocate(size);
+               ByteBuffer src = page.duplicate();
+               src.limit(offset + size).position(offset);
+               ByteBuffer dst = pages.get(page(newAddress));
+               dst.position(offset(newAddress));
+               dst.put(src);
+               addresses[i] = newAddress + 1;
+            }
+         }
+      }
+
+      private long write(byte[] key, byte[] value, long now, long lifespan, long maxIdle) {
+         long address = allocate(HEADER_SIZE + key.length + value.length);
+         ByteBuffer page = pages.get(page(address));
+         int offset = offset(address);
+         page.putInt(offset + KEY_LENGTH, key.length);
+         page.putInt(offset + VALUE_LENGTH, value.length);
+         page.putLong(offset + CREATED, now);
+         page.putLong(offset + LAST_USED, now);
+         page.putLong(offset + LIFESPAN, lifespan);
+         page.putLong(offset + MAX_IDLE, maxIdle);
+         page.position(offset + HEADER_SIZE);
+         page.put(key);
+         page.put(value);
+         return address;
+      }
+
+      /**
+       * Reserves space for an entry, allocating a new page when the current one cannot hold it.  Entries larger
+       * than the page size get a page of their own.
+       */
+      private long allocate(int size) {
+         if (current == null || current.remaining() < size) {
+            if (current != null) deadBytes += current.remaining();
+            int capacity = Math.max(pageSize, size);
+            current = ByteBuffer.allocateDirect(capacity);
+            pages.add(current);
+            allocatedBytes += capacity;
+         }
+         int offset = current.position();
+         current.position(offset + size);
+         return ((long) (pages.size() - 1) << 32) | offset;
+      }
+
+      Record read(long address, boolean keyOnly) {
+         address--;
+         ByteBuffer page = pages.get(page(address));
+         int offset = offset(address);
+         Record r = new Record();
+         r.created = page.getLong(offset + CREATED);
+         r.lastUsed = page.getLong(offset + LAST_USED);
+         r.lifespan = page.getLong(offset + LIFESPAN);
+         r.maxIdle = page.getLong(offset + MAX_IDLE);
+         ByteBuffer src = page.duplicate();
+         src.position(offset + HEADER_SIZE);
+         r.key = new byte[page.getInt(offset + KEY_LENGTH)];
+         src.get(r.key);
+         if (!keyOnly) {
+            r.value = new byte[page.getInt(offset + VALUE_LENGTH)];
+            src.get(r.value);
+         }
+         return r;
+      }
+
+      boolean isExpired(long address, long now) {
+         address--;
+         ByteBuffer page = pages.get(page(address));
+         int offset = offset(address);
+         long lifespan = page.getLong(offset + LIFESPAN);
+         if (lifespan > -1 && now > page.getLong(offset + CREATED) + lifespan) return true;
+         long maxIdle = page.getLong(offset + MAX_IDLE);
+         return maxIdle > -1 && now > page.getLong(offset + LAST_USED) + maxIdle;
+      }
+
+      void setLong(long address, int field, long value) {
+         address--;
+         pages.get(page(address)).putLong(offset(address) + field, value);
+      }
+
+      private boolean keyEquals(long address, byte[] key) {
+         ByteBuffer page = pages.get(page(address));
+         int offset = offset(address);
+         if (page.getInt(offset + KEY_LENGTH) != key.length) return false;
+         int start = offset + HEADER_SIZE;
+         for (int i = 0; i < key.length; i++) {
+            if (page.get(start + i) != key[i]) return false;
+         }
+         return true;
+      }
+
+      private int sizeOf(long address) {
+         ByteBuffer page = pages.get(page(address));
+         int offset = offset(address);
+         return HEADER_SIZE + page.getInt(offset + KEY_LENGTH) + page.getInt(offset + VALUE_LENGTH);
+      }
+
+      /**
+       * @return copies of all live entries in this segment
+       */
+      List<Record> snapshot(boolean keysOnly) {
+         List<Record> records = new ArrayList<Record>(count);
+         long now = System.currentTimeMillis();
+         for (long address : addresses) {
+            if (address != 0 && !isExpired(address, now)) records.add(read(address, keysOnly));
+         }
+         return records;
+      }
+
+      private static int page(long address) {
+         return (int) (address >>> 32);
+      }
+
+      private static int offset(long address) {
+         return (int) address;
+      }
+   }
+
+   /**
+    * Walks the container one segment at a time, copying the segment's entries while holding its lock and
+    * unmarshalling them lazily.
+    */
+   private abstract class SegmentIterator<T> implements Iterator<T> {
+      private final boolean keysOnly;
+      private int nextSegment;
+      private Iterator<Record> current = new ArrayList<Record>(0).iterator();
+
+      SegmentIterator(boolean keysOnly) {
+         this.keysOnly = keysOnly;
+      }
+
+      public boolean hasNext() {
+         while (!current.hasNext()) {
+            if (nextSegment == segments.length) return false;
+            Segment s = segments[nextSegment++];
+            s.lock();
+            try {
+               current = s.snapshot(keysOnly).iterator();
+            } finally {
+               s.unlock();
+            }
+         }
+         return true;
+      }
+
+      public T next() {
+         if (!hasNext()) throw new NoSuchElementException();
+         return convert(current.next());
+      }
+
+      public void remove() {
+         throw new UnsupportedOperationException();
+      }
+
+      abstract T convert(Record r);
+   }
+
+   private class EntryIterator extends SegmentIterator<InternalCacheEntry> {
+      EntryIterator() {
+         super(false);
+      }
+
+      @Override
+      InternalCacheEntry convert(Record r) {
+         return r.toEntry(unmarshall(r.key), unmarshall(r.value));
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Set
+    */
+   private class KeySet extends AbstractSet<Object> {
+      @Override
+      public boolean contains(Object o) {
+         return containsKey(o);
+      }
+
+      @Override
+      public Iterator<Object> iterator() {
+         return new SegmentIterator<Object>(true) {
+            @Override
+            Object convert(Record r) {
+               return unmarshall(r.key);
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Set
+    */
+   private class EntrySet extends AbstractSet<InternalCacheEntry> {
+      @Override
+      public boolean contains(Object o) {
+         if (!(o instanceof Map.Entry)) {
+            return false;
+         }
+
+         @SuppressWarnings("rawtypes")
+         Map.Entry e = (Map.Entry) o;
+         InternalCacheEntry ice = peek(e.getKey());
+         return ice != null && ice.getValue().equals(e.getValue());
+      }
+
+      @Override
+      public Iterator<InternalCacheEntry> iterator() {
+         return new EntryIterator() {
+            @Override
+            InternalCacheEntry convert(Record r) {
+               return Immutables.immutableInternalCacheEntry(super.convert(r));
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+
+   /**
+    * Minimal implementation needed for unmodifiable Collection
+    */
+   private class Values extends AbstractCollection<Object> {
+      @Override
+      public Iterator<Object> iterator() {
+         return new SegmentIterator<Object>(false) {
+            @Override
+            Object convert(Record r) {
+               return unmarshall(r.value);
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+}
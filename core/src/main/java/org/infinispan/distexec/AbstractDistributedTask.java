@@ -56,6 +56,13 @@ public class AbstractDistributedTask<K, V, T, R> {
       return cache.getName();
    }
 
+   /**
+    * @return cache whose data is used as input for this task
+    */
+   protected Cache<K, V> getCache() {
+      return cache;
+   }
+
    /**
     * Maps DistributedCallables to Infinispan nodes. DistributedCallables are going to be migrated
     * for execution to nodes according to a returned execution map.
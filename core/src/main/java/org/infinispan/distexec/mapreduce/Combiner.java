@@ -0,0 +1,52 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.distexec.mapreduce;
+
+/**
+ * Combines two partially reduced results R into one. When a Combiner is specified for a
+ * MapReduceTask, the map phase on each Infinispan node is split into several batches of cache
+ * entries which are mapped and reduced in parallel; the partial results of these batches are then
+ * merged using the Combiner before the node's result is sent to the invoker of MapReduceTask.
+ * <p>
+ * 
+ * A Combiner must therefore be associative, and combining with the result of reducing no map
+ * results, i.e. null, must not change the other result.
+ * 
+ * @see Reducer
+ * @see MapReduceTask
+ * 
+ * @since 5.0
+ */
+public interface Combiner<R> {
+
+   /**
+    * Combines two partial results R of the reduce phase into one.
+    * 
+    * @param first
+    *           partial result reduced from the earlier map results, possibly null
+    * @param second
+    *           partial result reduced from the later map results, possibly null
+    * @return combined result R
+    */
+   R combine(R first, R second);
+
+}
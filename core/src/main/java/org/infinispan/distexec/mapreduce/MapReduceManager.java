@@ -0,0 +1,24 @@
+package org.infinispan.distexec.mapreduce;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.factories.scopes.Scope;
+import org.infinispan.factories.scopes.Scopes;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Holds the resources shared by the {@link MapReduceTask}s run on a cache, on the invoking node as well as on the nodes
+ * mapping and reducing their share of the input.
+ *
+ * @since 5.0
+ */
+@ThreadSafe
+@Scope(Scopes.NAMED_CACHE)
+public interface MapReduceManager {
+
+   /**
+    * @return the executor running the map and reduce phases and the remote invocations of map/reduce tasks, which
+    *         lives as long as the cache
+    */
+   ExecutorService getExecutorService();
+}
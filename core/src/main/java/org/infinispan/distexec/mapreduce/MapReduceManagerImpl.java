@@ -0,0 +1,52 @@
+package org.infinispan.distexec.mapreduce;
+
+import org.infinispan.Cache;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.factories.annotations.Start;
+import org.infinispan.factories.annotations.Stop;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Default {@link MapReduceManager}.  Its executor starts threads as they are needed and lets them die once idle, so
+ * that tasks waiting on remote nodes never starve the map phase of threads; each task bounds the number of its own
+ * batches in flight instead.
+ *
+ * @since 5.0
+ */
+public class MapReduceManagerImpl implements MapReduceManager {
+
+   private static final AtomicInteger threadCounter = new AtomicInteger(0);
+
+   private Cache cache;
+   private volatile ExecutorService executor;
+
+   @Inject
+   public void inject(Cache cache) {
+      this.cache = cache;
+   }
+
+   @Start
+   public void start() {
+      final String cacheName = cache.getName();
+      executor = Executors.newCachedThreadPool(new ThreadFactory() {
+         public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "MapReduce-" + cacheName + "-" + threadCounter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+         }
+      });
+   }
+
+   @Stop
+   public void stop() {
+      if (executor != null) executor.shutdownNow();
+   }
+
+   public ExecutorService getExecutorService() {
+      return executor;
+   }
+}
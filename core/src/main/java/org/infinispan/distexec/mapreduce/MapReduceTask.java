@@ -21,10 +21,33 @@
  */
 package org.infinispan.distexec.mapreduce;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import org.infinispan.AdvancedCache;
 import org.infinispan.Cache;
+import org.infinispan.CacheException;
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.remote.MapReduceCommand;
 import org.infinispan.distexec.AbstractDistributedTask;
+import org.infinispan.distribution.DistributionManager;
+import org.infinispan.remoting.responses.ExceptionResponse;
+import org.infinispan.remoting.responses.Response;
+import org.infinispan.remoting.responses.SuccessfulResponse;
+import org.infinispan.remoting.rpc.ResponseMode;
+import org.infinispan.remoting.rpc.RpcManager;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
 
 /**
  * MapReduceTask is a distributed task which allows a large scale computation to be transparently
@@ -33,11 +56,14 @@ import org.infinispan.distexec.AbstractDistributedTask;
  * 
  * Users of MapReduceTask should provide name of the cache whose data is used as input for this
  * task. Infinispan execution environment will instantiate and migrate instances of provided mappers
- * and reducers seamlessly across Infinispan nodes. 
+ * and reducers seamlessly across Infinispan nodes. Mappers, reducers, combiners and input keys
+ * therefore have to be marshallable.
  * <p>
  * 
  * Unless otherwise specified using <code>onKeys</code> input keys filter all available key value
- * pairs of a specified cache will be used as input data for this task
+ * pairs of a specified cache will be used as input data for this task. In distributed mode every
+ * node uses the entries it is the primary owner of as input, whereas local, replicated and
+ * invalidated caches execute the whole task on the invoking node.
  * 
  * In a nutshell, map reduce task is executed in following fashion:
  * 
@@ -45,14 +71,23 @@ import org.infinispan.distexec.AbstractDistributedTask;
  * On each Infinispan node:
  *
  * {@code 
- * mapped = list() 
- * for entry in cache.entries: 
- *    t = mapper.map(entry.key, entry.value)
- *    mapped.add(t)
+ * split cache.entries into batches
+ * in parallel, for each batch: 
+ *    mapped = list()
+ *    for entry in batch: 
+ *       t = mapper.map(entry.key, entry.value)
+ *       mapped.add(t)
  * 
  * r = null 
- * for t in mapped: 
- *    r = reducer.reduce(t, r)
+ * for each batch, in order:
+ *    if combiner is null:
+ *       for t in mapped: 
+ *          r = reducer.reduce(t, r)
+ *    else:
+ *       rb = null 
+ *       for t in mapped (reduced in parallel with other batches): 
+ *          rb = reducer.reduce(t, rb)
+ *       r = combiner.combine(r, rb)
  * return r to Infinispan node that invoked the task
  * 
  * On Infinispan node invoking this task: 
@@ -73,6 +108,14 @@ import org.infinispan.distexec.AbstractDistributedTask;
  */
 public class MapReduceTask<K, V, T, R> extends AbstractDistributedTask<K, V, T, R> {
 
+   private static final Log log = LogFactory.getLog(MapReduceTask.class);
+
+   private Collection<Object> keys;
+   private Mapper<K, V, T> mapper;
+   private Reducer<T, R> reducer;
+   private Combiner<R> combiner;
+   private long timeoutMillis = -1;
+
    public MapReduceTask(Cache<K,V> cache) {
       super(cache);
    }
@@ -86,7 +129,7 @@ public class MapReduceTask<K, V, T, R> extends AbstractDistributedTask<K, V, T,
     * @return this task
     */
    public MapReduceTask<K, V, T, R> onKeys(K... input) {
-      // TODO
+      keys = new HashSet<Object>(Arrays.asList(input));
       return this;
    }
 
@@ -94,10 +137,10 @@ public class MapReduceTask<K, V, T, R> extends AbstractDistributedTask<K, V, T,
     * Specifies mapper to use for this MapReduceTask
     * 
     * @param mapper
-    * @return
+    * @return this task
     */
    public MapReduceTask<K, V, T, R> mappedWith(Mapper<K, V, T> mapper) {
-      // TODO
+      this.mapper = mapper;
       return this;
    }
 
@@ -105,10 +148,36 @@ public class MapReduceTask<K, V, T, R> extends AbstractDistributedTask<K, V, T,
     * Specifies reducer to use for this MapReduceTask
     * 
     * @param reducer
-    * @return
+    * @return this task
+    */
+   public MapReduceTask<K, V, T, R> reducedWith(Reducer<T, R> reducer) {
+      this.reducer = reducer;
+      return this;
+   }
+
+   /**
+    * Specifies an optional combiner to use for this MapReduceTask. With a combiner, map results
+    * are reduced in parallel on each node, and partially reduced results are merged with the
+    * combiner before being sent to the invoker of this task.
+    * 
+    * @param combiner
+    * @return this task
+    */
+   public MapReduceTask<K, V, T, R> combinedWith(Combiner<R> combiner) {
+      this.combiner = combiner;
+      return this;
+   }
+
+   /**
+    * Specifies how long to wait for nodes to return their reduced results. Defaults to the sync
+    * replication timeout of the cache.
+    * 
+    * @param timeout
+    * @param unit
+    * @return this task
     */
-   public MapReduceTask<K, V, T, R> reducedWith(Reducer<R, T> reducer) {
-      // TODO
+   public MapReduceTask<K, V, T, R> timeout(long timeout, TimeUnit unit) {
+      this.timeoutMillis = unit.toMillis(timeout);
       return this;
    }
 
@@ -116,23 +185,134 @@ public class MapReduceTask<K, V, T, R> extends AbstractDistributedTask<K, V, T,
     * Specifies collator to use for this MapReduceTask and returns a result of this task's
     * computation
     * 
-    * @param mapper
-    * @return
+    * @param collator
+    * @return result of this task's computation
     */
-   public R collate(Collator<R> mapper) {
-      // TODO
-      return null;
+   public R collate(Collator<R> collator) {
+      for (Map.Entry<Address, R> e : execute().entrySet()) {
+         collator.reducedResultReceived(e.getKey(), e.getValue());
+      }
+      return collator.collate();
    }
 
    /**
     * Specifies collator to use for this MapReduceTask and returns a result of this task's
-    * computation asynchronously
+    * computation asynchronously. The invoking thread is never blocked; the task is executed by
+    * a separate thread.
     * 
-    * @param mapper
-    * @return
+    * @param collator
+    * @return a future holding the result of this task's computation
     */
-   public Future<R> collateAsynchronously(Collator<R> mapper) {
-      // TODO
-      return null;
+   public Future<R> collateAsynchronously(final Collator<R> collator) {
+      return getExecutorService().submit(new Callable<R>() {
+         public R call() throws Exception {
+            return collate(collator);
+         }
+      });
+   }
+
+   /**
+    * Runs the map and reduce phases on all nodes holding input data, in parallel.
+    * 
+    * @return reduced result of each node, keyed by node address
+    */
+   @SuppressWarnings("unchecked")
+   protected Map<Address, R> execute() {
+      if (mapper == null || reducer == null)
+         throw new IllegalStateException("A mapper and a reducer must be specified before executing " + this);
+
+      AdvancedCache<K, V> cache = getCache().getAdvancedCache();
+      CommandsFactory commandsFactory = cache.getComponentRegistry().getComponent(CommandsFactory.class);
+      RpcManager rpcManager = cache.getRpcManager();
+      Address self = rpcManager == null ? null : rpcManager.getAddress();
+
+      Map<Address, Collection<Object>> input = new HashMap<Address, Collection<Object>>();
+      if (rpcManager == null || !cache.getConfiguration().getCacheMode().isDistributed()) {
+         input.put(self, keys);
+      } else if (keys == null) {
+         for (Address member : rpcManager.getTransport().getMembers()) input.put(member, null);
+      } else {
+         DistributionManager dm = cache.getDistributionManager();
+         for (Object key : keys) {
+            Address primary = dm.getPrimaryLocation(key);
+            Collection<Object> nodeKeys = input.get(primary);
+            if (nodeKeys == null) {
+               nodeKeys = new HashSet<Object>();
+               input.put(primary, nodeKeys);
+            }
+            nodeKeys.add(key);
+         }
+      }
+      if (log.isTraceEnabled()) log.trace("Executing map/reduce on cache %s with input %s", cache.getName(), input);
+
+      ExecutorService executor = getExecutorService();
+      Map<Address, Future<Object>> remoteResults = new HashMap<Address, Future<Object>>();
+      MapReduceCommand localCommand = null;
+      for (Map.Entry<Address, Collection<Object>> e : input.entrySet()) {
+         MapReduceCommand command = commandsFactory.buildMapReduceCommand(mapper, reducer, combiner, e.getValue());
+         if (e.getKey() == null || e.getKey().equals(self)) {
+            localCommand = command;
+         } else {
+            remoteResults.put(e.getKey(), invokeRemotely(executor, rpcManager, e.getKey(), command));
+         }
+      }
+
+      Map<Address, R> results = new HashMap<Address, R>();
+      try {
+         // the local node works on its share of the task while remote nodes are busy with theirs
+         if (localCommand != null) {
+            commandsFactory.initializeReplicableCommand(localCommand, false);
+            results.put(self, (R) localCommand.perform(null));
+         }
+         for (Map.Entry<Address, Future<Object>> e : remoteResults.entrySet()) {
+            results.put(e.getKey(), (R) e.getValue().get());
+         }
+      } catch (CacheException e) {
+         throw e;
+      } catch (ExecutionException e) {
+         throw new CacheException("Could not execute map/reduce task on cache " + cache.getName(), e.getCause());
+      } catch (Throwable t) {
+         throw new CacheException("Could not execute map/reduce task on cache " + cache.getName(), t);
+      } finally {
+         // no longer waited for if a node failed
+         for (Future<Object> f : remoteResults.values()) f.cancel(true);
+      }
+      return results;
+   }
+
+   private Future<Object> invokeRemotely(ExecutorService executor, final RpcManager rpcManager, final Address target,
+            final MapReduceCommand command) {
+      final long timeout = timeoutMillis > -1 ? timeoutMillis : getCache().getConfiguration().getSyncReplTimeout();
+      return executor.submit(new Callable<Object>() {
+         public Object call() throws Exception {
+            Map<Address, Response> responses = rpcManager.invokeRemotely(Collections.singleton(target), command,
+                     ResponseMode.SYNCHRONOUS, timeout);
+            Response response = responses.get(target);
+            if (response instanceof ExceptionResponse) {
+               throw ((ExceptionResponse) response).getException();
+            } else if (response instanceof SuccessfulResponse) {
+               return ((SuccessfulResponse) response).getResponseValue();
+            } else if (response == null) {
+               // the node had no input to reduce
+               return null;
+            }
+            throw new CacheException("Unexpected response " + response + " from " + target);
+         }
+      });
+   }
+
+   private ExecutorService getExecutorService() {
+      return getCache().getAdvancedCache().getComponentRegistry().getComponent(MapReduceManager.class).getExecutorService();
+   }
+
+   @Override
+   public String toString() {
+      return "MapReduceTask{" +
+            "cacheName=" + getCacheName() +
+            ", mapper=" + mapper +
+            ", reducer=" + reducer +
+            ", combiner=" + combiner +
+            ", keys=" + keys +
+            '}';
    }
 }
@@ -10,6 +10,7 @@ import org.infinispan.distribution.ch.NodeTopologyInfo;
 import org.infinispan.distribution.ch.TopologyInfo;
 import org.infinispan.factories.scopes.Scope;
 import org.infinispan.factories.scopes.Scopes;
+import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheStore;
 import org.infinispan.remoting.transport.Address;
 
@@ -55,10 +56,20 @@ public interface DistributionManager {
     * address checked accordingly.
     *
     * @param key key to test
-    * @return a list of addresses where the key may reside
+    * @return a list of addresses where the key may reside, which may be shared and must not be modified
     */
    List<Address> locate(Object key);
 
+   /**
+    * Locates the primary owner of a key, i.e. the first address {@link #locate(Object)} would return, without building
+    * a list of owners.  Like with {@link #locate(Object)}, the returned address <i>may not</i> own the key if a rehash
+    * is in progress.
+    *
+    * @param key key to test
+    * @return the address of the primary owner of the key
+    */
+   Address getPrimaryLocation(Object key);
+
    /**
     * Locates a list of keys in a cluster.  Like {@link #locate(Object)} the returned addresses <i>may not</i> be owners
     * of the keys if a rehash happens to be in progress or is pending, so when querying these servers, invalid responses
@@ -94,6 +105,19 @@ public interface DistributionManager {
     */
    InternalCacheEntry retrieveFromRemoteSource(Object key, InvocationContext ctx) throws Exception;
 
+   /**
+    * Retrieves cache entries for several keys from remote sources.  Keys are grouped by owner and each owner is sent a
+    * single {@link org.infinispan.commands.remote.ClusteredGetAllCommand}, with all owners being queried in parallel.
+    * Keys an owner could not answer for, e.g. because of a rehash in progress, are retrieved using {@link
+    * #retrieveFromRemoteSource(Object, org.infinispan.context.InvocationContext)}.
+    *
+    * @param keys keys to look up
+    * @param ctx
+    * @return a map of the keys that could be located to their internal cache entries
+    * @throws Exception if something bad happens
+    */
+   Map<Object, InternalCacheEntry> retrieveFromRemoteSources(Collection<Object> keys, InvocationContext ctx) throws Exception;
+
    /**
     * Retrieves the consistent hash instance currently in use, which may be an instance of the configured ConsistentHash
     * instance (which defaults to {@link org.infinispan.distribution.ch.DefaultConsistentHash}, or an instance of
@@ -184,6 +208,28 @@ public interface DistributionManager {
 
    void applyState(ConsistentHash newConsistentHash, Map<Object,InternalCacheValue> state, RemoteTransactionLogger transactionLogger, boolean forLeave);
 
+   /**
+    * Applies a batch of state received during a rehash, without draining the transaction log of the state provider.
+    * Used for all but the last batch of a state transfer, the last one being applied with {@link #applyState(ConsistentHash, java.util.Map, RemoteTransactionLogger, boolean)}.
+    *
+    * @param newConsistentHash consistent hash used to check which keys are local
+    * @param state batch of state to apply
+    */
+   void applyPartialState(ConsistentHash newConsistentHash, Map<Object,InternalCacheValue> state);
+
+   /**
+    * Generates the next batch of state pulled by a node during a rehash.  The first batch starts a new transfer to the
+    * receiver, replacing any transfer still in progress; subsequent batches carry on from where the previous one
+    * stopped.  A batch smaller than batchSize completes the transfer.
+    *
+    * @param receiver node pulling the state
+    * @param filter selects the keys to transfer, only used when starting a new transfer
+    * @param firstBatch if true, starts a new transfer
+    * @param batchSize maximum number of entries to return, 0 or less for all of them
+    * @return the next batch of state
+    */
+   Map<Object, InternalCacheValue> pullStateBatch(Address receiver, StateCursor.KeyFilter filter, boolean firstBatch, int batchSize) throws CacheLoaderException;
+
    void setRehashInProgress(boolean value);
 
    TopologyInfo getTopologyInfo();
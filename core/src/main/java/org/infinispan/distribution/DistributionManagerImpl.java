@@ -2,6 +2,7 @@ package org.infinispan.distribution;
 
 import org.infinispan.CacheException;
 import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.tx.PrepareCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
@@ -26,6 +27,7 @@ import org.infinispan.interceptors.InterceptorChain;
 import org.infinispan.jmx.annotations.MBean;
 import org.infinispan.jmx.annotations.ManagedAttribute;
 import org.infinispan.jmx.annotations.ManagedOperation;
+import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderManager;
 import org.infinispan.loaders.CacheStore;
 import org.infinispan.notifications.Listener;
@@ -48,6 +50,7 @@ import org.infinispan.util.concurrent.ReclosableLatch;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 import org.rhq.helpers.pluginAnnotations.agent.DataType;
+import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
 import org.rhq.helpers.pluginAnnotations.agent.Metric;
 import org.rhq.helpers.pluginAnnotations.agent.Operation;
 import org.rhq.helpers.pluginAnnotations.agent.Parameter;
@@ -62,6 +65,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
@@ -136,6 +140,15 @@ public class DistributionManagerImpl implements DistributionManager {
    volatile boolean enteredFinalJoinPhase = false;
    InboundInvocationHandler inboundInvocationHandler;
 
+   /**
+    * State transfers in progress from this node, by receiver
+    */
+   private final ConcurrentMap<Address, StateCursor> outboundStateTransfers = new ConcurrentHashMap<Address, StateCursor>();
+   private final AtomicLong stateEntriesSent = new AtomicLong(0);
+   private final AtomicLong stateBatchesSent = new AtomicLong(0);
+   private final AtomicLong stateEntriesReceived = new AtomicLong(0);
+   private final AtomicLong stateBatchesReceived = new AtomicLong(0);
+
    /**
     * Default constructor
     */
@@ -231,6 +244,8 @@ public class DistributionManagerImpl implements DistributionManager {
    public void stop() {
       notifier.removeListener(listener);
       rehashExecutor.shutdownNow();
+      for (StateCursor cursor : outboundStateTransfers.values()) cursor.close();
+      outboundStateTransfers.clear();
       setJoinComplete(false);
    }
 
@@ -245,7 +260,7 @@ public class DistributionManagerImpl implements DistributionManager {
       } else {
          Address leaver = MembershipArithmetic.getMemberLeft(oldMembers, newMembers);
          log.info("This is a LEAVE event!  Node %s has just left", leaver);
-
+         abandonStateTransfer(leaver);
 
          try {
             if (!(consistentHash instanceof UnionConsistentHash)) {
@@ -260,7 +275,7 @@ public class DistributionManagerImpl implements DistributionManager {
          }
 
          List<Address> stateProviders = holdersOfLeaversState(leaver);
-         List<Address> receiversOfLeaverState = receiversOfLeaverState(stateProviders);
+         List<Address> receiversOfLeaverState = receiversOfLeaverState(leaver, stateProviders);
          boolean willReceiveLeaverState = receiversOfLeaverState.contains(self);
          boolean willProvideState = stateProviders.contains(self);
          if (willReceiveLeaverState || willProvideState) {
@@ -318,32 +333,14 @@ public class DistributionManagerImpl implements DistributionManager {
    }
 
    List<Address> holdersOfLeaversState(Address leaver) {
-      List<Address> result = new ArrayList<Address>();
-      for (Address addr : oldConsistentHash.getCaches()) {
-         List<Address> backups = oldConsistentHash.getBackupsForNode(addr, getReplCount());
-         if (addr.equals(leaver)) {
-            if (backups.size() > 1) {
-               Address mainBackup = backups.get(1);
-               result.add(mainBackup);
-               if (trace)
-                  log.trace("Leaver %s main backup %s is looking for another backup as well.", leaver, mainBackup);
-            }
-         } else if (backups.contains(leaver)) {
-            if (trace) log.trace("%s is looking for a new backup to replace leaver %s", addr, leaver);
-            result.add(addr);
-         }
-      }
-      if (trace) log.trace("Nodes that need new backups are: %s", result);
+      List<Address> result = oldConsistentHash.getStateHoldersOnLeave(leaver, getReplCount());
+      if (trace) log.trace("Nodes that need new backups to replace leaver %s are: %s", leaver, result);
       return result;
    }
 
-   List<Address> receiversOfLeaverState(List<Address> stateProviders) {
-      List<Address> result = new ArrayList<Address>();
-      for (Address addr : stateProviders) {
-         List<Address> addressList = consistentHash.getBackupsForNode(addr, getReplCount());
-         result.add(addressList.get(addressList.size() - 1));
-      }
-      if (trace) log.trace("This node won't receive state");
+   List<Address> receiversOfLeaverState(Address leaver, List<Address> stateProviders) {
+      List<Address> result = oldConsistentHash.getStateReceiversOnLeave(leaver, stateProviders, consistentHash, getReplCount());
+      if (trace) log.trace("Nodes that receive the state of leaver %s are: %s", leaver, result);
       return result;
    }
 
@@ -383,6 +380,11 @@ public class DistributionManagerImpl implements DistributionManager {
       return consistentHash.locate(key, getReplCount());
    }
 
+   public Address getPrimaryLocation(Object key) {
+      if (consistentHash == null) return self;
+      return consistentHash.primaryLocation(key);
+   }
+
    public Map<Object, List<Address>> locateAll(Collection<Object> keys) {
       return locateAll(keys, getReplCount());
    }
@@ -421,6 +423,65 @@ public class DistributionManagerImpl implements DistributionManager {
       return null;
    }
 
+   public Map<Object, InternalCacheEntry> retrieveFromRemoteSources(Collection<Object> keys, InvocationContext ctx) throws Exception {
+      Map<Address, List<Object>> keysByOwner = new HashMap<Address, List<Object>>();
+      for (Map.Entry<Object, List<Address>> e : locateAll(keys).entrySet()) {
+         Address owner = null;
+         for (Address a : e.getValue()) {
+            if (!a.equals(self)) {
+               owner = a;
+               break;
+            }
+         }
+         if (owner == null) continue;
+         List<Object> ownerKeys = keysByOwner.get(owner);
+         if (ownerKeys == null) keysByOwner.put(owner, ownerKeys = new ArrayList<Object>());
+         ownerKeys.add(e.getKey());
+      }
+
+      // query all owners but the last one in the background, and the last one on this thread
+      Map<Address, Future<Map<Address, Response>>> futures = new HashMap<Address, Future<Map<Address, Response>>>();
+      Map<Address, Response> responses = new HashMap<Address, Response>();
+      int remaining = keysByOwner.size();
+      for (Map.Entry<Address, List<Object>> e : keysByOwner.entrySet()) {
+         ClusteredGetAllCommand get = cf.buildClusteredGetAllCommand(e.getValue(), ctx.getFlags());
+         List<Address> recipient = Collections.singletonList(e.getKey());
+         if (--remaining > 0)
+            futures.put(e.getKey(), rpcManager.invokeRemotelyInFuture(recipient, get, configuration.getSyncReplTimeout()));
+         else
+            responses.putAll(rpcManager.invokeRemotely(recipient, get, ResponseMode.SYNCHRONOUS, configuration.getSyncReplTimeout()));
+      }
+      for (Future<Map<Address, Response>> f : futures.values()) {
+         try {
+            responses.putAll(f.get());
+         } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw ee;
+         }
+      }
+
+      Map<Object, InternalCacheEntry> entries = new HashMap<Object, InternalCacheEntry>();
+      for (Map.Entry<Address, List<Object>> e : keysByOwner.entrySet()) {
+         Response r = responses.get(e.getKey());
+         @SuppressWarnings("unchecked")
+         Map<Object, InternalCacheValue> values = r instanceof SuccessfulResponse ?
+               (Map<Object, InternalCacheValue>) ((SuccessfulResponse) r).getResponseValue() : null;
+         for (Object key : e.getValue()) {
+            InternalCacheEntry ice;
+            if (values != null && values.containsKey(key)) {
+               InternalCacheValue value = values.get(key);
+               ice = value == null ? null : value.toInternalCacheEntry(key);
+            } else {
+               if (trace) log.trace("%s did not provide a value for key %s, falling back to a single key lookup", e.getKey(), key);
+               ice = retrieveFromRemoteSource(key, ctx);
+            }
+            if (ice != null) entries.put(key, ice);
+         }
+      }
+      return entries;
+   }
+
    public ConsistentHash getConsistentHash() {
       return consistentHash;
    }
@@ -433,7 +494,7 @@ public class DistributionManagerImpl implements DistributionManager {
    @ManagedOperation(description = "Determines whether a given key is affected by an ongoing rehash, if any.")
    @Operation(displayName = "Could key be affected by rehash?")
    public boolean isAffectedByRehash(@Parameter(name = "key", description = "Key to check") Object key) {
-      return transactionLogger.isEnabled() && oldConsistentHash != null && !oldConsistentHash.locate(key, getReplCount()).contains(self);
+      return transactionLogger.isEnabled() && oldConsistentHash != null && !oldConsistentHash.isKeyLocalToAddress(self, key, getReplCount());
    }
 
    public TransactionLogger getTransactionLogger() {
@@ -502,7 +563,7 @@ public class DistributionManagerImpl implements DistributionManager {
    private Map<Object, InternalCacheValue> applyStateMap(ConsistentHash consistentHash, Map<Object, InternalCacheValue> state, boolean withRetry) {
       Map<Object, InternalCacheValue> retry = withRetry ? new HashMap<Object, InternalCacheValue>() : null;
       for (Map.Entry<Object, InternalCacheValue> e : state.entrySet()) {
-         if (consistentHash.locate(e.getKey(), configuration.getNumOwners()).contains(self)) {
+         if (consistentHash.isKeyLocalToAddress(self, e.getKey(), configuration.getNumOwners())) {
             InternalCacheValue v = e.getValue();
             InvocationContext ctx = icc.createInvocationContext();
             ctx.setFlags(CACHE_MODE_LOCAL, SKIP_REMOTE_LOOKUP, SKIP_SHARED_CACHE_STORE, SKIP_LOCKING); // locking not necessary in the case of a join since the node isn't doing anything else.
@@ -527,6 +588,19 @@ public class DistributionManagerImpl implements DistributionManager {
    public void applyState(ConsistentHash consistentHash, Map<Object, InternalCacheValue> state, RemoteTransactionLogger tlog, boolean forLeave) {
       if (trace) log.trace("Applying the following keys: %s", state.keySet());
 
+      applyStateWithRetries(consistentHash, state);
+
+      if (!forLeave) drainLocalTransactionLog(tlog);
+
+      if (trace) log.trace("%s has completed applying state", self);
+   }
+
+   public void applyPartialState(ConsistentHash consistentHash, Map<Object, InternalCacheValue> state) {
+      if (trace) log.trace("Applying a batch of %s keys", state.size());
+      applyStateWithRetries(consistentHash, state);
+   }
+
+   private void applyStateWithRetries(ConsistentHash consistentHash, Map<Object, InternalCacheValue> state) {
       int retryCount = 3; // in case we have issues applying state.
       Map<Object, InternalCacheValue> pendingApplications = state;
       for (int i = 0; i < retryCount; i++) {
@@ -536,9 +610,28 @@ public class DistributionManagerImpl implements DistributionManager {
       // one last go
       if (!pendingApplications.isEmpty()) applyStateMap(consistentHash, pendingApplications, false);
 
-      if (!forLeave) drainLocalTransactionLog(tlog);
+      stateEntriesReceived.addAndGet(state.size());
+      stateBatchesReceived.incrementAndGet();
+   }
 
-      if (trace) log.trace("%s has completed applying state", self);
+   public Map<Object, InternalCacheValue> pullStateBatch(Address receiver, StateCursor.KeyFilter filter, boolean firstBatch, int batchSize) throws CacheLoaderException {
+      StateCursor cursor;
+      if (firstBatch) {
+         cursor = new StateCursor(dataContainer, getCacheStoreForRehashing(), filter);
+         StateCursor previous = outboundStateTransfers.put(receiver, cursor);
+         if (previous != null) previous.close();
+      } else {
+         cursor = outboundStateTransfers.get(receiver);
+         if (cursor == null) throw new CacheException("No state transfer to " + receiver + " is in progress");
+      }
+
+      Map<Object, InternalCacheValue> batch = cursor.nextBatch(batchSize > 0 ? batchSize : Integer.MAX_VALUE);
+      if (cursor.isExhausted()) outboundStateTransfers.remove(receiver, cursor);
+      if (trace) log.trace("Sending a batch of %s keys to %s", batch.size(), receiver);
+
+      stateEntriesSent.addAndGet(batch.size());
+      stateBatchesSent.incrementAndGet();
+      return batch;
    }
 
    public void setRehashInProgress(boolean value) {
@@ -617,12 +710,18 @@ public class DistributionManagerImpl implements DistributionManager {
       return enteredFinalJoinPhase;
    }
 
+   private void abandonStateTransfer(Address receiver) {
+      StateCursor cursor = outboundStateTransfers.remove(receiver);
+      if (cursor != null) cursor.close();
+   }
+
    public void setJoinComplete(boolean joinComplete) {
       this.joinComplete = joinComplete;
       if (joinComplete) this.finalJoinPhaseLatch.countDown();
    }
 
    public void abortJoin(Address joiner) {
+      abandonStateTransfer(joiner);
       if (this.joiner.compareAndSet(joiner, null)) {
          if (consistentHash instanceof UnionConsistentHash)
             consistentHash = ((UnionConsistentHash) consistentHash).getOldConsistentHash();
@@ -681,7 +780,8 @@ public class DistributionManagerImpl implements DistributionManager {
       }
 
       Set<Address> an = new HashSet<Address>();
-      for (List<Address> addresses : locateAll(affectedKeys).values()) an.addAll(addresses);
+      // locate each key rather than building a map of all their locations
+      for (Object key : affectedKeys) an.addAll(locate(key));
       return new ArrayList<Address>(an);
    }
 
@@ -714,6 +814,45 @@ public class DistributionManagerImpl implements DistributionManager {
       return l;
    }
 
+   @ManagedAttribute(description = "Number of entries sent to other nodes during rehashes")
+   @Metric(displayName = "Rehash entries sent", measurementType = MeasurementType.TRENDSUP)
+   public long getRehashEntriesSent() {
+      return stateEntriesSent.get();
+   }
+
+   @ManagedAttribute(description = "Number of state batches sent to other nodes during rehashes")
+   @Metric(displayName = "Rehash batches sent", measurementType = MeasurementType.TRENDSUP)
+   public long getRehashBatchesSent() {
+      return stateBatchesSent.get();
+   }
+
+   @ManagedAttribute(description = "Number of entries received from other nodes during rehashes")
+   @Metric(displayName = "Rehash entries received", measurementType = MeasurementType.TRENDSUP)
+   public long getRehashEntriesReceived() {
+      return stateEntriesReceived.get();
+   }
+
+   @ManagedAttribute(description = "Number of state batches received from other nodes during rehashes")
+   @Metric(displayName = "Rehash batches received", measurementType = MeasurementType.TRENDSUP)
+   public long getRehashBatchesReceived() {
+      return stateBatchesReceived.get();
+   }
+
+   @ManagedAttribute(description = "Number of nodes this node is currently streaming state to")
+   @Metric(displayName = "Outbound state transfers in progress")
+   public int getOutboundStateTransfers() {
+      return outboundStateTransfers.size();
+   }
+
+   @ManagedOperation(description = "Resets the rehash statistics gathered by this component")
+   @Operation(displayName = "Reset rehash statistics")
+   public void resetRehashStatistics() {
+      stateEntriesSent.set(0);
+      stateBatchesSent.set(0);
+      stateEntriesReceived.set(0);
+      stateBatchesReceived.set(0);
+   }
+
    @Override
    public String toString() {
       return "DistributionManagerImpl[rehashInProgress=" + rehashInProgress + ", consistentHash=" + consistentHash + "]";
@@ -240,7 +240,7 @@ public class InvertedLeaveTask extends RehashTask {
 
    protected final class LeaveStateGrabber extends StateGrabber {
 
-      public LeaveStateGrabber(Address stateProvider, ReplicableCommand command, ConsistentHash newConsistentHash) {
+      public LeaveStateGrabber(Address stateProvider, RehashControlCommand command, ConsistentHash newConsistentHash) {
          super(stateProvider, command, newConsistentHash);
       }
 
@@ -299,17 +299,15 @@ abstract class CommandAggregatingStateMap<T extends ReplicableCommand> extends S
             int leaverIndex = owners.indexOf(leaver);
             if (leaverIndex > -1) {
                // add to state map!
-               List<Address> newOwners = newCH.locate(key, replCount);
-               newOwners.removeAll(owners);
-               if (!newOwners.isEmpty()) {
-                  for (Address no : newOwners) {
-                     List<T> s = state.get(no);
-                     if (s == null) {
-                        s = new LinkedList<T>();
-                        state.put(no, s);
-                     }
-                     s.add(payload);
+               // the located lists must not be modified, so skip the old owners instead of removing them
+               for (Address no : newCH.locate(key, replCount)) {
+                  if (owners.contains(no)) continue;
+                  List<T> s = state.get(no);
+                  if (s == null) {
+                     s = new LinkedList<T>();
+                     state.put(no, s);
                   }
+                  s.add(payload);
                }
             }
          }
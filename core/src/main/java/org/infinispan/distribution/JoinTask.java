@@ -2,7 +2,6 @@ package org.infinispan.distribution;
 
 import org.infinispan.CacheException;
 import org.infinispan.commands.CommandsFactory;
-import org.infinispan.commands.ReplicableCommand;
 import org.infinispan.commands.control.RehashControlCommand;
 import org.infinispan.config.Configuration;
 import org.infinispan.container.DataContainer;
@@ -233,7 +232,7 @@ public class JoinTask extends RehashTask {
 
    protected final class JoinStateGrabber extends StateGrabber {
 
-      public JoinStateGrabber(Address stateProvider, ReplicableCommand command, ConsistentHash newConsistentHash) {
+      public JoinStateGrabber(Address stateProvider, RehashControlCommand command, ConsistentHash newConsistentHash) {
          super(stateProvider, command, newConsistentHash);
       }
 
@@ -1,119 +1,375 @@
 package org.infinispan.distribution;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.commands.write.InvalidateCommand;
 import org.infinispan.config.Configuration;
+import org.infinispan.factories.KnownComponentNames;
+import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
+import org.infinispan.factories.annotations.Start;
+import org.infinispan.factories.annotations.Stop;
 import org.infinispan.remoting.rpc.RpcManager;
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.util.concurrent.AggregatingNotifyingFutureImpl;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EvictionListener;
+import org.infinispan.util.concurrent.FutureListener;
 import org.infinispan.util.concurrent.NotifyingNotifiableFuture;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+/**
+ * Tracks which nodes hold keys owned by this node in their L1 cache, and invalidates those copies when the keys are
+ * written.
+ * <p/>
+ * Requestors are kept per key as small immutable arrays, updated without locking.  A requestor record is dropped once
+ * the L1 lifespan has elapsed since the last request, as the L1 copy it stands for has expired by then.  The number of
+ * tracked keys can be bounded with the <tt>maxRequestorKeys</tt> L1 attribute: evicted records are remembered in a
+ * lossy table of eviction times indexed by key hash, and the invalidations of keys that may have been evicted are
+ * multicast until the L1 copies they may stand for have expired.  Keys that were never requested by other nodes are
+ * only multicast when they share a slot with an evicted key.
+ * <p/>
+ * With a non-zero <tt>invalidationCoalescingWindow</tt>, invalidations are collected during that window and sent as
+ * one command per requestor (or as a single multicast when the invalidation threshold is reached), rather than one
+ * command per write.
+ */
 public class L1ManagerImpl implements L1Manager {
-	
-	private final Log log = LogFactory.getLog(L1ManagerImpl.class);
-	private final boolean trace = log.isTraceEnabled();
-	
-	private RpcManager rpcManager;
-	private CommandsFactory commandsFactory;
-	private int threshold;
-
-	private final ConcurrentMap<Object, Collection<Address>> requestors;
-	
-	public L1ManagerImpl() {
-	   requestors = new ConcurrentHashMap<Object, Collection<Address>>();
+
+   private final Log log = LogFactory.getLog(L1ManagerImpl.class);
+   private final boolean trace = log.isTraceEnabled();
+
+   // requests are only recorded again after this long, which is added to the lifespan of requestor records
+   private static final long TIMESTAMP_GRANULARITY = 1000;
+
+   private RpcManager rpcManager;
+   private CommandsFactory commandsFactory;
+   private ScheduledExecutorService scheduler;
+   private int threshold;
+   private long l1Lifespan;
+   // how long a requestor record outlives the request: the L1 lifespan only starts once the reply has arrived
+   private long requestorLifespan;
+   private long coalescingWindow;
+   private long rpcTimeout;
+
+   private ConcurrentMap<Object, Requestors> requestors;
+   // when requestor records were last evicted, by key hash; only allocated if the number of records is bounded
+   private AtomicLongArray evictions;
+   private ScheduledFuture<?> purgeTask;
+
+   private final Object batchLock = new Object();
+   private InvalidationBatch pendingBatch; // guarded by batchLock
+
+   public L1ManagerImpl() {
+      requestors = new ConcurrentHashMap<Object, Requestors>();
    }
-	
+
    @Inject
-   public void init(Configuration configuration, RpcManager rpcManager, CommandsFactory commandsFactory) {
-   	this.rpcManager = rpcManager;
-   	this.commandsFactory = commandsFactory;
-   	this.threshold = configuration.getL1InvalidationThreshold();
+   public void init(Configuration configuration, RpcManager rpcManager, CommandsFactory commandsFactory,
+                    @ComponentName(KnownComponentNames.EVICTION_SCHEDULED_EXECUTOR) ScheduledExecutorService scheduler) {
+      this.rpcManager = rpcManager;
+      this.commandsFactory = commandsFactory;
+      this.scheduler = scheduler;
+      this.threshold = configuration.getL1InvalidationThreshold();
+      this.l1Lifespan = configuration.getL1Lifespan();
+      this.coalescingWindow = configuration.getL1InvalidationCoalescingWindow();
+      this.rpcTimeout = configuration.getSyncReplTimeout();
+      this.requestorLifespan = l1Lifespan > 0 ? l1Lifespan + TIMESTAMP_GRANULARITY + rpcTimeout : 0;
+      int maxRequestorKeys = configuration.getL1MaxRequestorKeys();
+      if (maxRequestorKeys > 0) {
+         int slots = 1;
+         while (slots < maxRequestorKeys) slots <<= 1;
+         evictions = new AtomicLongArray(slots);
+         requestors = new BoundedConcurrentHashMap<Object, Requestors>(maxRequestorKeys, 16, Eviction.LRU,
+               new EvictionListener<Object, Requestors>() {
+                  public void onEntryEviction(Map<Object, Requestors> evicted) {
+                     long now = System.currentTimeMillis();
+                     for (Object key : evicted.keySet()) recordEviction(evictionSlot(key), now);
+                     if (trace) log.trace("Stopped tracking the L1 requestors of %s keys", evicted.size());
+                  }
+               });
+      }
+   }
+
+   @Start
+   public void start() {
+      if (l1Lifespan > 0) {
+         purgeTask = scheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+               purgeExpiredRequestors();
+            }
+         }, l1Lifespan, l1Lifespan, TimeUnit.MILLISECONDS);
+      }
    }
-   
+
+   @Stop
+   public void stop() {
+      if (purgeTask != null) purgeTask.cancel(false);
+      InvalidationBatch batch;
+      synchronized (batchLock) {
+         batch = pendingBatch;
+      }
+      // don't leave writers waiting for the window of a batch that won't run
+      if (batch != null && batch.cancelSchedule()) batch.run();
+      requestors.clear();
+   }
+
    public void addRequestor(Object key, Address origin) {
-   	synchronized (key) {
-      	if (!requestors.containsKey(key)) {
-      		requestors.put(key, new HashSet<Address>());
-      	}
-      	if (trace) log.trace("Key %s will be L1 cached by requestor %s so storing requestor for later invalidation", key, origin);
-      	requestors.get(key).add(origin);
-   	}
+      if (trace) log.trace("Key %s will be L1 cached by requestor %s so storing requestor for later invalidation", key, origin);
+      long now = System.currentTimeMillis();
+      while (true) {
+         Requestors current = requestors.get(key);
+         if (current == null) {
+            if (requestors.putIfAbsent(key, new Requestors(new Address[]{origin}, now)) == null) return;
+         } else {
+            Requestors updated = current.add(origin, now);
+            if (updated == current || requestors.replace(key, current, updated)) return;
+         }
+      }
    }
-   
+
    public NotifyingNotifiableFuture<Object> flushCache(Collection<Object> keys, Object retval, Address origin) {
       if (trace) log.trace("Invalidating L1 caches for keys %s", keys);
-      
+
       NotifyingNotifiableFuture<Object> future = new AggregatingNotifyingFutureImpl(retval, 2);
-      
-      Collection<Address> invalidationAddresses = buildInvalidationAddressList(keys, origin);
-      
-      int nodes = invalidationAddresses.size();
-      
-      boolean multicast = isUseMulticast(nodes);
-      
+
+      long now = System.currentTimeMillis();
+      Map<Address, Collection<Object>> keysByRequestor = new HashMap<Address, Collection<Object>>();
+      boolean forgottenKeys = collectRequestors(keys, origin, now, keysByRequestor);
+
+      int nodes = keysByRequestor.size();
+
+      boolean multicast = isUseMulticast(nodes) || forgottenKeys;
+
       if (trace) log.trace("There are %s nodes involved in invalidation. Threshold is: %s; using multicast: %s", nodes, threshold, multicast);
-      
-      if (multicast) {
-      	if (trace) log.trace("Invalidating keys %s via multicast", keys);
-      	InvalidateCommand ic = commandsFactory.buildInvalidateFromL1Command(false, keys);
-      	try {
-      		rpcManager.broadcastRpcCommandInFuture(ic, future);
-      	} finally {
-      		cleanupRequestors(keys);
-      	}
-      } else {
-         try {
-         	InvalidateCommand ic = commandsFactory.buildInvalidateFromL1Command(false, keys);
-         	
-            // Ask the caches who have requested from us to remove
-            if (trace) log.trace("Keys %s needs invalidation on %s", keys, invalidationAddresses);
-            rpcManager.invokeRemotelyInFuture(invalidationAddresses, ic, future);
-            return future;
-         } finally {
-         	cleanupRequestors(keys);
+
+      if (coalescingWindow > 0) {
+         if (!multicast && nodes == 0) {
+            future.notifyDone();
+         } else {
+            addToBatch(keys, keysByRequestor, multicast, future);
          }
-         
+      } else if (multicast) {
+         if (trace) log.trace("Invalidating keys %s via multicast", keys);
+         InvalidateCommand ic = commandsFactory.buildInvalidateFromL1Command(false, keys);
+         rpcManager.broadcastRpcCommandInFuture(ic, future);
+      } else {
+         InvalidateCommand ic = commandsFactory.buildInvalidateFromL1Command(false, keys);
+
+         // Ask the caches who have requested from us to remove
+         Collection<Address> invalidationAddresses = keysByRequestor.keySet();
+         if (trace) log.trace("Keys %s needs invalidation on %s", keys, invalidationAddresses);
+         rpcManager.invokeRemotelyInFuture(invalidationAddresses, ic, future);
       }
-      
+
       return future;
    }
-   
-   private void cleanupRequestors(Collection<Object> keys) {
-   	for (Object key : keys) {
-   		requestors.remove(key);
-   	}
+
+   /**
+    * Removes the requestor records of the given keys and groups the keys by requestor.
+    *
+    * @return true if any of the keys had no (live) requestor record and may have had its record evicted
+    */
+   private boolean collectRequestors(Collection<Object> keys, Address origin, long now, Map<Address, Collection<Object>> keysByRequestor) {
+      boolean forgottenKeys = false;
+      for (Object key : keys) {
+         Requestors r = requestors.remove(key);
+         if (r == null || r.isExpired(now, requestorLifespan)) {
+            if (!forgottenKeys) forgottenKeys = mayHaveForgottenRequestors(key, now);
+            continue;
+         }
+         for (Address a : r.addresses) {
+            if (a.equals(origin)) continue;
+            Collection<Object> requestorKeys = keysByRequestor.get(a);
+            if (requestorKeys == null) keysByRequestor.put(a, requestorKeys = new ArrayList<Object>());
+            requestorKeys.add(key);
+         }
+      }
+      return forgottenKeys;
+   }
+
+   /**
+    * Whether the requestor record of the given key may have been evicted recently enough for the L1 copies it stood
+    * for to still be alive.  Keys sharing a slot with an evicted key are reported as well.
+    */
+   private boolean mayHaveForgottenRequestors(Object key, long now) {
+      if (evictions == null) return false;
+      long lastEviction = evictions.get(evictionSlot(key));
+      if (lastEviction == 0) return false;
+      return requestorLifespan <= 0 || now - lastEviction <= requestorLifespan;
+   }
+
+   private void recordEviction(int slot, long now) {
+      while (true) {
+         long previous = evictions.get(slot);
+         if (previous >= now || evictions.compareAndSet(slot, previous, now)) return;
+      }
+   }
+
+   private int evictionSlot(Object key) {
+      int h = key.hashCode();
+      h ^= (h >>> 20) ^ (h >>> 12);
+      return (h ^ (h >>> 7) ^ (h >>> 4)) & (evictions.length() - 1);
+   }
+
+   private void addToBatch(Collection<Object> keys, Map<Address, Collection<Object>> keysByRequestor, boolean multicast,
+                           NotifyingNotifiableFuture<Object> future) {
+      synchronized (batchLock) {
+         if (pendingBatch == null) {
+            pendingBatch = new InvalidationBatch();
+            pendingBatch.schedule = scheduler.schedule(pendingBatch, coalescingWindow, TimeUnit.MILLISECONDS);
+         }
+         pendingBatch.add(keys, keysByRequestor, multicast, future);
+         future.setNetworkFuture(pendingBatch);
+      }
    }
-   
-   private Collection<Address> buildInvalidationAddressList(Collection<Object> keys, Address origin) {
-   	Collection<Address> addresses = new HashSet<Address>();
-   	for (Object key : keys) {
-   		synchronized (key) {
-      		if (requestors.containsKey(key)) {
-      			addresses.addAll(requestors.get(key));
-      		}
-   		}
-   	}
-   	if (origin != null) {
-   		addresses.remove(origin);
-   	}
-   	return addresses;
+
+   private void purgeExpiredRequestors() {
+      long now = System.currentTimeMillis();
+      int purged = 0;
+      for (Map.Entry<Object, Requestors> e : requestors.entrySet()) {
+         if (e.getValue().isExpired(now, requestorLifespan) && requestors.remove(e.getKey(), e.getValue())) purged++;
+      }
+      if (trace) log.trace("Purged %s expired L1 requestor records", purged);
    }
-   
+
    private boolean isUseMulticast(int nodes) {
-   	// User has requested unicast or multicast only
-   	if (threshold == -1) return false;
-   	if (threshold == 0) return true;
-   	// Underlying transport is not multicast capable
-   	if (!rpcManager.getTransport().isMulticastCapable()) return false;
-   	return nodes > threshold;
+      // User has requested unicast or multicast only
+      if (threshold == -1) return false;
+      if (threshold == 0) return true;
+      // Underlying transport is not multicast capable
+      if (!rpcManager.getTransport().isMulticastCapable()) return false;
+      return nodes > threshold;
+   }
+
+   /**
+    * The nodes a key has been requested by, and when it was last requested.  Immutable.
+    */
+   private static final class Requestors {
+      final Address[] addresses;
+      final long lastRequested;
+
+      Requestors(Address[] addresses, long lastRequested) {
+         this.addresses = addresses;
+         this.lastRequested = lastRequested;
+      }
+
+      Requestors add(Address requestor, long now) {
+         for (Address a : addresses) {
+            if (a.equals(requestor)) {
+               return now - lastRequested < TIMESTAMP_GRANULARITY ? this : new Requestors(addresses, now);
+            }
+         }
+         Address[] updated = new Address[addresses.length + 1];
+         System.arraycopy(addresses, 0, updated, 0, addresses.length);
+         updated[addresses.length] = requestor;
+         return new Requestors(updated, now);
+      }
+
+      boolean isExpired(long now, long requestorLifespan) {
+         return requestorLifespan > 0 && now - lastRequested > requestorLifespan;
+      }
+   }
+
+   /**
+    * Invalidations collected during one coalescing window.  Acts as the network future of the writes that contributed
+    * to it, completing once all of its invalidation commands have been acknowledged.
+    */
+   private final class InvalidationBatch implements Runnable, Future<Object> {
+      final Map<Address, Set<Object>> keysByRequestor = new HashMap<Address, Set<Object>>();
+      final Set<Object> allKeys = new HashSet<Object>();
+      final List<NotifyingNotifiableFuture<Object>> writes = new ArrayList<NotifyingNotifiableFuture<Object>>();
+      final CountDownLatch sent = new CountDownLatch(1);
+      boolean multicast;
+      ScheduledFuture<?> schedule;
+      volatile AggregatingNotifyingFutureImpl rpcs;
+
+      // guarded by batchLock
+      void add(Collection<Object> keys, Map<Address, Collection<Object>> keysOfRequestors, boolean multicast,
+               NotifyingNotifiableFuture<Object> write) {
+         this.multicast |= multicast;
+         allKeys.addAll(keys);
+         for (Map.Entry<Address, Collection<Object>> e : keysOfRequestors.entrySet()) {
+            Set<Object> requestorKeys = keysByRequestor.get(e.getKey());
+            if (requestorKeys == null) keysByRequestor.put(e.getKey(), requestorKeys = new HashSet<Object>());
+            requestorKeys.addAll(e.getValue());
+         }
+         writes.add(write);
+      }
+
+      boolean cancelSchedule() {
+         return schedule.cancel(false);
+      }
+
+      public void run() {
+         synchronized (batchLock) {
+            if (pendingBatch == this) pendingBatch = null;
+         }
+         boolean multicast = this.multicast || isUseMulticast(keysByRequestor.size());
+         AggregatingNotifyingFutureImpl rpcs = new AggregatingNotifyingFutureImpl(null, multicast ? 1 : keysByRequestor.size());
+         rpcs.attachListener(new FutureListener<Object>() {
+            public void futureDone(Future<Object> future) {
+               for (NotifyingNotifiableFuture<Object> write : writes) write.notifyDone();
+            }
+         });
+         try {
+            if (multicast) {
+               if (trace) log.trace("Invalidating %s keys of %s writes via multicast", allKeys.size(), writes.size());
+               rpcManager.invokeRemotelyInFuture(null, commandsFactory.buildInvalidateFromL1Command(false, allKeys), false, rpcs, rpcTimeout);
+            } else {
+               if (trace) log.trace("Invalidating keys of %s writes on %s", writes.size(), keysByRequestor.keySet());
+               for (Map.Entry<Address, Set<Object>> e : keysByRequestor.entrySet()) {
+                  InvalidateCommand ic = commandsFactory.buildInvalidateFromL1Command(false, e.getValue());
+                  rpcManager.invokeRemotelyInFuture(Collections.singletonList(e.getKey()), ic, false, rpcs, rpcTimeout);
+               }
+            }
+         } finally {
+            this.rpcs = rpcs;
+            sent.countDown();
+         }
+      }
+
+      public boolean cancel(boolean mayInterruptIfRunning) {
+         return false;
+      }
+
+      public boolean isCancelled() {
+         return false;
+      }
+
+      public boolean isDone() {
+         return sent.getCount() == 0 && rpcs.isDone();
+      }
+
+      public Object get() throws InterruptedException, ExecutionException {
+         sent.await();
+         return rpcs.get();
+      }
+
+      public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+         long deadline = System.nanoTime() + unit.toNanos(timeout);
+         if (!sent.await(timeout, unit)) throw new TimeoutException();
+         return rpcs.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      }
    }
 
 }
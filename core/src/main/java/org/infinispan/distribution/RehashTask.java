@@ -1,7 +1,7 @@
 package org.infinispan.distribution;
 
 import org.infinispan.commands.CommandsFactory;
-import org.infinispan.commands.ReplicableCommand;
+import org.infinispan.commands.control.RehashControlCommand;
 import org.infinispan.commands.write.InvalidateCommand;
 import org.infinispan.config.Configuration;
 import org.infinispan.container.DataContainer;
@@ -25,8 +25,10 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.infinispan.remoting.rpc.ResponseMode.SYNCHRONOUS;
@@ -49,14 +51,7 @@ public abstract class RehashTask implements Callable<Void> {
    protected final Log log = LogFactory.getLog(getClass());
    protected final boolean trace = log.isTraceEnabled();
 
-   protected final ExecutorService statePullExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
-         @Override
-         public Thread newThread(Runnable r) {
-            Thread th = new Thread(r, "Rehasher-" + self + "-Worker-" + counter.getAndIncrement());
-            th.setDaemon(true);
-            return th;
-         }
-      });
+   protected final ExecutorService statePullExecutor;
 
 
    protected RehashTask(DistributionManagerImpl distributionManager, RpcManager rpcManager,
@@ -67,6 +62,19 @@ public abstract class RehashTask implements Callable<Void> {
       this.cf = cf;
       this.dataContainer = dataContainer;
       this.self = rpcManager.getAddress();
+      // Bounds the number of nodes state is pulled from in parallel, further transfers queue up
+      int maxTransfers = Math.max(1, configuration.getRehashMaxConcurrentTransfers());
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(maxTransfers, maxTransfers, 60L, TimeUnit.SECONDS,
+                                                           new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+         @Override
+         public Thread newThread(Runnable r) {
+            Thread th = new Thread(r, "Rehasher-" + self + "-Worker-" + counter.getAndIncrement());
+            th.setDaemon(true);
+            return th;
+         }
+      });
+      executor.allowCoreThreadTimeOut(true);
+      this.statePullExecutor = executor;
    }
 
    public Void call() throws Exception {
@@ -75,6 +83,7 @@ public abstract class RehashTask implements Callable<Void> {
          performRehash();
          return null;
       } finally {
+         statePullExecutor.shutdown();
          distributionManager.setRehashInProgress(false);
       }
    }
@@ -87,25 +96,32 @@ public abstract class RehashTask implements Callable<Void> {
 
    protected void invalidateInvalidHolders(List<Address> doNotInvalidate, ConsistentHash chOld, ConsistentHash chNew) throws ExecutionException, InterruptedException {
       if (log.isDebugEnabled()) log.debug("Invalidating entries that have migrated across");
+      int batchSize = configuration.getRehashBatchSize();
       Map<Address, Set<Object>> invalidations = new HashMap<Address, Set<Object>>();
       for (Object key : dataContainer.keySet()) {
          Collection<Address> invalidHolders = getInvalidHolders(key, chOld, chNew);
          for (Address a : invalidHolders) {
+            if (doNotInvalidate.contains(a)) continue;
             Set<Object> s = invalidations.get(a);
             if (s == null) {
                s = new HashSet<Object>();
                invalidations.put(a, s);
             }
             s.add(key);
+            // send full batches straight away rather than collecting invalidations for the whole data container
+            if (batchSize > 0 && s.size() >= batchSize) {
+               invalidate(a, s);
+               invalidations.remove(a);
+            }
          }
       }
 
-      invalidations.keySet().removeAll(doNotInvalidate);
+      for (Map.Entry<Address, Set<Object>> e : invalidations.entrySet()) invalidate(e.getKey(), e.getValue());
+   }
 
-      for (Map.Entry<Address, Set<Object>> e : invalidations.entrySet()) {
-         InvalidateCommand ic = cf.buildInvalidateFromL1Command(true, false, e.getValue().toArray());
-         rpcManager.invokeRemotely(Collections.singletonList(e.getKey()), ic, false);
-      }
+   private void invalidate(Address holder, Set<Object> keys) {
+      InvalidateCommand ic = cf.buildInvalidateFromL1Command(true, false, keys.toArray());
+      rpcManager.invokeRemotely(Collections.singletonList(holder), ic, false);
    }
    protected void invalidateInvalidHolders(ConsistentHash chOld, ConsistentHash chNew) throws ExecutionException, InterruptedException {
       List<Address> none = Collections.emptyList();
@@ -124,10 +140,10 @@ public abstract class RehashTask implements Callable<Void> {
 
    protected abstract class StateGrabber implements Callable<Void> {
       private final Address stateProvider;
-      private final ReplicableCommand command;
+      private final RehashControlCommand command;
       private final ConsistentHash newConsistentHash;
 
-      public StateGrabber(Address stateProvider, ReplicableCommand command, ConsistentHash newConsistentHash) {
+      public StateGrabber(Address stateProvider, RehashControlCommand command, ConsistentHash newConsistentHash) {
          this.stateProvider = stateProvider;
          this.command = command;
          this.newConsistentHash = newConsistentHash;
@@ -135,16 +151,28 @@ public abstract class RehashTask implements Callable<Void> {
 
       @Override
       public Void call() throws Exception {
-         // This call will cause the sender to start logging transactions - BEFORE generating state.
-         Map<Address, Response> resps = rpcManager.invokeRemotely(Collections.singleton(stateProvider), command, SYNCHRONOUS, configuration.getRehashRpcTimeout(), true);
-         for (Response r : resps.values()) {
-            if (r instanceof SuccessfulResponse) {
-               Map<Object, InternalCacheValue> state = getStateFromResponse((SuccessfulResponse) r);
+         // State is pulled in batches, each batch being applied before the next one is requested so that the whole
+         // state is never held in memory.  The transaction log is only drained once the last batch has been applied.
+         int batchSize = configuration.getRehashBatchSize();
+         boolean continuation = false;
+         while (true) {
+            // The first call will cause the sender to start logging transactions - BEFORE generating state.
+            RehashControlCommand batchCommand = command.forStateBatch(batchSize, continuation);
+            Map<Address, Response> resps = rpcManager.invokeRemotely(Collections.singleton(stateProvider), batchCommand, SYNCHRONOUS, configuration.getRehashRpcTimeout(), true);
+            Map<Object, InternalCacheValue> state = null;
+            for (Response r : resps.values()) {
+               if (r instanceof SuccessfulResponse) state = getStateFromResponse((SuccessfulResponse) r);
+            }
+            if (state == null) return null;
+
+            if (batchSize > 0 && state.size() >= batchSize) {
+               distributionManager.applyPartialState(newConsistentHash, state);
+               continuation = true;
+            } else {
                distributionManager.applyState(newConsistentHash, state, new RemoteTransactionLoggerImpl(cf, stateProvider, rpcManager), isForLeave());
+               return null;
             }
          }
-
-         return null;
       }
 
       protected abstract boolean isForLeave();
@@ -0,0 +1,90 @@
+package org.infinispan.distribution;
+
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.CacheStore;
+import org.infinispan.loaders.CacheStoreCursor;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Walks through the state a node sends to another node during a rehash: first the entries in the data container, then
+ * the entries in the cache store which are not in memory.  State is handed out in batches, so that it never needs to be
+ * held in memory all at once, by either the sender or the receiver.
+ *
+ * @since 5.0
+ */
+public class StateCursor {
+   /**
+    * Decides which keys are part of the transferred state.
+    */
+   public interface KeyFilter {
+      boolean shouldTransfer(Object key);
+   }
+
+   private final DataContainer dataContainer;
+   private final CacheStore cacheStore;
+   private final KeyFilter filter;
+   private final Iterator<InternalCacheEntry> containerEntries;
+   private CacheStoreCursor storedEntries;
+   private boolean exhausted;
+
+   public StateCursor(DataContainer dataContainer, CacheStore cacheStore, KeyFilter filter) {
+      this.dataContainer = dataContainer;
+      this.cacheStore = cacheStore;
+      this.filter = filter;
+      this.containerEntries = dataContainer.iterator();
+   }
+
+   /**
+    * Retrieves the next batch of state.  A batch smaller than maxEntries is the last one.
+    *
+    * @param maxEntries maximum number of entries to return
+    * @return a map of keys to values, never null
+    */
+   public synchronized Map<Object, InternalCacheValue> nextBatch(int maxEntries) throws CacheLoaderException {
+      Map<Object, InternalCacheValue> batch = new HashMap<Object, InternalCacheValue>();
+      while (batch.size() < maxEntries && containerEntries.hasNext()) {
+         InternalCacheEntry ice = containerEntries.next();
+         Object k = ice.getKey();
+         if (filter.shouldTransfer(k)) batch.put(k, ice.toInternalCacheValue());
+      }
+
+      if (cacheStore != null && batch.size() < maxEntries) {
+         if (storedEntries == null) storedEntries = cacheStore.openCursor();
+         while (batch.size() < maxEntries && storedEntries.hasNext()) {
+            InternalCacheEntry ice = storedEntries.next();
+            Object k = ice.getKey();
+            // entries in memory have been sent already, and are more recent than the stored ones
+            if (!batch.containsKey(k) && !dataContainer.containsKey(k) && filter.shouldTransfer(k))
+               batch.put(k, ice.toInternalCacheValue());
+         }
+      }
+
+      exhausted = batch.size() < maxEntries;
+      if (exhausted) close();
+      return batch;
+   }
+
+   /**
+    * @return true if the last batch has been handed out
+    */
+   public synchronized boolean isExhausted() {
+      return exhausted;
+   }
+
+   /**
+    * Releases the cache store cursor, if any.  Called once the last batch has been handed out, or when the transfer is
+    * abandoned.
+    */
+   public synchronized void close() {
+      if (storedEntries != null) {
+         storedEntries.close();
+         storedEntries = null;
+      }
+   }
+}
@@ -2,6 +2,7 @@ package org.infinispan.distribution.ch;
 
 import org.infinispan.remoting.transport.Address;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -50,12 +51,44 @@ public abstract class AbstractConsistentHash implements ConsistentHash {
       return locations;
    }
 
+   @Override
+   public Address primaryLocation(Object key) {
+      List<Address> owners = locate(key, 1);
+      return owners.isEmpty() ? null : owners.get(0);
+   }
+
    @Override
    public boolean isKeyLocalToAddress(Address a, Object key, int replCount) {
       // simple, brute-force impl
       return locate(key, replCount).contains(a);
    }
 
+   @Override
+   public List<Address> getStateHoldersOnLeave(Address leaver, int replCount) {
+      // the nodes the leaver backed up, and the leaver's main backup
+      List<Address> holders = new ArrayList<Address>();
+      for (Address addr : getCaches()) {
+         List<Address> backups = getBackupsForNode(addr, replCount);
+         if (addr.equals(leaver)) {
+            if (backups.size() > 1) holders.add(backups.get(1));
+         } else if (backups.contains(leaver)) {
+            holders.add(addr);
+         }
+      }
+      return holders;
+   }
+
+   @Override
+   public List<Address> getStateReceiversOnLeave(Address leaver, List<Address> stateHolders, ConsistentHash newConsistentHash, int replCount) {
+      // each holder gets a new last backup
+      List<Address> receivers = new ArrayList<Address>();
+      for (Address addr : stateHolders) {
+         List<Address> backups = newConsistentHash.getBackupsForNode(addr, replCount);
+         receivers.add(backups.get(backups.size() - 1));
+      }
+      return receivers;
+   }
+
    @Override
    public void setTopologyInfo(TopologyInfo topologyInfo) {
    }
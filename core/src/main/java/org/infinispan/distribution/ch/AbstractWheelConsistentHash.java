@@ -10,6 +10,8 @@ import org.infinispan.util.logging.LogFactory;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -17,6 +19,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Abstract class for the wheel-based CH implementations.
@@ -32,6 +35,8 @@ public abstract class AbstractWheelConsistentHash extends AbstractConsistentHash
    // TODO: Maybe address and addressToHashIds can be combined in a LinkedHashMap?
    protected Map<Address, Integer> addressToHashIds;
    protected Hash hashFunction;
+   // built lazily from positions, which are also set directly when unmarshalling
+   private volatile WheelIndex wheelIndex;
 
    final static int HASH_SPACE = 10240; // no more than 10k nodes?
 
@@ -65,6 +70,36 @@ public abstract class AbstractWheelConsistentHash extends AbstractConsistentHash
 
       // reorder addresses as per the positions.
       caches.addAll(positions.values());
+      wheelIndex = null;
+   }
+
+   private WheelIndex getWheelIndex() {
+      WheelIndex index = wheelIndex;
+      if (index == null) wheelIndex = index = new WheelIndex(positions);
+      return index;
+   }
+
+   /**
+    * Returns the segment of the wheel a hash falls in, i.e. the index of the first position that is not lower than the
+    * hash, or 0 when all positions are lower.
+    */
+   protected final int getSegment(int normalizedHash) {
+      return getWheelIndex().getSegment(normalizedHash);
+   }
+
+   /**
+    * Returns the addresses at the first <tt>numOwners</tt> positions of the wheel starting with the given segment.  The
+    * lists are computed once per segment and number of owners, and are immutable.
+    */
+   protected final List<Address> getSegmentOwners(int segment, int numOwners) {
+      return getWheelIndex().getOwners(segment, numOwners);
+   }
+
+   @Override
+   public Address primaryLocation(Object key) {
+      WheelIndex index = getWheelIndex();
+      if (index.positionOwners.length == 0) return null;
+      return index.positionOwners[index.getSegment(getNormalizedHash(key))];
    }
 
    @Override
@@ -103,6 +138,46 @@ public abstract class AbstractWheelConsistentHash extends AbstractConsistentHash
             "}";
    }
 
+   private static final class WheelIndex {
+      final int[] positionKeys;
+      final Address[] positionOwners;
+      // owner lists of each segment, indexed by number of owners
+      final AtomicReferenceArray<List<Address>[]> ownersByCount;
+
+      WheelIndex(SortedMap<Integer, Address> positions) {
+         positionKeys = new int[positions.size()];
+         positionOwners = new Address[positions.size()];
+         int i = 0;
+         for (Map.Entry<Integer, Address> position : positions.entrySet()) {
+            positionKeys[i] = position.getKey();
+            positionOwners[i++] = position.getValue();
+         }
+         ownersByCount = new AtomicReferenceArray<List<Address>[]>(positionOwners.length + 1);
+      }
+
+      int getSegment(int normalizedHash) {
+         int segment = Arrays.binarySearch(positionKeys, normalizedHash);
+         if (segment < 0) segment = -segment - 1;
+         return segment == positionKeys.length ? 0 : segment;
+      }
+
+      @SuppressWarnings("unchecked")
+      List<Address> getOwners(int segment, int numOwners) {
+         List<Address>[] owners = ownersByCount.get(numOwners);
+         if (owners == null) {
+            owners = new List[positionOwners.length];
+            for (int i = 0; i < owners.length; i++) {
+               Address[] segmentOwners = new Address[numOwners];
+               for (int j = 0; j < numOwners; j++) segmentOwners[j] = positionOwners[(i + j) % positionOwners.length];
+               owners[i] = Collections.unmodifiableList(Arrays.asList(segmentOwners));
+            }
+            // concurrent computations produce equal lists, so any of them can win
+            ownersByCount.set(numOwners, owners);
+         }
+         return owners[segment];
+      }
+   }
+
    public static abstract class Externalizer<T extends AbstractWheelConsistentHash> extends AbstractExternalizer<T> {
 
       protected abstract T instance();
@@ -45,10 +45,20 @@ public interface ConsistentHash {
     * @param replCount replication count (number of copies)
     * @return a list of addresses where the key resides, where this list is a subset of the addresses set in {@link
     *         #setCaches(java.util.Set)}.  Should never be null, and should contain replCount elements or the max
-    *         number of caches available, whichever is smaller.
+    *         number of caches available, whichever is smaller.  The list may be shared between calls, so it must not
+    *         be modified.
     */
    List<Address> locate(Object key, int replCount);
 
+   /**
+    * Locates the primary owner of a key, i.e. the first address {@link #locate(Object, int)} would return, without
+    * building a list of owners.
+    *
+    * @param key key to locate
+    * @return the primary owner of the key, or null if there are no caches
+    */
+   Address primaryLocation(Object key);
+
    /**
     * The logical equivalent of calling {@link #locate(Object, int)} multiple times for each key in the collection of
     * keys. Implementations may be optimised for such a bulk lookup, or may just repeatedly call {@link #locate(Object,
@@ -56,7 +66,8 @@ public interface ConsistentHash {
     *
     * @param keys      keys to locate
     * @param replCount replication count (number of copies) for each key
-    * @return Map of locations, keyed on key.
+    * @return Map of locations, keyed on key.  Like with {@link #locate(Object, int)}, the lists of locations must not
+    *         be modified.
     */
    Map<Object, List<Address>> locateAll(Collection<Object> keys, int replCount);
 
@@ -95,6 +106,27 @@ public interface ConsistentHash {
     */
    List<Address> getStateProvidersOnLeave(Address leaver, int replCount);
 
+   /**
+    * Returns the nodes that hold the state of the specified node once it leaves the cluster, and need to send it to
+    * its new backups.
+    * <p>
+    * Invoked on the consistent hash that still includes the leaver.
+    * @param leaver the node that leaves the cluster
+    * @param replCount
+    */
+   List<Address> getStateHoldersOnLeave(Address leaver, int replCount);
+
+   /**
+    * Returns the nodes that become new backups for the state of the specified node once it leaves the cluster.
+    * <p>
+    * Invoked on the consistent hash that still includes the leaver.
+    * @param leaver the node that leaves the cluster
+    * @param stateHolders the nodes returned by {@link #getStateHoldersOnLeave(Address, int)}
+    * @param newConsistentHash the consistent hash that no longer includes the leaver
+    * @param replCount
+    */
+   List<Address> getStateReceiversOnLeave(Address leaver, List<Address> stateHolders, ConsistentHash newConsistentHash, int replCount);
+
    /**
     * Returns the nodes that would act as state providers when a new node joins:
     * - the nodes for which the joiner is a backup
@@ -47,6 +47,9 @@ public class ConsistentHashHelper {
          Hash h = (Hash) Util.getInstance(c.getHashFunctionClass());
          ((AbstractWheelConsistentHash) ch).setHashFunction(h);
       }
+      if (ch instanceof VirtualNodesConsistentHash) {
+         ((VirtualNodesConsistentHash) ch).setNumVirtualNodes(c.getNumVirtualNodes());
+      }
       return ch;
    }
 
@@ -136,6 +139,9 @@ public class ConsistentHashHelper {
          hf = ((AbstractWheelConsistentHash) template).hashFunction;
       }
       ConsistentHash ch = constructConsistentHashInstance(template.getClass(), hf);
+      if (template instanceof VirtualNodesConsistentHash) {
+         ((VirtualNodesConsistentHash) ch).setNumVirtualNodes(((VirtualNodesConsistentHash) template).getNumVirtualNodes());
+      }
       if (addresses != null && !addresses.isEmpty())  ch.setCaches(toSet(addresses));
       ch.setTopologyInfo(topologyInfo);
       return ch;
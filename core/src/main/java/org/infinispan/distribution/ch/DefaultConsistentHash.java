@@ -6,11 +6,11 @@ import org.infinispan.util.Util;
 import org.infinispan.util.hash.Hash;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
-import java.util.SortedMap;
 
 import static java.lang.Math.min;
 
@@ -28,66 +28,20 @@ public class DefaultConsistentHash extends AbstractWheelConsistentHash {
    }
 
    public List<Address> locate(Object key, int replCount) {
-      int hash = getNormalizedHash(key);
       int numCopiesToFind = getNumCopiesToFind(replCount);
-
-      List<Address> owners = new ArrayList<Address>(numCopiesToFind);
-
-      SortedMap<Integer, Address> candidates = positions.tailMap(hash);
-
-      int numOwnersFound = 0;
-
-      for (Address a : candidates.values()) {
-         if (numOwnersFound < numCopiesToFind) {
-            owners.add(a);
-            numOwnersFound++;
-         } else {
-            break;
-         }
-      }
-
-      if (numOwnersFound < numCopiesToFind) {
-         for (Address a : positions.values()) {
-            if (numOwnersFound < numCopiesToFind) {
-               owners.add(a);
-               numOwnersFound++;
-            } else {
-               break;
-            }
-         }
-      }
-
-      return owners;
+      if (numCopiesToFind == 0) return Collections.emptyList();
+      return getSegmentOwners(getSegment(getNormalizedHash(key)), numCopiesToFind);
    }
 
    @Override
    public boolean isKeyLocalToAddress(Address target, Object key, int replCount) {
-      int hash = getNormalizedHash(key);
       int numCopiesToFind = getNumCopiesToFind(replCount);
-
-      SortedMap<Integer, Address> candidates = positions.tailMap(hash);
-      int nodesTested = 0;
-      for (Address a : candidates.values()) {
-         if (nodesTested < numCopiesToFind) {
-            if (a.equals(target)) return true;
-            nodesTested++;
-         } else {
-            break;
-         }
+      if (numCopiesToFind == 0) return false;
+      List<Address> owners = getSegmentOwners(getSegment(getNormalizedHash(key)), numCopiesToFind);
+      // indexed access, to avoid creating an iterator
+      for (int i = 0; i < numCopiesToFind; i++) {
+         if (owners.get(i).equals(target)) return true;
       }
-
-      // start from the beginning
-      if (nodesTested < numCopiesToFind) {
-         for (Address a : positions.values()) {
-            if (nodesTested < numCopiesToFind) {
-               if (a.equals(target)) return true;
-               nodesTested++;
-            } else {
-               break;
-            }
-         }
-      }
-
       return false;
    }
 
@@ -0,0 +1,371 @@
+package org.infinispan.distribution.ch;
+
+import org.infinispan.marshall.AbstractExternalizer;
+import org.infinispan.marshall.Ids;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.util.Util;
+import org.infinispan.util.hash.Hash;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static java.lang.Math.min;
+
+/**
+ * A consistent hash that places each member on the wheel several times, as virtual nodes, so that the hash space is
+ * split in many small segments and keys are evenly balanced even in small clusters.  The number of virtual nodes per
+ * member is configured with {@link org.infinispan.config.Configuration#getNumVirtualNodes()}; subclasses can weigh
+ * members, for example by their capacity, by overriding {@link #getNumVirtualNodes(Address)}.
+ * <p/>
+ * The virtual node positions are kept in a sorted array, so a key is located with a binary search, and the owners of
+ * each segment are computed once per replication count, as immutable lists that lookups return without allocating.
+ *
+ * @since 5.0
+ */
+public class VirtualNodesConsistentHash extends AbstractWheelConsistentHash {
+
+   public static final int DEFAULT_NUM_VIRTUAL_NODES = 48;
+
+   private int numVirtualNodes = DEFAULT_NUM_VIRTUAL_NODES;
+
+   /**
+    * Sorted positions of all virtual nodes on the wheel, and the member each of them belongs to.
+    */
+   private int[] wheelPositions = new int[0];
+   private Address[] wheelOwners = new Address[0];
+
+   /**
+    * Owners of the segment ending at each position, indexed by the number of owners. Computed lazily.
+    */
+   private AtomicReferenceArray<List<Address>[]> ownersByCount = new AtomicReferenceArray<List<Address>[]>(1);
+
+   public VirtualNodesConsistentHash() {
+   }
+
+   public VirtualNodesConsistentHash(Hash hash) {
+      setHashFunction(hash);
+   }
+
+   public int getNumVirtualNodes() {
+      return numVirtualNodes;
+   }
+
+   /**
+    * Sets the number of virtual nodes per member.  Must be called before {@link #setCaches(java.util.Set)}.
+    */
+   public void setNumVirtualNodes(int numVirtualNodes) {
+      if (numVirtualNodes < 1)
+         throw new IllegalArgumentException("Number of virtual nodes must be positive: " + numVirtualNodes);
+      this.numVirtualNodes = numVirtualNodes;
+   }
+
+   /**
+    * Returns the number of virtual nodes placed on the wheel for a member.  All the members of the cluster must return
+    * the same value for a given address, so any weighting must be based on information that all of them share.
+    */
+   protected int getNumVirtualNodes(Address member) {
+      return numVirtualNodes;
+   }
+
+   @Override
+   public void setCaches(Set<Address> newCaches) {
+      List<VirtualNode> virtualNodes = new ArrayList<VirtualNode>(newCaches.size() * numVirtualNodes);
+      for (Address a : newCaches) {
+         int count = Math.max(1, getNumVirtualNodes(a));
+         for (int i = 0; i < count; i++)
+            virtualNodes.add(new VirtualNode(getVirtualNodePosition(a, i), a));
+      }
+      // Sort on position, and on address when two virtual nodes collide, so all members build the same wheel
+      Collections.sort(virtualNodes, VIRTUAL_NODE_ORDER);
+
+      int[] newPositions = new int[virtualNodes.size()];
+      Address[] newOwners = new Address[virtualNodes.size()];
+      caches = new LinkedHashSet<Address>(newCaches.size());
+      positions = new TreeMap<Integer, Address>();
+      addressToHashIds = new HashMap<Address, Integer>();
+      for (int i = 0; i < newPositions.length; i++) {
+         VirtualNode vn = virtualNodes.get(i);
+         newPositions[i] = vn.position;
+         newOwners[i] = vn.address;
+         if (!positions.containsKey(vn.position)) positions.put(vn.position, vn.address);
+         // the lowest position of each member is its hash id, and members are ordered by it
+         if (!addressToHashIds.containsKey(vn.address)) addressToHashIds.put(vn.address, vn.position);
+         caches.add(vn.address);
+      }
+      wheelPositions = newPositions;
+      wheelOwners = newOwners;
+      ownersByCount = new AtomicReferenceArray<List<Address>[]>(caches.size() + 1);
+   }
+
+   /**
+    * Hashes the address hash code together with the virtual node index, rather than a sum of them, so that the virtual
+    * nodes of members with close hash codes do not land on the same positions.
+    */
+   private int getVirtualNodePosition(Address a, int virtualNode) {
+      int addressHash = a.hashCode();
+      byte[] seed = new byte[]{
+            (byte) (addressHash >>> 24), (byte) (addressHash >>> 16), (byte) (addressHash >>> 8), (byte) addressHash,
+            (byte) (virtualNode >>> 24), (byte) (virtualNode >>> 16), (byte) (virtualNode >>> 8), (byte) virtualNode};
+      return normalize(hashFunction.hash(seed));
+   }
+
+   private static int normalize(int hash) {
+      return hash & Integer.MAX_VALUE;
+   }
+
+   @Override
+   public int getNormalizedHash(Object key) {
+      return normalize(hashFunction.hash(key));
+   }
+
+   @Override
+   public int getHashSpace() {
+      return Integer.MAX_VALUE;
+   }
+
+   /**
+    * Returns the index of the first virtual node at or after the given position, wrapping around the wheel.
+    */
+   private int findPositionIndex(int position) {
+      int idx = Arrays.binarySearch(wheelPositions, position);
+      if (idx < 0) {
+         idx = -idx - 1;
+         if (idx == wheelPositions.length) idx = 0;
+      } else {
+         while (idx > 0 && wheelPositions[idx - 1] == position) idx--;
+      }
+      return idx;
+   }
+
+   private int getNumCopiesToFind(int replCount) {
+      return min(replCount, caches.size());
+   }
+
+   /**
+    * Returns the owners of the segment ending at the virtual node with the given index, as an immutable list shared by
+    * all the lookups.
+    */
+   @SuppressWarnings("unchecked")
+   private List<Address> getOwners(int index, int numOwners) {
+      List<Address>[] owners = ownersByCount.get(numOwners);
+      if (owners == null) {
+         owners = new List[wheelOwners.length];
+         for (int i = 0; i < owners.length; i++)
+            owners[i] = Collections.unmodifiableList(Arrays.asList(computeOwners(i, numOwners)));
+         // concurrent computations produce equal lists, so any of them can win
+         ownersByCount.set(numOwners, owners);
+      }
+      return owners[index];
+   }
+
+   /**
+    * Walks the wheel clockwise from the given virtual node, collecting the first distinct members found.
+    */
+   private Address[] computeOwners(int index, int numOwners) {
+      Address[] owners = new Address[numOwners];
+      int found = 0;
+      for (int i = index; found < numOwners; i = (i + 1) % wheelOwners.length) {
+         Address a = wheelOwners[i];
+         if (indexOf(owners, found, a) < 0) owners[found++] = a;
+      }
+      return owners;
+   }
+
+   private static int indexOf(Address[] addresses, int length, Address a) {
+      for (int i = 0; i < length; i++) if (addresses[i].equals(a)) return i;
+      return -1;
+   }
+
+   @Override
+   public List<Address> locate(Object key, int replCount) {
+      int numCopiesToFind = getNumCopiesToFind(replCount);
+      if (numCopiesToFind == 0) return Collections.emptyList();
+      return getOwners(findPositionIndex(getNormalizedHash(key)), numCopiesToFind);
+   }
+
+   @Override
+   public Address primaryLocation(Object key) {
+      if (wheelOwners.length == 0) return null;
+      return wheelOwners[findPositionIndex(getNormalizedHash(key))];
+   }
+
+   @Override
+   public boolean isKeyLocalToAddress(Address target, Object key, int replCount) {
+      int numCopiesToFind = getNumCopiesToFind(replCount);
+      if (numCopiesToFind == 0) return false;
+      List<Address> owners = getOwners(findPositionIndex(getNormalizedHash(key)), numCopiesToFind);
+      // indexed access, to avoid creating an iterator
+      for (int i = 0; i < numCopiesToFind; i++) {
+         if (owners.get(i).equals(target)) return true;
+      }
+      return false;
+   }
+
+   /**
+    * Returns the node itself, followed by the other owners of the segments the node is the primary owner of.
+    */
+   @Override
+   public List<Address> getBackupsForNode(Address node, int replCount) {
+      Set<Address> backups = new LinkedHashSet<Address>();
+      backups.add(node);
+      int numOwners = getNumCopiesToFind(replCount);
+      for (int i = 0; i < wheelOwners.length; i++) {
+         if (wheelOwners[i].equals(node)) backups.addAll(getOwners(i, numOwners));
+      }
+      return new ArrayList<Address>(backups);
+   }
+
+   /**
+    * Invoked on a consistent hash that includes the joiner.  Before the join, each segment the joiner now owns was
+    * owned by the other current owners plus the next member on the wheel, so all of them may hold state.
+    */
+   @Override
+   public List<Address> getStateProvidersOnJoin(Address joiner, int replCount) {
+      int numOwners = getNumCopiesToFind(replCount);
+      int numPreviousOwners = min(numOwners + 1, caches.size());
+      Set<Address> providers = new LinkedHashSet<Address>();
+      for (int i = 0; i < wheelOwners.length; i++) {
+         Address[] owners = computeOwners(i, numPreviousOwners);
+         int joinerIndex = indexOf(owners, owners.length, joiner);
+         if (joinerIndex >= 0 && joinerIndex < numOwners) {
+            for (Address a : owners) if (!a.equals(joiner)) providers.add(a);
+         }
+      }
+      return new ArrayList<Address>(providers);
+   }
+
+   /**
+    * Invoked on a consistent hash that still includes the leaver.  The remaining owners of each segment the leaver
+    * owned hold its state.
+    */
+   @Override
+   public List<Address> getStateProvidersOnLeave(Address leaver, int replCount) {
+      int numOwners = getNumCopiesToFind(replCount);
+      Set<Address> providers = new LinkedHashSet<Address>();
+      for (int i = 0; i < wheelOwners.length; i++) {
+         List<Address> owners = getOwners(i, numOwners);
+         if (owners.contains(leaver)) {
+            for (Address a : owners) if (!a.equals(leaver)) providers.add(a);
+         }
+      }
+      return new ArrayList<Address>(providers);
+   }
+
+   /**
+    * The leaver owned many small segments, each with its own backups, so all their remaining owners hold its state.
+    */
+   @Override
+   public List<Address> getStateHoldersOnLeave(Address leaver, int replCount) {
+      return getStateProvidersOnLeave(leaver, replCount);
+   }
+
+   /**
+    * Each segment the leaver owned gets the next member on the wheel as a new owner, which needs to receive its state.
+    */
+   @Override
+   public List<Address> getStateReceiversOnLeave(Address leaver, List<Address> stateHolders, ConsistentHash newConsistentHash, int replCount) {
+      int numOwners = getNumCopiesToFind(replCount);
+      Set<Address> receivers = new LinkedHashSet<Address>();
+      if (caches.size() <= numOwners) return new ArrayList<Address>(receivers);
+      for (int i = 0; i < wheelOwners.length; i++) {
+         if (getOwners(i, numOwners).contains(leaver)) {
+            Address[] owners = computeOwners(i, numOwners + 1);
+            receivers.add(owners[numOwners]);
+         }
+      }
+      return new ArrayList<Address>(receivers);
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      VirtualNodesConsistentHash that = (VirtualNodesConsistentHash) o;
+
+      if (numVirtualNodes != that.numVirtualNodes) return false;
+      if (caches != null ? !caches.equals(that.caches) : that.caches != null) return false;
+      if (!Arrays.equals(wheelPositions, that.wheelPositions)) return false;
+      if (!Arrays.equals(wheelOwners, that.wheelOwners)) return false;
+
+      return true;
+   }
+
+   @Override
+   public int hashCode() {
+      int result = caches != null ? caches.hashCode() : 0;
+      result = 31 * result + numVirtualNodes;
+      result = 31 * result + Arrays.hashCode(wheelPositions);
+      return result;
+   }
+
+   @Override
+   public String toString() {
+      return "VirtualNodesConsistentHash{" +
+            "addresses=" + caches +
+            ", numVirtualNodes=" + numVirtualNodes +
+            ", hashIds=" + addressToHashIds +
+            '}';
+   }
+
+   private static final class VirtualNode {
+      final int position;
+      final Address address;
+
+      VirtualNode(int position, Address address) {
+         this.position = position;
+         this.address = address;
+      }
+   }
+
+   private static final Comparator<VirtualNode> VIRTUAL_NODE_ORDER = new Comparator<VirtualNode>() {
+      @Override
+      public int compare(VirtualNode vn1, VirtualNode vn2) {
+         if (vn1.position != vn2.position) return vn1.position < vn2.position ? -1 : 1;
+         int h1 = vn1.address.hashCode(), h2 = vn2.address.hashCode();
+         if (h1 != h2) return h1 < h2 ? -1 : 1;
+         return vn1.address.toString().compareTo(vn2.address.toString());
+      }
+   };
+
+   public static class Externalizer extends AbstractExternalizer<VirtualNodesConsistentHash> {
+      @Override
+      public void writeObject(ObjectOutput output, VirtualNodesConsistentHash ch) throws IOException {
+         output.writeObject(ch.hashFunction.getClass().getName());
+         output.writeInt(ch.numVirtualNodes);
+         output.writeObject(new ArrayList<Address>(ch.caches));
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public VirtualNodesConsistentHash readObject(ObjectInput input) throws IOException, ClassNotFoundException {
+         VirtualNodesConsistentHash ch = new VirtualNodesConsistentHash();
+         ch.setHashFunction((Hash) Util.getInstance((String) input.readObject()));
+         ch.setNumVirtualNodes(input.readInt());
+         // the wheel is rebuilt rather than sent, since it is derived from the members alone
+         ch.setCaches(new LinkedHashSet<Address>((List<Address>) input.readObject()));
+         return ch;
+      }
+
+      @Override
+      public Integer getId() {
+         return Ids.VIRTUAL_NODES_CONSISTENT_HASH;
+      }
+
+      @Override
+      public Set<Class<? extends VirtualNodesConsistentHash>> getTypeClasses() {
+         return Util.<Class<? extends VirtualNodesConsistentHash>>asSet(VirtualNodesConsistentHash.class);
+      }
+   }
+}
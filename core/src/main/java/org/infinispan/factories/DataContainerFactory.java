@@ -25,6 +25,7 @@ import org.infinispan.config.ConfigurationException;
 import org.infinispan.config.parsing.XmlConfigHelper;
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.container.OffHeapDataContainer;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
 import org.infinispan.factories.annotations.DefaultFactoryFor;
@@ -67,6 +68,13 @@ public class DataContainerFactory extends AbstractNamedCacheComponentFactory imp
                throw new ConfigurationException("Unknown eviction strategy "
                         + configuration.getEvictionStrategy());
          }
+      } else if (configuration.getDataContainerClass().equals(OffHeapDataContainer.class.getName())) {
+         if (configuration.getEvictionStrategy().isEnabled())
+            throw new ConfigurationException("Eviction strategy " + configuration.getEvictionStrategy()
+                     + " is not supported by " + OffHeapDataContainer.class.getSimpleName());
+         int pageSize = configuration.getDataContainerProperties().getIntProperty(
+                  OffHeapDataContainer.PAGE_SIZE, OffHeapDataContainer.DEFAULT_PAGE_SIZE);
+         return (T) new OffHeapDataContainer(configuration.getConcurrencyLevel(), pageSize);
       } else {
          DataContainer dataContainer = DataContainer.class.cast(Util.getInstance(configuration.getDataContainerClass()));
          XmlConfigHelper.setValues(dataContainer, configuration.getDataContainerProperties(), false, true);
@@ -21,17 +21,26 @@
  */
 package org.infinispan.interceptors;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
+import org.infinispan.commands.write.ClearCommand;
 import org.infinispan.commands.write.InvalidateCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
+import org.infinispan.commands.write.PutMapCommand;
 import org.infinispan.commands.write.RemoveCommand;
 import org.infinispan.commands.write.ReplaceCommand;
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.EntryFactory;
 import org.infinispan.container.entries.CacheEntry;
 import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.config.CacheLoaderManagerConfig;
 import org.infinispan.container.entries.MVCCEntry;
 import org.infinispan.context.Flag;
 import org.infinispan.context.InvocationContext;
@@ -44,6 +53,7 @@ import org.infinispan.jmx.annotations.ManagedOperation;
 import org.infinispan.loaders.CacheLoader;
 import org.infinispan.loaders.CacheLoaderManager;
 import org.infinispan.notifications.cachelistener.CacheNotifier;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
 import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
 import org.rhq.helpers.pluginAnnotations.agent.Metric;
 import org.rhq.helpers.pluginAnnotations.agent.Operation;
@@ -52,6 +62,22 @@ import org.rhq.helpers.pluginAnnotations.agent.Operation;
 public class CacheLoaderInterceptor extends JmxStatsCommandInterceptor {
    private final AtomicLong cacheLoads = new AtomicLong(0);
    private final AtomicLong cacheMisses = new AtomicLong(0);
+   private final AtomicLong sharedLoads = new AtomicLong(0);
+   private final AtomicLong negativeLookupHits = new AtomicLong(0);
+
+   /**
+    * Loads in progress, so that concurrent misses on the same key wait for a single load from the cache loader
+    */
+   private final ConcurrentMap<Object, FutureTask<InternalCacheEntry>> inflightLoads = new ConcurrentHashMap<Object, FutureTask<InternalCacheEntry>>();
+   /**
+    * Keys known to be absent from the cache loader, mapped to the time they stop being trusted.  Null if disabled.
+    */
+   private ConcurrentMap<Object, Long> absentKeys;
+   private long negativeLookupLifespan;
+   /**
+    * Incremented on every write, so that a load racing with a write does not record the key as absent
+    */
+   private final AtomicLong writeCount = new AtomicLong(0);
 
    protected CacheLoaderManager clm;
    protected CacheNotifier notifier;
@@ -70,6 +96,12 @@ public class CacheLoaderInterceptor extends JmxStatsCommandInterceptor {
    @Start(priority = 15)
    protected void startInterceptor() {
       loader = clm.getCacheLoader();
+      CacheLoaderManagerConfig clmConfig = configuration.getCacheLoaderManagerConfig();
+      Integer negativeLookupCacheSize = clmConfig == null ? null : clmConfig.getNegativeLookupCacheSize();
+      if (negativeLookupCacheSize != null && negativeLookupCacheSize > 0) {
+         absentKeys = new BoundedConcurrentHashMap<Object, Long>(negativeLookupCacheSize);
+         negativeLookupLifespan = clmConfig.getNegativeLookupLifespan();
+      }
    }
 
    @Override
@@ -78,7 +110,34 @@ public class CacheLoaderInterceptor extends JmxStatsCommandInterceptor {
       if ((key = command.getKey()) != null) {
          loadIfNeeded(ctx, key);
       }
-      return invokeNextInterceptor(ctx, command);
+      try {
+         return invokeNextInterceptor(ctx, command);
+      } finally {
+         forgetAbsent(key);
+      }
+   }
+
+   @Override
+   public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) throws Throwable {
+      try {
+         return invokeNextInterceptor(ctx, command);
+      } finally {
+         if (absentKeys != null) {
+            for (Object key : command.getMap().keySet()) forgetAbsent(key);
+         }
+      }
+   }
+
+   @Override
+   public Object visitClearCommand(InvocationContext ctx, ClearCommand command) throws Throwable {
+      try {
+         return invokeNextInterceptor(ctx, command);
+      } finally {
+         if (absentKeys != null) {
+            writeCount.incrementAndGet();
+            absentKeys.clear();
+         }
+      }
    }
 
 
@@ -91,6 +150,14 @@ public class CacheLoaderInterceptor extends JmxStatsCommandInterceptor {
       return invokeNextInterceptor(ctx, command);
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      for (Object key : command.getKeys()) {
+         if (key != null) loadIfNeededAndUpdateStats(ctx, key);
+      }
+      return invokeNextInterceptor(ctx, command);
+   }
+
    @Override
    public Object visitInvalidateCommand(InvocationContext ctx, InvalidateCommand command) throws Throwable {
       Object[] keys;
@@ -117,7 +184,11 @@ public class CacheLoaderInterceptor extends JmxStatsCommandInterceptor {
       if ((key = command.getKey()) != null) {
          loadIfNeededAndUpdateStats(ctx, key);
       }
-      return invokeNextInterceptor(ctx, command);
+      try {
+         return invokeNextInterceptor(ctx, command);
+      } finally {
+         forgetAbsent(key);
+      }
    }
 
    private boolean loadIfNeeded(InvocationContext ctx, Object key) throws Throwable {
@@ -145,7 +216,7 @@ public class CacheLoaderInterceptor extends JmxStatsCommandInterceptor {
          }
 
          // we *may* need to load this.
-         InternalCacheEntry loaded = loader.load(key);
+         InternalCacheEntry loaded = loadFromLoader(key);
          if (loaded == null) {
             if (log.isTraceEnabled()) {
                log.trace("No need to load.  Key doesn't exist in the loader.");
@@ -165,6 +236,62 @@ public class CacheLoaderInterceptor extends JmxStatsCommandInterceptor {
       }
    }
 
+   /**
+    * Loads a key from the cache loader, unless it is known to be absent.  Concurrent loads of the same key are
+    * collapsed into a single call to the cache loader, whose result is shared by all the callers.
+    */
+   private InternalCacheEntry loadFromLoader(final Object key) throws Throwable {
+      if (absentKeys != null) {
+         Long expiry = absentKeys.get(key);
+         if (expiry != null) {
+            if (expiry > System.currentTimeMillis()) {
+               if (getStatisticsEnabled()) negativeLookupHits.incrementAndGet();
+               return null;
+            }
+            absentKeys.remove(key, expiry);
+         }
+      }
+
+      FutureTask<InternalCacheEntry> load = new FutureTask<InternalCacheEntry>(new Callable<InternalCacheEntry>() {
+         public InternalCacheEntry call() throws Exception {
+            long writesBefore = writeCount.get();
+            InternalCacheEntry loaded = loader.load(key);
+            if (loaded == null && absentKeys != null && writeCount.get() == writesBefore) {
+               Long expiry = System.currentTimeMillis() + negativeLookupLifespan;
+               absentKeys.put(key, expiry);
+               // a write may have forgotten the key between the check above and the put
+               if (writeCount.get() != writesBefore) absentKeys.remove(key, expiry);
+            }
+            return loaded;
+         }
+      });
+      FutureTask<InternalCacheEntry> inflight = inflightLoads.putIfAbsent(key, load);
+      if (inflight == null) {
+         try {
+            load.run();
+         } finally {
+            inflightLoads.remove(key, load);
+         }
+         inflight = load;
+      } else {
+         if (log.isTraceEnabled()) log.trace("Waiting for the load of %s in progress", key);
+         if (getStatisticsEnabled()) sharedLoads.incrementAndGet();
+      }
+
+      try {
+         return inflight.get();
+      } catch (ExecutionException e) {
+         throw e.getCause();
+      }
+   }
+
+   private void forgetAbsent(Object key) {
+      if (absentKeys != null) {
+         writeCount.incrementAndGet();
+         if (key != null) absentKeys.remove(key);
+      }
+   }
+
    /**
     * This method records a loaded entry, performing the following steps:
     * <ol>
@@ -232,11 +359,25 @@ public class CacheLoaderInterceptor extends JmxStatsCommandInterceptor {
       return cacheMisses.get();
    }
 
+   @ManagedAttribute(description = "Number of lookups that waited for a load of the same key already in progress instead of hitting the cache store")
+   @Metric(displayName = "Number of shared cache store loads", measurementType = MeasurementType.TRENDSUP)
+   public long getCacheLoaderSharedLoads() {
+      return sharedLoads.get();
+   }
+
+   @ManagedAttribute(description = "Number of lookups of keys known to be absent from the cache store that did not hit the cache store")
+   @Metric(displayName = "Number of negative lookup hits", measurementType = MeasurementType.TRENDSUP)
+   public long getCacheLoaderNegativeLookupHits() {
+      return negativeLookupHits.get();
+   }
+
    @Override
    @ManagedOperation(description = "Resets statistics gathered by this component")
    @Operation(displayName = "Reset Statistics")
    public void resetStatistics() {
       cacheLoads.set(0);
       cacheMisses.set(0);
+      sharedLoads.set(0);
+      negativeLookupHits.set(0);
    }
 }
\ No newline at end of file
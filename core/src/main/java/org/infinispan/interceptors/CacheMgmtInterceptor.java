@@ -21,6 +21,7 @@
  */
 package org.infinispan.interceptors;
 
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.write.EvictCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
@@ -92,6 +93,23 @@ public class CacheMgmtInterceptor extends JmxStatsCommandInterceptor {
       return retval;
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      long t1 = System.currentTimeMillis();
+      Map retval = (Map) invokeNextInterceptor(ctx, command);
+      long t2 = System.currentTimeMillis();
+      int found = retval.size();
+      // the lookup time is accounted once, as hit time if any of the keys was found
+      if (found > 0) {
+         hitTimes.getAndAdd(t2 - t1);
+         hits.getAndAdd(found);
+      } else {
+         missTimes.getAndAdd(t2 - t1);
+      }
+      misses.getAndAdd(command.getKeys().size() - found);
+      return retval;
+   }
+
    @Override
    public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) throws Throwable {
       Map data = command.getMap();
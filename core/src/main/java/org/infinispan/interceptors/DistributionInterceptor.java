@@ -2,6 +2,7 @@ package org.infinispan.interceptors;
 
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.commands.control.LockControlCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.tx.CommitCommand;
 import org.infinispan.commands.tx.PrepareCommand;
@@ -35,11 +36,14 @@ import org.infinispan.util.concurrent.NotifyingNotifiableFuture;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * The interceptor that handles distribution of entries across a cluster, as well as transparent lookup
@@ -110,6 +114,38 @@ public class DistributionInterceptor extends BaseRpcInterceptor {
       return returnValue;
    }
 
+   /**
+    * Like {@link #visitGetKeyValueCommand(InvocationContext, GetKeyValueCommand)}, but keys that are neither mapped to
+    * the local node nor in L1 are retrieved with a single remote call per owner, rather than one call per key.
+    */
+   @Override
+   @SuppressWarnings("unchecked")
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      boolean isRehashInProgress = !dm.isJoinComplete() || dm.isRehashInProgress();
+      Map<Object, Object> result = (Map<Object, Object>) invokeNextInterceptor(ctx, command);
+
+      List<Object> remoteKeys = new LinkedList<Object>();
+      for (Object key : command.getKeys()) {
+         if (!needsRemoteGet(ctx, key, !result.containsKey(key))) continue;
+         if (ctx.isOriginLocal() && !dm.getLocality(key).isLocal() && isNotInL1(key)) {
+            remoteKeys.add(key);
+         } else {
+            Object value = remoteGetAndStoreInL1(ctx, key, isRehashInProgress, false);
+            if (value != null) result.put(key, value);
+         }
+      }
+
+      if (!remoteKeys.isEmpty()) {
+         if (trace) log.trace("Doing a remote get for keys %s", remoteKeys);
+         Map<Object, InternalCacheEntry> entries = dm.retrieveFromRemoteSources(remoteKeys, ctx);
+         for (Map.Entry<Object, InternalCacheEntry> e : entries.entrySet()) {
+            Object value = processRemotelyRetrievedEntry(ctx, e.getKey(), e.getValue(), true, false);
+            if (value != null) result.put(e.getKey(), value);
+         }
+      }
+      return result;
+   }
+
    private boolean needsRemoteGet(InvocationContext ctx, Object key, boolean retvalCheck) {
       CacheEntry entry;
       return retvalCheck && !ctx.hasFlag(Flag.SKIP_REMOTE_LOOKUP) && ((entry = ctx.lookupEntry(key)) == null || entry.isNull() || entry.isLockPlaceholder());
@@ -153,7 +189,10 @@ public class DistributionInterceptor extends BaseRpcInterceptor {
       if (trace) log.trace("Doing a remote get for key %s", key);
       // attempt a remote lookup
       InternalCacheEntry ice = dm.retrieveFromRemoteSource(key, ctx);
+      return processRemotelyRetrievedEntry(ctx, key, ice, storeInL1, isWrite);
+   }
 
+   private Object processRemotelyRetrievedEntry(InvocationContext ctx, Object key, InternalCacheEntry ice, boolean storeInL1, boolean isWrite) throws Throwable {
       if (ice != null) {
          if (storeInL1) {
             if (isL1CacheEnabled) {
@@ -207,11 +246,60 @@ public class DistributionInterceptor extends BaseRpcInterceptor {
 
    @Override
    public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) throws Throwable {
+      if (ctx.isOriginLocal() && !ctx.isInTxScope() && !ctx.isUseFutureReturnType() && !isLocalModeForced(ctx))
+         return handlePutMapPerOwner(ctx, command);
       // don't bother with a remote get for the PutMapCommand!
       return handleWriteCommand(ctx, command,
                                 new MultipleKeysRecipientGenerator(command.getMap().keySet()), true, false);
    }
 
+   /**
+    * Applies a locally originating, non-transactional put map locally and then sends each owner a put map holding
+    * only the entries it owns, with all owners being updated in parallel.
+    */
+   private Object handlePutMapPerOwner(InvocationContext ctx, PutMapCommand command) throws Throwable {
+      Object returnValue = invokeNextInterceptor(ctx, command);
+      if (!command.isSuccessful()) return returnValue;
+
+      Address self = rpcManager.getAddress();
+      Map<Address, Map<Object, Object>> entriesByOwner = new HashMap<Address, Map<Object, Object>>();
+      for (Map.Entry<Object, List<Address>> e : dm.locateAll(command.getMap().keySet()).entrySet()) {
+         for (Address owner : e.getValue()) {
+            if (owner.equals(self)) continue;
+            Map<Object, Object> entries = entriesByOwner.get(owner);
+            if (entries == null) entriesByOwner.put(owner, entries = new HashMap<Object, Object>());
+            entries.put(e.getKey(), command.getMap().get(e.getKey()));
+         }
+      }
+
+      boolean sync = isSynchronous(ctx);
+      NotifyingNotifiableFuture<Object> l1Future = null;
+      if (isL1CacheEnabled && rpcManager.getTransport().getMembers().size() > entriesByOwner.size()) {
+         if (trace) log.trace("Put map occuring on node, requesting L1 cache invalidation for keys %s", command.getAffectedKeys());
+         l1Future = l1Manager.flushCache(command.getAffectedKeys(), returnValue, null);
+      }
+
+      List<Future<Map<Address, Response>>> futures = new LinkedList<Future<Map<Address, Response>>>();
+      for (Map.Entry<Address, Map<Object, Object>> e : entriesByOwner.entrySet()) {
+         PutMapCommand put = cf.buildPutMapCommand(e.getValue(), command.getLifespanMillis(), command.getMaxIdleTimeMillis(), ctx.getFlags());
+         List<Address> recipient = Collections.singletonList(e.getKey());
+         if (trace) log.trace("Invoking command %s on host %s", put, recipient);
+         if (sync)
+            futures.add(rpcManager.invokeRemotelyInFuture(recipient, put, configuration.getSyncReplTimeout()));
+         else
+            rpcManager.invokeRemotely(recipient, put, false);
+      }
+      for (Future<Map<Address, Response>> f : futures) {
+         try {
+            f.get();
+         } catch (ExecutionException ee) {
+            throw ee.getCause();
+         }
+      }
+      if (l1Future != null && sync) l1Future.get();
+      return returnValue;
+   }
+
    @Override
    public Object visitRemoveCommand(InvocationContext ctx, RemoveCommand command) throws Throwable {
 
@@ -235,15 +323,15 @@ public class DistributionInterceptor extends BaseRpcInterceptor {
       if (ctx.isOriginLocal()) {
          if (configuration.isEagerLockSingleNode()) {
             //only main data owner is locked, see: https://jira.jboss.org/browse/ISPN-615
-            Map<Object, List<Address>> toMulticast = dm.locateAll(command.getKeys(), 1);
+            Collection<Object> keys = command.getKeys();
 
             //now compile address reunion
             List<Address> where;
-            if (toMulticast.size() == 1) {//avoid building an extra array, as most often this will be a single key
-               where = toMulticast.values().iterator().next();
+            if (keys.size() == 1) {//avoid building an extra array, as most often this will be a single key
+               where = Collections.singletonList(dm.getPrimaryLocation(keys.iterator().next()));
             } else {
                where = new LinkedList<Address>();
-               for (List<Address> values : toMulticast.values()) where.addAll(values);
+               for (Object key : keys) where.add(dm.getPrimaryLocation(key));
             }
             rpcManager.invokeRemotely(where, command, true, true);
             ((LocalTxInvocationContext) ctx).remoteLocksAcquired(where);
@@ -473,8 +561,7 @@ public class DistributionInterceptor extends BaseRpcInterceptor {
       public List<Address> generateRecipients() {
          if (recipients == null) {
             Set<Address> addresses = new HashSet<Address>();
-            Map<Object, List<Address>> recipientsMap = dm.locateAll(keys);
-            for (List<Address> a : recipientsMap.values()) addresses.addAll(a);
+            for (Object key : keys) addresses.addAll(dm.locate(key));
             recipients = Immutables.immutableListConvert(addresses);
          }
          return recipients;
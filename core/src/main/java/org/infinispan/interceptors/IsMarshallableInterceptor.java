@@ -23,6 +23,7 @@
 package org.infinispan.interceptors;
 
 import org.infinispan.commands.control.LockControlCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
 import org.infinispan.commands.write.PutMapCommand;
@@ -72,6 +73,15 @@ public class IsMarshallableInterceptor extends CommandInterceptor {
       return super.visitGetKeyValueCommand(ctx, command);
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      for (Object key : command.getKeys()) {
+         if (isLazyDeserialization() || getMightGoRemote(ctx, key))
+            checkMarshallable(key);
+      }
+      return super.visitGetAllCommand(ctx, command);
+   }
+
    @Override
    public Object visitLockControlCommand(TxInvocationContext ctx, LockControlCommand command) throws Throwable {
       if (isLazyDeserialization() || isClusterInvocation(ctx))
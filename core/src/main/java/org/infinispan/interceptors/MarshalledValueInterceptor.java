@@ -23,6 +23,7 @@ package org.infinispan.interceptors;
 
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
 import org.infinispan.commands.read.ValuesCommand;
@@ -170,6 +171,32 @@ public class MarshalledValueInterceptor extends CommandInterceptor {
       return processRetVal(retVal, ctx);
    }
 
+   @Override
+   @SuppressWarnings("unchecked")
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      Collection<Object> keys = new ArrayList<Object>(command.getKeys().size());
+      for (Object key : command.getKeys()) {
+         if (!isTypeExcluded(key.getClass())) {
+            MarshalledValue mv = createMarshalledValue(key, ctx);
+            compact(mv);
+            key = mv;
+         }
+         keys.add(key);
+      }
+      command.setKeys(keys);
+      Map<Object, Object> retVal = (Map<Object, Object>) invokeNextInterceptor(ctx, command);
+      Map<Object, Object> copy = new HashMap<Object, Object>(retVal.size());
+      for (Map.Entry<Object, Object> e : retVal.entrySet()) {
+         Object key = e.getKey();
+         if (key instanceof MarshalledValue) {
+            compact((MarshalledValue) key);
+            key = ((MarshalledValue) key).get();
+         }
+         copy.put(key, processRetVal(e.getValue(), ctx));
+      }
+      return copy;
+   }
+
    @Override
    public Object visitKeySetCommand(InvocationContext ctx, KeySetCommand command) throws Throwable {
       Set keys = (Set) invokeNextInterceptor(ctx, command);
@@ -17,6 +17,9 @@ public class GridFilesystem {
    protected final Cache<String, byte[]> data;
    protected final Cache<String, GridFile.Metadata> metadata;
    protected final int default_chunk_size;
+   protected final int max_chunks_in_flight;
+
+   public static final int DEFAULT_MAX_CHUNKS_IN_FLIGHT = 4;
 
    /**
     * Creates an instance. The data and metadata caches should already have been setup and started
@@ -24,12 +27,29 @@ public class GridFilesystem {
     * @param data
     * @param metadata
     * @param default_chunk_size
+    * @param max_chunks_in_flight the maximum number of chunks each stream reads ahead or writes behind; 1 transfers
+    *                             one chunk at a time
     */
    public GridFilesystem(Cache<String, byte[]> data, Cache<String, GridFile.Metadata> metadata,
-                         int default_chunk_size) {
+                         int default_chunk_size, int max_chunks_in_flight) {
+      if (max_chunks_in_flight < 1)
+         throw new IllegalArgumentException("max_chunks_in_flight must be at least 1");
       this.data = data;
       this.metadata = metadata;
       this.default_chunk_size = default_chunk_size;
+      this.max_chunks_in_flight = max_chunks_in_flight;
+   }
+
+   /**
+    * Creates an instance. The data and metadata caches should already have been setup and started
+    *
+    * @param data
+    * @param metadata
+    * @param default_chunk_size
+    */
+   public GridFilesystem(Cache<String, byte[]> data, Cache<String, GridFile.Metadata> metadata,
+                         int default_chunk_size) {
+      this(data, metadata, default_chunk_size, DEFAULT_MAX_CHUNKS_IN_FLIGHT);
    }
 
    public GridFilesystem(Cache<String, byte[]> data, Cache<String, GridFile.Metadata> metadata) {
@@ -73,24 +93,28 @@ public class GridFilesystem {
       if (!file.createNewFile())
          throw new IOException("creation of " + pathname + " failed");
 
-      return new GridOutputStream(file, append, data, chunk_size);
+      return new GridOutputStream(file, append, data, chunk_size, max_chunks_in_flight);
    }
 
    public OutputStream getOutput(GridFile file) throws IOException {
       if (!file.createNewFile())
          throw new IOException("creation of " + file + " failed");
-      return new GridOutputStream(file, false, data, default_chunk_size);
+      return new GridOutputStream(file, false, data, default_chunk_size, max_chunks_in_flight);
    }
 
 
-   public InputStream getInput(String pathname) throws FileNotFoundException {
+   /**
+    * @return a stream reading the given file; see {@link GridInputStream#read(long, byte[], int, int)} for positional
+    *         reads
+    */
+   public GridInputStream getInput(String pathname) throws FileNotFoundException {
       GridFile file = (GridFile) getFile(pathname);
       if (!file.exists())
          throw new FileNotFoundException(pathname);
-      return new GridInputStream(file, data, default_chunk_size);
+      return new GridInputStream(file, data, default_chunk_size, max_chunks_in_flight);
    }
 
-   public InputStream getInput(File pathname) throws FileNotFoundException {
+   public GridInputStream getInput(File pathname) throws FileNotFoundException {
       return pathname != null ? getInput(pathname.getPath()) : null;
    }
 
@@ -7,8 +7,17 @@ import org.jgroups.logging.LogFactory;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
+ * Reads a file of the grid filesystem.  While the file is read sequentially, up to <code>max_chunks_in_flight</code>
+ * chunks are requested ahead of the reads and consumed in order, so the throughput is not bound by one round trip per
+ * chunk.  {@link #read(long, byte[], int, int)} reads at a given position, fetching all the chunks involved in
+ * parallel.
+ *
  * @author Bela Ban
  */
 public class GridInputStream extends InputStream {
@@ -20,13 +29,24 @@ public class GridInputStream extends InputStream {
    int local_index = 0;
    byte[] current_buffer = null;
    boolean end_reached = false;
+   final int max_chunks_in_flight;
+   final int num_chunks;         // number of chunks when the stream was opened, read-ahead does not go beyond
+   final LinkedList<Future<byte[]>> chunks_in_flight = new LinkedList<Future<byte[]>>();
+   int next_chunk_to_request = 0;
    final static Log log = LogFactory.getLog(GridInputStream.class);
 
    GridInputStream(GridFile file, Cache<String, byte[]> cache, int chunk_size) throws FileNotFoundException {
+      this(file, cache, chunk_size, 1);
+   }
+
+   GridInputStream(GridFile file, Cache<String, byte[]> cache, int chunk_size, int max_chunks_in_flight) throws FileNotFoundException {
       this.file = file;
       this.name = file.getPath();
       this.cache = cache;
       this.chunk_size = chunk_size;
+      this.max_chunks_in_flight = Math.max(1, max_chunks_in_flight);
+      long length = file.length();
+      this.num_chunks = (int) ((length + chunk_size - 1) / chunk_size);
    }
 
    public int read() throws IOException {
@@ -81,9 +101,92 @@ public class GridInputStream extends InputStream {
       return bytes_read;
    }
 
+   /**
+    * Reads up to <code>len</code> bytes starting at the given position of the file, without changing the position of
+    * the stream.  All the chunks covering the range are requested at once.
+    *
+    * @return the number of bytes read, or -1 if <code>position</code> is beyond the end of the file
+    */
+   public int read(long position, byte[] b, int off, int len) throws IOException {
+      if (position < 0)
+         throw new IllegalArgumentException("position must not be negative: " + position);
+      if (len == 0)
+         return 0;
+      int first_chunk = (int) (position / chunk_size);
+      int last_chunk = (int) ((position + len - 1) / chunk_size);
+      Future<byte[]>[] futures = new Future[last_chunk - first_chunk + 1];
+      for (int i = 0; i < futures.length; i++)
+         futures[i] = cache.getAsync(getChunkKey(first_chunk + i));
+
+      int bytes_read = 0;
+      int offset_in_chunk = (int) (position % chunk_size);
+      for (int i = 0; i < futures.length && len > 0; i++) {
+         byte[] chunk = waitFor(futures[i]);
+         if (chunk == null || chunk.length <= offset_in_chunk)
+            break;
+         int bytes_to_read = Math.min(len, chunk.length - offset_in_chunk);
+         System.arraycopy(chunk, offset_in_chunk, b, off, bytes_to_read);
+         off += bytes_to_read;
+         len -= bytes_to_read;
+         bytes_read += bytes_to_read;
+         if (chunk.length < chunk_size)
+            break;
+         offset_in_chunk = 0;
+      }
+      return bytes_read > 0 ? bytes_read : -1;
+   }
+
+   /**
+    * @return the current position of the stream in the file
+    */
+   public long position() {
+      return index;
+   }
+
+   /**
+    * Moves the stream to the given position of the file; chunks read ahead for the old position are discarded.
+    */
+   public void position(long new_position) throws IOException {
+      if (new_position < 0)
+         throw new IllegalArgumentException("position must not be negative: " + new_position);
+      if (new_position == index)
+         return;
+      int new_chunk = (int) (new_position / chunk_size);
+      if (current_buffer != null && new_chunk == (index - local_index) / chunk_size
+            && new_position - (index - local_index) <= current_buffer.length) {
+         // still in the current chunk
+         local_index = (int) (new_position - (index - local_index));
+      } else {
+         current_buffer = null;
+         local_index = 0;
+         end_reached = false;
+         chunks_in_flight.clear();
+         next_chunk_to_request = new_chunk;
+         if (new_position % chunk_size != 0) {
+            // load the chunk and position the stream inside it
+            index = new_chunk * chunk_size;
+            current_buffer = fetchNextChunk();
+            if (current_buffer == null) {
+               end_reached = true;
+               return;
+            }
+            if (current_buffer.length < chunk_size)
+               end_reached = true;
+            local_index = (int) Math.min(new_position % chunk_size, current_buffer.length);
+            index += local_index;
+            return;
+         }
+      }
+      index = (int) new_position;
+   }
+
    @Override
    public long skip(long n) throws IOException {
-      throw new UnsupportedOperationException();
+      if (n <= 0)
+         return 0;
+      long old_position = index;
+      position(index + n);
+      return index - old_position;
    }
 
    @Override
@@ -95,6 +198,8 @@ public class GridInputStream extends InputStream {
    public void close() throws IOException {
       local_index = index = 0;
       end_reached = false;
+      chunks_in_flight.clear();
+      next_chunk_to_request = 0;
    }
 
    private int getBytesRemainingInChunk() {
@@ -102,15 +207,43 @@ public class GridInputStream extends InputStream {
       return current_buffer == null ? 0 : current_buffer.length - local_index;
    }
 
-   private byte[] fetchNextChunk() {
+   private byte[] fetchNextChunk() throws IOException {
       int chunk_number = getChunkNumber();
-      String key = name + ".#" + chunk_number;
-      byte[] val = cache.get(key);
+      String key = getChunkKey(chunk_number);
+      byte[] val;
+      if (chunks_in_flight.isEmpty() || next_chunk_to_request - chunks_in_flight.size() != chunk_number) {
+         // not read ahead (past the known end of the file, or the stream moved)
+         chunks_in_flight.clear();
+         val = cache.get(key);
+         next_chunk_to_request = chunk_number + 1;
+      } else {
+         val = waitFor(chunks_in_flight.removeFirst());
+      }
+      // keep the pipeline full, chunks beyond the length of the file when it was opened are fetched on demand
+      while (chunks_in_flight.size() < max_chunks_in_flight - 1 && next_chunk_to_request < num_chunks)
+         chunks_in_flight.add(cache.getAsync(getChunkKey(next_chunk_to_request++)));
       if (log.isTraceEnabled())
          log.trace("fetching index=" + index + ", key=" + key + ": " + (val != null ? val.length + " bytes" : "null"));
       return val;
    }
 
+   private String getChunkKey(int chunk_number) {
+      return name + ".#" + chunk_number;
+   }
+
+   private static byte[] waitFor(Future<byte[]> future) throws IOException {
+      try {
+         return future.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException();
+      } catch (ExecutionException e) {
+         IOException ioe = new IOException("Failed reading chunk");
+         ioe.initCause(e.getCause());
+         throw ioe;
+      }
+   }
+
    private int getChunkNumber() {
       return index / chunk_size;
    }
@@ -1,14 +1,23 @@
 package org.infinispan.io;
 
 import org.infinispan.Cache;
+import org.infinispan.context.Flag;
 import org.jgroups.logging.Log;
 import org.jgroups.logging.LogFactory;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
+ * Writes a file of the grid filesystem.  Full chunks are stored asynchronously while the next one is filled, with at
+ * most <code>max_chunks_in_flight</code> chunk writes outstanding; {@link #flush()} and {@link #close()} wait for them
+ * before storing the last, partially filled chunk and updating the length of the file.
+ *
  * @author Bela Ban
  */
 public class GridOutputStream extends OutputStream {
@@ -20,21 +29,28 @@ public class GridOutputStream extends OutputStream {
    int index = 0;                // index into the file for writing
    int local_index = 0;
    final byte[] current_buffer;
+   final int max_chunks_in_flight;
+   final LinkedList<Future<byte[]>> chunks_in_flight = new LinkedList<Future<byte[]>>();
    static final Log log = LogFactory.getLog(GridOutputStream.class);
 
 
    GridOutputStream(GridFile file, boolean append, Cache<String, byte[]> cache, int chunk_size) throws FileNotFoundException {
+      this(file, append, cache, chunk_size, 1);
+   }
+
+   GridOutputStream(GridFile file, boolean append, Cache<String, byte[]> cache, int chunk_size, int max_chunks_in_flight) throws FileNotFoundException {
       this.file = file;
       this.name = file.getPath();
       this.cache = cache;
       this.chunk_size = chunk_size;
+      this.max_chunks_in_flight = Math.max(1, max_chunks_in_flight);
       current_buffer = new byte[chunk_size];
    }
 
    public void write(int b) throws IOException {
       int remaining = getBytesRemainingInChunk();
       if (remaining == 0) {
-         flush();
+         writeFullChunk();
          local_index = 0;
          remaining = chunk_size;
       }
@@ -54,7 +70,7 @@ public class GridOutputStream extends OutputStream {
       while (len > 0) {
          int remaining = getBytesRemainingInChunk();
          if (remaining == 0) {
-            flush();
+            writeFullChunk();
             local_index = 0;
             remaining = chunk_size;
          }
@@ -75,16 +91,52 @@ public class GridOutputStream extends OutputStream {
 
    @Override
    public void flush() throws IOException {
+      waitForChunksInFlight(0);
       int chunk_number = getChunkNumber();
       String key = name + ".#" + chunk_number;
       byte[] val = new byte[local_index];
       System.arraycopy(current_buffer, 0, val, 0, local_index);
-      cache.put(key, val);
+      chunkCache().put(key, val);
       if (log.isTraceEnabled())
          log.trace("put(): index=" + index + ", key=" + key + ": " + val.length + " bytes");
       file.setLength(index);
    }
 
+   /**
+    * Stores the current buffer, which is full, without waiting for the write to complete.  Blocks while
+    * <code>max_chunks_in_flight</code> writes are outstanding.
+    */
+   private void writeFullChunk() throws IOException {
+      waitForChunksInFlight(max_chunks_in_flight - 1);
+      String key = name + ".#" + getChunkNumber();
+      byte[] val = new byte[local_index];
+      System.arraycopy(current_buffer, 0, val, 0, local_index);
+      chunks_in_flight.add(chunkCache().putAsync(key, val));
+      if (log.isTraceEnabled())
+         log.trace("putAsync(): index=" + index + ", key=" + key + ": " + val.length + " bytes");
+   }
+
+   private void waitForChunksInFlight(int max_remaining) throws IOException {
+      while (chunks_in_flight.size() > max_remaining) {
+         try {
+            chunks_in_flight.removeFirst().get();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+         } catch (ExecutionException e) {
+            chunks_in_flight.clear();
+            IOException ioe = new IOException("Failed writing chunk of " + name);
+            ioe.initCause(e.getCause());
+            throw ioe;
+         }
+      }
+   }
+
+   private Cache<String, byte[]> chunkCache() {
+      // the previous values are not needed
+      return cache.getAdvancedCache().withFlags(Flag.SKIP_REMOTE_LOOKUP, Flag.SKIP_CACHE_LOAD);
+   }
+
    private int getBytesRemainingInChunk() {
       return chunk_size - local_index;
    }
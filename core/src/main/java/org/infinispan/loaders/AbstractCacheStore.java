@@ -1,6 +1,7 @@
 package org.infinispan.loaders;
 
 import org.infinispan.Cache;
+import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.loaders.modifications.Modification;
 import org.infinispan.loaders.modifications.Remove;
 import org.infinispan.loaders.modifications.Store;
@@ -12,6 +13,10 @@ import org.infinispan.util.logging.LogFactory;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -36,6 +41,10 @@ public abstract class AbstractCacheStore extends AbstractCacheLoader implements
    private AbstractCacheStoreConfig config;
    protected ExecutorService purgerService;
    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger(0);
+   /**
+    * Number of values loaded at a time by the default {@link #openCursor()}.
+    */
+   private static final int CURSOR_PAGE_SIZE = 100;
    protected boolean multiThreadedPurge = false;
 
    public void init(CacheLoaderConfig config, Cache<?, ?> cache, StreamingMarshaller m) throws CacheLoaderException{
@@ -132,6 +141,45 @@ public abstract class AbstractCacheStore extends AbstractCacheLoader implements
       if (list != null && !list.isEmpty()) applyModifications(list);
    }
 
+   public void storeAll(Collection<InternalCacheEntry> entries) throws CacheLoaderException {
+      if (entries != null && !entries.isEmpty()) {
+         for (InternalCacheEntry entry : entries) store(entry);
+      }
+   }
+
+   /**
+    * Returns a cursor which reads the keys returned by {@link #loadAllKeys(java.util.Set)} up front, and then loads
+    * their values through {@link #load(Object)} a page at a time, so that only the keys need to be held in memory.
+    * Stores able to read their contents a page at a time should override this, e.g. with a {@link
+    * PagedCacheStoreCursor}.
+    */
+   public CacheStoreCursor openCursor() throws CacheLoaderException {
+      return new PagedCacheStoreCursor() {
+         private Iterator<Object> keys;
+
+         @Override
+         protected Collection<InternalCacheEntry> nextPage() throws CacheLoaderException {
+            if (keys == null) keys = loadAllKeys(null).iterator();
+            if (!keys.hasNext()) return null;
+            List<InternalCacheEntry> page = new ArrayList<InternalCacheEntry>(CURSOR_PAGE_SIZE);
+            for (int i = 0; i < CURSOR_PAGE_SIZE && keys.hasNext(); i++) {
+               // keys removed since they were listed are skipped
+               InternalCacheEntry entry = load(keys.next());
+               if (entry != null) page.add(entry);
+            }
+            return page;
+         }
+      };
+   }
+
+   /**
+    * Returns a single cursor, as returned by {@link #openCursor()}.  Stores able to read partitions of their contents
+    * independently should override this.
+    */
+   public List<CacheStoreCursor> openCursors(int maxCursors) throws CacheLoaderException {
+      return Collections.singletonList(openCursor());
+   }
+
    public void removeAll(Set<Object> keys) throws CacheLoaderException {
       if (keys != null && !keys.isEmpty()) {
          for (Object key : keys) remove(key);
@@ -53,6 +53,9 @@ public class AbstractCacheStoreConfig extends AbstractCacheLoaderConfig implemen
    @ConfigurationDocRef(bean=AbstractCacheStoreConfig.class,targetElement="setPurgerThreads")
    protected Integer purgerThreads = 1;
 
+   @ConfigurationDocRef(bean=AbstractCacheStoreConfig.class,targetElement="setBloomFilterExpectedKeys")
+   protected Integer bloomFilterExpectedKeys = 0;
+
    protected SingletonStoreConfig singletonStore = new SingletonStoreConfig();
 
    protected AsyncStoreConfig async = new AsyncStoreConfig();
@@ -130,6 +133,31 @@ public class AbstractCacheStoreConfig extends AbstractCacheLoaderConfig implemen
       return this;
    }
 
+   @XmlAttribute
+   public Integer getBloomFilterExpectedKeys() {
+      return bloomFilterExpectedKeys;
+   }
+
+   /**
+    * If greater than 0, a Bloom filter sized for this number of keys is kept in memory for this cache store, so that
+    * lookups of keys which are not in the store do not reach it.  Ignored for shared and singleton stores, which may
+    * be written to by other nodes.
+    *
+    * @param bloomFilterExpectedKeys
+    * @deprecated use {@link #bloomFilterExpectedKeys(Integer)} instead
+    */
+   @Deprecated
+   public void setBloomFilterExpectedKeys(Integer bloomFilterExpectedKeys) {
+      testImmutability("bloomFilterExpectedKeys");
+      this.bloomFilterExpectedKeys = bloomFilterExpectedKeys;
+   }
+
+   @Override
+   public CacheStoreConfig bloomFilterExpectedKeys(Integer bloomFilterExpectedKeys) {
+      setBloomFilterExpectedKeys(bloomFilterExpectedKeys);
+      return this;
+   }
+
    @XmlAttribute
    public Boolean isFetchPersistentState() {
       return fetchPersistentState;
@@ -273,7 +301,8 @@ public class AbstractCacheStoreConfig extends AbstractCacheLoaderConfig implemen
             && Util.safeEquals(this.singletonStore, other.singletonStore)
             && Util.safeEquals(this.async, other.async)
             && Util.safeEquals(this.purgeSynchronously, other.purgeSynchronously)
-            && Util.safeEquals(this.purgerThreads, other.purgerThreads);
+            && Util.safeEquals(this.purgerThreads, other.purgerThreads)
+            && Util.safeEquals(this.bloomFilterExpectedKeys, other.bloomFilterExpectedKeys);
    }
 
    @Override
@@ -290,6 +319,7 @@ public class AbstractCacheStoreConfig extends AbstractCacheLoaderConfig implemen
       result = 31 * result + (async == null ? 0 : async.hashCode());
       result = 31 * result + (purgeOnStartup ? 0 : 1);
       result = 31 * result + (purgerThreads);
+      result = 31 * result + (bloomFilterExpectedKeys == null ? 0 : bloomFilterExpectedKeys);
       return result;
    }
 
@@ -304,6 +334,7 @@ public class AbstractCacheStoreConfig extends AbstractCacheLoaderConfig implemen
             .append(", async{").append(async).append('}')
             .append(", purgeSynchronously{").append(purgeSynchronously).append('}')
             .append(", purgerThreads{").append(purgerThreads).append('}')
+            .append(", bloomFilterExpectedKeys{").append(bloomFilterExpectedKeys).append('}')
             .toString();
    }
 
@@ -5,6 +5,7 @@ import org.infinispan.CacheException;
 import org.infinispan.config.CacheLoaderManagerConfig;
 import org.infinispan.config.Configuration;
 import org.infinispan.config.ConfigurationException;
+import org.infinispan.container.DataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 
 import static org.infinispan.context.Flag.*;
@@ -14,22 +15,41 @@ import org.infinispan.context.InvocationContextContainer;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.factories.annotations.Stop;
+import org.infinispan.jmx.annotations.MBean;
+import org.infinispan.jmx.annotations.ManagedAttribute;
 import org.infinispan.loaders.decorators.AsyncStore;
+import org.infinispan.loaders.decorators.BloomFilterStore;
 import org.infinispan.loaders.decorators.ChainingCacheStore;
 import org.infinispan.loaders.decorators.ReadOnlyStore;
 import org.infinispan.loaders.decorators.SingletonStore;
 import org.infinispan.loaders.decorators.SingletonStoreConfig;
 import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.notifications.cachelistener.CacheNotifier;
 import org.infinispan.util.ReflectionUtil;
 import org.infinispan.util.Util;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
+import org.rhq.helpers.pluginAnnotations.agent.DataType;
+import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
+import org.rhq.helpers.pluginAnnotations.agent.Metric;
+import org.rhq.helpers.pluginAnnotations.agent.Units;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.infinispan.context.Flag.SKIP_REMOTE_LOOKUP;
 
+@MBean(objectName = "CacheLoaderManager", description = "Component that manages the cache loaders, including preloading the cache from them on startup.")
 public class CacheLoaderManagerImpl implements CacheLoaderManager {
 
    Configuration configuration;
@@ -38,14 +58,25 @@ public class CacheLoaderManagerImpl implements CacheLoaderManager {
    StreamingMarshaller m;
    CacheLoader loader;
    InvocationContextContainer icc;
+   DataContainer dataContainer;
+   CacheNotifier notifier;
    private static final Log log = LogFactory.getLog(CacheLoaderManagerImpl.class);
 
+   private final AtomicLong preloadedEntries = new AtomicLong(0);
+   private final AtomicInteger preloadedPartitions = new AtomicInteger(0);
+   private volatile int preloadPartitions;
+   private volatile long preloadStart = -1;
+   private volatile long preloadStop = -1;
+
    @Inject
-   public void inject(Cache cache, StreamingMarshaller marshaller, Configuration configuration, InvocationContextContainer icc) {
+   public void inject(Cache cache, StreamingMarshaller marshaller, Configuration configuration, InvocationContextContainer icc,
+                      DataContainer dataContainer, CacheNotifier notifier) {
       this.cache = cache;
       this.m = marshaller;
       this.configuration = configuration;
       this.icc = icc;
+      this.dataContainer = dataContainer;
+      this.notifier = notifier;
    }
 
    public CacheLoader getCacheLoader() {
@@ -120,55 +151,181 @@ public class CacheLoaderManagerImpl implements CacheLoaderManager {
    public void preload() {
       if (loader != null) {
          if (clmConfig.isPreload()) {
-            long start = 0;
-            boolean debugTiming = log.isDebugEnabled();
-            if (debugTiming) {
-               start = System.currentTimeMillis();
-               log.debug("Preloading transient state from cache loader %s", loader);
-            }
-            Set<InternalCacheEntry> state;
+            if (log.isDebugEnabled()) log.debug("Preloading transient state from cache loader %s", loader);
+            // this component is reused when the cache is restarted
+            preloadedEntries.set(0);
+            preloadedPartitions.set(0);
+            preloadPartitions = 0;
+            preloadStop = -1;
+            preloadStart = System.currentTimeMillis();
+            int count;
             try {
-               state = loadState();
+               count = preloadState();
             } catch (CacheLoaderException e) {
                throw new CacheException("Unable to preload!", e);
+            } finally {
+               preloadStop = System.currentTimeMillis();
             }
 
-            for (InternalCacheEntry e : state) {
-               if (clmConfig.isShared() || !(loader instanceof ChainingCacheStore)) {
-                  cache.getAdvancedCache()
-                       .withFlags(SKIP_CACHE_STATUS_CHECK, CACHE_MODE_LOCAL, SKIP_CACHE_STORE, SKIP_REMOTE_LOOKUP)
-                       .put(e.getKey(), e.getValue(), e.getLifespan(), MILLISECONDS, e.getMaxIdle(), MILLISECONDS);
-               } else {
-                  cache.getAdvancedCache()
-                       .withFlags(SKIP_CACHE_STATUS_CHECK, CACHE_MODE_LOCAL, SKIP_REMOTE_LOOKUP)
-                       .put(e.getKey(), e.getValue(), e.getLifespan(), MILLISECONDS, e.getMaxIdle(), MILLISECONDS);
-               }
-            }
-
-            if (debugTiming) {
-               long stop = System.currentTimeMillis();
-               log.debug("Preloaded %s keys in %s milliseconds", state.size(), stop - start);
+            if (log.isDebugEnabled()) {
+               log.debug("Preloaded %s keys in %s milliseconds", count, preloadStop - preloadStart);
             }
          }
       }
    }
 
-   private Set<InternalCacheEntry> loadState() throws CacheLoaderException {
+   /**
+    * Preloads the cache, walking through cache stores with cursors so that the state is never held in memory all at
+    * once.  Stores able to split their contents are read by up to {@link CacheLoaderManagerConfig#getPreloadThreads()}
+    * threads, each walking through a partition of its own.
+    *
+    * @return number of entries preloaded
+    */
+   private int preloadState() throws CacheLoaderException {
       int ne = -1;
       if (configuration.getEvictionStrategy().isEnabled()) ne = configuration.getEvictionMaxEntries();
-      Set<InternalCacheEntry> state;
-      switch (ne) {
-         case -1:
-            state = loader.loadAll();
-            break;
-         case 0:
-            state = Collections.emptySet();
-            break;
-         default:
-            state = loader.load(ne);
-            break;
+      if (ne == 0) return 0;
+
+      if (!(loader instanceof CacheStore)) {
+         Set<InternalCacheEntry> state = ne < 0 ? loader.loadAll() : loader.load(ne);
+         preloadPartitions = 1;
+         for (InternalCacheEntry e : state) {
+            preloadEntry(e, false);
+            preloadedEntries.incrementAndGet();
+         }
+         preloadedPartitions.incrementAndGet();
+         return state.size();
+      }
+
+      Integer threads = clmConfig.getPreloadThreads();
+      List<CacheStoreCursor> cursors = ((CacheStore) loader).openCursors(threads == null ? 1 : Math.max(1, threads));
+      preloadPartitions = cursors.size();
+      boolean intoDataContainer = canPreloadIntoDataContainer();
+      if (log.isDebugEnabled())
+         log.debug("Preloading %s partitions %s", cursors.size(), intoDataContainer ? "straight into the data container" : "through the interceptor chain");
+
+      if (cursors.size() == 1) {
+         preloadPartition(cursors.get(0), ne, intoDataContainer);
+      } else {
+         preloadPartitions(cursors, ne, intoDataContainer);
+      }
+      return (int) preloadedEntries.get();
+   }
+
+   private void preloadPartitions(List<CacheStoreCursor> cursors, final int maxEntries, final boolean intoDataContainer) throws CacheLoaderException {
+      final String threadNamePrefix = cache.getName() + "-Preloader-";
+      ExecutorService executor = Executors.newFixedThreadPool(cursors.size(), new ThreadFactory() {
+         private final AtomicInteger threadCounter = new AtomicInteger(0);
+
+         public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, threadNamePrefix + threadCounter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+         }
+      });
+      try {
+         List<Future<Void>> futures = new ArrayList<Future<Void>>(cursors.size());
+         for (final CacheStoreCursor cursor : cursors) {
+            futures.add(executor.submit(new Callable<Void>() {
+               public Void call() throws Exception {
+                  preloadPartition(cursor, maxEntries, intoDataContainer);
+                  return null;
+               }
+            }));
+         }
+         for (Future<Void> future : futures) future.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheLoaderException("Interrupted while preloading", e);
+      } catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+         if (cause instanceof CacheLoaderException) throw (CacheLoaderException) cause;
+         if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+         throw new CacheLoaderException("Unable to preload a partition of the cache store", cause);
+      } finally {
+         // stops the other partitions if one failed
+         executor.shutdownNow();
+         for (CacheStoreCursor cursor : cursors) cursor.close();
+      }
+   }
+
+   private void preloadPartition(CacheStoreCursor cursor, int maxEntries, boolean intoDataContainer) throws CacheLoaderException {
+      try {
+         while (cursor.hasNext() && !Thread.currentThread().isInterrupted()) {
+            // the partitions share the eviction limit
+            if (!countPreloadedEntry(maxEntries)) break;
+            preloadEntry(cursor.next(), intoDataContainer);
+         }
+      } finally {
+         cursor.close();
+         preloadedPartitions.incrementAndGet();
+      }
+   }
+
+   private boolean countPreloadedEntry(int maxEntries) {
+      while (true) {
+         long count = preloadedEntries.get();
+         if (maxEntries >= 0 && count >= maxEntries) return false;
+         if (preloadedEntries.compareAndSet(count, count + 1)) return true;
       }
-      return state;
+   }
+
+   /**
+    * Entries may be put straight into the data container, skipping the interceptor chain, unless the chain does more
+    * with them than keeping them in memory: indexing them, wrapping them for lazy deserialization, notifying listeners,
+    * removing them from the store when passivating, or writing them to the other stores of a chain.  Neither can they
+    * with eviction enabled, as a bounded data container may evict entries, which needs an invocation context.
+    */
+   private boolean canPreloadIntoDataContainer() {
+      return !configuration.isIndexingEnabled() && !configuration.isUseLazyDeserialization()
+            && !configuration.getEvictionStrategy().isEnabled()
+            && !clmConfig.isPassivation() && notifier.getListeners().isEmpty()
+            && (clmConfig.isShared() || !(loader instanceof ChainingCacheStore));
+   }
+
+   private void preloadEntry(InternalCacheEntry e, boolean intoDataContainer) {
+      if (intoDataContainer) {
+         dataContainer.put(e.getKey(), e.getValue(), e.getLifespan(), e.getMaxIdle());
+      } else if (clmConfig.isShared() || !(loader instanceof ChainingCacheStore)) {
+         cache.getAdvancedCache()
+              .withFlags(SKIP_CACHE_STATUS_CHECK, CACHE_MODE_LOCAL, SKIP_CACHE_STORE, SKIP_REMOTE_LOOKUP)
+              .put(e.getKey(), e.getValue(), e.getLifespan(), MILLISECONDS, e.getMaxIdle(), MILLISECONDS);
+      } else {
+         cache.getAdvancedCache()
+              .withFlags(SKIP_CACHE_STATUS_CHECK, CACHE_MODE_LOCAL, SKIP_REMOTE_LOOKUP)
+              .put(e.getKey(), e.getValue(), e.getLifespan(), MILLISECONDS, e.getMaxIdle(), MILLISECONDS);
+      }
+   }
+
+   @ManagedAttribute(description = "If true, the cache is being preloaded from the cache loaders")
+   @Metric(displayName = "Is preload in progress?", dataType = DataType.TRAIT)
+   public boolean isPreloadInProgress() {
+      return preloadStart >= 0 && preloadStop < 0;
+   }
+
+   @ManagedAttribute(description = "Number of entries preloaded from the cache loaders so far")
+   @Metric(displayName = "Preloaded entries", measurementType = MeasurementType.TRENDSUP)
+   public long getPreloadedEntries() {
+      return preloadedEntries.get();
+   }
+
+   @ManagedAttribute(description = "Number of partitions of the cache store being preloaded, e.g. shares of the buckets or ranges of ids")
+   @Metric(displayName = "Preload partitions", dataType = DataType.TRAIT)
+   public int getPreloadPartitions() {
+      return preloadPartitions;
+   }
+
+   @ManagedAttribute(description = "Number of partitions of the cache store preloaded so far")
+   @Metric(displayName = "Preloaded partitions", measurementType = MeasurementType.TRENDSUP)
+   public int getPreloadedPartitions() {
+      return preloadedPartitions.get();
+   }
+
+   @ManagedAttribute(description = "Number of milliseconds spent preloading, so far if the preload is still in progress")
+   @Metric(displayName = "Preload time", units = Units.MILLISECONDS)
+   public long getPreloadTime() {
+      if (preloadStart < 0) return 0;
+      return (preloadStop < 0 ? System.currentTimeMillis() : preloadStop) - preloadStart;
    }
 
    @Stop
@@ -251,8 +408,19 @@ public class CacheLoaderManagerImpl implements CacheLoaderManager {
                tmpLoader = tmpStore;
             }
 
-            // singleton?
+            // Bloom filter?  Only safe if no other node writes to the store.
             SingletonStoreConfig ssc = cfg2.getSingletonStoreConfig();
+            Integer bloomFilterExpectedKeys = cfg2.getBloomFilterExpectedKeys();
+            if (bloomFilterExpectedKeys != null && bloomFilterExpectedKeys > 0) {
+               if (clmConfig.isShared() || (ssc != null && ssc.isSingletonStoreEnabled())) {
+                  log.warn("Not using a Bloom filter for cache store %s since it may be written to by other nodes", cfg.getCacheLoaderClassName());
+               } else {
+                  tmpStore = new BloomFilterStore(tmpStore, bloomFilterExpectedKeys);
+                  tmpLoader = tmpStore;
+               }
+            }
+
+            // singleton?
             if (ssc != null && ssc.isSingletonStoreEnabled()) {
                tmpStore = new SingletonStore(tmpStore, cache, ssc);
                tmpLoader = tmpStore;
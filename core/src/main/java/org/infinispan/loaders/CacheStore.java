@@ -6,6 +6,7 @@ import org.infinispan.transaction.xa.GlobalTransaction;
 
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -25,6 +26,14 @@ public interface CacheStore extends CacheLoader {
     */
    void store(InternalCacheEntry entry) throws CacheLoaderException;
 
+   /**
+    * Bulk store operation.  Stores able to write several entries in a single batch or transaction should do so.
+    *
+    * @param entries entries to store
+    * @throws CacheLoaderException in the event of problems writing to the store
+    */
+   void storeAll(Collection<InternalCacheEntry> entries) throws CacheLoaderException;
+
    /**
     * Writes contents of the stream to the store.  Implementations should expect that the stream contains data in an
     * implementation-specific format, typically generated using {@link #toStream(java.io.ObjectOutput)}.  While not a
@@ -87,6 +96,26 @@ public interface CacheStore extends CacheLoader {
     */
    boolean remove(Object key) throws CacheLoaderException;
 
+   /**
+    * Opens a cursor over the entries in the store.  Unlike {@link #loadAll()}, stores able to read their contents a
+    * page at a time should do so, so that walking through a large store only holds a page of entries in memory.
+    *
+    * @return a cursor, which the caller needs to close
+    * @throws CacheLoaderException in the event of problems reading from the store
+    */
+   CacheStoreCursor openCursor() throws CacheLoaderException;
+
+   /**
+    * Opens cursors over disjoint partitions of the entries in the store, e.g. by bucket or by key range, which together
+    * walk through all of them.  This allows a large store to be read from several threads at once, each thread using a
+    * cursor of its own.  Stores unable to partition their contents return a single cursor.
+    *
+    * @param maxCursors maximum number of cursors to open, at least 1
+    * @return between 1 and maxCursors cursors, which the caller needs to close
+    * @throws CacheLoaderException in the event of problems reading from the store
+    */
+   List<CacheStoreCursor> openCursors(int maxCursors) throws CacheLoaderException;
+
    /**
     * Bulk remove operation
     *
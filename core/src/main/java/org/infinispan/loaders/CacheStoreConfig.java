@@ -71,6 +71,14 @@ public interface CacheStoreConfig extends CacheLoaderConfig, Cloneable {
 
    CacheStoreConfig purgerThreads(Integer purgerThreads);
 
+   Integer getBloomFilterExpectedKeys();
+
+   /**
+    * If greater than 0, a Bloom filter sized for this number of keys is kept in memory for this cache store, so that
+    * lookups of keys which are not in the store do not reach it.
+    */
+   CacheStoreConfig bloomFilterExpectedKeys(Integer bloomFilterExpectedKeys);
+
    AsyncStoreConfig asyncStore();
 
    SingletonStoreConfig singletonStore();
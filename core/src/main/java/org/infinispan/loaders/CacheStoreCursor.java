@@ -0,0 +1,33 @@
+package org.infinispan.loaders;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+
+/**
+ * Walks through the entries in a {@link CacheStore} without holding all of them in memory at once, e.g. to preload a
+ * cache or to push state to other nodes from a store too large for {@link CacheStore#loadAll()}.
+ * <p />
+ * Expired entries are skipped.  Entries written to the store while walking through it may or may not be returned.
+ * Cursors are not thread safe, and need closing once done with.
+ *
+ * @since 5.0
+ */
+public interface CacheStoreCursor {
+
+   /**
+    * @return true if there are more entries
+    * @throws CacheLoaderException in the event of problems reading from the store
+    */
+   boolean hasNext() throws CacheLoaderException;
+
+   /**
+    * @return the next entry
+    * @throws CacheLoaderException in the event of problems reading from the store
+    * @throws java.util.NoSuchElementException if there are no more entries
+    */
+   InternalCacheEntry next() throws CacheLoaderException;
+
+   /**
+    * Releases the resources held by the cursor.  This method is idempotent.
+    */
+   void close();
+}
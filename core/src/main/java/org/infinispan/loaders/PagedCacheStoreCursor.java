@@ -0,0 +1,59 @@
+package org.infinispan.loaders;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link CacheStoreCursor} which reads the store one page of entries at a time, so that only a page needs to be held
+ * in memory.  Subclasses only need to supply the pages.
+ *
+ * @since 5.0
+ */
+public abstract class PagedCacheStoreCursor implements CacheStoreCursor {
+   private Iterator<InternalCacheEntry> page = Collections.<InternalCacheEntry>emptySet().iterator();
+   private InternalCacheEntry next;
+   private boolean exhausted;
+
+   public boolean hasNext() throws CacheLoaderException {
+      while (next == null) {
+         if (page.hasNext()) {
+            InternalCacheEntry entry = page.next();
+            if (!entry.isExpired()) next = entry;
+         } else if (exhausted) {
+            return false;
+         } else {
+            Collection<InternalCacheEntry> entries = nextPage();
+            if (entries == null) {
+               exhausted = true;
+            } else {
+               page = entries.iterator();
+            }
+         }
+      }
+      return true;
+   }
+
+   public InternalCacheEntry next() throws CacheLoaderException {
+      if (!hasNext()) throw new NoSuchElementException();
+      InternalCacheEntry entry = next;
+      next = null;
+      return entry;
+   }
+
+   public void close() {
+      exhausted = true;
+      next = null;
+      page = Collections.<InternalCacheEntry>emptySet().iterator();
+   }
+
+   /**
+    * Reads the next page of entries from the store.
+    *
+    * @return the entries of the next page, which may be empty, or null if there are no more pages
+    */
+   protected abstract Collection<InternalCacheEntry> nextPage() throws CacheLoaderException;
+}
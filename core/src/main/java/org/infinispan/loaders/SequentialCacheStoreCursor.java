@@ -0,0 +1,76 @@
+package org.infinispan.loaders;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link CacheStoreCursor} walking through several cache stores one after the other, for stores made of several
+ * underlying stores.  Each store's cursor is only opened once the previous one has been walked through.
+ *
+ * @since 5.0
+ */
+public class SequentialCacheStoreCursor implements CacheStoreCursor {
+   private final Iterator<CacheStore> remaining;
+   private final boolean skipKeysOfEarlierStores;
+   private final List<CacheStore> walked = new ArrayList<CacheStore>();
+   private CacheStoreCursor current;
+   private InternalCacheEntry next;
+
+   /**
+    * @param stores                  stores to walk through, in order
+    * @param skipKeysOfEarlierStores whether to leave out the entries of keys held by one of the stores already walked
+    *                                through, for stores which may hold the same keys, at the cost of looking up each key
+    *                                in these stores
+    */
+   public SequentialCacheStoreCursor(Collection<? extends CacheStore> stores, boolean skipKeysOfEarlierStores) {
+      this.remaining = new ArrayList<CacheStore>(stores).iterator();
+      this.skipKeysOfEarlierStores = skipKeysOfEarlierStores;
+   }
+
+   public boolean hasNext() throws CacheLoaderException {
+      while (next == null) {
+         if (current != null && current.hasNext()) {
+            InternalCacheEntry entry = current.next();
+            if (!isHeldByEarlierStore(entry.getKey())) next = entry;
+         } else {
+            if (current != null) current.close();
+            if (!remaining.hasNext()) {
+               current = null;
+               return false;
+            }
+            CacheStore store = remaining.next();
+            current = store.openCursor();
+            walked.add(store);
+         }
+      }
+      return true;
+   }
+
+   public InternalCacheEntry next() throws CacheLoaderException {
+      if (!hasNext()) throw new NoSuchElementException();
+      InternalCacheEntry entry = next;
+      next = null;
+      return entry;
+   }
+
+   public void close() {
+      if (current != null) current.close();
+      current = null;
+      next = null;
+      while (remaining.hasNext()) remaining.next();
+   }
+
+   private boolean isHeldByEarlierStore(Object key) throws CacheLoaderException {
+      if (!skipKeysOfEarlierStores) return false;
+      // the last store walked is the current one
+      for (int i = 0; i < walked.size() - 1; i++) {
+         if (walked.get(i).containsKey(key)) return true;
+      }
+      return false;
+   }
+}
@@ -152,6 +152,17 @@ public abstract class AbstractDecoratorConfigurationBean
       return cacheStoreConfig.getPurgerThreads();
    }
 
+   @Override
+   @XmlTransient
+   public Integer getBloomFilterExpectedKeys() {
+      return cacheStoreConfig.getBloomFilterExpectedKeys();
+   }
+
+   @Override
+   public CacheStoreConfig bloomFilterExpectedKeys(Integer bloomFilterExpectedKeys) {
+      return cacheStoreConfig.bloomFilterExpectedKeys(bloomFilterExpectedKeys);
+   }
+
    @Override
    public AsyncStoreConfig asyncStore() {
       return cacheStoreConfig.asyncStore();
@@ -8,10 +8,12 @@ import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheStore;
 import org.infinispan.loaders.CacheStoreConfig;
+import org.infinispan.loaders.CacheStoreCursor;
 import org.infinispan.loaders.modifications.Modification;
 
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -46,6 +48,10 @@ public class AbstractDelegatingStore implements CacheStore {
       delegate.store(ed);
    }
 
+   public void storeAll(Collection<InternalCacheEntry> entries) throws CacheLoaderException {
+      delegate.storeAll(entries);
+   }
+
    public void fromStream(ObjectInput inputStream) throws CacheLoaderException {
       delegate.fromStream(inputStream);
    }
@@ -100,6 +106,14 @@ public class AbstractDelegatingStore implements CacheStore {
       return delegate.loadAllKeys(keysToExclude);
    }
 
+   public CacheStoreCursor openCursor() throws CacheLoaderException {
+      return delegate.openCursor();
+   }
+
+   public List<CacheStoreCursor> openCursors(int maxCursors) throws CacheLoaderException {
+      return delegate.openCursors(maxCursors);
+   }
+
    public boolean containsKey(Object key) throws CacheLoaderException {
       return delegate.containsKey(key);
    }
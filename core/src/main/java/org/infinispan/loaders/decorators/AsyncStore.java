@@ -18,6 +18,8 @@ import org.infinispan.util.concurrent.locks.containers.ReentrantPerEntryLockCont
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +34,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -54,6 +57,11 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * <p/>
  * Write operations affecting same key are now coalesced so that only the final state is actually stored.
  * <p/>
+ * Coalesced modifications are handed to the decorated store in batches of at most
+ * {@link AsyncStoreConfig#getBatchSize()} entries, through {@link CacheStore#storeAll(java.util.Collection)} and
+ * {@link CacheStore#removeAll(java.util.Set)}.  If {@link AsyncStoreConfig#getBatchWindow()} is positive, a flush
+ * waits up to that long for a full batch to accumulate.
+ * <p/>
  *
  * @author Manik Surtani
  * @author Galder Zamarreño
@@ -82,6 +90,10 @@ public class AsyncStore extends AbstractDelegatingStore {
    private final Lock clearAllReadLock = clearAllLock.readLock();
    private final Lock clearAllWriteLock = clearAllLock.writeLock();
    private final Lock stateMapLock = new ReentrantLock();
+   /**
+    * Signalled when the state map holds a full batch of modifications.
+    */
+   private final Condition batchReady = stateMapLock.newCondition();
    
    ExecutorService executor;
    private int concurrencyLevel;
@@ -109,12 +121,30 @@ public class AsyncStore extends AbstractDelegatingStore {
       enqueue(new Store(ed));
    }
 
+   @Override
+   public void storeAll(Collection<InternalCacheEntry> entries) {
+      if (entries != null && !entries.isEmpty()) {
+         List<Modification> mods = new ArrayList<Modification>(entries.size());
+         for (InternalCacheEntry entry : entries) mods.add(new Store(entry));
+         enqueue(new ModificationsList(mods));
+      }
+   }
+
    @Override
    public boolean remove(Object key) {
       enqueue(new Remove(key));
       return true;
    }
 
+   @Override
+   public void removeAll(Set<Object> keys) {
+      if (keys != null && !keys.isEmpty()) {
+         List<Modification> mods = new ArrayList<Modification>(keys.size());
+         for (Object key : keys) mods.add(new Remove(key));
+         enqueue(new ModificationsList(mods));
+      }
+   }
+
    @Override
    public void clear() {
       Clear clear = new Clear();
@@ -196,20 +226,33 @@ public class AsyncStore extends AbstractDelegatingStore {
    }
 
    protected void applyModificationsSync(ConcurrentMap<Object, Modification> mods) throws CacheLoaderException {
+      int batchSize = asyncStoreConfig.getBatchSize();
+      List<InternalCacheEntry> stores = new ArrayList<InternalCacheEntry>(Math.min(mods.size(), batchSize));
+      Set<Object> removes = new HashSet<Object>();
       Set<Map.Entry<Object, Modification>> entries = mods.entrySet();
       for (Map.Entry<Object, Modification> entry : entries) {
          Modification mod = entry.getValue();
          switch (mod.getType()) {
             case STORE:
-               super.store(((Store) mod).getStoredEntry());
+               stores.add(((Store) mod).getStoredEntry());
+               if (stores.size() >= batchSize) {
+                  super.storeAll(stores);
+                  stores = new ArrayList<InternalCacheEntry>(batchSize);
+               }
                break;
             case REMOVE:
-               super.remove(entry.getKey());
+               removes.add(entry.getKey());
+               if (removes.size() >= batchSize) {
+                  super.removeAll(removes);
+                  removes = new HashSet<Object>();
+               }
                break;
             default:
                throw new IllegalArgumentException("Unexpected modification type " + mod.getType());
          }
       }
+      if (!stores.isEmpty()) super.storeAll(stores);
+      if (!removes.isEmpty()) super.removeAll(removes);
    }
    
    protected boolean applyClear() {
@@ -289,6 +332,7 @@ public class AsyncStore extends AbstractDelegatingStore {
          try {
             acquireLock(stateMapLock);
             try {
+               awaitBatch();
                swap = state;
                state = newStateMap();
 
@@ -355,6 +399,21 @@ public class AsyncStore extends AbstractDelegatingStore {
          }
       }
 
+      /**
+       * Waits, for at most the configured batch window, until the state map holds a full batch.  Must be called while
+       * holding the state map lock.
+       */
+      private void awaitBatch() {
+         long remaining = TimeUnit.MILLISECONDS.toNanos(asyncStoreConfig.getBatchWindow());
+         try {
+            while (remaining > 0 && !stopped.get() && state.size() < asyncStoreConfig.getBatchSize())
+               remaining = batchReady.awaitNanos(remaining);
+         } catch (InterruptedException e) {
+            // flush what has been collected so far
+            Thread.currentThread().interrupt();
+         }
+      }
+
       boolean put(ConcurrentMap<Object, Modification> mods) {
          try {
             AsyncStore.this.applyModificationsSync(mods);
@@ -396,6 +455,10 @@ public class AsyncStore extends AbstractDelegatingStore {
                Modification take = changesDeque.take();
                if (take == QUIT_SIGNAL) {
                   lastAsyncProcessorShutsDownExecutor = true;
+                  // don't let processors wait for a batch which will never fill up
+                  stateMapLock.lock();
+                  batchReady.signalAll();
+                  stateMapLock.unlock();
                   ensureMoreWorkIsHandled();
                   return;
                }
@@ -427,6 +490,7 @@ public class AsyncStore extends AbstractDelegatingStore {
                Store store = (Store) mod;
                stateMapLock.lock();
                state.put(store.getStoredEntry().getKey(), store);
+               signalIfBatchReady();
                stateMapLock.unlock();
                asyncProcessorNeeded = true;
                break;
@@ -434,6 +498,7 @@ public class AsyncStore extends AbstractDelegatingStore {
                Remove remove = (Remove) mod;
                stateMapLock.lock();
                state.put(remove.getKey(), remove);
+               signalIfBatchReady();
                stateMapLock.unlock();
                asyncProcessorNeeded = true;
                break;
@@ -457,6 +522,10 @@ public class AsyncStore extends AbstractDelegatingStore {
          }
       }
 
+      private void signalIfBatchReady() {
+         if (state.size() >= asyncStoreConfig.getBatchSize()) batchReady.signalAll();
+      }
+
       private void applyModificationsList(ModificationsList mod) {
          for (Modification m : mod.getList()) {
             handle(m, true);
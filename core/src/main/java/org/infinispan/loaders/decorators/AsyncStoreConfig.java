@@ -44,6 +44,12 @@ public class AsyncStoreConfig extends AbstractDecoratorConfigurationBean {
    @ConfigurationDocRef(bean=AsyncStoreConfig.class,targetElement="setShutdownTimeout")
    protected Long shutdownTimeout = 7200L;
 
+   @ConfigurationDocRef(bean=AsyncStoreConfig.class,targetElement="setBatchSize")
+   protected Integer batchSize = 100;
+
+   @ConfigurationDocRef(bean=AsyncStoreConfig.class,targetElement="setBatchWindow")
+   protected Long batchWindow = 0L;
+
    @XmlAttribute
    public Boolean isEnabled() {
       return enabled;
@@ -152,6 +158,70 @@ public class AsyncStoreConfig extends AbstractDecoratorConfigurationBean {
       return this;
    }
 
+   @XmlAttribute
+   public Integer getBatchSize() {
+      return batchSize;
+   }
+
+   /**
+    * Maximum number of coalesced modifications handed to the decorated store in a single
+    * {@link org.infinispan.loaders.CacheStore#storeAll(java.util.Collection)} or
+    * {@link org.infinispan.loaders.CacheStore#removeAll(java.util.Set)} call.
+    * 
+    * @param batchSize
+    * @deprecated The visibility of this method will be reduced. Use {@link #batchSize(Integer)} instead.
+    */
+   @Deprecated
+   public void setBatchSize(Integer batchSize) {
+      testImmutability("batchSize");
+      this.batchSize = batchSize;
+   }
+
+   /**
+    * Maximum number of coalesced modifications handed to the decorated store in a single
+    * {@link org.infinispan.loaders.CacheStore#storeAll(java.util.Collection)} or
+    * {@link org.infinispan.loaders.CacheStore#removeAll(java.util.Set)} call.
+    * 
+    * @param batchSize
+    */
+   public AsyncStoreConfig batchSize(Integer batchSize) {
+      testImmutability("batchSize");
+      this.batchSize = batchSize;
+      return this;
+   }
+
+   @XmlAttribute
+   public Long getBatchWindow() {
+      return batchWindow;
+   }
+
+   /**
+    * Time, in milliseconds, to wait for at least <tt>batchSize</tt> modifications to accumulate
+    * before flushing them to the cache store. Modifications to the same key arriving within the
+    * window are coalesced. If 0, modifications are flushed as soon as possible.
+    * 
+    * @param batchWindow
+    * @deprecated The visibility of this method will be reduced. Use {@link #batchWindow(Long)} instead.
+    */
+   @Deprecated
+   public void setBatchWindow(Long batchWindow) {
+      testImmutability("batchWindow");
+      this.batchWindow = batchWindow;
+   }
+
+   /**
+    * Time, in milliseconds, to wait for at least <tt>batchSize</tt> modifications to accumulate
+    * before flushing them to the cache store. Modifications to the same key arriving within the
+    * window are coalesced. If 0, modifications are flushed as soon as possible.
+    * 
+    * @param batchWindow
+    */
+   public AsyncStoreConfig batchWindow(Long batchWindow) {
+      testImmutability("batchWindow");
+      this.batchWindow = batchWindow;
+      return this;
+   }
+
    @Override
    public AsyncStoreConfig clone() {
       return (AsyncStoreConfig) super.clone();
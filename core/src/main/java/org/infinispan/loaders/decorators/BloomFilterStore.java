@@ -0,0 +1,205 @@
+package org.infinispan.loaders.decorators;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.CacheStore;
+import org.infinispan.loaders.modifications.Modification;
+import org.infinispan.loaders.modifications.Store;
+import org.infinispan.transaction.xa.GlobalTransaction;
+import org.infinispan.util.BloomFilter;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.io.ObjectInput;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A decorator that keeps a {@link BloomFilter} of the keys in the underlying store, so that lookups of keys which are
+ * definitely not in the store do not reach it.
+ * <p />
+ * The filter is built from the keys of the store when it starts, and whenever its contents are replaced from a stream,
+ * and then updated as entries are stored.  Keys cannot be taken out of a Bloom filter, so removed keys stay in the
+ * filter as false positives until it is rebuilt.  This decorator must only be used when all the writes to the store
+ * go through it, i.e. when the store is neither shared nor written to by a singleton store on another node.
+ *
+ * @since 5.0
+ */
+public class BloomFilterStore extends AbstractDelegatingStore {
+   private static final Log log = LogFactory.getLog(BloomFilterStore.class);
+   private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+   private final int expectedKeys;
+   private volatile BloomFilter filter;
+   /**
+    * Filter being rebuilt, if any, which needs to see the keys stored while it is populated
+    */
+   private volatile BloomFilter rebuilding;
+   /**
+    * Held shared while storing, and exclusively while switching filters, so that no key stored concurrently is lost
+    */
+   private final ReadWriteLock filterLock = new ReentrantReadWriteLock();
+   private final ConcurrentMap<GlobalTransaction, List<Object>> preparedKeys = new ConcurrentHashMap<GlobalTransaction, List<Object>>();
+   private final AtomicLong skippedLookups = new AtomicLong(0);
+
+   public BloomFilterStore(CacheStore delegate, int expectedKeys) {
+      super(delegate);
+      this.expectedKeys = expectedKeys;
+      this.filter = new BloomFilter(expectedKeys, FALSE_POSITIVE_PROBABILITY);
+   }
+
+   @Override
+   public void start() throws CacheLoaderException {
+      super.start();
+      rebuildFilter();
+   }
+
+   /**
+    * Rebuilds the filter from the keys currently in the underlying store, dropping the keys removed since the last
+    * rebuild.
+    */
+   public void rebuildFilter() throws CacheLoaderException {
+      BloomFilter fresh;
+      filterLock.writeLock().lock();
+      try {
+         fresh = new BloomFilter(expectedKeys, FALSE_POSITIVE_PROBABILITY);
+         rebuilding = fresh;
+      } finally {
+         filterLock.writeLock().unlock();
+      }
+
+      boolean rebuilt = false;
+      try {
+         Set<Object> keys = super.loadAllKeys(null);
+         for (Object key : keys) fresh.add(key);
+         if (log.isDebugEnabled()) log.debug("Built a Bloom filter of %s bits for %s keys", fresh.getNumBits(), keys.size());
+         if (keys.size() > expectedKeys)
+            log.warn("Store holds %s keys, more than the %s the Bloom filter is sized for, so lookups of missing keys will hit the store more often", keys.size(), expectedKeys);
+         rebuilt = true;
+      } finally {
+         filterLock.writeLock().lock();
+         try {
+            if (rebuilt) filter = fresh;
+            rebuilding = null;
+         } finally {
+            filterLock.writeLock().unlock();
+         }
+      }
+   }
+
+   @Override
+   public InternalCacheEntry load(Object key) throws CacheLoaderException {
+      if (!filter.mightContain(key)) {
+         skippedLookups.incrementAndGet();
+         return null;
+      }
+      return super.load(key);
+   }
+
+   @Override
+   public boolean containsKey(Object key) throws CacheLoaderException {
+      if (!filter.mightContain(key)) {
+         skippedLookups.incrementAndGet();
+         return false;
+      }
+      return super.containsKey(key);
+   }
+
+   @Override
+   public void store(InternalCacheEntry ed) throws CacheLoaderException {
+      filterLock.readLock().lock();
+      try {
+         addKey(ed.getKey());
+         super.store(ed);
+      } finally {
+         filterLock.readLock().unlock();
+      }
+   }
+
+   @Override
+   public void storeAll(Collection<InternalCacheEntry> entries) throws CacheLoaderException {
+      filterLock.readLock().lock();
+      try {
+         for (InternalCacheEntry ice : entries) addKey(ice.getKey());
+         super.storeAll(entries);
+      } finally {
+         filterLock.readLock().unlock();
+      }
+   }
+
+   @Override
+   public void clear() throws CacheLoaderException {
+      // keys stored from now on go to the new filter, those stored earlier are cleared
+      filterLock.writeLock().lock();
+      try {
+         filter = new BloomFilter(expectedKeys, FALSE_POSITIVE_PROBABILITY);
+      } finally {
+         filterLock.writeLock().unlock();
+      }
+      super.clear();
+   }
+
+   @Override
+   public void fromStream(ObjectInput inputStream) throws CacheLoaderException {
+      super.fromStream(inputStream);
+      rebuildFilter();
+   }
+
+   @Override
+   public void prepare(List<? extends Modification> modifications, GlobalTransaction tx, boolean isOnePhase) throws CacheLoaderException {
+      List<Object> keys = new ArrayList<Object>();
+      for (Modification m : modifications) {
+         if (m.getType() == Modification.Type.STORE) keys.add(((Store) m).getStoredEntry().getKey());
+      }
+
+      filterLock.readLock().lock();
+      try {
+         for (Object key : keys) addKey(key);
+         // the entries only reach the store on commit, when they need adding again in case the filter was rebuilt
+         if (!isOnePhase && !keys.isEmpty()) preparedKeys.put(tx, keys);
+         super.prepare(modifications, tx, isOnePhase);
+      } finally {
+         filterLock.readLock().unlock();
+      }
+   }
+
+   @Override
+   public void commit(GlobalTransaction tx) throws CacheLoaderException {
+      filterLock.readLock().lock();
+      try {
+         List<Object> keys = preparedKeys.remove(tx);
+         if (keys != null) {
+            for (Object key : keys) addKey(key);
+         }
+         super.commit(tx);
+      } finally {
+         filterLock.readLock().unlock();
+      }
+   }
+
+   @Override
+   public void rollback(GlobalTransaction tx) {
+      preparedKeys.remove(tx);
+      super.rollback(tx);
+   }
+
+   /**
+    * @return number of lookups answered without reaching the underlying store
+    */
+   public long getSkippedLookups() {
+      return skippedLookups.get();
+   }
+
+   private void addKey(Object key) {
+      filter.add(key);
+      BloomFilter r = rebuilding;
+      if (r != null) r.add(key);
+   }
+}
@@ -9,10 +9,14 @@ import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheStore;
 import org.infinispan.loaders.CacheStoreConfig;
+import org.infinispan.loaders.CacheStoreCursor;
+import org.infinispan.loaders.SequentialCacheStoreCursor;
 import org.infinispan.loaders.modifications.Modification;
 
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -41,6 +45,10 @@ public class ChainingCacheStore implements CacheStore {
       for (CacheStore s : stores.keySet()) s.store(ed);
    }
 
+   public void storeAll(Collection<InternalCacheEntry> entries) throws CacheLoaderException {
+      for (CacheStore s : stores.keySet()) s.storeAll(entries);
+   }
+
    public void fromStream(ObjectInput inputStream) throws CacheLoaderException {
       // loading and storing state via streams is *only* supported on the *first* store that has fetchPersistentState set.
       for (Map.Entry<CacheStore, CacheLoaderConfig> e : stores.entrySet()) {
@@ -136,6 +144,18 @@ public class ChainingCacheStore implements CacheStore {
       return set;
    }
 
+   /**
+    * Walks through the stores one after the other, returning each key from the first store holding it.
+    */
+   public CacheStoreCursor openCursor() throws CacheLoaderException {
+      return new SequentialCacheStoreCursor(stores.keySet(), true);
+   }
+
+   public List<CacheStoreCursor> openCursors(int maxCursors) throws CacheLoaderException {
+      // skipping the keys of earlier stores needs the stores walked through in order
+      return Collections.singletonList(openCursor());
+   }
+
    public boolean containsKey(Object key) throws CacheLoaderException {
       for (CacheLoader l : loaders.keySet()) {
          if (l.containsKey(key)) return true;
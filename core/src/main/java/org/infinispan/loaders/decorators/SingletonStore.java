@@ -18,6 +18,7 @@ import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
 import java.io.ObjectInput;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -111,6 +112,14 @@ public class SingletonStore extends AbstractDelegatingStore {
       } else if (trace) log.trace("Not storing key %s.  Instance: %s", ed.getKey(), this);
    }
 
+   @Override
+   public void storeAll(Collection<InternalCacheEntry> entries) throws CacheLoaderException {
+      if (active) {
+         if (trace) log.trace("Storing %s entries.  Instance: %s", entries.size(), this);
+         super.storeAll(entries);
+      } else if (trace) log.trace("Not storing %s entries.  Instance: %s", entries.size(), this);
+   }
+
    @Override
    public void fromStream(ObjectInput inputStream) throws CacheLoaderException {
       if (active) super.fromStream(inputStream);
@@ -126,6 +135,11 @@ public class SingletonStore extends AbstractDelegatingStore {
       return active && super.remove(key);
    }
 
+   @Override
+   public void removeAll(Set<Object> keys) throws CacheLoaderException {
+      if (active) super.removeAll(keys);
+   }
+
    @Override
    public void purgeExpired() throws CacheLoaderException {
       if (active) super.purgeExpired();
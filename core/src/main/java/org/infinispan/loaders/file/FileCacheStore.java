@@ -2,10 +2,13 @@ package org.infinispan.loaders.file;
 
 import org.infinispan.Cache;
 import org.infinispan.config.ConfigurationException;
+import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.io.ExposedByteArrayOutputStream;
 import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderMetadata;
+import org.infinispan.loaders.CacheStoreCursor;
+import org.infinispan.loaders.PagedCacheStoreCursor;
 import org.infinispan.loaders.bucket.Bucket;
 import org.infinispan.loaders.bucket.BucketBasedCacheStore;
 import org.infinispan.marshall.StreamingMarshaller;
@@ -14,6 +17,11 @@ import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  * A filesystem-based implementation of a {@link org.infinispan.loaders.bucket.BucketBasedCacheStore}.  This file store
@@ -61,6 +69,58 @@ public class FileCacheStore extends BucketBasedCacheStore {
       }
    }
 
+   /**
+    * Reads the store a bucket at a time.
+    */
+   @Override
+   public CacheStoreCursor openCursor() throws CacheLoaderException {
+      return openCursors(1).get(0);
+   }
+
+   /**
+    * Shares the bucket files out between the cursors, each of which reads a bucket at a time.
+    */
+   @Override
+   public List<CacheStoreCursor> openCursors(int maxCursors) throws CacheLoaderException {
+      File[] listFiles = root == null ? null : root.listFiles();
+      if (listFiles == null) listFiles = new File[0];
+      int numCursors = Math.max(1, Math.min(maxCursors, listFiles.length));
+      List<List<File>> partitions = new ArrayList<List<File>>(numCursors);
+      for (int i = 0; i < numCursors; i++) partitions.add(new ArrayList<File>());
+      for (int i = 0; i < listFiles.length; i++) partitions.get(i % numCursors).add(listFiles[i]);
+
+      List<CacheStoreCursor> cursors = new ArrayList<CacheStoreCursor>(numCursors);
+      for (List<File> partition : partitions) cursors.add(new BucketFileCursor(partition.iterator()));
+      return cursors;
+   }
+
+   private class BucketFileCursor extends PagedCacheStoreCursor {
+      private final Iterator<File> bucketFiles;
+
+      BucketFileCursor(Iterator<File> bucketFiles) {
+         this.bucketFiles = bucketFiles;
+      }
+
+      @Override
+      protected Collection<InternalCacheEntry> nextPage() throws CacheLoaderException {
+         if (!bucketFiles.hasNext()) return null;
+         File bucketFile = bucketFiles.next();
+         if (!acquireGlobalLock(false))
+            throw new CacheLoaderException("Unable to acquire the global lock to read bucket " + bucketFile);
+         try {
+            Bucket bucket = loadBucket(bucketFile);
+            if (bucket == null) return Collections.emptySet();
+            return new ArrayList<InternalCacheEntry>(bucket.getStoredEntries());
+         } catch (InterruptedException ie) {
+            if (log.isDebugEnabled()) log.debug("Interrupted, so stop reading buckets.");
+            Thread.currentThread().interrupt();
+            return null;
+         } finally {
+            releaseGlobalLock(false);
+         }
+      }
+   }
+
    protected void fromStreamLockSafe(ObjectInput objectInput) throws CacheLoaderException {
       try {
          int numFiles = objectInput.readInt();
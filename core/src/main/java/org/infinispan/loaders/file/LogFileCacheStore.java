@@ -0,0 +1,669 @@
+package org.infinispan.loaders.file;
+
+import org.infinispan.Cache;
+import org.infinispan.config.ConfigurationException;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.loaders.AbstractCacheStore;
+import org.infinispan.loaders.CacheLoaderConfig;
+import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.CacheLoaderMetadata;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.util.Util;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A log-structured, filesystem-based {@link org.infinispan.loaders.CacheStore}.  Unlike the {@link FileCacheStore},
+ * which rewrites a whole bucket file on every modification, this store only ever appends to the end of a segment
+ * file, so writes are sequential and their cost is independent of the number of entries stored.
+ * <p/>
+ * Segments are stored in the following format: <tt>/{location}/cache name/segment_id.log</tt>.  Each segment is a
+ * sequence of records, each consisting of a header (key length, value length and expiry time), the marshalled key and
+ * the marshalled {@link InternalCacheValue}.  Removals are recorded as records without a value.
+ * <p/>
+ * The location of the latest record of each key is held in an in-memory index, so a load is a single positioned read.
+ * The index is rebuilt by replaying the segments, oldest first, when the store starts.
+ * <p/>
+ * Overwritten, removed and expired records are garbage collected by a background thread, which copies the records
+ * still referenced by the index out of segments where the proportion of dead bytes exceeds
+ * {@link LogFileCacheStoreConfig#getCompactionThreshold()}, and then deletes those segments.
+ *
+ * @since 5.0
+ */
+@CacheLoaderMetadata(configurationClass = LogFileCacheStoreConfig.class)
+public class LogFileCacheStore extends AbstractCacheStore {
+
+   private static final Log log = LogFactory.getLog(LogFileCacheStore.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   static final String SEGMENT_SUFFIX = ".log";
+
+   /**
+    * Key length, value length and expiry time.
+    */
+   static final int HEADER_SIZE = 16;
+
+   /**
+    * Value length of a record marking a removal.
+    */
+   private static final int TOMBSTONE = -1;
+
+   private LogFileCacheStoreConfig config;
+   private File root;
+
+   private ConcurrentMap<Object, Location> index;
+   private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<Long, Segment>();
+
+   /**
+    * Guards appends to the active segment, and index updates that must be consistent with them.
+    */
+   private final Object writeLock = new Object();
+   private volatile Segment active;
+   private long nextSegmentId;
+
+   /**
+    * Prevents compaction from running concurrently with {@link #clear()} and {@link #stop()}.
+    */
+   private final ReentrantLock compactionLock = new ReentrantLock();
+   private ScheduledExecutorService compactor;
+
+   @Override
+   public void init(CacheLoaderConfig config, Cache<?, ?> cache, StreamingMarshaller m) throws CacheLoaderException {
+      super.init(config, cache, m);
+      this.config = (LogFileCacheStoreConfig) config;
+   }
+
+   public Class<? extends CacheLoaderConfig> getConfigurationClass() {
+      return LogFileCacheStoreConfig.class;
+   }
+
+   /**
+    * @return root directory where all segment files of this {@link org.infinispan.loaders.CacheStore CacheStore} are
+    *         written.
+    */
+   public File getRoot() {
+      return root;
+   }
+
+   @Override
+   public void start() throws CacheLoaderException {
+      super.start();
+      String location = config.getLocation();
+      if (location == null || location.trim().length() == 0)
+         location = "Infinispan-LogFileCacheStore"; // use relative path!
+      location += File.separator + cache.getName();
+      root = new File(location);
+      if (!root.exists()) {
+         if (!root.mkdirs()) {
+            log.warn("Problems creating the directory: " + root);
+         }
+      }
+      if (!root.exists()) {
+         throw new ConfigurationException("Directory " + root.getAbsolutePath() + " does not exist and cannot be created!");
+      }
+
+      index = new ConcurrentHashMap<Object, Location>(64, 0.75f, getConcurrencyLevel());
+      synchronized (writeLock) {
+         try {
+            SortedMap<Long, File> files = listSegmentFiles();
+            for (Map.Entry<Long, File> e : files.entrySet()) {
+               Segment s = new Segment(e.getKey(), e.getValue());
+               segments.put(s.id, s);
+               replay(s);
+            }
+            if (segments.isEmpty() || segments.lastEntry().getValue().size >= config.getMaxSegmentSize()) {
+               nextSegmentId = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+               roll();
+            } else {
+               nextSegmentId = segments.lastKey() + 1;
+               active = segments.lastEntry().getValue();
+            }
+         } catch (IOException e) {
+            throw new CacheLoaderException("Unable to open segments in " + root.getAbsolutePath(), e);
+         }
+      }
+      if (trace) log.trace("Started with %s entries in %s segments", index.size(), segments.size());
+
+      if (config.getCompactionInterval() > 0) {
+         final String threadName = (cache == null ? "" : cache.getName() + '-') + getClass().getSimpleName() + "-Compactor";
+         compactor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+               Thread t = new Thread(r, threadName);
+               t.setDaemon(true);
+               return t;
+            }
+         });
+         compactor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+               try {
+                  compact();
+               } catch (CacheLoaderException e) {
+                  log.error("Problems encountered while compacting segments", e);
+               }
+            }
+         }, config.getCompactionInterval(), config.getCompactionInterval(), TimeUnit.MILLISECONDS);
+      }
+   }
+
+   @Override
+   public void stop() throws CacheLoaderException {
+      if (compactor != null) compactor.shutdownNow();
+      compactionLock.lock();
+      try {
+         synchronized (writeLock) {
+            for (Segment s : segments.values()) s.close(true);
+            segments.clear();
+            active = null;
+         }
+      } finally {
+         compactionLock.unlock();
+      }
+      super.stop();
+   }
+
+   public void store(InternalCacheEntry entry) throws CacheLoaderException {
+      if (trace) log.trace("store(%s)", entry);
+      byte[] keyBytes = marshall(entry.getKey());
+      byte[] valueBytes = marshall(entry.toInternalCacheValue());
+      synchronized (writeLock) {
+         Location location = append(keyBytes, valueBytes, entry.getExpiryTime());
+         markDead(index.put(entry.getKey(), location));
+      }
+   }
+
+   @Override
+   public void storeAll(Collection<InternalCacheEntry> entries) throws CacheLoaderException {
+      if (entries == null || entries.isEmpty()) return;
+      List<byte[]> records = new ArrayList<byte[]>(2 * entries.size());
+      for (InternalCacheEntry entry : entries) {
+         records.add(marshall(entry.getKey()));
+         records.add(marshall(entry.toInternalCacheValue()));
+      }
+      synchronized (writeLock) {
+         Iterator<byte[]> it = records.iterator();
+         for (InternalCacheEntry entry : entries) {
+            Location location = append(it.next(), it.next(), entry.getExpiryTime());
+            markDead(index.put(entry.getKey(), location));
+         }
+      }
+   }
+
+   public boolean remove(Object key) throws CacheLoaderException {
+      if (trace) log.trace("remove(%s)", key);
+      if (!index.containsKey(key)) return false;
+      byte[] keyBytes = marshall(key);
+      Location removed;
+      synchronized (writeLock) {
+         removed = index.remove(key);
+         if (removed == null) return false;
+         markDead(removed);
+         // the removal record must survive until the records it shadows are compacted
+         markDead(append(keyBytes, null, -1));
+      }
+      return !removed.isExpired(System.currentTimeMillis());
+   }
+
+   public InternalCacheEntry load(Object key) throws CacheLoaderException {
+      while (true) {
+         Location location = index.get(key);
+         if (location == null) return null;
+         if (location.isExpired(System.currentTimeMillis())) {
+            expire(key, location);
+            return null;
+         }
+         ByteBuffer buf = ByteBuffer.allocate(location.valueLength());
+         if (!location.segment.read(buf, location.valueOffset())) {
+            // the segment has been compacted since the index was looked up
+            if (index.get(key) == location)
+               throw new CacheLoaderException("Segment " + location.segment.file + " has been closed");
+            continue;
+         }
+         InternalCacheValue icv = (InternalCacheValue) unmarshall(buf.array(), 0, buf.limit());
+         if (icv.isExpired()) {
+            expire(key, location);
+            return null;
+         }
+         return icv.toInternalCacheEntry(key);
+      }
+   }
+
+   public Set<InternalCacheEntry> loadAll() throws CacheLoaderException {
+      return load(Integer.MAX_VALUE);
+   }
+
+   public Set<InternalCacheEntry> load(int numEntries) throws CacheLoaderException {
+      Set<InternalCacheEntry> result = new HashSet<InternalCacheEntry>();
+      for (Object key : index.keySet()) {
+         if (result.size() >= numEntries) break;
+         InternalCacheEntry entry = load(key);
+         if (entry != null) result.add(entry);
+      }
+      return result;
+   }
+
+   public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderException {
+      long now = System.currentTimeMillis();
+      Set<Object> result = new HashSet<Object>();
+      for (Map.Entry<Object, Location> e : index.entrySet()) {
+         if (e.getValue().isExpired(now) || (keysToExclude != null && keysToExclude.contains(e.getKey()))) continue;
+         result.add(e.getKey());
+      }
+      return result;
+   }
+
+   @Override
+   public boolean containsKey(Object key) throws CacheLoaderException {
+      Location location = index.get(key);
+      return location != null && !location.isExpired(System.currentTimeMillis());
+   }
+
+   public void clear() throws CacheLoaderException {
+      if (trace) log.trace("clear()");
+      compactionLock.lock();
+      try {
+         synchronized (writeLock) {
+            index.clear();
+            for (Segment s : segments.values()) s.delete();
+            segments.clear();
+            active = null;
+            roll();
+         }
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to clear segments in " + root.getAbsolutePath(), e);
+      } finally {
+         compactionLock.unlock();
+      }
+   }
+
+   public void toStream(ObjectOutput outputStream) throws CacheLoaderException {
+      try {
+         Set<InternalCacheEntry> entries = loadAll();
+         marshaller.objectToObjectStream(entries.size(), outputStream);
+         for (InternalCacheEntry entry : entries) marshaller.objectToObjectStream(entry, outputStream);
+      } catch (IOException e) {
+         throw new CacheLoaderException("I/O exception while generating stream", e);
+      }
+   }
+
+   public void fromStream(ObjectInput inputStream) throws CacheLoaderException {
+      try {
+         int numEntries = (Integer) marshaller.objectFromObjectStream(inputStream);
+         for (int i = 0; i < numEntries; i++) {
+            store((InternalCacheEntry) marshaller.objectFromObjectStream(inputStream));
+         }
+      } catch (InterruptedException ie) {
+         if (log.isDebugEnabled()) log.debug("Interrupted while reading from stream");
+         Thread.currentThread().interrupt();
+      } catch (IOException e) {
+         throw new CacheLoaderException("I/O error", e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheLoaderException("Unexpected exception", e);
+      }
+   }
+
+   @Override
+   protected void purgeInternal() throws CacheLoaderException {
+      if (trace) log.trace("purgeInternal()");
+      long now = System.currentTimeMillis();
+      for (Map.Entry<Object, Location> e : index.entrySet()) {
+         if (e.getValue().isExpired(now)) expire(e.getKey(), e.getValue());
+      }
+   }
+
+   /**
+    * Compacts all segments, other than the one being appended to, in which the proportion of dead bytes exceeds the
+    * configured {@link LogFileCacheStoreConfig#getCompactionThreshold() threshold}.  This is invoked periodically by the
+    * background compaction thread.
+    */
+   public void compact() throws CacheLoaderException {
+      compactionLock.lock();
+      try {
+         for (Segment s : segments.values()) {
+            if (s == active || s.deadBytes.get() < s.size * config.getCompactionThreshold()) continue;
+            compact(s);
+         }
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to compact segments in " + root.getAbsolutePath(), e);
+      } finally {
+         compactionLock.unlock();
+      }
+   }
+
+   /**
+    * Copies the live records of a segment to the active segment, then deletes it.  Removal records are dropped once
+    * there is no older segment left that could hold a record they shadow, or once their key has been stored again.
+    */
+   private void compact(Segment s) throws IOException, CacheLoaderException {
+      if (trace) log.trace("Compacting %s: %s dead bytes out of %s", s.file, s.deadBytes.get(), s.size);
+      boolean oldest = segments.firstKey() == s.id;
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      long position = 0;
+      while (position < s.size) {
+         header.clear();
+         s.readFully(header, position);
+         header.flip();
+         int keyLength = header.getInt();
+         int valueLength = header.getInt();
+         long expiryTime = header.getLong();
+         int length = recordLength(keyLength, valueLength);
+         if (valueLength != TOMBSTONE || !oldest) {
+            ByteBuffer key = ByteBuffer.allocate(keyLength);
+            s.readFully(key, position + HEADER_SIZE);
+            Object k = unmarshall(key.array(), 0, keyLength);
+            if (valueLength == TOMBSTONE) {
+               ByteBuffer record = ByteBuffer.allocate(length);
+               s.readFully(record, position);
+               record.flip();
+               synchronized (writeLock) {
+                  // a live record of the key appended since shadows the older records on its own, whereas the
+                  // removal record would shadow it if appended after it
+                  if (!index.containsKey(k)) markDead(append(record, keyLength, expiryTime));
+               }
+            } else {
+               Location location = index.get(k);
+               if (location != null && location.segment == s && location.offset == position) {
+                  ByteBuffer record = ByteBuffer.allocate(length);
+                  s.readFully(record, position);
+                  record.flip();
+                  synchronized (writeLock) {
+                     // the entry may have been overwritten or removed in the meantime, in which case appending the
+                     // copy after the newer record would bring the old value back on replay
+                     if (index.get(k) == location) {
+                        Location moved = append(record, keyLength, expiryTime);
+                        if (!index.replace(k, location, moved)) markDead(moved);
+                     }
+                  }
+               }
+            }
+         }
+         position += length;
+      }
+      segments.remove(s.id);
+      s.delete();
+   }
+
+   /**
+    * Rebuilds the index from a segment's records, truncating a record left incomplete by a crash.
+    */
+   private void replay(Segment s) throws IOException, CacheLoaderException {
+      long now = System.currentTimeMillis();
+      long fileSize = s.channel.size();
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      long position = 0;
+      while (position + HEADER_SIZE <= fileSize) {
+         header.clear();
+         s.readFully(header, position);
+         header.flip();
+         int keyLength = header.getInt();
+         int valueLength = header.getInt();
+         long expiryTime = header.getLong();
+         int length = recordLength(keyLength, valueLength);
+         if (keyLength < 0 || valueLength < TOMBSTONE || position + length > fileSize) break;
+
+         ByteBuffer key = ByteBuffer.allocate(keyLength);
+         s.readFully(key, position + HEADER_SIZE);
+         Object k = unmarshall(key.array(), 0, keyLength);
+         Location location = new Location(s, position, length, keyLength, expiryTime);
+         if (valueLength == TOMBSTONE || location.isExpired(now)) {
+            markDead(index.remove(k));
+            markDead(location);
+         } else {
+            markDead(index.put(k, location));
+         }
+         position += length;
+      }
+      if (position < fileSize) {
+         log.warn("Truncating incomplete record at offset %s of %s", position, s.file);
+         s.channel.truncate(position);
+      }
+      s.size = position;
+   }
+
+   private Location append(byte[] keyBytes, byte[] valueBytes, long expiryTime) throws CacheLoaderException {
+      int length = recordLength(keyBytes.length, valueBytes == null ? TOMBSTONE : valueBytes.length);
+      ByteBuffer record = ByteBuffer.allocate(length);
+      record.putInt(keyBytes.length).putInt(valueBytes == null ? TOMBSTONE : valueBytes.length).putLong(expiryTime);
+      record.put(keyBytes);
+      if (valueBytes != null) record.put(valueBytes);
+      record.flip();
+      return append(record, keyBytes.length, expiryTime);
+   }
+
+   /**
+    * Appends a complete record to the active segment, starting a new segment if the active one is full.  Must be
+    * called while holding the write lock.
+    */
+   private Location append(ByteBuffer record, int keyLength, long expiryTime) throws CacheLoaderException {
+      if (active == null) throw new CacheLoaderException("Store has been stopped");
+      int length = record.remaining();
+      try {
+         if (active.size > 0 && active.size + length > config.getMaxSegmentSize()) roll();
+         long offset = active.size;
+         active.writeFully(record, offset);
+         // only now does the record become visible; a partial write is overwritten by the next append
+         active.size = offset + length;
+         return new Location(active, offset, length, keyLength, expiryTime);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to append to " + active.file, e);
+      }
+   }
+
+   private void roll() throws IOException {
+      if (active != null) active.channel.force(false);
+      long id = nextSegmentId++;
+      Segment s = new Segment(id, new File(root, id + SEGMENT_SUFFIX));
+      segments.put(id, s);
+      active = s;
+      if (trace) log.trace("Appending to new segment %s", s.file);
+   }
+
+   private void expire(Object key, Location location) {
+      if (index.remove(key, location)) markDead(location);
+   }
+
+   private void markDead(Location location) {
+      if (location != null) location.segment.deadBytes.addAndGet(location.length);
+   }
+
+   private SortedMap<Long, File> listSegmentFiles() {
+      SortedMap<Long, File> result = new TreeMap<Long, File>();
+      File[] files = root.listFiles(new FilenameFilter() {
+         public boolean accept(File dir, String name) {
+            return name.endsWith(SEGMENT_SUFFIX);
+         }
+      });
+      if (files == null) return result;
+      for (File f : files) {
+         String name = f.getName();
+         try {
+            result.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), f);
+         } catch (NumberFormatException e) {
+            log.warn("Ignoring unexpected file %s", f);
+         }
+      }
+      return result;
+   }
+
+   private static int recordLength(int keyLength, int valueLength) {
+      return HEADER_SIZE + keyLength + (valueLength == TOMBSTONE ? 0 : valueLength);
+   }
+
+   private byte[] marshall(Object o) throws CacheLoaderException {
+      try {
+         return marshaller.objectToByteBuffer(o);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to marshall " + o, e);
+      } catch (InterruptedException ie) {
+         if (trace) log.trace("Interrupted while marshalling %s", o);
+         Thread.currentThread().interrupt();
+         throw new CacheLoaderException("Interrupted while marshalling " + o, ie);
+      }
+   }
+
+   private Object unmarshall(byte[] bytes, int offset, int length) throws CacheLoaderException {
+      try {
+         return marshaller.objectFromByteBuffer(bytes, offset, length);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to unmarshall record", e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheLoaderException("Unable to unmarshall record", e);
+      }
+   }
+
+   /**
+    * Position of a key's latest record.
+    */
+   private static final class Location {
+      final Segment segment;
+      final long offset;
+      final int length;
+      final int keyLength;
+      final long expiryTime;
+
+      Location(Segment segment, long offset, int length, int keyLength, long expiryTime) {
+         this.segment = segment;
+         this.offset = offset;
+         this.length = length;
+         this.keyLength = keyLength;
+         this.expiryTime = expiryTime;
+      }
+
+      boolean isExpired(long now) {
+         return expiryTime > -1 && expiryTime < now;
+      }
+
+      long valueOffset() {
+         return offset + HEADER_SIZE + keyLength;
+      }
+
+      int valueLength() {
+         return length - HEADER_SIZE - keyLength;
+      }
+   }
+
+   /**
+    * A segment file.  Reads are positioned and hence may happen concurrently, appends are serialized by the store's
+    * write lock.
+    */
+   private static final class Segment {
+      final long id;
+      final File file;
+      final AtomicLong deadBytes = new AtomicLong();
+      volatile long size;
+      volatile FileChannel channel;
+      private RandomAccessFile raf;
+      private volatile boolean deleted;
+
+      Segment(long id, File file) throws IOException {
+         this.id = id;
+         this.file = file;
+         open();
+         size = channel.size();
+      }
+
+      private void open() throws IOException {
+         raf = new RandomAccessFile(file, "rw");
+         channel = raf.getChannel();
+      }
+
+      /**
+       * Reopens the file if the channel has been closed by an interrupted reader or writer, which closes it for all
+       * threads.
+       */
+      private synchronized void reopen(FileChannel closed) throws IOException {
+         if (channel == closed && !deleted) {
+            Util.close(raf);
+            open();
+         }
+      }
+
+      /**
+       * @return false if the segment has been deleted
+       */
+      boolean read(ByteBuffer buf, long position) throws CacheLoaderException {
+         try {
+            readFully(buf, position);
+            return true;
+         } catch (ClosedChannelException e) {
+            if (deleted) return false;
+            throw new CacheLoaderException("Unable to read from " + file, e);
+         } catch (IOException e) {
+            throw new CacheLoaderException("Unable to read from " + file, e);
+         }
+      }
+
+      void readFully(ByteBuffer buf, long position) throws IOException {
+         int start = buf.position();
+         while (buf.hasRemaining()) {
+            FileChannel ch = channel;
+            try {
+               if (ch.read(buf, position + buf.position() - start) < 0)
+                  throw new EOFException("Unexpected end of " + file);
+            } catch (ClosedChannelException e) {
+               if (deleted) throw e;
+               reopen(ch);
+               if (e instanceof ClosedByInterruptException) throw e;
+            }
+         }
+      }
+
+      void writeFully(ByteBuffer buf, long position) throws IOException {
+         int start = buf.position();
+         while (buf.hasRemaining()) {
+            FileChannel ch = channel;
+            try {
+               ch.write(buf, position + buf.position() - start);
+            } catch (ClosedChannelException e) {
+               reopen(ch);
+               if (e instanceof ClosedByInterruptException) throw e;
+            }
+         }
+      }
+
+      synchronized void close(boolean force) {
+         try {
+            if (force && channel.isOpen()) channel.force(false);
+         } catch (IOException e) {
+            log.warn("Problems flushing " + file, e);
+         }
+         Util.close(raf);
+      }
+
+      synchronized void delete() {
+         deleted = true;
+         Util.close(raf);
+         if (!file.delete()) log.warn("Had problems removing file %s", file);
+      }
+   }
+}
@@ -0,0 +1,119 @@
+package org.infinispan.loaders.file;
+
+import org.infinispan.loaders.AbstractCacheStoreConfig;
+
+/**
+ * Configures {@link org.infinispan.loaders.file.LogFileCacheStore}.  This allows you to tune a number of
+ * characteristics of the {@link LogFileCacheStore}.
+ * <p/>
+ *    <ul>
+ *       <li><tt>location</tt> - a location on disk where the store can write its segment files.  This defaults to
+ * <tt>Infinispan-LogFileCacheStore</tt> in the current working directory.</li>
+ *       <li><tt>maxSegmentSize</tt> - size, in bytes, after which the segment being appended to is closed and a new
+ * one is started.  Only closed segments are compacted.  By default, this is set to <tt>16777216</tt> (16MB).</li>
+ *       <li><tt>compactionThreshold</tt> - fraction of a closed segment's bytes that must be taken up by overwritten,
+ * removed or expired entries before the segment is compacted.  By default, this is set to <tt>0.5</tt>.</li>
+ *       <li><tt>compactionInterval</tt> - the length of time, in milliseconds, between two runs of the background
+ * compaction thread.  By default, this is set to <tt>10000</tt>.  A value of <tt>0</tt> or less disables background
+ * compaction.</li>
+ *       <li><tt>purgeSynchronously</tt> - whether {@link org.infinispan.loaders.CacheStore#purgeExpired()} calls happen
+ * synchronously or not.  By default, this is set to <tt>false</tt>.</li>
+ * </ul>
+ *
+ * @since 5.0
+ */
+public class LogFileCacheStoreConfig extends AbstractCacheStoreConfig {
+
+   private static final long serialVersionUID = -2816328960328744578L;
+
+   String location = "Infinispan-LogFileCacheStore";
+   private long maxSegmentSize = 16 * 1024 * 1024;
+   private double compactionThreshold = 0.5;
+   private long compactionInterval = 10000;
+
+   public LogFileCacheStoreConfig() {
+      setCacheLoaderClassName(LogFileCacheStore.class.getName());
+   }
+
+   public String getLocation() {
+      return location;
+   }
+
+   public void setLocation(String location) {
+      testImmutability("location");
+      this.location = location;
+   }
+
+   public LogFileCacheStoreConfig location(String location) {
+      setLocation(location);
+      return this;
+   }
+
+   public long getMaxSegmentSize() {
+      return maxSegmentSize;
+   }
+
+   public void setMaxSegmentSize(long maxSegmentSize) {
+      testImmutability("maxSegmentSize");
+      this.maxSegmentSize = maxSegmentSize;
+   }
+
+   public LogFileCacheStoreConfig maxSegmentSize(long maxSegmentSize) {
+      setMaxSegmentSize(maxSegmentSize);
+      return this;
+   }
+
+   public double getCompactionThreshold() {
+      return compactionThreshold;
+   }
+
+   public void setCompactionThreshold(double compactionThreshold) {
+      testImmutability("compactionThreshold");
+      this.compactionThreshold = compactionThreshold;
+   }
+
+   public LogFileCacheStoreConfig compactionThreshold(double compactionThreshold) {
+      setCompactionThreshold(compactionThreshold);
+      return this;
+   }
+
+   public long getCompactionInterval() {
+      return compactionInterval;
+   }
+
+   public void setCompactionInterval(long compactionInterval) {
+      testImmutability("compactionInterval");
+      this.compactionInterval = compactionInterval;
+   }
+
+   public LogFileCacheStoreConfig compactionInterval(long compactionInterval) {
+      setCompactionInterval(compactionInterval);
+      return this;
+   }
+
+   // Method overrides below are used to make configuration more fluent.
+
+   @Override
+   public LogFileCacheStoreConfig purgeOnStartup(Boolean purgeOnStartup) {
+      super.purgeOnStartup(purgeOnStartup);
+      return this;
+   }
+
+   @Override
+   public LogFileCacheStoreConfig purgeSynchronously(Boolean purgeSynchronously) {
+      super.purgeSynchronously(purgeSynchronously);
+      return this;
+   }
+
+   @Override
+   public LogFileCacheStoreConfig fetchPersistentState(Boolean fetchPersistentState) {
+      super.fetchPersistentState(fetchPersistentState);
+      return this;
+   }
+
+   @Override
+   public LogFileCacheStoreConfig ignoreModifications(Boolean ignoreModifications) {
+      super.ignoreModifications(ignoreModifications);
+      return this;
+   }
+}
@@ -1,4 +1,4 @@
 /**
- * Simple filesystem-based {@link CacheStore} implementation.
+ * Simple filesystem-based {@link CacheStore} implementations.
  */
 package org.infinispan.loaders.file;
\ No newline at end of file
@@ -88,4 +88,6 @@ public interface Ids {
    int XID = 66;
    int XID_DEADLOCK_DETECTING_GLOBAL_TRANSACTION = 67;
    int XID_GLOBAL_TRANSACTION = 68;
+
+   int VIRTUAL_NODES_CONSISTENT_HASH = 69;
 }
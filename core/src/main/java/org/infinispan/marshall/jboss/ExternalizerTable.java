@@ -45,6 +45,7 @@ import org.infinispan.distribution.RemoteTransactionLogDetails;
 import org.infinispan.distribution.ch.DefaultConsistentHash;
 import org.infinispan.distribution.ch.NodeTopologyInfo;
 import org.infinispan.distribution.ch.TopologyAwareConsistentHash;
+import org.infinispan.distribution.ch.VirtualNodesConsistentHash;
 import org.infinispan.distribution.ch.UnionConsistentHash;
 import org.infinispan.io.UnsignedNumeric;
 import org.infinispan.loaders.bucket.Bucket;
@@ -165,6 +166,7 @@ class ExternalizerTable implements ObjectTable {
       internalExternalizers.add(new UnionConsistentHash.Externalizer());
       internalExternalizers.add(new NodeTopologyInfo.Externalizer());
       internalExternalizers.add(new TopologyAwareConsistentHash.Externalizer());
+      internalExternalizers.add(new VirtualNodesConsistentHash.Externalizer());
       internalExternalizers.add(new ByteArrayKey.Externalizer());
 
       internalExternalizers.add(new RemoteTransactionLogDetails.Externalizer());
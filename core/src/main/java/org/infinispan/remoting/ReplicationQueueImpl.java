@@ -9,25 +9,46 @@ import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.factories.annotations.Stop;
+import org.infinispan.jmx.annotations.MBean;
+import org.infinispan.jmx.annotations.ManagedAttribute;
+import org.infinispan.jmx.annotations.ManagedOperation;
 import org.infinispan.remoting.rpc.ResponseMode;
 import org.infinispan.remoting.rpc.RpcManager;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
+import org.rhq.helpers.pluginAnnotations.agent.DataType;
+import org.rhq.helpers.pluginAnnotations.agent.DisplayType;
+import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
+import org.rhq.helpers.pluginAnnotations.agent.Metric;
+import org.rhq.helpers.pluginAnnotations.agent.Operation;
+import org.rhq.helpers.pluginAnnotations.agent.Parameter;
 
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A default implementation of the ReplicationQueue interface.
+ * <p/>
+ * Besides the element count and the periodic flush, the queue can be flushed once the estimated serialized size of
+ * the queued commands reaches {@link Configuration#getReplQueueMaxBytes()}.  In adaptive mode (see {@link
+ * Configuration#isReplQueueAdaptive()}) the replication queue interval becomes a latency target instead: the queue
+ * tracks the rate at which commands arrive and flushes as soon as it holds the number of commands expected within
+ * that target, so bursts are sent in large batches straight away while a trickle of commands is sent without
+ * waiting for a timer.  A periodic check flushes whatever has been waiting longer than the target when the arrival
+ * rate drops.
  *
  * @author Manik Surtani
  * @version 4.2
  */
+@MBean(objectName = "ReplicationQueue", description = "Batches asynchronous replication commands.")
 public class ReplicationQueueImpl implements ReplicationQueue {
    private static final Log log = LogFactory.getLog(ReplicationQueue.class);
 
@@ -51,6 +72,48 @@ public class ReplicationQueueImpl implements ReplicationQueue {
    private CommandsFactory commandsFactory;
    private volatile ScheduledFuture<?> scheduledFuture;
 
+   /**
+    * Smoothing factor of the moving average of the time between two commands.
+    */
+   private static final double ARRIVAL_SMOOTHING = 0.1;
+
+   /**
+    * Estimated size of objects whose serialized form is not estimated any further.
+    */
+   private static final int DEFAULT_OBJECT_SIZE = 16;
+   private static final int MAX_ESTIMATE_DEPTH = 4;
+
+   private long maxBytes;
+   private boolean adaptive;
+   private boolean trackQueuedBytes;
+   private long latencyTargetNanos;
+
+   /**
+    * Estimated serialized size of the queued commands, only tracked when needed for flushing.
+    */
+   private final AtomicLong queuedBytes = new AtomicLong(0);
+
+   /**
+    * When the oldest command still queued was added, or 0 if the queue was empty.
+    */
+   private final AtomicLong oldestQueuedNanos = new AtomicLong(0);
+   private final AtomicLong lastArrivalNanos = new AtomicLong(0);
+
+   /**
+    * Moving average of the time between two commands, updated without synchronization since an occasionally lost
+    * sample does not matter.
+    */
+   private volatile double meanInterArrivalNanos = -1;
+
+   @ManagedAttribute(description = "Enables or disables the gathering of statistics by this component", writable = true)
+   private volatile boolean statisticsEnabled;
+   private final AtomicLong flushes = new AtomicLong(0);
+   private final AtomicLong elementsFlushed = new AtomicLong(0);
+   private final AtomicLong bytesFlushed = new AtomicLong(0);
+   private final AtomicLong countTriggeredFlushes = new AtomicLong(0);
+   private final AtomicLong bytesTriggeredFlushes = new AtomicLong(0);
+   private final AtomicLong timeTriggeredFlushes = new AtomicLong(0);
+
    /**
     * @return true if this replication queue is enabled, false otherwise.
     */
@@ -74,16 +137,41 @@ public class ReplicationQueueImpl implements ReplicationQueue {
    @Start
    public void start() {
       long interval = configuration.getReplQueueInterval();
-      log.trace("Starting replication queue, with interval %s and maxElements %s", interval, maxElements);
       this.maxElements = configuration.getReplQueueMaxElements();
+      this.maxBytes = configuration.getReplQueueMaxBytes();
+      this.adaptive = configuration.isReplQueueAdaptive();
+      this.statisticsEnabled = configuration.isExposeJmxStatistics();
+      this.trackQueuedBytes = maxBytes > 0;
+      this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+      log.trace("Starting replication queue, with interval %s, maxElements %s, maxBytes %s and adaptive %s",
+                interval, maxElements, maxBytes, adaptive);
       // check again
       enabled = configuration.isUseReplQueue();
       if (enabled && interval > 0) {
-         scheduledFuture = scheduledExecutor.scheduleWithFixedDelay(new Runnable() {
-            public void run() {
-               flush();
-            }
-         }, interval, interval, TimeUnit.MILLISECONDS);
+         if (adaptive) {
+            // Check often enough for no command to wait much longer than the latency target
+            long checkInterval = Math.max(1, interval / 4);
+            scheduledFuture = scheduledExecutor.scheduleWithFixedDelay(new Runnable() {
+               public void run() {
+                  flushIfLate();
+               }
+            }, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+         } else {
+            scheduledFuture = scheduledExecutor.scheduleWithFixedDelay(new Runnable() {
+               public void run() {
+                  if (statisticsEnabled && !elements.isEmpty()) timeTriggeredFlushes.incrementAndGet();
+                  flush();
+               }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+         }
+      }
+   }
+
+   private void flushIfLate() {
+      long oldest = oldestQueuedNanos.get();
+      if (oldest != 0 && System.nanoTime() - oldest >= latencyTargetNanos) {
+         if (statisticsEnabled) timeTriggeredFlushes.incrementAndGet();
+         flush();
       }
    }
 
@@ -107,20 +195,57 @@ public class ReplicationQueueImpl implements ReplicationQueue {
       if (job == null)
          throw new NullPointerException("job is null");
       try {
+         long now = adaptive ? System.nanoTime() : 0;
+         if (adaptive) recordArrival(now);
+         long bytes = trackQueuedBytes ? estimateSize(job) : 0;
          elements.put(job);
-         if (elements.size() >= maxElements) flush();
+         if (adaptive) oldestQueuedNanos.compareAndSet(0, now);
+
+         int size = elements.size();
+         long queued = trackQueuedBytes ? queuedBytes.addAndGet(bytes) : 0;
+         if (size >= maxElements || (adaptive && size >= getTargetBatchSize())) {
+            if (statisticsEnabled) countTriggeredFlushes.incrementAndGet();
+            flush();
+         } else if (maxBytes > 0 && queued >= maxBytes) {
+            if (statisticsEnabled) bytesTriggeredFlushes.incrementAndGet();
+            flush();
+         }
       } catch (InterruptedException ie) {
          Thread.interrupted();
       }
    }
 
+   private void recordArrival(long now) {
+      long last = lastArrivalNanos.getAndSet(now);
+      if (last == 0) return;
+      double mean = meanInterArrivalNanos;
+      long interArrival = now - last;
+      meanInterArrivalNanos = mean < 0 ? interArrival : mean + ARRIVAL_SMOOTHING * (interArrival - mean);
+   }
+
    @Override
+   @ManagedOperation(description = "Sends the queued commands straight away and returns how many were sent")
+   @Operation(displayName = "Flush the replication queue")
    public synchronized int flush() {
+      // Reset before draining, so that commands added meanwhile are at worst flushed early rather than late
+      oldestQueuedNanos.set(0);
       List<ReplicableCommand> toReplicate = drainReplQueue();
       if (log.isTraceEnabled()) log.trace("flush(): flushing repl queue (num elements=%s)", toReplicate.size());
 
       int toReplicateSize = toReplicate.size();
       if (toReplicateSize > 0) {
+         // statistics may be enabled or disabled at any time, so only read the flag once per flush
+         boolean stats = statisticsEnabled;
+         if (trackQueuedBytes || stats) {
+            long bytes = 0;
+            for (ReplicableCommand command : toReplicate) bytes += estimateSize(command);
+            if (trackQueuedBytes) queuedBytes.addAndGet(-bytes);
+            if (stats) bytesFlushed.addAndGet(bytes);
+         }
+         if (stats) {
+            flushes.incrementAndGet();
+            elementsFlushed.addAndGet(toReplicateSize);
+         }
          try {
             log.trace("Flushing %s elements", toReplicateSize);
             MultipleRpcCommand multipleRpcCommand = commandsFactory.buildReplicateCommand(toReplicate);
@@ -140,7 +265,44 @@ public class ReplicationQueueImpl implements ReplicationQueue {
       return toReplicate;
    }
 
+   /**
+    * Estimates the serialized size of a command from its parameters, without marshalling it. Sizes of byte arrays and
+    * strings are accounted for, other objects count as a fixed size.
+    */
+   protected long estimateSize(ReplicableCommand command) {
+      return estimateSize(command, 0);
+   }
+
+   private static long estimateSize(Object o, int depth) {
+      if (o == null) return 1;
+      if (o instanceof byte[]) return 4 + ((byte[]) o).length;
+      if (o instanceof String) return 2 + ((String) o).length();
+      if (o instanceof Number || o instanceof Boolean || o instanceof Character || o instanceof Enum) return 9;
+      if (depth >= MAX_ESTIMATE_DEPTH) return DEFAULT_OBJECT_SIZE;
+      long size;
+      if (o instanceof ReplicableCommand) {
+         size = 3;
+         Object[] parameters = ((ReplicableCommand) o).getParameters();
+         if (parameters != null) for (Object p : parameters) size += estimateSize(p, depth + 1);
+      } else if (o instanceof Object[]) {
+         size = 4;
+         for (Object e : (Object[]) o) size += estimateSize(e, depth + 1);
+      } else if (o instanceof Collection) {
+         size = 4;
+         for (Object e : (Collection<?>) o) size += estimateSize(e, depth + 1);
+      } else if (o instanceof Map) {
+         size = 4;
+         for (Map.Entry<?, ?> e : ((Map<?, ?>) o).entrySet())
+            size += estimateSize(e.getKey(), depth + 1) + estimateSize(e.getValue(), depth + 1);
+      } else {
+         size = DEFAULT_OBJECT_SIZE;
+      }
+      return size;
+   }
+
    @Override
+   @ManagedAttribute(description = "Number of commands waiting in the queue")
+   @Metric(displayName = "Number of queued commands", displayType = DisplayType.SUMMARY)
    public int getElementsCount() {
       return elements.size();
    }
@@ -148,5 +310,99 @@ public class ReplicationQueueImpl implements ReplicationQueue {
    @Override
    public void reset() {
       elements.clear();
+      queuedBytes.set(0);
+      oldestQueuedNanos.set(0);
+   }
+
+   /**
+    * In adaptive mode, the number of commands expected to arrive within the latency target at the current arrival
+    * rate, capped by replQueueMaxElements.
+    */
+   @ManagedAttribute(description = "Number of queued commands that triggers a flush in adaptive mode")
+   @Metric(displayName = "Adaptive batch size", displayType = DisplayType.SUMMARY)
+   public long getTargetBatchSize() {
+      double mean = meanInterArrivalNanos;
+      if (mean <= 0) return 1;
+      return Math.max(1, Math.min(maxElements, (long) (latencyTargetNanos / mean)));
+   }
+
+   // -------------------------------------------- JMX information -----------------------------------------------
+
+   @ManagedAttribute(description = "Estimated serialized size of the queued commands, in bytes, or -1 if replQueueMaxBytes is not set")
+   @Metric(displayName = "Estimated size of queued commands", displayType = DisplayType.SUMMARY)
+   public long getQueuedBytes() {
+      return trackQueuedBytes ? queuedBytes.get() : -1;
+   }
+
+   @ManagedAttribute(description = "Observed rate at which commands are added to the queue in adaptive mode, per second")
+   @Metric(displayName = "Command arrival rate", displayType = DisplayType.SUMMARY)
+   public double getArrivalRate() {
+      double mean = meanInterArrivalNanos;
+      return mean <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / mean;
+   }
+
+   @ManagedAttribute(description = "Number of non-empty flushes")
+   @Metric(displayName = "Number of flushes", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
+   public long getFlushCount() {
+      return statisticsEnabled ? flushes.get() : -1;
+   }
+
+   @ManagedAttribute(description = "Number of commands sent by flushes")
+   @Metric(displayName = "Number of commands flushed", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
+   public long getElementsFlushed() {
+      return statisticsEnabled ? elementsFlushed.get() : -1;
+   }
+
+   @ManagedAttribute(description = "Estimated serialized size of the commands sent by flushes, in bytes")
+   @Metric(displayName = "Estimated size of commands flushed", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
+   public long getBytesFlushed() {
+      return statisticsEnabled ? bytesFlushed.get() : -1;
+   }
+
+   @ManagedAttribute(description = "Average number of commands sent per flush")
+   @Metric(displayName = "Average batch size", displayType = DisplayType.SUMMARY)
+   public double getAverageBatchSize() {
+      if (!statisticsEnabled) return -1;
+      long count = flushes.get();
+      return count == 0 ? 0 : (double) elementsFlushed.get() / count;
+   }
+
+   @ManagedAttribute(description = "Number of flushes triggered by the number of queued commands")
+   @Metric(displayName = "Flushes triggered by count", measurementType = MeasurementType.TRENDSUP)
+   public long getCountTriggeredFlushes() {
+      return statisticsEnabled ? countTriggeredFlushes.get() : -1;
+   }
+
+   @ManagedAttribute(description = "Number of flushes triggered by the estimated size of queued commands")
+   @Metric(displayName = "Flushes triggered by size", measurementType = MeasurementType.TRENDSUP)
+   public long getBytesTriggeredFlushes() {
+      return statisticsEnabled ? bytesTriggeredFlushes.get() : -1;
+   }
+
+   @ManagedAttribute(description = "Number of flushes triggered by the interval or the latency target")
+   @Metric(displayName = "Flushes triggered by time", measurementType = MeasurementType.TRENDSUP)
+   public long getTimeTriggeredFlushes() {
+      return statisticsEnabled ? timeTriggeredFlushes.get() : -1;
+   }
+
+   @ManagedOperation(description = "Resets statistics gathered by this component")
+   @Operation(displayName = "Reset statistics")
+   public void resetStatistics() {
+      flushes.set(0);
+      elementsFlushed.set(0);
+      bytesFlushed.set(0);
+      countTriggeredFlushes.set(0);
+      bytesTriggeredFlushes.set(0);
+      timeTriggeredFlushes.set(0);
+   }
+
+   @Metric(displayName = "Statistics enabled", dataType = DataType.TRAIT)
+   public boolean isStatisticsEnabled() {
+      return statisticsEnabled;
+   }
+
+   @Operation(displayName = "Enable/disable statistics")
+   public void setStatisticsEnabled(@Parameter(name = "enabled", description = "Whether statistics should be enabled or disabled (true/false)") boolean statisticsEnabled) {
+      this.statisticsEnabled = statisticsEnabled;
    }
 }
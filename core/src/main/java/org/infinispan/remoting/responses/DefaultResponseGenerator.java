@@ -3,6 +3,7 @@ package org.infinispan.remoting.responses;
 import org.infinispan.commands.remote.CacheRpcCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.GetInDoubtTransactionsCommand;
+import org.infinispan.commands.remote.MapReduceCommand;
 
 /**
  * The default response generator for most cache modes
@@ -17,6 +18,8 @@ public class DefaultResponseGenerator implements ResponseGenerator {
          return new SuccessfulResponse(returnValue);
       else if (command.getCommandId() == GetInDoubtTransactionsCommand.COMMAND_ID){
          return new SuccessfulResponse(returnValue);
+      } else if (command.getCommandId() == MapReduceCommand.COMMAND_ID) {
+         return new SuccessfulResponse(returnValue);
       } else {
          return null; // saves on serializing a response!
       }
@@ -31,6 +31,7 @@ import org.infinispan.util.concurrent.NotifyingNotifiableFuture;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * Provides a mechanism for communicating with other caches in the cluster, by formatting and passing requests down to
@@ -193,6 +194,17 @@ public interface RpcManager {
     */
    void invokeRemotelyInFuture(final Collection<Address> recipients, final ReplicableCommand rpc, final boolean usePriorityQueue, final NotifyingNotifiableFuture<Object> future, final long timeout);
 
+   /**
+    * Invokes a synchronous RPC call on the transport executor, so that several commands can be in flight at the same
+    * time.  Unlike the other <tt>invokeRemotelyInFuture</tt> methods, the returned Future provides the responses.
+    *
+    * @param recipients recipients to invoke remote call on
+    * @param rpc        command to execute remotely
+    * @param timeout    after which to give up (in millis)
+    * @return a Future holding the responses, keyed by the address of the responding member
+    */
+   Future<Map<Address, Response>> invokeRemotelyInFuture(Collection<Address> recipients, ReplicableCommand rpc, long timeout);
+
    /**
     * @return a reference to the underlying transport.
     */
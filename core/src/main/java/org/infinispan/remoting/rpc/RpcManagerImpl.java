@@ -36,6 +36,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -255,6 +256,15 @@ public class RpcManagerImpl implements RpcManager {
       l.setNetworkFuture(asyncExecutor.submit(c));
    }
 
+   public final Future<Map<Address, Response>> invokeRemotelyInFuture(final Collection<Address> recipients, final ReplicableCommand rpc, final long timeout) {
+      if (trace) log.trace("%s invoking in future call %s to recipient list %s", t.getAddress(), rpc, recipients);
+      return asyncExecutor.submit(new Callable<Map<Address, Response>>() {
+         public Map<Address, Response> call() {
+            return invokeRemotely(recipients, rpc, true, false, timeout);
+         }
+      });
+   }
+
    public Transport getTransport() {
       return t;
    }
@@ -58,10 +58,17 @@ import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.infinispan.context.Flag.CACHE_MODE_LOCAL;
@@ -83,9 +90,11 @@ public class StateTransferManagerImpl implements StateTransferManager {
    private static final Log log = LogFactory.getLog(StateTransferManagerImpl.class);
    private static final boolean trace = log.isTraceEnabled();
    private static final Byte DELIMITER = (byte) 123;
+   private static final AtomicInteger threadCounter = new AtomicInteger(0);
 
    boolean transientState, persistentState, alwaysProvideTransientState;
    int maxNonProgressingLogWrites;
+   int chunkSize;
    long flushTimeout;
    volatile boolean needToUnblockRPC = false;
    volatile Address stateSender;
@@ -119,6 +128,7 @@ public class StateTransferManagerImpl implements StateTransferManager {
       persistentState = cs != null && clm.isEnabled() && clm.isFetchPersistentState() && !clm.isShared();
       maxNonProgressingLogWrites = configuration.getStateRetrievalMaxNonProgressingLogWrites();
       flushTimeout = configuration.getStateRetrievalLogFlushTimeout();
+      chunkSize = configuration.getStateRetrievalChunkSize();
 
       if (transientState || persistentState) {
          long startTime = 0;
@@ -314,8 +324,7 @@ public class StateTransferManagerImpl implements StateTransferManager {
                assertDelimited(oi);
                // First clear the cache store!!
                if (cs != null) cs.clear();
-               if (transientState) applyInMemoryState(oi);
-               assertDelimited(oi);
+               applyInMemoryState(oi);
                if (persistentState) applyPersistentState(oi);
                assertDelimited(oi);
                applyTransactionLog(oi);
@@ -336,29 +345,90 @@ public class StateTransferManagerImpl implements StateTransferManager {
       }
    }
 
+   /**
+    * Reads the chunks of in-memory state up to and including the delimiter that follows them.  If in-memory state is
+    * to be fetched, each chunk is handed to a bounded pool of threads as soon as it has been read, so that entries are
+    * applied while the next chunk is still in transit.  When all threads are busy, the reading thread applies the
+    * chunk itself, which stops it from reading further and, in turn, throttles the state provider.
+    */
    @SuppressWarnings("unchecked")
    private void applyInMemoryState(ObjectInput i) throws StateTransferException {
-      dataContainer.clear();
+      ThreadPoolExecutor executor = null;
       try {
-         Set<InternalCacheEntry> set = (Set<InternalCacheEntry>) marshaller.objectFromObjectStream(i);
-         for (InternalCacheEntry se : set)
-            cache.withFlags(CACHE_MODE_LOCAL).put(se.getKey(), se.getValue(), se.getLifespan(), MILLISECONDS, se.getMaxIdle(), MILLISECONDS);
-      } catch (Exception e) {
+         if (transientState) {
+            dataContainer.clear();
+            executor = newApplyingExecutor();
+         }
+         LinkedList<Future<?>> pending = new LinkedList<Future<?>>();
+         int entries = 0;
+         Object object = marshaller.objectFromObjectStream(i);
+         while (object instanceof List) {
+            final List<InternalCacheEntry> chunk = (List<InternalCacheEntry>) object;
+            if (executor != null) {
+               entries += chunk.size();
+               pending.add(executor.submit(new Runnable() {
+                  public void run() {
+                     for (InternalCacheEntry se : chunk)
+                        cache.withFlags(CACHE_MODE_LOCAL).put(se.getKey(), se.getValue(), se.getLifespan(), MILLISECONDS, se.getMaxIdle(), MILLISECONDS);
+                  }
+               }));
+               // surface failures early, and don't let completed futures pile up
+               while (!pending.isEmpty() && pending.getFirst().isDone()) pending.removeFirst().get();
+            }
+            object = marshaller.objectFromObjectStream(i);
+         }
+         for (Future<?> f : pending) f.get();
+         if (log.isDebugEnabled() && transientState) log.debug("Applied %s in-memory entries", entries);
+         assertDelimited(object);
+      } catch (StateTransferException ste) {
+         if (transientState) dataContainer.clear();
+         throw ste;
+      } catch (ExecutionException e) {
          dataContainer.clear();
+         throw new StateTransferException(e.getCause());
+      } catch (Exception e) {
+         if (transientState) dataContainer.clear();
          throw new StateTransferException(e);
+      } finally {
+         if (executor != null) executor.shutdownNow();
       }
    }
 
+   private ThreadPoolExecutor newApplyingExecutor() {
+      int threads = Runtime.getRuntime().availableProcessors();
+      return new ThreadPoolExecutor(threads, threads, 0, MILLISECONDS, new ArrayBlockingQueue<Runnable>(threads),
+            new ThreadFactory() {
+               public Thread newThread(Runnable r) {
+                  Thread t = new Thread(r, "StateTransfer-" + cache.getName() + "-" + threadCounter.getAndIncrement());
+                  t.setDaemon(true);
+                  return t;
+               }
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+   }
+
+   /**
+    * Writes the in-memory entries as a sequence of chunks of at most <tt>chunkSize</tt> entries, straight from the
+    * data container, so that the whole in-memory state is never held in memory at once.
+    */
    private void generateInMemoryState(ObjectOutput oo) throws StateTransferException {
-      // write all StoredEntries to the stream using the marshaller.
       // TODO is it safe enough to get these from the data container directly?
       try {
-         Set<InternalCacheEntry> entries = new HashSet<InternalCacheEntry>();
+         int entries = 0;
+         List<InternalCacheEntry> chunk = new ArrayList<InternalCacheEntry>(Math.min(chunkSize, 1024));
          for (InternalCacheEntry e : dataContainer) {
-            if (!e.isExpired()) entries.add(e);
+            if (e.isExpired()) continue;
+            chunk.add(e);
+            if (chunk.size() >= chunkSize) {
+               marshaller.objectToObjectStream(chunk, oo);
+               entries += chunk.size();
+               chunk = new ArrayList<InternalCacheEntry>(Math.min(chunkSize, 1024));
+            }
+         }
+         if (!chunk.isEmpty()) {
+            marshaller.objectToObjectStream(chunk, oo);
+            entries += chunk.size();
          }
-         if (log.isDebugEnabled()) log.debug("Writing %s StoredEntries to stream", entries.size());
-         marshaller.objectToObjectStream(entries, oo);
+         if (log.isDebugEnabled()) log.debug("Wrote %s StoredEntries to stream", entries);
       } catch (Exception e) {
          throw new StateTransferException(e);
       }
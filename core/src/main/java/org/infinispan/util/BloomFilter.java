@@ -0,0 +1,76 @@
+package org.infinispan.util;
+
+import org.infinispan.util.hash.MurmurHash3;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe Bloom filter over object keys.  It may report that a key it has never seen is present, with a
+ * probability bounded by the false positive probability it was sized for, but it never reports an added key as absent.
+ * <p />
+ * Keys are hashed through their {@link Object#hashCode()}, so that keys which are equal to each other are always
+ * found.
+ *
+ * @since 5.0
+ */
+public class BloomFilter {
+   private static final MurmurHash3 HASH = new MurmurHash3();
+
+   private final AtomicLongArray bits;
+   private final int numBits;
+   private final int numHashes;
+
+   /**
+    * @param expectedKeys number of keys the filter is sized for
+    * @param falsePositiveProbability false positive probability once expectedKeys keys have been added
+    */
+   public BloomFilter(int expectedKeys, double falsePositiveProbability) {
+      if (expectedKeys < 1) expectedKeys = 1;
+      double ln2 = Math.log(2);
+      long optimalBits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveProbability) / (ln2 * ln2));
+      numBits = (int) Math.max(64, Math.min(optimalBits, Integer.MAX_VALUE - 63));
+      numHashes = Math.max(1, (int) Math.round((double) numBits / expectedKeys * ln2));
+      bits = new AtomicLongArray((numBits + 63) >>> 6);
+   }
+
+   public void add(Object key) {
+      int h1 = HASH.hash(key.hashCode());
+      int h2 = HASH.hash(h1);
+      for (int i = 0; i < numHashes; i++) {
+         int bit = bitIndex(h1, h2, i);
+         int word = bit >>> 6;
+         long mask = 1L << bit;
+         long current;
+         do {
+            current = bits.get(word);
+            if ((current & mask) != 0) break;
+         } while (!bits.compareAndSet(word, current, current | mask));
+      }
+   }
+
+   /**
+    * @return false if the key has definitely not been added, true if it may have been
+    */
+   public boolean mightContain(Object key) {
+      int h1 = HASH.hash(key.hashCode());
+      int h2 = HASH.hash(h1);
+      for (int i = 0; i < numHashes; i++) {
+         int bit = bitIndex(h1, h2, i);
+         if ((bits.get(bit >>> 6) & (1L << bit)) == 0) return false;
+      }
+      return true;
+   }
+
+   private int bitIndex(int h1, int h2, int i) {
+      // double hashing, as in Kirsch and Mitzenmacher's "Less Hashing, Same Performance"
+      return (int) (((h1 + (long) i * h2) & Long.MAX_VALUE) % numBits);
+   }
+
+   public int getNumBits() {
+      return numBits;
+   }
+
+   public int getNumHashes() {
+      return numHashes;
+   }
+}
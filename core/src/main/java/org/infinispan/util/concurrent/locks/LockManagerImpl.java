@@ -33,9 +33,9 @@ import org.infinispan.jmx.annotations.MBean;
 import org.infinispan.jmx.annotations.ManagedAttribute;
 import org.infinispan.util.ReversibleOrderedSet;
 import org.infinispan.util.concurrent.locks.containers.LockContainer;
-import org.infinispan.util.concurrent.locks.containers.OwnableReentrantPerEntryLockContainer;
+import org.infinispan.util.concurrent.locks.containers.OwnableReentrantPooledLockContainer;
 import org.infinispan.util.concurrent.locks.containers.OwnableReentrantStripedLockContainer;
-import org.infinispan.util.concurrent.locks.containers.ReentrantPerEntryLockContainer;
+import org.infinispan.util.concurrent.locks.containers.ReentrantPooledLockContainer;
 import org.infinispan.util.concurrent.locks.containers.ReentrantStripedLockContainer;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -47,7 +47,6 @@ import javax.transaction.TransactionManager;
 import java.util.Iterator;
 import java.util.Map;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
-import java.util.concurrent.locks.Lock;
 
 /**
  * Handles locks for the MVCC based LockingInterceptor
@@ -63,7 +62,6 @@ public class LockManagerImpl implements LockManager {
    private InvocationContextContainer invocationContextContainer;
    private static final Log log = LogFactory.getLog(LockManagerImpl.class);
    protected static final boolean trace = log.isTraceEnabled();
-   private static final String ANOTHER_THREAD = "(another thread)";
 
    @Inject
    public void injectDependencies(Configuration configuration, TransactionManager transactionManager, InvocationContextContainer invocationContextContainer) {
@@ -76,7 +74,7 @@ public class LockManagerImpl implements LockManager {
    public void startLockManager() {
       lockContainer = configuration.isUseLockStriping() ?
       transactionManager == null ? new ReentrantStripedLockContainer(configuration.getConcurrencyLevel()) : new OwnableReentrantStripedLockContainer(configuration.getConcurrencyLevel(), invocationContextContainer) :
-      transactionManager == null ? new ReentrantPerEntryLockContainer(configuration.getConcurrencyLevel()) : new OwnableReentrantPerEntryLockContainer(configuration.getConcurrencyLevel(), invocationContextContainer);
+      transactionManager == null ? new ReentrantPooledLockContainer(configuration.getConcurrencyLevel()) : new OwnableReentrantPooledLockContainer(configuration.getConcurrencyLevel(), invocationContextContainer);
    }
 
    public boolean lockAndRecord(Object key, InvocationContext ctx) throws InterruptedException {
@@ -139,16 +137,7 @@ public class LockManagerImpl implements LockManager {
    }
 
    public Object getOwner(Object key) {
-      if (lockContainer.isLocked(key)) {
-         Lock l = lockContainer.getLock(key);
-
-         if (l instanceof OwnableReentrantLock) {
-            return ((OwnableReentrantLock) l).getOwner();
-         } else {
-            // cannot determine owner, JDK Reentrant locks only provide best-effort guesses.
-            return ANOTHER_THREAD;
-         }
-      } else return null;
+      return lockContainer.getOwner(key);
    }
 
    public String printLockInfo() {
@@ -0,0 +1,352 @@
+package org.infinispan.util.concurrent.locks.containers;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A per-entry lock container that keeps its locks in an open-addressed table of pooled lock records, instead of
+ * creating a new lock and a map entry for every key that is locked.
+ * <p/>
+ * A record is bound to a key while it is pinned, i.e. while at least one requestor holds or waits for the lock, and is
+ * returned to the pool when the last one goes away.  Records are never removed from the table, so a lookup simply
+ * probes from the key's home slot until it either finds the record bound to the key or an empty slot, without taking
+ * any lock.  Only binding a key to a record is serialized, on a small spin lock per home slot, so that two threads
+ * cannot bind the same key to two different records.  When the probe window of a table is exhausted the lookup moves
+ * on to an overflow table twice the size, so the number of keys that can be locked at the same time is not bounded.
+ * <p/>
+ * Acquiring a contended lock spins for a short while before parking the thread, as most locks in a cache are only held
+ * for the duration of a single write.
+ *
+ * @since 5.0
+ */
+@ThreadSafe
+public abstract class AbstractPooledLockContainer implements LockContainer {
+
+   private static final int MAX_PROBES = 16;
+   private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 64 : 0;
+
+   private static final AtomicIntegerFieldUpdater<PooledLock> PINS =
+         AtomicIntegerFieldUpdater.newUpdater(PooledLock.class, "pins");
+
+   private final Table table;
+
+   /**
+    * Spin locks serializing the binding of keys, indexed by the home slot of the keys in the first table.
+    */
+   private final AtomicIntegerArray bindLocks;
+
+   protected AbstractPooledLockContainer(int concurrencyLevel) {
+      int capacity = 1;
+      while (capacity < concurrencyLevel * MAX_PROBES) capacity <<= 1;
+      table = new Table(capacity);
+      bindLocks = new AtomicIntegerArray(capacity);
+   }
+
+   /**
+    * @return the requestor on whose behalf the current thread acquires or releases locks.
+    */
+   protected abstract Object currentRequestor();
+
+   /**
+    * Returns the lock currently bound to the given key, or null if the key is neither locked nor being waited for.
+    * The returned lock is not pinned, so it should only be used to acquire the key through {@link #acquireLock(Object,
+    * long, java.util.concurrent.TimeUnit)}.
+    */
+   public final Lock getLock(Object key) {
+      return findLock(key);
+   }
+
+   /**
+    * @return the owner of the lock on the given key, or null if the key is not locked.
+    */
+   public final Object getOwner(Object key) {
+      PooledLock lock = findLock(key);
+      return lock == null ? null : lock.getOwner();
+   }
+
+   public final boolean isLocked(Object key) {
+      PooledLock lock = findLock(key);
+      return lock != null && lock.isLocked();
+   }
+
+   public int getNumLocksHeld() {
+      int held = 0;
+      for (Table t = table; t != null; t = t.next.get()) {
+         for (int i = 0; i < t.slots.length(); i++) {
+            PooledLock lock = t.slots.get(i);
+            if (lock != null && lock.isLocked()) held++;
+         }
+      }
+      return held;
+   }
+
+   public int size() {
+      int bound = 0;
+      for (Table t = table; t != null; t = t.next.get()) {
+         for (int i = 0; i < t.slots.length(); i++) {
+            PooledLock lock = t.slots.get(i);
+            if (lock != null && lock.pins > 0) bound++;
+         }
+      }
+      return bound;
+   }
+
+   public String toString() {
+      return getClass().getSimpleName() + "{" +
+            "numLocksHeld=" + getNumLocksHeld() +
+            ", size=" + size() +
+            '}';
+   }
+
+   public Lock acquireLock(Object key, long timeout, TimeUnit unit) throws InterruptedException {
+      PooledLock lock = pin(key, hash(key));
+      boolean locked = false;
+      try {
+         locked = lock.tryLock(timeout, unit);
+      } catch (InterruptedException ie) {
+         throw ie;
+      } catch (Throwable th) {
+         locked = false;
+      } finally {
+         if (!locked) lock.unpin();
+      }
+      return locked ? lock : null;
+   }
+
+   public void releaseLock(Object key) {
+      PooledLock lock = findLock(key);
+      if (lock != null && lock.unlockIfHeld()) lock.unpin();
+   }
+
+   protected final PooledLock findLock(Object key) {
+      return find(key, hash(key));
+   }
+
+   private PooledLock find(Object key, int hash) {
+      for (Table t = table; t != null; t = t.next.get()) {
+         int mask = t.slots.length() - 1;
+         int i = hash & mask;
+         for (int probe = 0; probe < MAX_PROBES; probe++, i = (i + 1) & mask) {
+            PooledLock lock = t.slots.get(i);
+            // records are never removed, so nothing can be bound beyond an empty slot
+            if (lock == null) return null;
+            if (lock.pins > 0 && key.equals(lock.key)) return lock;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Returns the lock bound to the given key, binding a pooled record to it if there is none, pinned on behalf of the
+    * caller.
+    */
+   private PooledLock pin(Object key, int hash) {
+      PooledLock lock = find(key, hash);
+      if (lock != null && lock.pin(key)) return lock;
+
+      int bindLock = hash & (bindLocks.length() - 1);
+      while (!bindLocks.compareAndSet(bindLock, 0, 1)) Thread.yield();
+      try {
+         while (true) {
+            lock = find(key, hash);
+            if (lock == null) return bind(key, hash);
+            // the record may have been released in the meantime, in which case look again
+            if (lock.pin(key)) return lock;
+         }
+      } finally {
+         bindLocks.set(bindLock, 0);
+      }
+   }
+
+   /**
+    * Binds the first free record in the key's probe sequence to the key, adding a new record to the table if there is
+    * none.  Must be called with the key's bind lock held, after checking that no record is bound to the key.
+    */
+   private PooledLock bind(Object key, int hash) {
+      for (Table t = table; ; t = t.nextTable()) {
+         int mask = t.slots.length() - 1;
+         int i = hash & mask;
+         for (int probe = 0; probe < MAX_PROBES; probe++, i = (i + 1) & mask) {
+            PooledLock lock = t.slots.get(i);
+            if (lock == null) {
+               PooledLock newLock = new PooledLock(key);
+               if (t.slots.compareAndSet(i, null, newLock)) return newLock;
+               // a key with a different home slot won the race for this slot
+               lock = t.slots.get(i);
+            }
+            if (lock.claim(key)) return lock;
+         }
+      }
+   }
+
+   private static int hash(Object key) {
+      int h = key.hashCode();
+      h ^= (h >>> 20) ^ (h >>> 12);
+      return h ^ (h >>> 7) ^ (h >>> 4);
+   }
+
+   private static final class Table {
+      final AtomicReferenceArray<PooledLock> slots;
+      final AtomicReference<Table> next = new AtomicReference<Table>();
+
+      Table(int capacity) {
+         slots = new AtomicReferenceArray<PooledLock>(capacity);
+      }
+
+      Table nextTable() {
+         Table t = next.get();
+         if (t == null) {
+            next.compareAndSet(null, new Table(slots.length() << 1));
+            t = next.get();
+         }
+         return t;
+      }
+   }
+
+   /**
+    * A reentrant lock record, owned by the requestors returned by {@link AbstractPooledLockContainer#currentRequestor()}.
+    * <p/>
+    * <tt>pins</tt> counts the requestors holding or waiting for the lock: it is 0 while the record is in the pool, and
+    * -1 while the record is being returned to the pool.
+    */
+   public final class PooledLock extends AbstractQueuedSynchronizer implements Lock {
+
+      private static final long serialVersionUID = -2848393640584446519L;
+
+      volatile Object key;
+      volatile int pins;
+      private transient volatile Object owner;
+
+      PooledLock(Object key) {
+         this.key = key;
+         this.pins = 1;
+      }
+
+      boolean claim(Object key) {
+         if (pins != 0 || !PINS.compareAndSet(this, 0, 1)) return false;
+         this.key = key;
+         return true;
+      }
+
+      boolean pin(Object key) {
+         while (true) {
+            int p = pins;
+            if (p <= 0) return false;
+            if (PINS.compareAndSet(this, p, p + 1)) break;
+         }
+         // the record may have been returned to the pool and bound to another key since it was looked up
+         if (key.equals(this.key)) return true;
+         unpin();
+         return false;
+      }
+
+      void unpin() {
+         while (true) {
+            int p = pins;
+            if (p == 1) {
+               if (PINS.compareAndSet(this, 1, -1)) {
+                  key = null;
+                  pins = 0;
+                  return;
+               }
+            } else if (PINS.compareAndSet(this, p, p - 1)) {
+               return;
+            }
+         }
+      }
+
+      boolean unlockIfHeld() {
+         if (!isHeldExclusively()) return false;
+         release(1);
+         return true;
+      }
+
+      public void lock() {
+         acquire(1);
+      }
+
+      public void lockInterruptibly() throws InterruptedException {
+         acquireInterruptibly(1);
+      }
+
+      public boolean tryLock() {
+         return tryAcquire(1);
+      }
+
+      public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+         if (tryAcquire(1)) return true;
+         long nanos = unit.toNanos(time);
+         if (nanos > 0) {
+            for (int i = 0; i < SPINS && !hasQueuedThreads(); i++) {
+               if (tryAcquire(1)) return true;
+            }
+         }
+         return tryAcquireNanos(1, nanos);
+      }
+
+      public void unlock() {
+         release(1);
+      }
+
+      public Condition newCondition() {
+         throw new UnsupportedOperationException("Not supported in this implementation!");
+      }
+
+      @Override
+      protected boolean tryAcquire(int acquires) {
+         Object requestor = currentRequestor();
+         int c = getState();
+         if (c == 0) {
+            if (compareAndSetState(0, acquires)) {
+               owner = requestor;
+               return true;
+            }
+         } else if (requestor.equals(owner)) {
+            setState(c + acquires);
+            return true;
+         }
+         return false;
+      }
+
+      @Override
+      protected boolean tryRelease(int releases) {
+         if (!isHeldExclusively()) return false;
+         int c = getState() - releases;
+         boolean free = c == 0;
+         if (free) owner = null;
+         setState(c);
+         return free;
+      }
+
+      @Override
+      protected boolean isHeldExclusively() {
+         return getState() != 0 && currentRequestor().equals(owner);
+      }
+
+      /**
+       * @return the owner of the lock, or null if it is currently unlocked.
+       */
+      public Object getOwner() {
+         Object o = owner;
+         return getState() == 0 ? null : o;
+      }
+
+      public boolean isLocked() {
+         return getState() != 0;
+      }
+
+      @Override
+      public String toString() {
+         Object o = getOwner();
+         return super.toString() + (o == null ? "[Unlocked]" : "[Locked by " + o + "]");
+      }
+   }
+}
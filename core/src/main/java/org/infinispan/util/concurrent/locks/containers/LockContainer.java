@@ -10,6 +10,11 @@ import java.util.concurrent.locks.Lock;
  * @since 4.0
  */
 public interface LockContainer {
+   /**
+    * Owner reported for keys locked by JDK reentrant locks, which only provide best-effort guesses about their owner.
+    */
+   String ANOTHER_THREAD = "(another thread)";
+
    /**
     * Tests if a give owner owns a lock on a specified object.
     *
@@ -25,6 +30,12 @@ public interface LockContainer {
     */
    boolean isLocked(Object key);
 
+   /**
+    * @param key object
+    * @return the owner of the lock on the given object, or null if the object is not locked
+    */
+   Object getOwner(Object key);
+
    /**
     * @param key object
     * @return the lock for a specific object
@@ -34,6 +34,11 @@ public class OwnableReentrantPerEntryLockContainer extends AbstractPerEntryLockC
       return l != null && l.isLocked();
    }
 
+   public Object getOwner(Object key) {
+      OwnableReentrantLock l = getLockFromMap(key);
+      return l == null ? null : l.getOwner();
+   }
+
    private OwnableReentrantLock getLockFromMap(Object key) {
       return (OwnableReentrantLock) locks.get(key);
    }
@@ -0,0 +1,30 @@
+package org.infinispan.util.concurrent.locks.containers;
+
+import org.infinispan.context.InvocationContextContainer;
+
+/**
+ * A pooled per-entry lock container whose locks are owned by the lock owner of the current invocation context, i.e.
+ * the transaction if there is one, as with {@link org.infinispan.util.concurrent.locks.OwnableReentrantLock}s.
+ *
+ * @since 5.0
+ */
+public class OwnableReentrantPooledLockContainer extends AbstractPooledLockContainer {
+
+   private final InvocationContextContainer icc;
+
+   public OwnableReentrantPooledLockContainer(int concurrencyLevel, InvocationContextContainer icc) {
+      super(concurrencyLevel);
+      if (icc == null)
+         throw new IllegalArgumentException("Invocation context container cannot be null!");
+      this.icc = icc;
+   }
+
+   protected Object currentRequestor() {
+      return icc.getInvocationContext().getLockOwner();
+   }
+
+   public boolean ownsLock(Object key, Object owner) {
+      PooledLock l = findLock(key);
+      return l != null && owner.equals(l.getOwner());
+   }
+}
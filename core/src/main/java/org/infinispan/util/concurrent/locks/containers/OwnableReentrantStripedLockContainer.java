@@ -72,6 +72,11 @@ public class OwnableReentrantStripedLockContainer extends AbstractStripedLockCon
       return lock.isLocked();
    }
 
+   public final Object getOwner(Object object) {
+      OwnableReentrantLock lock = getLock(object);
+      return lock.getOwner();
+   }
+
    public final int getNumLocksHeld() {
       int i = 0;
       for (OwnableReentrantLock l : sharedLocks) if (l.isLocked()) i++;
@@ -29,6 +29,10 @@ public class ReentrantPerEntryLockContainer extends AbstractPerEntryLockContaine
       return l != null && l.isLocked();
    }
 
+   public Object getOwner(Object key) {
+      return isLocked(key) ? ANOTHER_THREAD : null;
+   }
+
    private ReentrantLock getLockFromMap(Object key) {
       return (ReentrantLock) locks.get(key);
    }
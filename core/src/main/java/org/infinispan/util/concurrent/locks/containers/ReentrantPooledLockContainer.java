@@ -0,0 +1,23 @@
+package org.infinispan.util.concurrent.locks.containers;
+
+/**
+ * A pooled per-entry lock container whose locks are owned by threads, as with {@link
+ * java.util.concurrent.locks.ReentrantLock}s.
+ *
+ * @since 5.0
+ */
+public class ReentrantPooledLockContainer extends AbstractPooledLockContainer {
+
+   public ReentrantPooledLockContainer(int concurrencyLevel) {
+      super(concurrencyLevel);
+   }
+
+   protected Object currentRequestor() {
+      return Thread.currentThread();
+   }
+
+   public boolean ownsLock(Object key, Object owner) {
+      PooledLock l = findLock(key);
+      return l != null && Thread.currentThread() == l.getOwner();
+   }
+}
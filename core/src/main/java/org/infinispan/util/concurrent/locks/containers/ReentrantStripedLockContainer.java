@@ -80,6 +80,10 @@ public class ReentrantStripedLockContainer extends AbstractStripedLockContainer
       return lock.isLocked();
    }
 
+   public final Object getOwner(Object object) {
+      return isLocked(object) ? ANOTHER_THREAD : null;
+   }
+
    public String toString() {
       return "ReentrantStripedLockContainer{" +
             "sharedLocks=" + (sharedLocks == null ? null : Arrays.asList(sharedLocks)) +
@@ -7,6 +7,8 @@ import java.util.Collection;
 
 import org.infinispan.AdvancedCache;
 import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.container.OffHeapDataContainer;
+import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.manager.DefaultCacheManager;
 import org.infinispan.manager.EmbeddedCacheManager;
 import org.infinispan.test.TestingUtil;
@@ -108,6 +110,51 @@ public class DataContainerTest {
       }
    }
    
+   @Test
+   public void testOffHeapDataContainer() throws IOException {
+      String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+              "<infinispan\n" +
+              "      xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n" +
+              "      xsi:schemaLocation=\"urn:infinispan:config:4.0 http://www.infinispan.org/schemas/infinispan-config-4.0.xsd\"\n" +
+              "      xmlns=\"urn:infinispan:config:5.0\">" +
+              "<default><dataContainer class=\"" + OffHeapDataContainer.class.getName() + "\">" +
+              "<properties><property name=\"" + OffHeapDataContainer.PAGE_SIZE + "\" value=\"4096\" /></properties>" +
+              "</dataContainer></default>" +
+              "</infinispan>";
+
+      InputStream stream = new ByteArrayInputStream(xml.getBytes());
+      EmbeddedCacheManager cm = TestCacheManagerFactory.fromStream(stream);
+      try {
+         AdvancedCache<Object, Object> cache = cm.getCache().getAdvancedCache();
+
+         Assert.assertEquals(cache.getDataContainer().getClass(), OffHeapDataContainer.class);
+
+         cache.put("name", "Pete");
+         Assert.assertEquals(cache.get("name"), "Pete");
+         Assert.assertEquals(((OffHeapDataContainer) cache.getDataContainer()).getAllocatedBytes(), 4096);
+      } finally {
+         TestingUtil.killCacheManagers(cm);
+      }
+   }
+
+   public void testOffHeapDataContainerRejectsEviction() {
+      Configuration c = new Configuration().fluent()
+            .eviction().strategy(EvictionStrategy.LRU).maxEntries(100)
+            .dataContainer().dataContainerClass(OffHeapDataContainer.class)
+            .build();
+      EmbeddedCacheManager cm = TestCacheManagerFactory.createCacheManager(c);
+      try {
+         cm.getCache();
+         Assert.fail("Off-heap data containers do not evict, so eviction should have been rejected");
+      } catch (Exception e) {
+         Throwable cause = e;
+         while (cause != null && !(cause instanceof ConfigurationException)) cause = cause.getCause();
+         Assert.assertNotNull(cause, "Expected a ConfigurationException, but got " + e);
+      } finally {
+         TestingUtil.killCacheManagers(cm);
+      }
+   }
+
    boolean checkLoggedOperations(Collection<String> loggedOperations, String prefix) {
    	for (String loggedOperation : loggedOperations) {
    		if (loggedOperation.startsWith(prefix))
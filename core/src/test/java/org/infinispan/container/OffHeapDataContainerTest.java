@@ -0,0 +1,103 @@
+package org.infinispan.container;
+
+import org.infinispan.config.GlobalConfiguration;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.marshall.VersionAwareMarshaller;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Test(groups = "unit", testName = "container.OffHeapDataContainerTest")
+public class OffHeapDataContainerTest extends SimpleDataContainerTest {
+   VersionAwareMarshaller marshaller;
+
+   @BeforeClass
+   public void startMarshaller() {
+      marshaller = new VersionAwareMarshaller();
+      marshaller.inject(Thread.currentThread().getContextClassLoader(), null, new GlobalConfiguration());
+      marshaller.start();
+   }
+
+   @AfterClass
+   public void stopMarshaller() {
+      marshaller.stop();
+   }
+
+   @Override
+   protected DataContainer createContainer() {
+      OffHeapDataContainer dc = new OffHeapDataContainer(16, 1024);
+      dc.initialize(marshaller);
+      return dc;
+   }
+
+   @Override
+   public void testUpdatingLastUsed() throws Exception {
+      // entries are snapshots, so the last used stamp can only be observed on entries retrieved later on
+      long idle = 600000;
+      dc.put("k", "v", -1, idle);
+      InternalCacheEntry ice = dc.get("k");
+      long oldTime = System.currentTimeMillis();
+      Thread.sleep(100); // for time calc granularity
+      assert dc.peek("k").getLastUsed() == ice.getLastUsed();
+      ice = dc.get("k");
+      assert ice.getLastUsed() > oldTime;
+      assert ice.getMaxIdle() == idle;
+      assert ice.getLifespan() == -1;
+   }
+
+   @Override
+   public void testEntrySet() {
+      // entries are snapshots, and mortal and transient entries do not define equality, so compare their contents
+      dc.put("k1", "v1", 6000000, -1);
+      dc.put("k2", "v2", -1, -1);
+      dc.put("k3", "v3", -1, 6000000);
+      dc.put("k4", "v4", 6000000, 6000000);
+
+      Map<Object, Object> expected = new HashMap<Object, Object>();
+      for (int i = 1; i <= 4; i++) expected.put("k" + i, "v" + i);
+
+      Map<Object, Object> actual = new HashMap<Object, Object>();
+      for (InternalCacheEntry ice : dc.entrySet()) {
+         actual.put(ice.getKey(), ice.getValue());
+         assert ice.getLifespan() == dc.peek(ice.getKey()).getLifespan();
+         assert ice.getMaxIdle() == dc.peek(ice.getKey()).getMaxIdle();
+      }
+
+      assert actual.equals(expected) : "Expected to see entries " + expected + " but only saw " + actual;
+   }
+
+   public void testOverwriteAndRemoveReclaimSpace() {
+      OffHeapDataContainer offHeap = (OffHeapDataContainer) dc;
+      for (int i = 0; i < 10000; i++) dc.put("k" + (i % 100), "value" + i, -1, -1);
+      assert dc.size() == 100;
+      for (int i = 0; i < 100; i++) assert dc.get("k" + i).getValue().equals("value" + (9900 + i));
+      // compaction keeps the allocated memory proportional to the live entries
+      assert offHeap.getAllocatedBytes() < 100 * 1024 : "Allocated " + offHeap.getAllocatedBytes();
+
+      for (int i = 0; i < 100; i += 2) assert dc.remove("k" + i) != null;
+      assert dc.size() == 50;
+      for (int i = 0; i < 100; i++) assert dc.containsKey("k" + i) == (i % 2 == 1);
+   }
+
+   public void testEntryLargerThanPage() {
+      byte[] value = new byte[4096];
+      value[4095] = 42;
+      dc.put("big", value, -1, -1);
+      dc.put("small", "v", -1, -1);
+      byte[] stored = (byte[]) dc.get("big").getValue();
+      assert stored.length == 4096 && stored[4095] == 42;
+      assert dc.get("small").getValue().equals("v");
+   }
+
+   public void testClear() {
+      for (int i = 0; i < 1000; i++) dc.put(i, "value" + i, -1, -1);
+      assert dc.size() == 1000;
+      dc.clear();
+      assert dc.size() == 0;
+      assert ((OffHeapDataContainer) dc).getAllocatedBytes() == 0;
+      assert dc.get(1) == null;
+   }
+}
@@ -0,0 +1,98 @@
+package org.infinispan.distexec.mapreduce;
+
+import org.infinispan.Cache;
+import org.infinispan.distribution.BaseDistFunctionalTest;
+import org.infinispan.remoting.transport.Address;
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+@Test(groups = "functional", testName = "distexec.mapreduce.MapReduceTaskTest")
+public class MapReduceTaskTest extends BaseDistFunctionalTest {
+
+   public MapReduceTaskTest() {
+      l1CacheEnabled = false;
+   }
+
+   public void testSumAllEntries() throws Exception {
+      long expected = populate(3000);
+      SumCollator collator = new SumCollator();
+      Long sum = new MapReduceTask<Object, String, Long, Long>(caches.get(0))
+            .mappedWith(new LengthMapper()).reducedWith(new SumReducer()).collate(collator);
+      assert sum == expected : "Expected " + expected + " but was " + sum;
+      assert collator.results.size() == INIT_CLUSTER_SIZE : "Results received from " + collator.results.keySet();
+   }
+
+   public void testSumAllEntriesWithCombiner() throws Exception {
+      long expected = populate(3000);
+      Long sum = new MapReduceTask<Object, String, Long, Long>(caches.get(1))
+            .mappedWith(new LengthMapper()).reducedWith(new SumReducer()).combinedWith(new SumCombiner())
+            .collate(new SumCollator());
+      assert sum == expected : "Expected " + expected + " but was " + sum;
+   }
+
+   public void testSumSelectedKeys() throws Exception {
+      populate(100);
+      Long sum = new MapReduceTask<Object, String, Long, Long>(caches.get(2))
+            .onKeys("k1", "k22", "k99", "missing")
+            .mappedWith(new LengthMapper()).reducedWith(new SumReducer())
+            .collate(new SumCollator());
+      assert sum == "v1".length() + "v22".length() + "v99".length() : "Unexpected sum " + sum;
+   }
+
+   public void testCollateAsynchronously() throws Exception {
+      long expected = populate(500);
+      Future<Long> future = new MapReduceTask<Object, String, Long, Long>(caches.get(3))
+            .mappedWith(new LengthMapper()).reducedWith(new SumReducer()).combinedWith(new SumCombiner())
+            .collateAsynchronously(new SumCollator());
+      assert future.get() == expected;
+   }
+
+   private long populate(int numEntries) {
+      Cache<Object, String> cache = caches.get(0);
+      cache.clear();
+      long total = 0;
+      for (int i = 0; i < numEntries; i++) {
+         String value = "v" + i;
+         cache.put("k" + i, value);
+         total += value.length();
+      }
+      return total;
+   }
+
+   static class LengthMapper implements Mapper<Object, String, Long>, Serializable {
+      public Long map(Object key, String value) {
+         return (long) value.length();
+      }
+   }
+
+   static class SumReducer implements Reducer<Long, Long>, Serializable {
+      public Long reduce(Long mapResult, Long previouslyReduced) {
+         return previouslyReduced == null ? mapResult : previouslyReduced + mapResult;
+      }
+   }
+
+   static class SumCombiner implements Combiner<Long>, Serializable {
+      public Long combine(Long first, Long second) {
+         if (first == null) return second;
+         return second == null ? first : first + second;
+      }
+   }
+
+   static class SumCollator implements Collator<Long> {
+      final Map<Address, Long> results = new HashMap<Address, Long>();
+
+      public void reducedResultReceived(Address remoteNode, Long remoteResult) {
+         results.put(remoteNode, remoteResult);
+      }
+
+      public Long collate() {
+         long sum = 0;
+         for (Long l : results.values()) if (l != null) sum += l;
+         return sum;
+      }
+   }
+}
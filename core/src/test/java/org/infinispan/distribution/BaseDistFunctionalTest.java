@@ -48,6 +48,7 @@ public abstract class BaseDistFunctionalTest extends MultipleCacheManagersTest {
    protected boolean l1CacheEnabled = true;
    protected boolean l1OnRehash = false;
    protected int l1Threshold = 5;
+   protected long l1InvalidationCoalescingWindow = 0;
    protected boolean performRehashing = false;
    protected boolean batchingEnabled = false;
    protected int numOwners = 2;
@@ -70,6 +71,7 @@ public abstract class BaseDistFunctionalTest extends MultipleCacheManagersTest {
       configuration.setL1CacheEnabled(l1CacheEnabled);
       if (l1CacheEnabled) configuration.setL1OnRehash(l1OnRehash);
       if (l1CacheEnabled) configuration.setL1InvalidationThreshold(l1Threshold);
+      if (l1CacheEnabled) configuration.setL1InvalidationCoalescingWindow(l1InvalidationCoalescingWindow);
       caches = createClusteredCaches(INIT_CLUSTER_SIZE, cacheName, configuration);
 
       reorderBasedOnCHPositions();
@@ -0,0 +1,85 @@
+package org.infinispan.distribution;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.infinispan.Cache;
+import org.infinispan.commands.write.InvalidateL1Command;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.interceptors.base.CommandInterceptor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that L1 invalidations issued within the coalescing window reach a requestor as a single command.
+ *
+ * @since 5.0
+ */
+@Test(groups = "functional", testName = "distribution.CoalescedInvalidationFuncTest")
+public class CoalescedInvalidationFuncTest extends BaseDistFunctionalTest {
+
+   public CoalescedInvalidationFuncTest() {
+      sync = true;
+      tx = false;
+      testRetVals = true;
+      l1Threshold = -1;
+      l1InvalidationCoalescingWindow = 500;
+   }
+
+   public void testConcurrentWritesShareInvalidations() throws Exception {
+      final Object k1 = new MagicKey(c1);
+      final Object k2 = new MagicKey(c1);
+      final Cache<Object, String> owner = getOwners(k1)[0];
+      Cache<Object, String> nonOwner = getNonOwners(k1)[0];
+      assert !isOwner(nonOwner, k2);
+
+      owner.put(k1, "v1");
+      owner.put(k2, "v1");
+      // cache both keys in the non owner's L1
+      Assert.assertEquals(nonOwner.get(k1), "v1");
+      Assert.assertEquals(nonOwner.get(k2), "v1");
+      assertIsInL1(nonOwner, k1);
+      assertIsInL1(nonOwner, k2);
+
+      InvalidationCounter counter = new InvalidationCounter();
+      nonOwner.getAdvancedCache().addInterceptor(counter, 0);
+
+      ExecutorService executor = Executors.newFixedThreadPool(2);
+      try {
+         Future<Object> f1 = executor.submit(new Callable<Object>() {
+            public Object call() {
+               return owner.put(k1, "v2");
+            }
+         });
+         Future<Object> f2 = executor.submit(new Callable<Object>() {
+            public Object call() {
+               return owner.put(k2, "v2");
+            }
+         });
+         f1.get();
+         f2.get();
+      } finally {
+         executor.shutdownNow();
+      }
+
+      // the writes only return once the invalidations have been applied
+      Assert.assertNull(nonOwner.getAdvancedCache().getDataContainer().get(k1));
+      Assert.assertNull(nonOwner.getAdvancedCache().getDataContainer().get(k2));
+      // one command from each owner instead of one per key and owner
+      assert counter.invalidations.get() <= 2 : "Received " + counter.invalidations.get() + " invalidations";
+      Assert.assertEquals(nonOwner.get(k1), "v2");
+   }
+
+   static class InvalidationCounter extends CommandInterceptor {
+      final AtomicInteger invalidations = new AtomicInteger();
+
+      @Override
+      public Object visitInvalidateL1Command(InvocationContext ctx, InvalidateL1Command command) throws Throwable {
+         invalidations.incrementAndGet();
+         return invokeNextInterceptor(ctx, command);
+      }
+   }
+}
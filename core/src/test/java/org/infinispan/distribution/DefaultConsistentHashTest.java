@@ -47,7 +47,8 @@ public class DefaultConsistentHashTest extends AbstractInfinispanTest {
 
       assert l1.size() == 2;
       assert l1.equals(l2);
-      assert l1 != l2;
+      // owner lists are cached per segment of the wheel
+      assert l1 == l2;
 
       Object o2 = new Object() {
          @Override
@@ -68,6 +69,20 @@ public class DefaultConsistentHashTest extends AbstractInfinispanTest {
       assert ch.locate(o2, 4).equals(ch.locate(o3, 4));
    }
 
+   public void testPrimaryLocation() {
+      for (int i = 0; i < 1000; i++) {
+         String key = "key" + i;
+         List<Address> owners = ch.locate(key, 2);
+         assert ch.primaryLocation(key).equals(owners.get(0));
+         assert ch.locate(key, 1).equals(owners.subList(0, 1));
+      }
+   }
+
+   @Test(expectedExceptions = UnsupportedOperationException.class)
+   public void testLocatedOwnersAreImmutable() {
+      ch.locate("key", 2).add(new TestAddress(10));
+   }
+
    public void testMultipleKeys() {
       Object k1 = "key1", k2 = "key2", k3 = "key3";
       Collection<Object> keys = Arrays.asList(k1, k2, k3);
@@ -0,0 +1,58 @@
+package org.infinispan.distribution;
+
+import org.infinispan.Cache;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+@Test(groups = "functional", testName = "distribution.DistGetAllTest")
+public class DistGetAllTest extends BaseDistFunctionalTest {
+
+   public DistGetAllTest() {
+      sync = true;
+      tx = false;
+      testRetVals = true;
+   }
+
+   public void testGetAllFromNonOwner() {
+      Set<Object> keys = new HashSet<Object>();
+      for (int i = 0; i < 20; i++) {
+         getOwners("k" + i)[0].put("k" + i, "v" + i);
+         keys.add("k" + i);
+      }
+      keys.add("missing");
+
+      for (Cache<Object, String> c : caches) {
+         Map<Object, String> values = c.getAll(keys);
+         assert values.size() == 20 : "Expected 20 values on " + addressOf(c) + " but was " + values;
+         for (int i = 0; i < 20; i++) assert ("v" + i).equals(values.get("k" + i));
+         assert !values.containsKey("missing");
+      }
+
+      // remotely retrieved entries end up in L1
+      for (int i = 0; i < 20; i++) {
+         for (Cache<Object, String> c : getNonOwners("k" + i)) assertIsInL1(c, "k" + i);
+      }
+   }
+
+   public void testPutAllFromNonOwner() {
+      Map<Object, String> data = new HashMap<Object, String>();
+      for (int i = 0; i < 20; i++) data.put("p" + i, "v" + i);
+      c1.putAll(data);
+
+      for (int i = 0; i < 20; i++) {
+         String key = "p" + i;
+         for (Cache<Object, String> c : caches) {
+            if (isOwner(c, key)) {
+               assertIsInContainerImmortal(c, key);
+            } else if (c != c1) {
+               assertIsNotInL1(c, key);
+            }
+         }
+         assertOnAllCachesAndOwnership(key, "v" + i);
+      }
+   }
+}
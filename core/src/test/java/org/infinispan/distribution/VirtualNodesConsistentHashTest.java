@@ -0,0 +1,109 @@
+package org.infinispan.distribution;
+
+import org.infinispan.distribution.ch.VirtualNodesConsistentHash;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.util.hash.MurmurHash3;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests the key distribution and the rehash participants of {@link VirtualNodesConsistentHash}.
+ *
+ * @since 5.0
+ */
+@Test(groups = "unit", testName = "distribution.VirtualNodesConsistentHashTest")
+public class VirtualNodesConsistentHashTest extends AbstractInfinispanTest {
+
+   private static final int NUM_KEYS = 100000;
+
+   private VirtualNodesConsistentHash createConsistentHash(int numServers, int numVirtualNodes) {
+      Set<Address> servers = new HashSet<Address>();
+      for (int i = 0; i < numServers; i++) servers.add(new TestAddress(i));
+      return createConsistentHash(servers, numVirtualNodes);
+   }
+
+   private VirtualNodesConsistentHash createConsistentHash(Set<Address> servers, int numVirtualNodes) {
+      VirtualNodesConsistentHash ch = new VirtualNodesConsistentHash(new MurmurHash3());
+      ch.setNumVirtualNodes(numVirtualNodes);
+      ch.setCaches(servers);
+      return ch;
+   }
+
+   public void testLocate() {
+      VirtualNodesConsistentHash ch = createConsistentHash(5, 48);
+      for (int i = 0; i < 1000; i++) {
+         String key = "key" + i;
+         List<Address> owners = ch.locate(key, 2);
+         assert owners.size() == 2;
+         assert !owners.get(0).equals(owners.get(1));
+         assert owners.equals(ch.locate(key, 2));
+         assert owners.get(0).equals(ch.locate(key, 1).get(0));
+         for (Address a : ch.getCaches())
+            assert ch.isKeyLocalToAddress(a, key, 2) == owners.contains(a);
+      }
+      assert ch.locate("key", 10).size() == 5;
+      assert ch.isKeyLocalToAddress(new TestAddress(3), "key", 10);
+   }
+
+   public void testBalance() {
+      int numServers = 8;
+      VirtualNodesConsistentHash ch = createConsistentHash(numServers, 500);
+      Map<Address, Integer> primaries = new HashMap<Address, Integer>();
+      for (int i = 0; i < NUM_KEYS; i++) {
+         Address primary = ch.locate("key" + i, 2).get(0);
+         Integer count = primaries.get(primary);
+         primaries.put(primary, count == null ? 1 : count + 1);
+      }
+      assert primaries.size() == numServers;
+      int expected = NUM_KEYS / numServers;
+      for (Map.Entry<Address, Integer> e : primaries.entrySet()) {
+         assert Math.abs(e.getValue() - expected) < expected / 10 : "Unbalanced distribution " + primaries;
+      }
+   }
+
+   public void testStateProvidersOnJoin() {
+      VirtualNodesConsistentHash oldCh = createConsistentHash(5, 48);
+      Address joiner = new TestAddress(5);
+      Set<Address> servers = new HashSet<Address>(oldCh.getCaches());
+      servers.add(joiner);
+      VirtualNodesConsistentHash newCh = createConsistentHash(servers, 48);
+
+      List<Address> providers = newCh.getStateProvidersOnJoin(joiner, 2);
+      assert !providers.contains(joiner);
+      for (int i = 0; i < 10000; i++) {
+         String key = "key" + i;
+         if (newCh.isKeyLocalToAddress(joiner, key, 2))
+            assert providers.containsAll(oldCh.locate(key, 2)) : "Providers " + providers + " miss owners of " + key;
+      }
+   }
+
+   public void testStateReceiversOnLeave() {
+      VirtualNodesConsistentHash oldCh = createConsistentHash(6, 48);
+      Address leaver = new TestAddress(2);
+      Set<Address> servers = new HashSet<Address>(oldCh.getCaches());
+      servers.remove(leaver);
+      VirtualNodesConsistentHash newCh = createConsistentHash(servers, 48);
+
+      List<Address> providers = oldCh.getStateHoldersOnLeave(leaver, 2);
+      List<Address> receivers = oldCh.getStateReceiversOnLeave(leaver, providers, newCh, 2);
+      assert !providers.contains(leaver);
+      assert !receivers.contains(leaver);
+      for (int i = 0; i < 10000; i++) {
+         String key = "key" + i;
+         List<Address> oldOwners = new ArrayList<Address>(oldCh.locate(key, 2));
+         if (oldOwners.remove(leaver)) {
+            assert providers.containsAll(oldOwners);
+            List<Address> newOwners = new ArrayList<Address>(newCh.locate(key, 2));
+            newOwners.removeAll(oldOwners);
+            assert receivers.containsAll(newOwners) : "Receivers " + receivers + " miss new owners of " + key;
+         }
+      }
+   }
+}
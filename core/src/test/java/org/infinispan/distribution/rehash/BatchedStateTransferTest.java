@@ -0,0 +1,63 @@
+package org.infinispan.distribution.rehash;
+
+import org.infinispan.Cache;
+import org.infinispan.config.Configuration;
+import org.infinispan.distribution.BaseDistFunctionalTest;
+import org.infinispan.distribution.DistributionManagerImpl;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.testng.annotations.Test;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Tests that state is streamed to a joiner in batches when a rehash batch size is configured.
+ *
+ * @since 5.0
+ */
+@Test(groups = "functional", testName = "distribution.rehash.BatchedStateTransferTest")
+public class BatchedStateTransferTest extends BaseDistFunctionalTest {
+
+   private static final int NUM_KEYS = 200;
+   private static final int BATCH_SIZE = 5;
+
+   public BatchedStateTransferTest() {
+      INIT_CLUSTER_SIZE = 2;
+      performRehashing = true;
+   }
+
+   public void testJoinWithBatchedStateTransfer() {
+      for (int i = 0; i < NUM_KEYS; i++) c1.put("k" + i, "v" + i);
+
+      Configuration joinerConfiguration = configuration.clone();
+      joinerConfiguration.setRehashBatchSize(BATCH_SIZE);
+      joinerConfiguration.setRehashMaxConcurrentTransfers(1);
+      EmbeddedCacheManager joinerManager = addClusterEnabledCacheManager();
+      joinerManager.defineConfiguration(cacheName, joinerConfiguration);
+      Cache<Object, String> joiner = joinerManager.getCache(cacheName);
+      waitForJoinTasksToComplete(SECONDS.toMillis(60), joiner);
+
+      DistributionManagerImpl joinerDm = (DistributionManagerImpl) getDistributionManager(joiner);
+      int owned = 0;
+      for (int i = 0; i < NUM_KEYS; i++) {
+         String key = "k" + i;
+         if (joinerDm.getLocality(key).isLocal()) {
+            owned++;
+            assert joiner.getAdvancedCache().getDataContainer().containsKey(key) : "Joiner did not receive " + key;
+         }
+         assert ("v" + i).equals(joiner.get(key));
+         assert ("v" + i).equals(c1.get(key));
+         assert ("v" + i).equals(c2.get(key));
+      }
+
+      assert owned > BATCH_SIZE;
+      assert joinerDm.getRehashEntriesReceived() >= owned;
+      assert joinerDm.getRehashBatchesReceived() > owned / BATCH_SIZE : "Received " + joinerDm.getRehashBatchesReceived() + " batches";
+      long batchesSent = 0;
+      for (Cache<Object, String> c : caches) {
+         DistributionManagerImpl dm = (DistributionManagerImpl) getDistributionManager(c);
+         batchesSent += dm.getRehashBatchesSent();
+         assert dm.getOutboundStateTransfers() == 0;
+      }
+      assert batchesSent >= joinerDm.getRehashBatchesReceived();
+   }
+}
@@ -0,0 +1,106 @@
+package org.infinispan.io;
+
+import org.infinispan.config.Configuration;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests reading and writing files of a {@link GridFilesystem} spread over a distributed data cache, with several
+ * chunks in flight.
+ *
+ * @since 5.0
+ */
+@Test(groups = "functional", testName = "io.GridFilesystemTest")
+public class GridFilesystemTest extends MultipleCacheManagersTest {
+
+   private static final int CHUNK_SIZE = 100;
+
+   private GridFilesystem fs;
+   private GridFilesystem otherFs;
+
+   @Override
+   @SuppressWarnings("unchecked")
+   protected void createCacheManagers() throws Throwable {
+      Configuration dataConfig = getDefaultClusteredConfig(Configuration.CacheMode.DIST_SYNC);
+      dataConfig.setNumOwners(1);
+      dataConfig.setL1CacheEnabled(false);
+      Configuration metadataConfig = getDefaultClusteredConfig(Configuration.CacheMode.REPL_SYNC);
+      createCluster(dataConfig, 2);
+      for (int i = 0; i < 2; i++) {
+         manager(i).defineConfiguration("metadata", metadataConfig);
+      }
+      TestingUtil.blockUntilViewsReceived(10000, cache(0), cache(1));
+      TestingUtil.blockUntilViewsReceived(10000, cache(0, "metadata"), cache(1, "metadata"));
+      fs = new GridFilesystem(this.<String, byte[]>cache(0), cache(0, "metadata"), CHUNK_SIZE, 3);
+      otherFs = new GridFilesystem(this.<String, byte[]>cache(1), cache(1, "metadata"), CHUNK_SIZE, 3);
+   }
+
+   public void testStreams() throws IOException {
+      byte[] content = randomContent(2050);
+      OutputStream out = fs.getOutput("streamed.bin");
+      // uneven writes, crossing chunk boundaries
+      for (int off = 0; off < content.length; off += 77) {
+         out.write(content, off, Math.min(77, content.length - off));
+      }
+      out.close();
+
+      assert fs.getFile("streamed.bin").length() == content.length;
+      InputStream in = otherFs.getInput("streamed.bin");
+      byte[] read = new byte[content.length];
+      int total = 0;
+      int n;
+      while ((n = in.read(read, total, Math.min(33, read.length - total))) > 0) {
+         total += n;
+      }
+      in.close();
+      assert total == content.length : "Read " + total + " bytes";
+      assert Arrays.equals(content, read);
+   }
+
+   public void testPositionalReadsAndSkip() throws IOException {
+      byte[] content = randomContent(1000);
+      OutputStream out = fs.getOutput("positional.bin");
+      out.write(content);
+      out.close();
+
+      GridInputStream in = otherFs.getInput("positional.bin");
+      byte[] read = new byte[250];
+      int n = in.read(150, read, 0, 250);
+      assert n == 250;
+      assert Arrays.equals(Arrays.copyOfRange(content, 150, 400), read);
+      assert in.position() == 0;
+
+      n = in.read(900, read, 0, 250);
+      assert n == 100 : "Read " + n + " bytes";
+      assert Arrays.equals(Arrays.copyOfRange(content, 900, 1000), Arrays.copyOf(read, 100));
+      assert in.read(1000, read, 0, 10) == -1;
+
+      assert in.skip(420) == 420;
+      byte[] rest = new byte[580];
+      int total = 0;
+      while (total < rest.length && (n = in.read(rest, total, rest.length - total)) > 0) {
+         total += n;
+      }
+      assert total == 580;
+      assert Arrays.equals(Arrays.copyOfRange(content, 420, 1000), rest);
+      assert in.read(rest, 0, 1) == -1;
+
+      in.position(5);
+      assert in.read(read, 0, 10) == 10;
+      assert Arrays.equals(Arrays.copyOfRange(content, 5, 15), Arrays.copyOf(read, 10));
+      in.close();
+   }
+
+   private static byte[] randomContent(int length) {
+      byte[] content = new byte[length];
+      new Random(length).nextBytes(content);
+      return content;
+   }
+}
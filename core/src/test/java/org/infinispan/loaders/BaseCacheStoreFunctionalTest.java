@@ -28,6 +28,7 @@ import org.infinispan.config.CacheLoaderManagerConfig;
 import org.infinispan.config.Configuration;
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.manager.CacheContainer;
 import org.infinispan.manager.EmbeddedCacheManager;
 import org.infinispan.test.AbstractInfinispanTest;
@@ -132,6 +133,49 @@ public abstract class BaseCacheStoreFunctionalTest extends AbstractInfinispanTes
       }
    }
 
+   public void testParallelPreload() {
+      CacheLoaderManagerConfig cacheLoaders = new CacheLoaderManagerConfig();
+      cacheLoaders.preload(true).preloadThreads(4);
+      cacheLoaders.addCacheLoaderConfig(csConfig);
+      Configuration cfg = TestCacheManagerFactory.getDefaultConfiguration(false);
+      cfg.setCacheLoaderManagerConfig(cacheLoaders);
+      int maxEntries = 150;
+      cfg.fluent().eviction().strategy(EvictionStrategy.LRU).maxEntries(maxEntries);
+      CacheContainer local = TestCacheManagerFactory.createCacheManager(cfg);
+      try {
+         Cache<String, String> cache = local.getCache();
+         cacheNames.add(cache.getName());
+         cache.start();
+
+         int numEntries = 100;
+         for (int i = 0; i < numEntries; i++) cache.put("k" + i, "v" + i);
+         cache.put("mortal", "v", 555555, TimeUnit.MILLISECONDS);
+
+         // the component is reused on restart, so each preload needs to start afresh
+         for (int restart = 0; restart < 2; restart++) {
+            cache.stop();
+            cache.start();
+
+            for (int i = 0; i < numEntries; i++) assertCacheEntry(cache, "k" + i, "v" + i, -1, -1);
+            assertCacheEntry(cache, "mortal", "v", 555555, -1);
+            CacheLoaderManagerImpl clm = (CacheLoaderManagerImpl) TestingUtil.extractComponent(cache, CacheLoaderManager.class);
+            assert !clm.isPreloadInProgress();
+            assert clm.getPreloadedEntries() == numEntries + 1 : "Preloaded " + clm.getPreloadedEntries() + " entries";
+            assert clm.getPreloadedPartitions() == clm.getPreloadPartitions();
+         }
+
+         // the eviction limit caps the preload
+         for (int i = numEntries; i < 2 * numEntries; i++) cache.put("k" + i, "v" + i);
+         cache.stop();
+         cache.start();
+         CacheLoaderManagerImpl clm = (CacheLoaderManagerImpl) TestingUtil.extractComponent(cache, CacheLoaderManager.class);
+         assert clm.getPreloadedEntries() == maxEntries : "Preloaded " + clm.getPreloadedEntries() + " entries";
+         assert cache.getAdvancedCache().getDataContainer().size() <= maxEntries;
+      } finally {
+         TestingUtil.killCacheManagers(local);
+      }
+   }
+
    public void testRestoreAtomicMap(Method m) {
       CacheContainer localCacheContainer = getContainerWithCacheLoader();
       try {
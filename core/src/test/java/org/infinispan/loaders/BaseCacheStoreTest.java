@@ -18,6 +18,7 @@ import org.infinispan.transaction.xa.TransactionFactory;
 import org.infinispan.util.Util;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.ByteArrayInputStream;
@@ -433,6 +434,35 @@ public abstract class BaseCacheStoreTest extends AbstractInfinispanTest {
       assert expected.size() == 1;
    }
 
+   @DataProvider(name = "cursorCounts")
+   public Object[][] cursorCounts() {
+      return new Object[][]{{1}, {4}};
+   }
+
+   @Test(dataProvider = "cursorCounts")
+   public void testCursors(int numCursors) throws CacheLoaderException {
+      // enough entries to span several pages of the stores which read a page at a time
+      int numEntries = 150;
+      for (int i = 0; i < numEntries; i++) cs.store(InternalEntryFactory.create("k" + i, "v" + i));
+
+      Set<Object> keys = new HashSet<Object>();
+      List<CacheStoreCursor> cursors = numCursors == 1 ? Collections.singletonList(cs.openCursor()) : cs.openCursors(numCursors);
+      assert !cursors.isEmpty() && cursors.size() <= numCursors : "Opened " + cursors.size() + " cursors";
+      for (CacheStoreCursor cursor : cursors) {
+         try {
+            while (cursor.hasNext()) {
+               InternalCacheEntry se = cursor.next();
+               assert keys.add(se.getKey()) : "Key " + se.getKey() + " returned twice";
+               assert ("v" + ((String) se.getKey()).substring(1)).equals(se.getValue());
+            }
+         } finally {
+            cursor.close();
+         }
+         assert !cursor.hasNext();
+      }
+      assert keys.size() == numEntries;
+   }
+
    public void testStoreAndRemoveAll() throws CacheLoaderException {
       cs.store(InternalEntryFactory.create("k1", "v1"));
       cs.store(InternalEntryFactory.create("k2", "v2"));
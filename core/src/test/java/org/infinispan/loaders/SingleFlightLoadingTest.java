@@ -0,0 +1,125 @@
+package org.infinispan.loaders;
+
+import org.infinispan.config.CacheLoaderManagerConfig;
+import org.infinispan.config.Configuration;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.InternalEntryFactory;
+import org.infinispan.context.Flag;
+import org.infinispan.interceptors.CacheLoaderInterceptor;
+import org.infinispan.loaders.dummy.DummyInMemoryCacheStore;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests that concurrent misses on the same key share a single cache store load, and that keys known to be absent
+ * from the cache store are not looked up again.
+ *
+ * @since 5.0
+ */
+@Test(testName = "loaders.SingleFlightLoadingTest", groups = "functional")
+public class SingleFlightLoadingTest extends SingleCacheManagerTest {
+   private static final int NUM_READERS = 5;
+
+   CacheStore store;
+   CacheLoaderInterceptor interceptor;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      Configuration cfg = getDefaultStandaloneConfig(false);
+      cfg.setExposeJmxStatistics(true);
+      CacheLoaderManagerConfig clmc = new CacheLoaderManagerConfig();
+      DummyInMemoryCacheStore.Cfg storeCfg = new DummyInMemoryCacheStore.Cfg();
+      storeCfg.setCacheLoaderClassName(SlowLoadingCacheStore.class.getName());
+      clmc.addCacheLoaderConfig(storeCfg);
+      clmc.negativeLookupCacheSize(100);
+      cfg.setCacheLoaderManagerConfig(clmc);
+      EmbeddedCacheManager cm = TestCacheManagerFactory.createCacheManager(cfg, true);
+      cache = cm.getCache();
+      store = TestingUtil.extractComponent(cache, CacheLoaderManager.class).getCacheStore();
+      interceptor = TestingUtil.findInterceptor(cache, CacheLoaderInterceptor.class);
+      return cm;
+   }
+
+   public void testConcurrentMissesShareOneLoad() throws Exception {
+      store.store(InternalEntryFactory.create("k1", "v1"));
+      SlowLoadingCacheStore.reset();
+      interceptor.resetStatistics();
+
+      ExecutorService executor = Executors.newFixedThreadPool(NUM_READERS);
+      try {
+         List<Future<Object>> gets = new ArrayList<Future<Object>>();
+         for (int i = 0; i < NUM_READERS; i++) {
+            gets.add(executor.submit(new Callable<Object>() {
+               public Object call() throws Exception {
+                  // flags only apply to the calling thread
+                  return cache.getAdvancedCache().withFlags(Flag.SKIP_LOCKING).get("k1");
+               }
+            }));
+         }
+
+         // all readers but the one loading wait for the load in progress
+         long giveUp = System.currentTimeMillis() + 10000;
+         while (interceptor.getCacheLoaderSharedLoads() < NUM_READERS - 1 && System.currentTimeMillis() < giveUp)
+            Thread.sleep(10);
+         assert interceptor.getCacheLoaderSharedLoads() == NUM_READERS - 1 : "Shared loads: " + interceptor.getCacheLoaderSharedLoads();
+         SlowLoadingCacheStore.loadLatch.countDown();
+
+         for (Future<Object> get : gets) assert "v1".equals(get.get(10, TimeUnit.SECONDS));
+      } finally {
+         SlowLoadingCacheStore.loadLatch.countDown();
+         executor.shutdownNow();
+      }
+      assert SlowLoadingCacheStore.loads.get() == 1 : "Loads: " + SlowLoadingCacheStore.loads.get();
+   }
+
+   public void testAbsentKeysAreRemembered() throws Exception {
+      SlowLoadingCacheStore.reset();
+      SlowLoadingCacheStore.loadLatch.countDown();
+      interceptor.resetStatistics();
+
+      assert cache.get("missing") == null;
+      assert cache.get("missing") == null;
+      assert SlowLoadingCacheStore.loads.get() == 1 : "Loads: " + SlowLoadingCacheStore.loads.get();
+      assert interceptor.getCacheLoaderNegativeLookupHits() == 1;
+
+      // writing the key makes it visible again, even once evicted from memory
+      cache.put("missing", "found");
+      cache.evict("missing");
+      assert "found".equals(cache.get("missing"));
+      assert SlowLoadingCacheStore.loads.get() == 2 : "Loads: " + SlowLoadingCacheStore.loads.get();
+   }
+
+   public static class SlowLoadingCacheStore extends DummyInMemoryCacheStore {
+      static final AtomicInteger loads = new AtomicInteger();
+      static volatile CountDownLatch loadLatch = new CountDownLatch(1);
+
+      static void reset() {
+         loads.set(0);
+         loadLatch = new CountDownLatch(1);
+      }
+
+      @Override
+      public InternalCacheEntry load(Object key) {
+         loads.incrementAndGet();
+         try {
+            loadLatch.await(10, TimeUnit.SECONDS);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         return super.load(key);
+      }
+   }
+}
@@ -22,8 +22,11 @@ import org.testng.annotations.Test;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
@@ -116,6 +119,50 @@ public class AsyncTest extends AbstractInfinispanTest {
       doTestRemove(number, key);
    }
 
+   @Test(timeOut=10000)
+   public void testModificationsAreAppliedInBatches() throws Exception {
+      store.stop();
+      final List<Integer> storeBatches = Collections.synchronizedList(new ArrayList<Integer>());
+      final List<Integer> removeBatches = Collections.synchronizedList(new ArrayList<Integer>());
+      underlying = new DummyInMemoryCacheStore() {
+         @Override
+         public void storeAll(Collection<InternalCacheEntry> entries) throws CacheLoaderException {
+            storeBatches.add(entries.size());
+            super.storeAll(entries);
+         }
+
+         @Override
+         public void removeAll(Set<Object> keys) throws CacheLoaderException {
+            removeBatches.add(keys.size());
+            super.removeAll(keys);
+         }
+      };
+      asyncConfig = new AsyncStoreConfig().threadPoolSize(1).batchSize(10).batchWindow(1000L);
+      store = new AsyncStore(underlying, asyncConfig);
+      store.init(dummyCfg, null, null);
+      store.start();
+
+      final int number = 25;
+      String key = "testModificationsAreAppliedInBatches-k";
+      String value = "testModificationsAreAppliedInBatches-v-";
+      doTestPut(number, key, value);
+      doTestRemove(number, key);
+
+      assert storeBatches.size() < number : "Expected entries to be stored in batches: " + storeBatches;
+      assert removeBatches.size() < number : "Expected entries to be removed in batches: " + removeBatches;
+      int stored = 0, removed = 0;
+      for (int size : storeBatches) {
+         assert size <= 10 : "Batch larger than the configured batch size: " + storeBatches;
+         stored += size;
+      }
+      for (int size : removeBatches) {
+         assert size <= 10 : "Batch larger than the configured batch size: " + removeBatches;
+         removed += size;
+      }
+      assert stored == number : "Expected " + number + " entries to be stored but was " + stored;
+      assert removed == number : "Expected " + number + " entries to be removed but was " + removed;
+   }
+
    public void testThreadSafetyWritingDiffValuesForKey(Method m) throws Exception {
       try {
          final String key = "k1";
@@ -0,0 +1,84 @@
+package org.infinispan.loaders.decorators;
+
+import org.infinispan.container.entries.InternalEntryFactory;
+import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.dummy.DummyInMemoryCacheStore;
+import org.infinispan.loaders.modifications.Modification;
+import org.infinispan.loaders.modifications.Store;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.transaction.xa.GlobalTransaction;
+import org.infinispan.transaction.xa.TransactionFactory;
+import org.infinispan.util.BloomFilter;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests that {@link BloomFilterStore} skips lookups of absent keys without ever hiding stored ones.
+ *
+ * @since 5.0
+ */
+@Test(groups = "unit", testName = "loaders.decorators.BloomFilterStoreTest")
+public class BloomFilterStoreTest extends AbstractInfinispanTest {
+   private DummyInMemoryCacheStore underlying;
+   private DummyInMemoryCacheStore.Cfg cfg;
+   private BloomFilterStore store;
+
+   @BeforeMethod
+   public void setUp() throws CacheLoaderException {
+      cfg = new DummyInMemoryCacheStore.Cfg("BloomFilterStoreTest", false);
+      underlying = new DummyInMemoryCacheStore();
+      store = new BloomFilterStore(underlying, 1000);
+      store.init(cfg, null, null);
+      store.start();
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void tearDown() throws CacheLoaderException {
+      store.clear();
+      store.stop();
+   }
+
+   public void testFilter() {
+      BloomFilter filter = new BloomFilter(10000, 0.01);
+      for (int i = 0; i < 10000; i++) filter.add("key" + i);
+      for (int i = 0; i < 10000; i++) assert filter.mightContain("key" + i);
+      int falsePositives = 0;
+      for (int i = 0; i < 10000; i++) {
+         if (filter.mightContain("other" + i)) falsePositives++;
+      }
+      assert falsePositives < 300 : "Too many false positives: " + falsePositives;
+   }
+
+   public void testAbsentKeysSkipStore() throws CacheLoaderException {
+      underlying.clearStats();
+      for (int i = 0; i < 100; i++) assert store.load("missing" + i) == null;
+      assert !store.containsKey("missing");
+      assert store.getSkippedLookups() > 90;
+      assert underlying.stats().get("load") < 10;
+
+      store.store(InternalEntryFactory.create("k1", "v1"));
+      assert "v1".equals(store.load("k1").getValue());
+      assert store.containsKey("k1");
+   }
+
+   public void testFilterRebuiltOnStart() throws CacheLoaderException {
+      // entries stored behind the decorator's back are only found once the filter is rebuilt
+      underlying.store(InternalEntryFactory.create("k1", "v1"));
+      store.stop();
+      store.start();
+      assert "v1".equals(store.load("k1").getValue());
+   }
+
+   public void testTransactionalStore() throws CacheLoaderException {
+      GlobalTransaction tx = new TransactionFactory().newGlobalTransaction(null, false);
+      List<Modification> mods = Collections.<Modification>singletonList(new Store(InternalEntryFactory.create("k1", "v1")));
+      store.prepare(mods, tx, false);
+      store.rebuildFilter();
+      store.commit(tx);
+      assert "v1".equals(store.load("k1").getValue());
+   }
+}
@@ -0,0 +1,39 @@
+package org.infinispan.loaders.file;
+
+import java.io.File;
+
+import org.infinispan.loaders.BaseCacheStoreFunctionalTest;
+import org.infinispan.loaders.CacheStoreConfig;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Optional;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+
+@Test(groups = "unit", testName = "loaders.file.LogFileCacheStoreFunctionalTest")
+public class LogFileCacheStoreFunctionalTest extends BaseCacheStoreFunctionalTest {
+
+   private String tmpDirectory;
+
+   @BeforeClass
+   @Parameters({"basedir"})
+   protected void setUpTempDir(@Optional(value = "/tmp") String basedir) {
+      tmpDirectory = TestingUtil.tmpDirectory(basedir, this);
+   }
+   
+   @AfterClass
+   protected void clearTempDir() {
+      TestingUtil.recursiveFileRemove(tmpDirectory);
+      new File(tmpDirectory).mkdirs();
+   }
+   
+   @Override
+   protected CacheStoreConfig createCacheStoreConfig() throws Exception {
+      LogFileCacheStoreConfig cfg = new LogFileCacheStoreConfig();
+      cfg.setLocation(tmpDirectory);
+      cfg.setPurgeSynchronously(true); // for more accurate unit testing
+      return cfg;
+   }
+
+}
@@ -0,0 +1,147 @@
+package org.infinispan.loaders.file;
+
+import org.infinispan.container.entries.InternalEntryFactory;
+import org.infinispan.loaders.BaseCacheStoreTest;
+import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.CacheStore;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Optional;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.RandomAccessFile;
+
+@Test(groups = "unit", testName = "loaders.file.LogFileCacheStoreTest")
+public class LogFileCacheStoreTest extends BaseCacheStoreTest {
+
+   private static final long SEGMENT_SIZE = 4096;
+
+   private LogFileCacheStore lfcs;
+   private String tmpDirectory;
+
+   @BeforeClass
+   @Parameters({"basedir"})
+   protected void setUpTempDir(@Optional(value = "/tmp") String basedir) {
+      tmpDirectory = TestingUtil.tmpDirectory(basedir, this);
+   }
+
+   @AfterClass
+   protected void clearTempDir() {
+      TestingUtil.recursiveFileRemove(tmpDirectory);
+      new File(tmpDirectory).mkdirs();
+   }
+
+   protected CacheStore createCacheStore() throws CacheLoaderException {
+      clearTempDir();
+      lfcs = newStore();
+      return lfcs;
+   }
+
+   private LogFileCacheStore newStore() throws CacheLoaderException {
+      LogFileCacheStore store = new LogFileCacheStore();
+      LogFileCacheStoreConfig cfg = new LogFileCacheStoreConfig()
+            .location(tmpDirectory).maxSegmentSize(SEGMENT_SIZE).compactionInterval(0);
+      cfg.setPurgeSynchronously(true); // for more accurate unit testing
+      store.init(cfg, getCache(), getMarshaller());
+      store.start();
+      return store;
+   }
+
+   private LogFileCacheStore restart() throws CacheLoaderException {
+      lfcs.stop();
+      lfcs = newStore();
+      cs = lfcs;
+      return lfcs;
+   }
+
+   private File[] segmentFiles() {
+      return lfcs.getRoot().listFiles(new FilenameFilter() {
+         public boolean accept(File dir, String name) {
+            return name.endsWith(LogFileCacheStore.SEGMENT_SUFFIX);
+         }
+      });
+   }
+
+   public void testWritesAreAppended() throws Exception {
+      cs.store(InternalEntryFactory.create("k", "v1"));
+      long size = segmentFiles()[0].length();
+      cs.store(InternalEntryFactory.create("k", "v2"));
+      assert segmentFiles()[0].length() > size;
+      cs.remove("k");
+      assert segmentFiles()[0].length() > size;
+      assert cs.load("k") == null;
+   }
+
+   public void testCompactionReclaimsOverwrittenEntries() throws Exception {
+      for (int i = 0; i < 200; i++) cs.store(InternalEntryFactory.create("k" + (i % 10), "v" + i));
+      int segments = segmentFiles().length;
+      assert segments > 2 : "Expected several segments but was " + segments;
+
+      lfcs.compact();
+      assert segmentFiles().length < segments;
+      for (int i = 0; i < 10; i++) assert cs.load("k" + i).getValue().equals("v" + (190 + i));
+
+      restart();
+      for (int i = 0; i < 10; i++) assert cs.load("k" + i).getValue().equals("v" + (190 + i));
+   }
+
+   public void testRemovalsSurviveCompactionAndRestart() throws Exception {
+      for (int i = 0; i < 50; i++) cs.store(InternalEntryFactory.create("k" + i, "v" + i));
+      for (int i = 0; i < 50; i += 2) cs.remove("k" + i);
+      // push the removal records out of the active segment
+      for (int i = 0; i < 100; i++) cs.store(InternalEntryFactory.create("filler", "v" + i));
+
+      lfcs.compact();
+      restart();
+      for (int i = 0; i < 50; i++) {
+         if (i % 2 == 0)
+            assert cs.load("k" + i) == null : "k" + i + " should have stayed removed";
+         else
+            assert cs.load("k" + i).getValue().equals("v" + i);
+      }
+   }
+
+   public void testEntriesStoredAgainSurviveCompactionAndRestart() throws Exception {
+      for (int i = 0; i < 50; i++) cs.store(InternalEntryFactory.create("k" + i, "v" + i));
+      // keep the removal records out of the oldest segment, which would drop them
+      for (int i = 0; i < 100; i++) cs.store(InternalEntryFactory.create("filler", "v" + i));
+      for (int i = 0; i < 50; i += 2) cs.remove("k" + i);
+      for (int i = 0; i < 50; i += 2) cs.store(InternalEntryFactory.create("k" + i, "w" + i));
+      for (int i = 0; i < 100; i++) cs.store(InternalEntryFactory.create("filler", "w" + i));
+
+      lfcs.compact();
+      restart();
+      for (int i = 0; i < 50; i++) {
+         Object expected = (i % 2 == 0 ? "w" : "v") + i;
+         assert cs.load("k" + i) != null : "k" + i + " should have been stored again";
+         assert cs.load("k" + i).getValue().equals(expected);
+      }
+   }
+
+   public void testIncompleteRecordIsTruncatedOnStart() throws Exception {
+      cs.store(InternalEntryFactory.create("k1", "v1"));
+      cs.store(InternalEntryFactory.create("k2", "v2"));
+      lfcs.stop();
+
+      File segment = segmentFiles()[0];
+      long length = segment.length();
+      RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+      try {
+         raf.setLength(length - 1);
+      } finally {
+         raf.close();
+      }
+
+      lfcs = newStore();
+      cs = lfcs;
+      assert cs.load("k1").getValue().equals("v1");
+      assert cs.load("k2") == null;
+      cs.store(InternalEntryFactory.create("k2", "v2"));
+      restart();
+      assert cs.load("k2").getValue().equals("v2");
+   }
+}
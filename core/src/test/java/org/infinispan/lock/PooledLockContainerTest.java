@@ -0,0 +1,147 @@
+package org.infinispan.lock;
+
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.util.concurrent.locks.containers.ReentrantPooledLockContainer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Tests the {@link ReentrantPooledLockContainer}.
+ *
+ * @since 5.0
+ */
+@Test(groups = "unit", testName = "lock.PooledLockContainerTest")
+public class PooledLockContainerTest extends AbstractInfinispanTest {
+
+   private ReentrantPooledLockContainer container;
+
+   @BeforeMethod(alwaysRun = true)
+   public void setUp() {
+      container = new ReentrantPooledLockContainer(1);
+   }
+
+   public void testRecordsAreReused() throws Exception {
+      Lock first = container.acquireLock("k1", 0, TimeUnit.MILLISECONDS);
+      assert first != null;
+      assert container.isLocked("k1");
+      assert container.ownsLock("k1", null);
+      assert container.getNumLocksHeld() == 1;
+      assert container.getOwner("k1") == Thread.currentThread();
+      assert container.toString().contains("numLocksHeld=1") : container.toString();
+      container.releaseLock("k1");
+      assert !container.isLocked("k1");
+      assert container.getOwner("k1") == null;
+      assert container.size() == 0;
+      assert container.getNumLocksHeld() == 0;
+
+      Lock second = container.acquireLock("k1", 0, TimeUnit.MILLISECONDS);
+      assert second == first : "The pooled record should have been reused";
+      container.releaseLock("k1");
+   }
+
+   public void testManyKeysLockedAtOnce() throws Exception {
+      // more keys than fit in the first table, so the overflow tables are used
+      int numKeys = 1000;
+      for (int i = 0; i < numKeys; i++) {
+         Lock lock = container.acquireLock("k" + i, 0, TimeUnit.MILLISECONDS);
+         assert lock != null;
+      }
+      assert container.size() == numKeys;
+      assert container.getNumLocksHeld() == numKeys;
+      for (int i = 0; i < numKeys; i++) assert container.isLocked("k" + i);
+      for (int i = 0; i < numKeys; i++) container.releaseLock("k" + i);
+      assert container.size() == 0;
+      assert container.getNumLocksHeld() == 0;
+   }
+
+   public void testTimeoutAndRelease() throws Exception {
+      Lock lock = container.acquireLock("k", 0, TimeUnit.MILLISECONDS);
+      assert lock != null;
+      final CountDownLatch released = new CountDownLatch(1);
+      ExecutorService executor = Executors.newFixedThreadPool(2);
+      try {
+         Future<Boolean> timedOut = executor.submit(new Callable<Boolean>() {
+            public Boolean call() throws Exception {
+               return container.acquireLock("k", 10, TimeUnit.MILLISECONDS) != null;
+            }
+         });
+         assert !timedOut.get(10, TimeUnit.SECONDS);
+
+         Future<Boolean> waiting = executor.submit(new Callable<Boolean>() {
+            public Boolean call() throws Exception {
+               boolean locked = container.acquireLock("k", 10, TimeUnit.SECONDS) != null;
+               released.await();
+               container.releaseLock("k");
+               return locked;
+            }
+         });
+         // a release by a thread that does not own the lock is ignored
+         Future<?> foreignRelease = executor.submit(new Runnable() {
+            public void run() {
+               container.releaseLock("k");
+            }
+         });
+         foreignRelease.get(10, TimeUnit.SECONDS);
+         assert container.ownsLock("k", null);
+
+         container.releaseLock("k");
+         assert !container.ownsLock("k", null);
+         released.countDown();
+         assert waiting.get(10, TimeUnit.SECONDS);
+         assert !container.isLocked("k");
+         assert container.size() == 0;
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   public void testMutualExclusion() throws Exception {
+      final int numThreads = 8;
+      final int numLoops = 2000;
+      final AtomicInteger inCriticalSection = new AtomicInteger();
+      final CountDownLatch start = new CountDownLatch(1);
+      ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+      try {
+         List<Future<Void>> futures = new ArrayList<Future<Void>>();
+         for (int t = 0; t < numThreads; t++) {
+            futures.add(executor.submit(new Callable<Void>() {
+               public Void call() throws Exception {
+                  start.await();
+                  for (int i = 0; i < numLoops; i++) {
+                     String key = "k" + (i % 4);
+                     Lock lock = container.acquireLock(key, 10, TimeUnit.SECONDS);
+                     assert lock != null;
+                     try {
+                        if (key.equals("k0")) {
+                           int holders = inCriticalSection.incrementAndGet();
+                           inCriticalSection.decrementAndGet();
+                           assert holders == 1 : "Lock held by " + holders + " threads";
+                        }
+                     } finally {
+                        container.releaseLock(key);
+                     }
+                  }
+                  return null;
+               }
+            }));
+         }
+         start.countDown();
+         for (Future<Void> f : futures) f.get(60, TimeUnit.SECONDS);
+         assert container.size() == 0;
+         assert container.getNumLocksHeld() == 0;
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+}
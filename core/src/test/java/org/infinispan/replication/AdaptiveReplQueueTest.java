@@ -0,0 +1,125 @@
+package org.infinispan.replication;
+
+import org.easymock.EasyMock;
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.write.PutKeyValueCommand;
+import org.infinispan.config.Configuration;
+import org.infinispan.remoting.ReplicationQueueImpl;
+import org.infinispan.remoting.rpc.RpcManager;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.*;
+
+/**
+ * Tests the size and arrival rate based flushing of {@link ReplicationQueueImpl}.
+ *
+ * @since 5.0
+ */
+@Test(testName = "replication.AdaptiveReplQueueTest", groups = "unit")
+public class AdaptiveReplQueueTest extends AbstractInfinispanTest {
+
+   private ReplicationQueueImpl createQueue(Configuration c) {
+      ScheduledExecutorService ses = createNiceMock(ScheduledExecutorService.class);
+      RpcManager rpc = createNiceMock(RpcManager.class);
+      CommandsFactory commandsFactory = createNiceMock(CommandsFactory.class);
+      replay(ses, rpc, commandsFactory);
+      ReplicationQueueImpl rqi = new ReplicationQueueImpl();
+      rqi.injectDependencies(ses, rpc, c, commandsFactory);
+      rqi.start();
+      return rqi;
+   }
+
+   private Configuration createConfiguration() {
+      Configuration c = new Configuration();
+      c.setUseReplQueue(true);
+      c.setExposeJmxStatistics(true);
+      c.setReplQueueInterval(60000);
+      c.setReplQueueMaxElements(1000);
+      return c;
+   }
+
+   private PutKeyValueCommand put(int i, int valueLength) {
+      return new PutKeyValueCommand("key" + i, new byte[valueLength], false, null, -1, -1, null);
+   }
+
+   public void testFlushOnBytes() {
+      Configuration c = createConfiguration();
+      c.setReplQueueMaxBytes(1000);
+      ReplicationQueueImpl rqi = createQueue(c);
+
+      rqi.add(put(0, 400));
+      rqi.add(put(1, 400));
+      assert rqi.getElementsCount() == 2;
+      assert rqi.getQueuedBytes() >= 800;
+      rqi.add(put(2, 400));
+      assert rqi.getElementsCount() == 0;
+      assert rqi.getQueuedBytes() == 0;
+      assert rqi.getFlushCount() == 1;
+      assert rqi.getElementsFlushed() == 3;
+      assert rqi.getBytesTriggeredFlushes() == 1;
+      assert rqi.getBytesFlushed() >= 1200;
+   }
+
+   public void testAdaptiveBatchFollowsArrivalRate() throws Exception {
+      Configuration c = createConfiguration();
+      c.setReplQueueInterval(1000);
+      c.setReplQueueAdaptive(true);
+      ReplicationQueueImpl rqi = createQueue(c);
+
+      // Without any observed rate, commands are sent straight away
+      rqi.add(put(0, 10));
+      assert rqi.getElementsCount() == 0;
+
+      // A trickle of commands, far less than one per latency target, keeps being sent one by one
+      for (int i = 1; i < 4; i++) {
+         Thread.sleep(1200);
+         rqi.add(put(i, 10));
+         assert rqi.getElementsCount() == 0 : "Target batch size " + rqi.getTargetBatchSize();
+      }
+      assert rqi.getFlushCount() == 4;
+
+      // A burst raises the arrival rate, so commands get batched
+      long start = System.nanoTime();
+      int added = 0;
+      while (rqi.getTargetBatchSize() < 10 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10)) {
+         rqi.add(put(added++, 10));
+      }
+      assert rqi.getTargetBatchSize() >= 10;
+      rqi.flush();
+      long flushesBefore = rqi.getFlushCount();
+      rqi.add(put(added, 10));
+      assert rqi.getElementsCount() == 1;
+      assert rqi.getFlushCount() == flushesBefore;
+      assert rqi.getArrivalRate() > 1;
+
+      rqi.flush();
+      assert rqi.getElementsCount() == 0;
+      // the size of the queued commands is only tracked when the queue flushes on size
+      assert rqi.getQueuedBytes() == -1;
+   }
+
+   public void testStatisticsToggledAtRuntime() {
+      Configuration c = createConfiguration();
+      c.setExposeJmxStatistics(false);
+      ReplicationQueueImpl rqi = createQueue(c);
+
+      rqi.add(put(0, 400));
+      rqi.flush();
+      assert rqi.getFlushCount() == -1;
+      assert rqi.getBytesFlushed() == -1;
+      assert rqi.getAverageBatchSize() == -1;
+
+      rqi.setStatisticsEnabled(true);
+      rqi.add(put(1, 400));
+      rqi.add(put(2, 400));
+      rqi.flush();
+      assert rqi.getFlushCount() == 1;
+      assert rqi.getElementsFlushed() == 2;
+      assert rqi.getBytesFlushed() >= 800;
+      assert rqi.getAverageBatchSize() == 2;
+   }
+}
@@ -153,6 +153,20 @@ public class StateTransferFunctionalTest extends MultipleCacheManagersTest {
       logTestEnd(m);
    }
 
+   public void testInitialStateTransferInChunks(Method m) throws Exception {
+      testCount++;
+      logTestStart(m);
+      config.setStateRetrievalChunkSize(7);
+      Cache<Object, Object> cache1, cache2;
+      cache1 = createCacheManager().getCache(cacheName);
+      for (int i = 0; i < 100; i++) cache1.put("k" + i, "v" + i);
+
+      cache2 = createCacheManager().getCache(cacheName);
+      TestingUtil.blockUntilViewsReceived(60000, cache1, cache2);
+      for (int i = 0; i < 100; i++) assert ("v" + i).equals(cache2.get("k" + i)) : "Missing k" + i;
+      logTestEnd(m);
+   }
+
    public void testInitialStateTransferCacheNotPresent(Method m) throws Exception {
       testCount++;
       logTestStart(m);
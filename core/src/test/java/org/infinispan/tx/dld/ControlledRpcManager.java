@@ -18,6 +18,7 @@ import org.infinispan.util.logging.LogFactory;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
 
 /**
 * @author Mircea.Markus@jboss.com
@@ -157,6 +158,12 @@ public class ControlledRpcManager implements RpcManager {
       realOne.invokeRemotelyInFuture(recipients, rpc, usePriorityQueue, future, timeout);
    }
 
+   public Future<Map<Address, Response>> invokeRemotelyInFuture(Collection<Address> recipients, ReplicableCommand rpc, long timeout) {
+      log.trace("ControlledRpcManager.invokeRemotelyInFuture4");
+      waitFirst(rpc);
+      return realOne.invokeRemotelyInFuture(recipients, rpc, timeout);
+   }
+
    public Transport getTransport() {
       return realOne.getTransport();
    }
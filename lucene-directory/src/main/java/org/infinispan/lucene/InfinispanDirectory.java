@@ -80,6 +80,12 @@ public class InfinispanDirectory extends Directory {
     */
    public final static int DEFAULT_BUFFER_SIZE = 16 * 1024;
 
+   /**
+    * Used as default maximum number of chunks read ahead by sequential scans, can be changed
+    * with {@link #setReadAheadChunks(int)}
+    */
+   public final static int DEFAULT_READ_AHEAD_CHUNKS = 4;
+
    private static final Log log = LogFactory.getLog(InfinispanDirectory.class);
 
    // own flag required if we are not in this same package what org.apache.lucene.store.Directory,
@@ -97,6 +103,9 @@ public class InfinispanDirectory extends Directory {
    private final FileListOperations fileOps;
    private final SegmentReadLocker readLocks;
 
+   private volatile int readAheadChunks = DEFAULT_READ_AHEAD_CHUNKS;
+   private volatile LocalChunkCache localChunks;
+
    /**
     * @param metadataCache the cache to be used for all smaller metadata: prefer replication over distribution, avoid eviction
     * @param chunksCache the cache to use for the space consuming segments: prefer distribution, enable eviction if needed
@@ -227,6 +236,7 @@ public class InfinispanDirectory extends Directory {
    public void deleteFile(String name) throws IOException {
       checkIsOpen();
       fileOps.deleteFileName(name);
+      invalidateLocalChunks(name);
       readLocks.deleteOrReleaseReadLock(name);
       if (log.isDebugEnabled()) {
          log.debug("Removed file: %s from index: %s", name, indexName);
@@ -261,6 +271,8 @@ public class InfinispanDirectory extends Directory {
       if (batching) metadataCache.endBatch(true);
       
       // now trigger deletion of old file chunks:
+      invalidateLocalChunks(from);
+      invalidateLocalChunks(to);
       readLocks.deleteOrReleaseReadLock(from);
       if (log.isTraceEnabled()) {
          log.trace("Renamed file from: %s to: %s in index %s", from, to, indexName);
@@ -286,6 +298,7 @@ public class InfinispanDirectory extends Directory {
     */
    public IndexOutput createOutput(String name) throws IOException {
       final FileCacheKey key = new FileCacheKey(indexName, name);
+      invalidateLocalChunks(name);
       // creating new file, metadata is added on flush() or close() of IndexOutPut
       return new InfinispanIndexOutput(metadataCache, chunksCache, key, chunkSize, fileOps);
    }
@@ -309,7 +322,7 @@ public class InfinispanDirectory extends Directory {
             // safest reaction is to tell this file doesn't exist anymore.
             throw new FileNotFoundException("Error loading medatada for index file: " + fileKey);
          }
-         return new InfinispanIndexInput(chunksCache, fileKey, fileMetadata, readLocks);
+         return new InfinispanIndexInput(chunksCache, fileKey, fileMetadata, readLocks, readAheadChunks, localChunks);
       }
    }
 
@@ -343,6 +356,37 @@ public class InfinispanDirectory extends Directory {
        return indexName;
    }
    
+   /**
+    * @param readAheadChunks the maximum number of chunks requested asynchronously ahead of a sequential scan of a file;
+    * the window grows as the scan proceeds, so random access is not affected. Set to 0 to disable read-ahead.
+    */
+   public void setReadAheadChunks(int readAheadChunks) {
+      if (readAheadChunks < 0)
+         throw new IllegalArgumentException("readAheadChunks must not be negative");
+      this.readAheadChunks = readAheadChunks;
+   }
+
+   public int getReadAheadChunks() {
+      return readAheadChunks;
+   }
+
+   /**
+    * @param maxChunks the number of chunks to keep in a local cache owned by this directory, so that frequently read
+    * chunks of a distributed index are not fetched remotely on every access. 0 (the default) disables the local cache.
+    */
+   public void setLocalChunkCacheSize(int maxChunks) {
+      if (maxChunks < 0)
+         throw new IllegalArgumentException("maxChunks must not be negative");
+      this.localChunks = maxChunks == 0 ? null : new LocalChunkCache(maxChunks);
+   }
+
+   private void invalidateLocalChunks(String fileName) {
+      LocalChunkCache chunks = localChunks;
+      if (chunks != null) {
+         chunks.invalidateFile(fileName);
+      }
+   }
+
    private static LockFactory makeDefaultLockFactory(Cache cache, String indexName) {
       checkNotNull(cache, "cache");
       checkNotNull(indexName, "indexName");
@@ -23,6 +23,11 @@ package org.infinispan.lucene;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.lucene.store.IndexInput;
 import org.infinispan.AdvancedCache;
@@ -33,6 +38,9 @@ import org.infinispan.util.logging.LogFactory;
 
 /**
  * Responsible for reading from <code>InfinispanDirectory</code>
+ * <p>
+ * When the chunks are read sequentially, the next ones are requested asynchronously ahead of the reads; the read-ahead
+ * window doubles on every sequential chunk up to <code>readAheadChunks</code> and is dropped on a random seek.
  * 
  * @since 4.0
  * @author Sanne Grinovero
@@ -52,6 +60,9 @@ public class InfinispanIndexInput extends IndexInput {
    private final SegmentReadLocker readLocks;
    private final String filename;
    private final long fileLength;
+   private final int numberOfChunks;
+   private final int readAheadChunks;
+   private final LocalChunkCache localChunks;
 
    private int currentBufferSize;
    private byte[] buffer;
@@ -60,13 +71,27 @@ public class InfinispanIndexInput extends IndexInput {
 
    private boolean isClone;
 
+   // read-ahead state: chunks requested asynchronously, by chunk id
+   private Map<Integer, Future<Object>> prefetched = new HashMap<Integer, Future<Object>>();
+   private int lastFetchedChunk = -1;
+   private int lastPrefetchedChunk = -1;
+   private int sequentialChunkReads;
+
    public InfinispanIndexInput(AdvancedCache chunksCache, FileCacheKey fileKey, FileMetadata fileMetadata, SegmentReadLocker readLocks) throws FileNotFoundException {
+      this(chunksCache, fileKey, fileMetadata, readLocks, 0, null);
+   }
+
+   InfinispanIndexInput(AdvancedCache chunksCache, FileCacheKey fileKey, FileMetadata fileMetadata, SegmentReadLocker readLocks,
+            int readAheadChunks, LocalChunkCache localChunks) throws FileNotFoundException {
       this.chunksCache = chunksCache;
       this.fileKey = fileKey;
       this.chunkSize = fileMetadata.getBufferSize();
       this.fileLength = fileMetadata.getSize();
       this.readLocks = readLocks;
       this.filename = fileKey.getFileName();
+      this.numberOfChunks = fileMetadata.getNumberOfChunks();
+      this.readAheadChunks = readAheadChunks;
+      this.localChunks = localChunks;
       if (trace) {
          log.trace("Opened new IndexInput for file:%s in index: %s", filename, fileKey.getIndexName());
       }
@@ -105,6 +130,7 @@ public class InfinispanIndexInput extends IndexInput {
       bufferPosition = 0;
       currentLoadedChunk = -1;
       buffer = null;
+      dropPrefetchedChunks();
       if (isClone) return;
       readLocks.deleteOrReleaseReadLock(filename);
       if (trace) {
@@ -132,10 +158,9 @@ public class InfinispanIndexInput extends IndexInput {
    }
 
    private void setBufferToCurrentChunk() throws IOException {
-      ChunkCacheKey key = new ChunkCacheKey(fileKey.getIndexName(), filename, currentLoadedChunk);
-      buffer = (byte[]) chunksCache.withFlags(Flag.SKIP_LOCKING).get(key);
+      buffer = getChunk(currentLoadedChunk);
       if (buffer == null) {
-         throw new IOException("Read past EOF: Chunk value could not be found for key " + key);
+         throw new IOException("Read past EOF: Chunk value could not be found for key " + new ChunkCacheKey(fileKey.getIndexName(), filename, currentLoadedChunk));
       }
       currentBufferSize = buffer.length;
    }
@@ -143,8 +168,7 @@ public class InfinispanIndexInput extends IndexInput {
    // Lucene might try seek(pos) using an illegal pos value
    // RAMDirectory teaches to position the cursor to the end of previous chunk in this case
    private void setBufferToCurrentChunkIfPossible() throws IOException {
-      ChunkCacheKey key = new ChunkCacheKey(fileKey.getIndexName(), filename, currentLoadedChunk);
-      buffer = (byte[]) chunksCache.withFlags(Flag.SKIP_LOCKING).get(key);
+      buffer = getChunk(currentLoadedChunk);
       if (buffer == null) {
          currentLoadedChunk--;
          bufferPosition = chunkSize;
@@ -154,6 +178,75 @@ public class InfinispanIndexInput extends IndexInput {
       }
    }
 
+   private byte[] getChunk(int chunkId) throws IOException {
+      if (chunkId == lastFetchedChunk + 1) {
+         sequentialChunkReads++;
+      }
+      else {
+         sequentialChunkReads = 0;
+         dropPrefetchedChunks();
+      }
+      lastFetchedChunk = chunkId;
+      ChunkCacheKey key = new ChunkCacheKey(fileKey.getIndexName(), filename, chunkId);
+      byte[] chunk;
+      Future<Object> future = prefetched.remove(chunkId);
+      if (future != null) {
+         chunk = (byte[]) waitFor(future, key);
+      }
+      else {
+         chunk = localChunks == null ? null : localChunks.get(key);
+         if (chunk != null) {
+            readAhead(chunkId);
+            return chunk;
+         }
+         chunk = (byte[]) chunksCache.withFlags(Flag.SKIP_LOCKING).get(key);
+      }
+      if (chunk != null && localChunks != null) {
+         localChunks.put(key, chunk);
+      }
+      readAhead(chunkId);
+      return chunk;
+   }
+
+   /**
+    * Requests asynchronously the chunks following the given one, if the last reads were sequential.
+    */
+   private void readAhead(int chunkId) {
+      if (readAheadChunks <= 0 || sequentialChunkReads == 0) return;
+      int window = Math.min(readAheadChunks, 1 << Math.min(sequentialChunkReads, 16));
+      int last = Math.min(chunkId + window, numberOfChunks - 1);
+      for (int i = Math.max(chunkId, lastPrefetchedChunk) + 1; i <= last; i++) {
+         ChunkCacheKey key = new ChunkCacheKey(fileKey.getIndexName(), filename, i);
+         if (localChunks == null || localChunks.get(key) == null) {
+            prefetched.put(i, chunksCache.withFlags(Flag.SKIP_LOCKING).getAsync(key));
+         }
+         lastPrefetchedChunk = i;
+      }
+   }
+
+   private Object waitFor(Future<Object> future, ChunkCacheKey key) throws IOException {
+      try {
+         return future.get();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while reading chunk " + key);
+      }
+      catch (ExecutionException e) {
+         throw new IOException("Could not read chunk " + key, e.getCause());
+      }
+   }
+
+   private void dropPrefetchedChunks() {
+      if (!prefetched.isEmpty()) {
+         if (trace) {
+            log.trace("Dropping %d chunks read ahead from file:%s in index: %s", prefetched.size(), filename, fileKey.getIndexName());
+         }
+         prefetched.clear();
+      }
+      lastPrefetchedChunk = -1;
+   }
+
    @Override
    public long length() {
       return this.fileLength;
@@ -166,6 +259,10 @@ public class InfinispanIndexInput extends IndexInput {
       // as in other Directory implementations. Apparently not all clones
       // are cleaned up, but the original is (especially .tis files)
       clone.isClone = true; 
+      // read-ahead state is per instance
+      clone.prefetched = new HashMap<Integer, Future<Object>>();
+      clone.lastPrefetchedChunk = -1;
+      clone.sequentialChunkReads = 0;
       return clone;
     }
 
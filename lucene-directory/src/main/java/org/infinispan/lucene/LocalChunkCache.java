@@ -0,0 +1,70 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.lucene;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentMap;
+
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+
+/**
+ * Bounded per-directory cache of the chunks read by {@link InfinispanIndexInput}, so that hot chunks of a
+ * distributed index are not fetched from their owners over and over.
+ * <p>
+ * Lucene never rewrites an index file once it has been closed, so a cached chunk only has to be dropped when the
+ * file it belongs to is deleted, renamed or created again through the owning {@link InfinispanDirectory}.
+ * 
+ * @since 5.0
+ */
+final class LocalChunkCache {
+
+   private final ConcurrentMap<ChunkCacheKey, byte[]> chunks;
+
+   LocalChunkCache(int maxChunks) {
+      chunks = new BoundedConcurrentHashMap<ChunkCacheKey, byte[]>(maxChunks, 16, Eviction.LIRS);
+   }
+
+   byte[] get(ChunkCacheKey key) {
+      return chunks.get(key);
+   }
+
+   void put(ChunkCacheKey key, byte[] chunk) {
+      chunks.put(key, chunk);
+   }
+
+   /**
+    * Drops all the cached chunks of the given file.
+    */
+   void invalidateFile(String fileName) {
+      for (Iterator<ChunkCacheKey> it = chunks.keySet().iterator(); it.hasNext();) {
+         if (it.next().getFileName().equals(fileName)) {
+            it.remove();
+         }
+      }
+   }
+
+   int size() {
+      return chunks.size();
+   }
+
+}
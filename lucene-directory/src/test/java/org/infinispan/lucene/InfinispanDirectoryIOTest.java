@@ -220,6 +220,37 @@ public class InfinispanDirectoryIOTest {
       DirectoryIntegrityCheck.verifyDirectoryStructure(cache, INDEXNAME);
    }
    
+   @Test
+   public void testReadAheadAndLocalChunkCache() throws IOException {
+      final int BUFFER_SIZE = 64;
+      final int FILE_SIZE = 1000;
+
+      Cache cache = cacheManager.getCache();
+      InfinispanDirectory dir = new InfinispanDirectory(cache, cache, cache, INDEXNAME, BUFFER_SIZE);
+      dir.setReadAheadChunks(3);
+      dir.setLocalChunkCacheSize(100);
+
+      createFileWithRepeatableContent(dir, "ReadAheadFile.txt", FILE_SIZE);
+      // sequential scans, served by the read-ahead first and by the local chunks afterwards
+      assertReadByteWorkingCorrectly(dir, "ReadAheadFile.txt", FILE_SIZE);
+      assertReadBytesWorkingCorrectly(dir, "ReadAheadFile.txt", FILE_SIZE, 100);
+
+      // a file written again under the same name must not be served from the local chunks
+      dir.deleteFile("ReadAheadFile.txt");
+      IndexOutput io = dir.createOutput("ReadAheadFile.txt");
+      byte[] zeros = new byte[FILE_SIZE];
+      io.writeBytes(zeros, FILE_SIZE);
+      io.close();
+      IndexInput indexInput = dir.openInput("ReadAheadFile.txt");
+      byte[] read = new byte[FILE_SIZE];
+      indexInput.readBytes(read, 0, FILE_SIZE);
+      indexInput.close();
+      assert Arrays.equals(zeros, read);
+
+      dir.close();
+      DirectoryIntegrityCheck.verifyDirectoryStructure(cache, INDEXNAME);
+   }
+
    /**
     * Used to verify that IndexInput.readBytes method reads correctly the whole file content comparing the
     * result with the expected sequence of bytes
@@ -210,6 +210,12 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue] extends Decoder {
       newVersion(rpcManager != null)
    }
 
+}
+
+object AbstractProtocolDecoder extends Logging {
+   private val SecondsInAMonth = 60 * 60 * 24 * 30
+   private val DefaultTimeUnit = TimeUnit.MILLISECONDS 
+
    /**
     * Transforms lifespan pass as seconds into milliseconds
     * following this rule:
@@ -222,7 +228,7 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue] extends Decoder {
     * Otherwise it's just considered number of seconds from
     * now and it's returned in milliseconds unit.
     */
-   protected def toMillis(lifespan: Int): Long = {
+   def toMillis(lifespan: Int): Long = {
       if (lifespan > SecondsInAMonth) {
          val unixTimeExpiry = TimeUnit.SECONDS.toMillis(lifespan) - System.currentTimeMillis
          if (unixTimeExpiry < 0) 0 else unixTimeExpiry
@@ -230,12 +236,6 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue] extends Decoder {
          TimeUnit.SECONDS.toMillis(lifespan)
       }
    }
-
-}
-
-object AbstractProtocolDecoder extends Logging {
-   private val SecondsInAMonth = 60 * 60 * 24 * 30
-   private val DefaultTimeUnit = TimeUnit.MILLISECONDS 
 }
 
 class RequestHeader(val op: Enumeration#Value) {
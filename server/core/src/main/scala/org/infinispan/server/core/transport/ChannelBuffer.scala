@@ -29,6 +29,11 @@ abstract class ChannelBuffer {
     */
    def readUnsignedByte: Short
 
+   /**
+    * Get the unsigned Byte at the given absolute index, without modifying the reader index.
+    */
+   def getUnsignedByte(index: Int): Short
+
    /**
     * Read an unsigned, variable length, Int from the buffer.
     */
@@ -18,4 +18,12 @@ object ChannelBuffers {
       ChannelBuffersAdapter.dynamicBuffer
    }
 
+   /**
+    * Returns a dynamic buffer that wraps, instead of copying, the byte arrays of at least <tt>minWrapLength</tt> bytes
+    * written to it. Those arrays must not be modified once written.
+    */
+   def compositeBuffer(minWrapLength: Int): ChannelBuffer = {
+      ChannelBuffersAdapter.compositeBuffer(minWrapLength)
+   }
+
 }
\ No newline at end of file
@@ -15,11 +15,12 @@ class ChannelBufferAdapter(buffer: NettyChannelBuffer) extends ChannelBuffer {
    override def readByte: Byte = buffer.readByte
    override def readBytes(dst: Array[Byte], dstIndex: Int, length: Int) = buffer.readBytes(dst, dstIndex, length)
    override def readUnsignedByte: Short = buffer.readUnsignedByte
+   override def getUnsignedByte(index: Int): Short = buffer.getUnsignedByte(index)
    override def readUnsignedInt: Int = VInt.read(this)
    override def readUnsignedLong: Long = VLong.read(this)
    override def readUnsignedShort: Int = buffer.readUnsignedShort
    override def readBytes(length: Int): ChannelBuffer = new ChannelBufferAdapter(buffer.readBytes(length))
-   override def readerIndex: Int = readerIndex
+   override def readerIndex: Int = buffer.readerIndex
    override def readBytes(dst: Array[Byte]) = buffer.readBytes(dst) 
    override def readRangedBytes: Array[Byte] = {
       val length = readUnsignedInt
@@ -28,7 +29,7 @@ class ChannelBufferAdapter(buffer: NettyChannelBuffer) extends ChannelBuffer {
          readBytes(array)
          array;
       } else {
-         Array[Byte]()
+         ChannelBufferAdapter.EmptyBytes
       }
    }
    override def readableBytes = buffer.writerIndex - buffer.readerIndex
@@ -67,4 +68,6 @@ class ChannelBufferAdapter(buffer: NettyChannelBuffer) extends ChannelBuffer {
 
 }
 
-object ChannelBufferAdapter extends Logging
+object ChannelBufferAdapter extends Logging {
+   private val EmptyBytes = new Array[Byte](0)
+}
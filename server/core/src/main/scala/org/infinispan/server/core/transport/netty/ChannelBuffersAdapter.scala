@@ -19,4 +19,8 @@ object ChannelBuffersAdapter {
       new ChannelBufferAdapter(NettyChannelBuffers.dynamicBuffer());
    }
 
+   def compositeBuffer(minWrapLength: Int): ChannelBuffer = {
+      new CompositeChannelBufferAdapter(minWrapLength)
+   }
+
 }
\ No newline at end of file
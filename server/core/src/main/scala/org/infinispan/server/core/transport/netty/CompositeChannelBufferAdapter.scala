@@ -0,0 +1,105 @@
+package org.infinispan.server.core.transport.netty
+
+import org.jboss.netty.buffer.{ChannelBuffer => NettyChannelBuffer, ChannelBuffers => NettyChannelBuffers}
+import org.infinispan.server.core.transport.{VLong, VInt, ChannelBuffer}
+import collection.mutable.ListBuffer
+
+/**
+ * A channel buffer, meant to be written to, that does not copy byte arrays of at least <tt>minWrapLength</tt> bytes.
+ * Such arrays are wrapped instead, and the underlying buffer is a Netty composite buffer made of the wrapped arrays
+ * and of the dynamic buffers holding everything written in between them. The wrapped arrays must not be modified
+ * until the buffer has been written to the channel.
+ *
+ * @since 5.0
+ */
+class CompositeChannelBufferAdapter(minWrapLength: Int) extends ChannelBuffer {
+
+   private val components = new ListBuffer[NettyChannelBuffer]
+   private var current: NettyChannelBuffer = null
+   private var length = 0
+   private var readBuffer: NettyChannelBuffer = null
+   private var readView: ChannelBuffer = null
+
+   private def writable: NettyChannelBuffer = {
+      if (readView != null) throw new IllegalStateException("Buffer has already been read from")
+      if (current == null) {
+         current = NettyChannelBuffers.dynamicBuffer
+         components += current
+      }
+      current
+   }
+
+   private def reader: ChannelBuffer = {
+      if (readView == null) {
+         readBuffer = underlying
+         readView = new ChannelBufferAdapter(readBuffer)
+      }
+      readView
+   }
+
+   private def underlying: NettyChannelBuffer =
+      NettyChannelBuffers.wrappedBuffer(components : _*)
+
+   override def readByte: Byte = reader.readByte
+   override def readBytes(dst: Array[Byte], dstIndex: Int, length: Int) = reader.readBytes(dst, dstIndex, length)
+   override def readUnsignedByte: Short = reader.readUnsignedByte
+   override def getUnsignedByte(index: Int): Short = reader.getUnsignedByte(index)
+   override def readUnsignedInt: Int = reader.readUnsignedInt
+   override def readUnsignedLong: Long = reader.readUnsignedLong
+   override def readUnsignedShort: Int = reader.readUnsignedShort
+   override def readBytes(length: Int): ChannelBuffer = reader.readBytes(length)
+   override def readerIndex: Int = if (readBuffer == null) 0 else readBuffer.readerIndex
+   override def readBytes(dst: Array[Byte]) = reader.readBytes(dst)
+   override def readRangedBytes: Array[Byte] = reader.readRangedBytes
+   override def readableBytes = if (readBuffer == null) length else readBuffer.readableBytes
+   override def readString: String = reader.readString
+   override def readLong: Long = reader.readLong
+   override def readInt: Int = reader.readInt
+
+   override def writeByte(value: Byte) {
+      writable.writeByte(value)
+      length += 1
+   }
+
+   override def writeBytes(src: Array[Byte]) {
+      if (src.length >= minWrapLength) {
+         writable // fail early if already read from
+         components += NettyChannelBuffers.wrappedBuffer(src)
+         // anything written after the wrapped array goes into a new dynamic buffer
+         current = null
+      } else {
+         writable.writeBytes(src)
+      }
+      length += src.length
+   }
+
+   override def writeRangedBytes(src: Array[Byte]) {
+      writeUnsignedInt(src.length)
+      writeBytes(src)
+   }
+   override def writeUnsignedInt(i: Int) = VInt.write(this, i)
+   override def writeUnsignedLong(l: Long) = VLong.write(this, l)
+
+   override def writeUnsignedShort(i: Int) {
+      writable.writeShort(i)
+      length += 2
+   }
+
+   override def writerIndex: Int = length
+
+   override def writeString(msg: String) = writeRangedBytes(msg.getBytes())
+
+   override def writeLong(l: Long) {
+      writable.writeLong(l)
+      length += 8
+   }
+
+   override def writeInt(i: Int) {
+      writable.writeInt(i)
+      length += 4
+   }
+
+   override def getUnderlyingChannelBuffer: AnyRef =
+      if (readBuffer == null) underlying else readBuffer
+
+}
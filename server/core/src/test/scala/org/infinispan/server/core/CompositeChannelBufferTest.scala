@@ -0,0 +1,52 @@
+package org.infinispan.server.core
+
+import org.testng.annotations.Test
+import org.testng.Assert._
+import org.infinispan.server.core.transport.ChannelBuffers
+import org.jboss.netty.buffer.{ChannelBuffer => NettyChannelBuffer}
+
+/**
+ * Tests the buffer returned by {@link ChannelBuffers#compositeBuffer}.
+ *
+ * @since 5.0
+ */
+@Test(groups = Array("functional"), testName = "server.core.CompositeChannelBufferTest")
+class CompositeChannelBufferTest {
+
+   def testWrapsBigArrays {
+      val small = Array[Byte](1, 2, 3)
+      val big = new Array[Byte](16)
+      for (i <- 0 until big.length) big(i) = i.toByte
+
+      val buffer = ChannelBuffers.compositeBuffer(8)
+      buffer.writeByte(0xA1.toByte)
+      buffer.writeRangedBytes(small)
+      buffer.writeRangedBytes(big)
+      buffer.writeLong(42)
+      assertEquals(buffer.writerIndex, 1 + 1 + 3 + 1 + 16 + 8)
+
+      // the big array is wrapped, so a change to it shows through, whereas the small one was copied
+      big(0) = 99
+      small(0) = 99
+
+      val underlying = buffer.getUnderlyingChannelBuffer.asInstanceOf[NettyChannelBuffer]
+      assertEquals(underlying.readableBytes, buffer.writerIndex)
+      assertEquals(buffer.readByte, 0xA1.toByte)
+      assertEquals(buffer.readRangedBytes.toList, List[Byte](1, 2, 3))
+      val readBig = buffer.readRangedBytes
+      assertEquals(readBig.length, 16)
+      assertEquals(readBig(0), 99.toByte)
+      assertEquals(readBig(15), 15.toByte)
+      assertEquals(buffer.readLong, 42)
+      assertEquals(buffer.readableBytes, 0)
+   }
+
+   @Test(expectedExceptions = Array(classOf[IllegalStateException]))
+   def testNoWritesAfterReads {
+      val buffer = ChannelBuffers.compositeBuffer(8)
+      buffer.writeInt(1)
+      buffer.readInt
+      buffer.writeInt(2)
+   }
+
+}
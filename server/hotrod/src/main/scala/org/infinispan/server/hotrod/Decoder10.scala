@@ -13,6 +13,9 @@ import org.infinispan.util.concurrent.TimeoutException
 import java.io.IOException
 import org.infinispan.context.Flag.SKIP_REMOTE_LOOKUP
 import org.infinispan.util.ByteArrayKey
+import org.infinispan.server.core.AbstractProtocolDecoder.toMillis
+import org.infinispan.server.core.VersionGenerator.newVersion
+import java.util.concurrent.TimeUnit.MILLISECONDS
 
 /**
  * HotRod protocol decoder specific for specification version 1.0.
@@ -41,6 +44,9 @@ object Decoder10 extends AbstractVersionedDecoder with Logging {
          case 0x15 => StatsRequest
          case 0x17 => PingRequest
          case 0x19 => BulkGetRequest
+         case 0x1B => GetAllRequest
+         case 0x1D => PutAllRequest
+         case 0x1F => RemoveAllRequest
          case _ => throw new HotRodUnknownOperationException("Unknown operation: " + streamOp, messageId)
       }
       if (isTraceEnabled) trace("Operation code: %d has been matched to %s", streamOp, op)
@@ -155,9 +161,40 @@ object Decoder10 extends AbstractVersionedDecoder with Logging {
             if (isTraceEnabled) trace("About to create bulk response, count = " + count)
             new BulkGetResponse(h.messageId, h.cacheName, h.clientIntel, BulkGetResponse, Success, h.topologyId, count)
          }
+         case GetAllRequest => {
+            val keys = readKeys(buffer)
+            // Not optimised with SKIP_REMOTE_LOOKUP: keys the client did not route to their owner must still be found
+            val entries = cache.getAll(keys)
+            if (isTraceEnabled) trace("Found %d out of %d requested keys", entries.size, keys.size)
+            new GetAllResponse(h.messageId, h.cacheName, h.clientIntel, GetAllResponse, Success, h.topologyId, entries)
+         }
+         case PutAllRequest => {
+            val lifespan = readLifespanOrMaxIdle(buffer)
+            val maxIdle = readLifespanOrMaxIdle(buffer)
+            val count = buffer.readUnsignedInt
+            val isClustered = cache.getAdvancedCache.getRpcManager != null
+            val entries = new java.util.HashMap[ByteArrayKey, CacheValue]
+            for (i <- 0 until count)
+               entries.put(readKey(buffer), new CacheValue(buffer.readRangedBytes, newVersion(isClustered)))
+            getOptimizedCache(h, cache).putAll(entries, toMillis(lifespan), MILLISECONDS, toMillis(maxIdle), MILLISECONDS)
+            new Response(h.messageId, h.cacheName, h.clientIntel, PutAllResponse, Success, h.topologyId)
+         }
+         case RemoveAllRequest => {
+            val keys = readKeys(buffer).iterator
+            val optimizedCache = getOptimizedCache(h, cache)
+            while (keys.hasNext) optimizedCache.remove(keys.next)
+            new Response(h.messageId, h.cacheName, h.clientIntel, RemoveAllResponse, Success, h.topologyId)
+         }
       }
    }
 
+   private def readKeys(buffer: ChannelBuffer): java.util.Set[ByteArrayKey] = {
+      val count = buffer.readUnsignedInt
+      val keys = new java.util.HashSet[ByteArrayKey]
+      for (i <- 0 until count) keys.add(readKey(buffer))
+      keys
+   }
+
    override def createStatsResponse(h: HotRodHeader, cacheStats: Stats): AnyRef = {
       val stats = mutable.Map.empty[String, String]
       stats += ("timeSinceStart" -> cacheStats.getTimeSinceStart.toString)
@@ -206,6 +243,9 @@ object Decoder10 extends AbstractVersionedDecoder with Logging {
          case StatsRequest => StatsResponse
          case PingRequest => PingResponse
          case BulkGetRequest => BulkGetResponse
+         case GetAllRequest => GetAllResponse
+         case PutAllRequest => PutAllResponse
+         case RemoveAllRequest => RemoveAllResponse
       }
    }
 
@@ -226,6 +266,9 @@ object OperationResponse extends Enumeration {
    val StatsResponse = Value(0x16)
    val PingResponse = Value(0x18)
    val BulkGetResponse = Value(0x1A)
+   val GetAllResponse = Value(0x1C)
+   val PutAllResponse = Value(0x1E)
+   val RemoveAllResponse = Value(0x20)
    val ErrorResponse = Value(0x50)
 }
 
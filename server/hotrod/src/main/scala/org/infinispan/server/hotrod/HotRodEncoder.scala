@@ -71,6 +71,13 @@ class HotRodEncoder(cacheManager: EmbeddedCacheManager) extends Encoder {
                buffer.writeByte(0) // Done
             }
          }
+         case g: GetAllResponse => {
+            buffer.writeUnsignedInt(g.entries.size)
+            for (entry <- asIterator(g.entries.entrySet.iterator)) {
+               buffer.writeRangedBytes(entry.getKey.getData)
+               buffer.writeRangedBytes(entry.getValue.data)
+            }
+         }
          case g: GetResponse => if (g.status == Success) buffer.writeRangedBytes(g.data.get)
          case e: ErrorResponse => buffer.writeString(e.msg)
          case _ => if (buffer == null) throw new IllegalArgumentException("Response received is unknown: " + msg);         
@@ -105,7 +112,8 @@ class HotRodEncoder(cacheManager: EmbeddedCacheManager) extends Encoder {
    }
 
    private def writeHeader(r: Response, isTrace: Boolean, topologyResp: AbstractTopologyResponse): ChannelBuffer = {
-      val buffer = dynamicBuffer
+      // Cached keys and values are never modified, so big ones are wrapped into the response rather than copied
+      val buffer = compositeBuffer(MinWrapLength)
       buffer.writeByte(Magic.byteValue)
       buffer.writeUnsignedLong(r.messageId)
       buffer.writeByte(r.operation.id.byteValue)
@@ -215,4 +223,6 @@ class HotRodEncoder(cacheManager: EmbeddedCacheManager) extends Encoder {
 
 object HotRodEncoder extends Logging {
    private val Magic = 0xA1
+   // Below this size, copying a byte array is cheaper than adding a component to a composite buffer
+   private val MinWrapLength = 256
 }
@@ -0,0 +1,105 @@
+package org.infinispan.server.memcached
+
+import org.infinispan.server.core.transport.ChannelBuffer
+import org.infinispan.server.core.transport.ChannelBuffers._
+import java.nio.ByteBuffer
+
+/**
+ * Memcached binary protocol constants and utilities.
+ *
+ * @since 5.0
+ */
+trait BinaryProtocolUtil {
+
+   val RequestMagic: Short = 0x80
+   val ResponseMagic = 0x81
+   val HeaderLength = 24
+
+   // Opcodes
+   val OpGet = 0x00
+   val OpSet = 0x01
+   val OpAdd = 0x02
+   val OpReplace = 0x03
+   val OpDelete = 0x04
+   val OpIncrement = 0x05
+   val OpDecrement = 0x06
+   val OpQuit = 0x07
+   val OpFlush = 0x08
+   val OpGetQ = 0x09
+   val OpNoop = 0x0A
+   val OpVersion = 0x0B
+   val OpGetK = 0x0C
+   val OpGetKQ = 0x0D
+   val OpAppend = 0x0E
+   val OpPrepend = 0x0F
+   val OpStat = 0x10
+   val OpSetQ = 0x11
+   val OpAddQ = 0x12
+   val OpReplaceQ = 0x13
+   val OpDeleteQ = 0x14
+   val OpIncrementQ = 0x15
+   val OpDecrementQ = 0x16
+   val OpQuitQ = 0x17
+   val OpFlushQ = 0x18
+   val OpAppendQ = 0x19
+   val OpPrependQ = 0x1A
+   val OpVerbosity = 0x1B
+
+   // Response statuses
+   val NoError = 0x0000
+   val KeyNotFound = 0x0001
+   val KeyExists = 0x0002
+   val ValueTooLarge = 0x0003
+   val InvalidArguments = 0x0004
+   val ItemNotStored = 0x0005
+   val NonNumericValue = 0x0006
+   val UnknownCommand = 0x0081
+   val InternalError = 0x0084
+
+   val EmptyBytes = new Array[Byte](0)
+
+   val KeyCharset = "ISO-8859-1"
+
+   def isQuiet(opcode: Int): Boolean = opcode match {
+      case OpGetQ | OpGetKQ | OpSetQ | OpAddQ | OpReplaceQ | OpDeleteQ | OpIncrementQ | OpDecrementQ | OpQuitQ | OpFlushQ | OpAppendQ | OpPrependQ => true
+      case _ => false
+   }
+
+   /**
+    * Builds a response to the given request. The key and value arrays are wrapped, not copied.
+    */
+   def binaryResponse(h: MemcachedBinaryHeader, status: Int, cas: Long, extras: Array[Byte], key: Array[Byte],
+                      value: Array[Byte]): ChannelBuffer = {
+      val header = new Array[Byte](HeaderLength)
+      val b = ByteBuffer.wrap(header)
+      b.put(ResponseMagic.toByte)
+      b.put(h.opcode.toByte)
+      b.putShort(key.length.toShort)
+      b.put(extras.length.toByte)
+      b.put(0.toByte) // Data type
+      b.putShort(status.toShort)
+      b.putInt(extras.length + key.length + value.length)
+      b.putInt(h.opaque)
+      b.putLong(cas)
+      wrappedBuffer(header, extras, key, value)
+   }
+
+   def binaryResponse(h: MemcachedBinaryHeader, status: Int, cas: Long): ChannelBuffer =
+      binaryResponse(h, status, cas, EmptyBytes, EmptyBytes, EmptyBytes)
+
+   def binaryErrorResponse(h: MemcachedBinaryHeader, status: Int, message: String): ChannelBuffer =
+      binaryResponse(h, status, 0, EmptyBytes, EmptyBytes, if (message == null) EmptyBytes else message.getBytes)
+
+   def toKey(bytes: Array[Byte]): String = new String(bytes, KeyCharset)
+
+   def toBytes(key: String): Array[Byte] = key.getBytes(KeyCharset)
+
+   def toInt(bytes: Array[Byte], offset: Int): Int = ByteBuffer.wrap(bytes).getInt(offset)
+
+   def toLong(bytes: Array[Byte], offset: Int): Long = ByteBuffer.wrap(bytes).getLong(offset)
+
+   def fromInt(i: Int): Array[Byte] = ByteBuffer.allocate(4).putInt(i).array
+
+   def fromLong(l: Long): Array[Byte] = ByteBuffer.allocate(8).putLong(l).array
+
+}
@@ -0,0 +1,352 @@
+package org.infinispan.server.memcached
+
+import org.infinispan.server.core.Operation._
+import org.infinispan.server.memcached.MemcachedOperation._
+import org.infinispan.context.Flag
+import java.util.concurrent.{TimeUnit, ScheduledExecutorService}
+import java.io.{IOException, StreamCorruptedException}
+import java.nio.channels.ClosedChannelException
+import java.util.concurrent.atomic.AtomicLong
+import org.infinispan.stats.Stats
+import org.infinispan.server.core._
+import org.infinispan.server.core.AbstractProtocolDecoder.toMillis
+import org.infinispan.{AdvancedCache, Cache}
+import org.infinispan.util.Util
+import transport.{ExceptionEvent, ChannelHandlerContext, ChannelBuffer}
+
+/**
+ * A decoder for the Memcached binary protocol. Requests are framed by their header, so the whole request is read
+ * before being handled, and the quiet variants of the commands only get a response when they fail (or, for gets,
+ * when the key is found), which lets clients pipeline multi-gets as a sequence of <tt>getq</tt>/<tt>getkq</tt>
+ * requests terminated by a <tt>noop</tt>.
+ *
+ * @since 5.0
+ */
+class MemcachedBinaryDecoder(cache: Cache[String, MemcachedValue], scheduler: ScheduledExecutorService)
+      extends AbstractProtocolDecoder[String, MemcachedValue] with BinaryProtocolUtil {
+   import MemcachedBinaryDecoder._
+
+   type SuitableParameters = MemcachedParameters
+   type SuitableHeader = MemcachedBinaryHeader
+
+   private lazy val isStatsEnabled = cache.getConfiguration.isExposeJmxStatistics
+   private final val incrMisses = new AtomicLong(0)
+   private final val incrHits = new AtomicLong(0)
+   private final val decrMisses = new AtomicLong(0)
+   private final val decrHits = new AtomicLong(0)
+   private final val replaceIfUnmodifiedMisses = new AtomicLong(0)
+   private final val replaceIfUnmodifiedHits = new AtomicLong(0)
+   private final val replaceIfUnmodifiedBadval = new AtomicLong(0)
+
+   override def readHeader(buffer: ChannelBuffer): Option[MemcachedBinaryHeader] = {
+      val magic = buffer.readUnsignedByte
+      if (magic != RequestMagic)
+         throw new StreamCorruptedException("Unexpected magic byte in binary request: " + magic)
+      val opcode = buffer.readUnsignedByte
+      val keyLength = buffer.readUnsignedShort
+      val extrasLength = buffer.readUnsignedByte
+      buffer.readByte // Data type, reserved
+      buffer.readUnsignedShort // VBucket id, unused
+      val bodyLength = buffer.readInt
+      val opaque = buffer.readInt
+      val cas = buffer.readLong
+      val valueLength = bodyLength - extrasLength - keyLength
+      if (valueLength < 0)
+         throw new StreamCorruptedException("Body length " + bodyLength + " smaller than key and extras lengths")
+      val extras = readBytes(buffer, extrasLength)
+      val key = readBytes(buffer, keyLength)
+      val value = readBytes(buffer, valueLength)
+      val op = toRequest(opcode, cas)
+      if (isTraceEnabled) trace("Opcode %d has been matched to %s", opcode, op)
+      Some(new MemcachedBinaryHeader(op, opcode, opaque, cas, extras, key, value, isQuiet(opcode)))
+   }
+
+   private def readBytes(buffer: ChannelBuffer, length: Int): Array[Byte] = {
+      if (length > 0) {
+         val bytes = new Array[Byte](length)
+         buffer.readBytes(bytes)
+         bytes
+      } else {
+         EmptyBytes
+      }
+   }
+
+   override def readKey(h: MemcachedBinaryHeader, b: ChannelBuffer): (String, Boolean) = {
+      if (h.key.length == 0 || h.key.length > 250)
+         throw new IOException("Key length must be between 1 and 250 bytes: " + h.key.length)
+      (toKey(h.key), false)
+   }
+
+   override def readParameters(h: MemcachedBinaryHeader, b: ChannelBuffer): Option[MemcachedParameters] = {
+      h.op match {
+         case PutRequest | PutIfAbsentRequest | ReplaceRequest | ReplaceIfUnmodifiedRequest => {
+            if (h.extras.length != 8)
+               throw new IOException("Storage commands require 8 bytes of extras: " + h.extras.length)
+            val flags = toInt(h.extras, 0) & 0xFFFFFFFFL
+            val streamLifespan = toInt(h.extras, 4)
+            val lifespan = if (streamLifespan <= 0) -1 else streamLifespan
+            Some(new MemcachedParameters(h.value, lifespan, -1, h.cas, h.quiet, flags, "", 0))
+         }
+         case AppendRequest | PrependRequest =>
+            Some(new MemcachedParameters(h.value, -1, -1, h.cas, h.quiet, 0, "", 0))
+         case _ =>
+            Some(new MemcachedParameters(null, -1, -1, h.cas, h.quiet, 0, "", 0))
+      }
+   }
+
+   override def createValue(h: MemcachedBinaryHeader, p: MemcachedParameters, nextVersion: Long): MemcachedValue = {
+      h.newVersion = nextVersion
+      new MemcachedValue(p.data, nextVersion, p.flags)
+   }
+
+   override def getCache(h: MemcachedBinaryHeader): Cache[String, MemcachedValue] = cache
+
+   override def handleCustomRequest(h: MemcachedBinaryHeader, b: ChannelBuffer, cache: Cache[String, MemcachedValue],
+                                    ctx: ChannelHandlerContext): AnyRef = {
+      h.op match {
+         case AppendRequest | PrependRequest => {
+            val (k, params) = readKeyAndParams(h, b)
+            val prev = cache.get(k)
+            if (prev != null) {
+               val concatenated = h.op match {
+                  case AppendRequest => concat(prev.data, params.get.data)
+                  case PrependRequest => concat(params.get.data, prev.data)
+               }
+               val next = new MemcachedValue(concatenated, generateVersion(cache), prev.flags)
+               if (cache.replace(k, prev, next))
+                  if (h.quiet) null else binaryResponse(h, NoError, next.version)
+               else // Concurrently modified, so treat it as not stored, as the text protocol does
+                  binaryResponse(h, ItemNotStored, 0)
+            } else {
+               binaryResponse(h, ItemNotStored, 0)
+            }
+         }
+         case IncrementRequest | DecrementRequest => incrementOrDecrement(h, b, cache)
+         case RemoveIfUnmodifiedRequest => {
+            val (k, params) = readKeyAndParams(h, b)
+            val prev = cache.get(k)
+            if (prev == null) {
+               binaryResponse(h, KeyNotFound, 0)
+            } else if (prev.version != h.cas || !cache.remove(k, prev)) {
+               binaryResponse(h, KeyExists, 0)
+            } else {
+               if (h.quiet) null else binaryResponse(h, NoError, 0)
+            }
+         }
+         case FlushAllRequest => {
+            val flushDelay = if (h.extras.length >= 4) toInt(h.extras, 0) else 0
+            val flushFunction = (cache: AdvancedCache[String, MemcachedValue]) => cache.withFlags(Flag.CACHE_MODE_LOCAL, Flag.SKIP_CACHE_STORE).clear
+            if (flushDelay <= 0)
+               flushFunction(cache.getAdvancedCache)
+            else
+               scheduler.schedule(new DelayedFlushAll(cache, flushFunction), toMillis(flushDelay), TimeUnit.MILLISECONDS)
+            if (h.quiet) null else binaryResponse(h, NoError, 0)
+         }
+         case VersionRequest =>
+            binaryResponse(h, NoError, 0, EmptyBytes, EmptyBytes, org.infinispan.Version.VERSION.getBytes)
+         case NoopRequest | VerbosityRequest => binaryResponse(h, NoError, 0)
+         case QuitRequest => {
+            if (!h.quiet) ctx.getChannel.write(binaryResponse(h, NoError, 0))
+            ctx.getChannel.close
+            null
+         }
+         case _ => binaryErrorResponse(h, UnknownCommand, "Unknown command: " + h.opcode)
+      }
+   }
+
+   private def incrementOrDecrement(h: MemcachedBinaryHeader, b: ChannelBuffer, cache: Cache[String, MemcachedValue]): AnyRef = {
+      if (h.extras.length != 20)
+         throw new IOException("Increment and decrement require 20 bytes of extras: " + h.extras.length)
+      val (k, params) = readKeyAndParams(h, b)
+      val delta = toUnsigned(toLong(h.extras, 0))
+      val initial = toUnsigned(toLong(h.extras, 8))
+      val expiration = toInt(h.extras, 16)
+      val isIncrement = h.op == IncrementRequest
+      while (true) {
+         val prev = cache.get(k)
+         if (prev == null) {
+            if (isStatsEnabled) if (isIncrement) incrMisses.incrementAndGet else decrMisses.incrementAndGet
+            // An expiration of all ones means that the counter must not be created
+            if (expiration == -1) return binaryResponse(h, KeyNotFound, 0)
+            val next = new MemcachedValue(initial.toString.getBytes, generateVersion(cache), 0)
+            val lifespan = if (expiration <= 0) -1 else expiration
+            if (cache.putIfAbsent(k, next, toMillis(lifespan), TimeUnit.MILLISECONDS) == null)
+               return counterResponse(h, initial, next.version)
+         } else {
+            val prevCounter =
+               try {
+                  BigInt(new String(prev.data))
+               } catch {
+                  case n: NumberFormatException =>
+                     return binaryErrorResponse(h, NonNumericValue, "Cannot increment or decrement non-numeric value")
+               }
+            // Increments wrap around at 64 bits, decrements do not go below 0
+            val newCounter =
+               if (isIncrement) (prevCounter + delta) % TwoToThe64
+               else if (prevCounter < delta) BigInt(0) else prevCounter - delta
+            val next = new MemcachedValue(newCounter.toString.getBytes, generateVersion(cache), prev.flags)
+            if (cache.replace(k, prev, next)) {
+               if (isStatsEnabled) if (isIncrement) incrHits.incrementAndGet else decrHits.incrementAndGet
+               return counterResponse(h, newCounter, next.version)
+            }
+         }
+         // Concurrently modified, so try again
+      }
+      null
+   }
+
+   private def counterResponse(h: MemcachedBinaryHeader, counter: BigInt, version: Long): AnyRef =
+      if (h.quiet) null else binaryResponse(h, NoError, version, EmptyBytes, EmptyBytes, fromLong(counter.longValue))
+
+   private def toUnsigned(l: Long): BigInt = if (l >= 0) BigInt(l) else BigInt(l) + TwoToThe64
+
+   private def concat(a: Array[Byte], b: Array[Byte]): Array[Byte] = {
+      val data = new Array[Byte](a.length + b.length)
+      Array.copy(a, 0, data, 0, a.length)
+      Array.copy(b, 0, data, a.length, b.length)
+      data
+   }
+
+   override def createSuccessResponse(h: MemcachedBinaryHeader, params: Option[MemcachedParameters], prev: MemcachedValue): AnyRef = {
+      if (isStatsEnabled && h.op == ReplaceIfUnmodifiedRequest) replaceIfUnmodifiedHits.incrementAndGet
+      if (h.quiet) null else binaryResponse(h, NoError, h.newVersion)
+   }
+
+   override def createNotExecutedResponse(h: MemcachedBinaryHeader, params: Option[MemcachedParameters], prev: MemcachedValue): AnyRef = {
+      if (isStatsEnabled && h.op == ReplaceIfUnmodifiedRequest) replaceIfUnmodifiedBadval.incrementAndGet
+      h.op match {
+         case ReplaceRequest => binaryResponse(h, KeyNotFound, 0)
+         case _ => binaryResponse(h, KeyExists, 0)
+      }
+   }
+
+   override def createNotExistResponse(h: MemcachedBinaryHeader, params: Option[MemcachedParameters]): AnyRef = {
+      if (isStatsEnabled && h.op == ReplaceIfUnmodifiedRequest) replaceIfUnmodifiedMisses.incrementAndGet
+      binaryResponse(h, KeyNotFound, 0)
+   }
+
+   override def createGetResponse(h: MemcachedBinaryHeader, k: String, v: MemcachedValue): AnyRef = {
+      val key = if (h.returnKey) h.key else EmptyBytes
+      if (v != null)
+         binaryResponse(h, NoError, v.version, fromInt(v.flags.toInt), key, v.data)
+      else if (h.quiet)
+         null // Quiet gets only respond on hits
+      else
+         binaryResponse(h, KeyNotFound, 0, EmptyBytes, key, if (h.returnKey) EmptyBytes else NotFoundMessage)
+   }
+
+   override def createMultiGetResponse(h: MemcachedBinaryHeader, pairs: Map[String, MemcachedValue]): AnyRef =
+      null // Unsupported, binary multi-gets are pipelined quiet gets
+
+   override def createStatsResponse(h: MemcachedBinaryHeader, stats: Stats): AnyRef = {
+      // Only general statistics are supported, so stat groups get just the terminating packet
+      val statsList =
+         if (h.key.length > 0) List()
+         else List[(String, Any)](
+            ("pid", 0),
+            ("uptime", stats.getTimeSinceStart),
+            ("time", TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis)),
+            ("version", cache.getVersion),
+            ("curr_items", stats.getCurrentNumberOfEntries),
+            ("total_items", stats.getTotalNumberOfEntries),
+            ("cmd_get", stats.getRetrievals),
+            ("cmd_set", stats.getStores),
+            ("get_hits", stats.getHits),
+            ("get_misses", stats.getMisses),
+            ("delete_misses", stats.getRemoveMisses),
+            ("delete_hits", stats.getRemoveHits),
+            ("incr_misses", incrMisses),
+            ("incr_hits", incrHits),
+            ("decr_misses", decrMisses),
+            ("decr_hits", decrHits),
+            ("cas_misses", replaceIfUnmodifiedMisses),
+            ("cas_hits", replaceIfUnmodifiedHits),
+            ("cas_badval", replaceIfUnmodifiedBadval),
+            ("evictions", stats.getEvictions))
+      statsList.map { case (name, value) =>
+         binaryResponse(h, NoError, 0, EmptyBytes, name.getBytes, value.toString.getBytes)
+      } ::: List(binaryResponse(h, NoError, 0))
+   }
+
+   override def createErrorResponse(t: Throwable): AnyRef = {
+      t match {
+         case m: MemcachedBinaryException => binaryErrorResponse(m.header, m.status, m.getMessage)
+         case _ => null // No request to respond to, the channel gets closed
+      }
+   }
+
+   override protected def createServerException(e: Exception, h: Option[MemcachedBinaryHeader], b: ChannelBuffer): (Exception, Boolean) = {
+      h match {
+         // The whole request has been read already, so the connection can carry on being used
+         case Some(header) => {
+            val status = e match {
+               case i: IOException => InvalidArguments
+               case n: NumberFormatException => InvalidArguments
+               case _ => InternalError
+            }
+            (new MemcachedBinaryException(header, status, e), true)
+         }
+         case None => (e, false)
+      }
+   }
+
+   override def exceptionCaught(ctx: ChannelHandlerContext, e: ExceptionEvent) {
+      super.exceptionCaught(ctx, e)
+      e.getCause match {
+         case m: MemcachedBinaryException => // Responded to, the stream is still in sync
+         case c: ClosedChannelException => // Nothing to do
+         case _ => ctx.getChannel.close // The stream cannot be trusted anymore
+      }
+   }
+
+   private def toRequest(opcode: Int, cas: Long): Enumeration#Value = {
+      opcode match {
+         case OpGet | OpGetQ | OpGetK | OpGetKQ => GetRequest
+         case OpSet | OpSetQ => if (cas == 0) PutRequest else ReplaceIfUnmodifiedRequest
+         case OpAdd | OpAddQ => PutIfAbsentRequest
+         case OpReplace | OpReplaceQ => if (cas == 0) ReplaceRequest else ReplaceIfUnmodifiedRequest
+         case OpDelete | OpDeleteQ => if (cas == 0) RemoveRequest else RemoveIfUnmodifiedRequest
+         case OpIncrement | OpIncrementQ => IncrementRequest
+         case OpDecrement | OpDecrementQ => DecrementRequest
+         case OpQuit | OpQuitQ => QuitRequest
+         case OpFlush | OpFlushQ => FlushAllRequest
+         case OpNoop => NoopRequest
+         case OpVersion => VersionRequest
+         case OpAppend | OpAppendQ => AppendRequest
+         case OpPrepend | OpPrependQ => PrependRequest
+         case OpStat => StatsRequest
+         case OpVerbosity => VerbosityRequest
+         case _ => null // Answered with an unknown command error
+      }
+   }
+}
+
+object MemcachedBinaryDecoder extends Logging {
+   private val TwoToThe64 = BigInt(1) << 64
+   private val NotFoundMessage = "Not found".getBytes
+}
+
+class MemcachedBinaryException(val header: MemcachedBinaryHeader, val status: Int, cause: Throwable)
+      extends Exception(cause.getMessage, cause)
+
+class MemcachedBinaryHeader(override val op: Enumeration#Value, val opcode: Int, val opaque: Int, val cas: Long,
+                            val extras: Array[Byte], val key: Array[Byte], val value: Array[Byte],
+                            val quiet: Boolean) extends RequestHeader(op) {
+   /**
+    * Version of the value stored by this request, if any, which is returned as the CAS of the response.
+    */
+   var newVersion = 0L
+
+   def returnKey = opcode == 0x0C || opcode == 0x0D // GetK or GetKQ
+
+   override def toString = {
+      new StringBuilder().append("MemcachedBinaryHeader").append("{")
+         .append("op=").append(op)
+         .append(", opcode=").append(opcode)
+         .append(", opaque=").append(opaque)
+         .append(", cas=").append(cas)
+         .append(", key=").append(Util.printArray(key, false))
+         .append(", quiet=").append(quiet)
+         .append("}").toString
+   }
+}
@@ -9,6 +9,7 @@ import java.nio.channels.ClosedChannelException
 import java.util.concurrent.atomic.AtomicLong
 import org.infinispan.stats.Stats
 import org.infinispan.server.core._
+import org.infinispan.server.core.AbstractProtocolDecoder.toMillis
 import org.infinispan.{AdvancedCache, Version, CacheException, Cache}
 import org.infinispan.server.core.transport.ChannelBuffers._
 import org.infinispan.util.Util
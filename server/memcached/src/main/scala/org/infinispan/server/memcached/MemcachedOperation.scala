@@ -12,4 +12,6 @@ object MemcachedOperation extends Enumeration(10) {
    val IncrementRequest, DecrementRequest = Value
    val FlushAllRequest, VersionRequest = Value
    val VerbosityRequest, QuitRequest = Value
+   // Binary protocol only
+   val NoopRequest, RemoveIfUnmodifiedRequest = Value
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package org.infinispan.server.memcached
+
+import org.infinispan.Cache
+import java.util.concurrent.ScheduledExecutorService
+import org.infinispan.server.core.transport.{ExceptionEvent, ChannelHandlerContext, ChannelBuffer, Decoder}
+
+/**
+ * A per connection decoder that looks at the first byte sent by the client to find out whether it talks the text or
+ * the binary Memcached protocol, and then delegates to the corresponding decoder for the rest of the connection.
+ * Binary requests always start with the request magic byte, which is not a valid first character for a text command.
+ *
+ * @since 5.0
+ */
+class MemcachedProtocolDetector(cache: Cache[String, MemcachedValue], scheduler: ScheduledExecutorService)
+      extends Decoder with BinaryProtocolUtil {
+
+   private var delegate: Decoder = null
+
+   override def decode(ctx: ChannelHandlerContext, buffer: ChannelBuffer): AnyRef = {
+      if (delegate == null) {
+         // Peek, so that the selected decoder reads the request from the start
+         if (buffer.getUnsignedByte(buffer.readerIndex) == RequestMagic)
+            delegate = new MemcachedBinaryDecoder(cache, scheduler)
+         else
+            delegate = new MemcachedDecoder(cache, scheduler)
+      }
+      delegate.decode(ctx, buffer)
+   }
+
+   override def exceptionCaught(ctx: ChannelHandlerContext, e: ExceptionEvent) {
+      if (delegate != null)
+         delegate.exceptionCaught(ctx, e)
+      else // Nothing was decoded yet, so answer as the text decoder has always done
+         new MemcachedDecoder(cache, scheduler).exceptionCaught(ctx, e)
+   }
+
+   override def decodeLast(ctx: ChannelHandlerContext, buffer: ChannelBuffer): AnyRef =
+      if (delegate != null) delegate.decodeLast(ctx, buffer) else null
+
+}
@@ -8,7 +8,8 @@ import java.util.Properties
 
 /**
  * Memcached server defining its decoder/encoder settings. In fact, Memcached does not use an encoder since there's
- * no really common headers between protocol operations.
+ * no really common headers between protocol operations. Each connection can use either the text or the binary
+ * protocol, which is detected from the first request sent.
  *
  * @author Galder Zamarreño
  * @since 4.1
@@ -24,7 +25,7 @@ class MemcachedServer extends AbstractProtocolServer("Memcached") {
 
    override def getEncoder: Encoder = null
 
-   override def getDecoder: Decoder = new MemcachedDecoder(getCacheManager.getCache[String, MemcachedValue], scheduler)
+   override def getDecoder: Decoder = new MemcachedProtocolDetector(getCacheManager.getCache[String, MemcachedValue], scheduler)
 
    override def stop {
       super.stop
@@ -0,0 +1,99 @@
+package org.infinispan.server.memcached
+
+import java.lang.reflect.Method
+import java.util.concurrent.TimeUnit
+import org.testng.Assert._
+import org.testng.annotations.{AfterClass, Test}
+import net.spy.memcached.{CASResponse, MemcachedClient}
+import org.infinispan.Version
+
+/**
+ * Tests the Memcached binary protocol against Infinispan Memcached server, using the same server as text clients.
+ *
+ * @since 5.0
+ */
+@Test(groups = Array("functional"), testName = "server.memcached.MemcachedBinaryFunctionalTest")
+class MemcachedBinaryFunctionalTest extends MemcachedSingleNodeTest {
+
+   private lazy val binaryClient: MemcachedClient = createMemcachedBinaryClient(60000, server.getPort)
+
+   @AfterClass(alwaysRun = true)
+   def shutdownBinaryClient = binaryClient.shutdown
+
+   def testSetAndGet(m: Method) {
+      val f = binaryClient.set(k(m), 0, v(m))
+      assertTrue(f.get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertEquals(binaryClient.get(k(m)), v(m))
+      // Text clients see the same data
+      assertEquals(client.get(k(m)), v(m))
+   }
+
+   def testGetMiss(m: Method) {
+      assertNull(binaryClient.get(k(m)))
+   }
+
+   def testGetBulkMixingHitsAndMisses(m: Method) {
+      // Binary multi-gets are pipelined quiet gets, so misses get no response at all
+      assertTrue(binaryClient.set(k(m, "k1-"), 0, v(m, "v1-")).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.set(k(m, "k3-"), 0, v(m, "v3-")).get(timeout, TimeUnit.SECONDS).booleanValue)
+      val ret = binaryClient.getBulk(k(m, "k1-"), k(m, "k2-"), k(m, "k3-"))
+      assertEquals(ret.size, 2)
+      assertEquals(ret.get(k(m, "k1-")), v(m, "v1-"))
+      assertEquals(ret.get(k(m, "k3-")), v(m, "v3-"))
+   }
+
+   def testAdd(m: Method) {
+      assertTrue(binaryClient.add(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertFalse(binaryClient.add(k(m), 0, v(m, "v1-")).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertEquals(binaryClient.get(k(m)), v(m))
+   }
+
+   def testReplace(m: Method) {
+      assertFalse(binaryClient.replace(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.set(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.replace(k(m), 0, v(m, "v1-")).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertEquals(binaryClient.get(k(m)), v(m, "v1-"))
+   }
+
+   def testCas(m: Method) {
+      assertTrue(binaryClient.set(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      val value = binaryClient.gets(k(m))
+      assertEquals(value.getValue, v(m))
+      assertEquals(binaryClient.cas(k(m), value.getCas, v(m, "v1-")), CASResponse.OK)
+      assertEquals(binaryClient.cas(k(m), value.getCas, v(m, "v2-")), CASResponse.EXISTS)
+      assertEquals(binaryClient.get(k(m)), v(m, "v1-"))
+   }
+
+   def testDelete(m: Method) {
+      assertFalse(binaryClient.delete(k(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.set(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.delete(k(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertNull(binaryClient.get(k(m)))
+   }
+
+   def testAppendAndPrepend(m: Method) {
+      assertTrue(binaryClient.set(k(m), 0, "b").get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.append(0, k(m), "c").get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.prepend(0, k(m), "a").get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertEquals(binaryClient.get(k(m)), "abc")
+   }
+
+   def testIncrementAndDecrement(m: Method) {
+      assertEquals(binaryClient.incr(k(m), 1, 10), 10)
+      assertEquals(binaryClient.incr(k(m), 5, 10), 15)
+      assertEquals(binaryClient.decr(k(m), 20, 10), 0)
+   }
+
+   def testVersion {
+      val versions = binaryClient.getVersions
+      assertEquals(versions.size, 1)
+      assertEquals(versions.values.iterator.next, Version.VERSION)
+   }
+
+   def testFlush(m: Method) {
+      assertTrue(binaryClient.set(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.flush.get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertNull(binaryClient.get(k(m)))
+   }
+
+}